@@ -0,0 +1,296 @@
+package hashTable;
+
+import java.util.Random;
+
+// Cuckoo Hash table class
+//
+// CONSTRUCTION: a hashing function family and
+//               an approximate initial size or default of 101
+//
+// ******************PUBLIC OPERATIONS*********************
+// bool insert( x )       --> Insert x
+// bool remove( x )       --> Remove x
+// bool contains( x )     --> Return true if x is present
+// int size( )            --> Return number of items
+// void makeEmpty( )      --> Remove all items
+// int capacity( )        --> Return number of slots
+
+/**
+* Cuckoo hash table implementation of hash tables.
+* Every item sits in the slot picked by one of the functions of the
+* family, so a lookup probes at most getNumberOfFunctions( ) slots.
+* An insert that finds all its slots taken evicts one of the items
+* there and moves it to another of its slots, and so on; if that goes
+* on too long, the functions are replaced and everything is rehashed,
+* and after too many rehashes the table grows.
+* @author Mark Allen Weiss
+*/
+public class CuckooHashTable<AnyType>
+{
+ /**
+  * Construct the hash table.
+  * @param hf the hash family
+  */
+ public CuckooHashTable( HashFamily<? super AnyType> hf )
+ {
+     this( hf, DEFAULT_TABLE_SIZE );
+ }
+
+ /**
+  * Construct the hash table.
+  * @param hf the hash family
+  * @param size the approximate initial size.
+  */
+ public CuckooHashTable( HashFamily<? super AnyType> hf, int size )
+ {
+     allocateArray( nextPrime( size ) );
+     doClear( );
+     hashFunctions = hf;
+     numHashFunctions = hf.getNumberOfFunctions( );
+ }
+
+ /**
+  * Insert into the hash table. If the item is
+  * already present, return false.
+  * @param x the item to insert.
+  * @return true if x was inserted.
+  */
+ public boolean insert( AnyType x )
+ {
+     if( contains( x ) )
+         return false;
+
+     if( currentSize >= array.length * MAX_LOAD )
+         expand( );
+
+     return insertHelper1( x );
+ }
+
+ /**
+  * Remove from the hash table.
+  * @param x the item to remove.
+  * @return true if item was found and removed
+  */
+ public boolean remove( AnyType x )
+ {
+     int pos = findPos( x );
+
+     if( pos != -1 )
+     {
+         array[ pos ] = null;
+         currentSize--;
+     }
+
+     return pos != -1;
+ }
+
+ /**
+  * Find an item in the hash table.
+  * @param x the item to search for.
+  * @return true if item is found.
+  */
+ public boolean contains( AnyType x )
+ {
+     return findPos( x ) != -1;
+ }
+
+ /**
+  * Gets the size of the table.
+  * @return number of items in the hash table.
+  */
+ public int size( )
+ {
+     return currentSize;
+ }
+
+ /**
+  * Gets the length (potential capacity) of the table.
+  * @return length of the internal array in the hash table.
+  */
+ public int capacity( )
+ {
+     return array.length;
+ }
+
+ /**
+  * Make the hash table logically empty.
+  */
+ public void makeEmpty( )
+ {
+     doClear( );
+ }
+
+ private static final double MAX_LOAD = 0.40;
+ private static final int ALLOWED_REHASHES = 1;
+ private static final int DEFAULT_TABLE_SIZE = 101;
+
+ private final HashFamily<? super AnyType> hashFunctions;
+ private final int numHashFunctions;
+ private AnyType [ ] array;          // The array of elements
+ private int currentSize;            // The number of occupied cells
+ private int rehashes = 0;
+ private Random r = new Random( );
+
+ /**
+  * Method that searches all hash function places.
+  * @param x the item to search for.
+  * @return the position where the search terminates or -1 if not found.
+  */
+ private int findPos( AnyType x )
+ {
+     for( int i = 0; i < numHashFunctions; i++ )
+     {
+         int pos = myhash( x, i );
+         if( array[ pos ] != null && array[ pos ].equals( x ) )
+             return pos;
+     }
+
+     return -1;
+ }
+
+ /**
+  * Compute the hash code for x using specified hash function.
+  * @param x the item.
+  * @param which the hash function
+  * @return the hash code.
+  */
+ private int myhash( AnyType x, int which )
+ {
+     int hashVal = hashFunctions.hash( x, which );
+
+     hashVal %= array.length;
+     if( hashVal < 0 )
+         hashVal += array.length;
+
+     return hashVal;
+ }
+
+ /**
+  * Place x, evicting and moving other items as needed.
+  * @return true once x and everything it displaced are placed.
+  */
+ private boolean insertHelper1( AnyType x )
+ {
+     final int COUNT_LIMIT = 100;
+
+     while( true )
+     {
+         int lastPos = -1;
+         int pos;
+
+         for( int count = 0; count < COUNT_LIMIT; count++ )
+         {
+             for( int i = 0; i < numHashFunctions; i++ )
+             {
+                 pos = myhash( x, i );
+
+                 if( array[ pos ] == null )
+                 {
+                     array[ pos ] = x;
+                     currentSize++;
+                     return true;
+                 }
+             }
+
+             // none of the spots are available. Evict out a random one
+             int i = 0;
+             do
+             {
+                 pos = myhash( x, r.nextInt( numHashFunctions ) );
+             } while( pos == lastPos && i++ < 5 );
+
+             AnyType tmp = array[ lastPos = pos ];
+             array[ pos ] = x;
+             x = tmp;
+         }
+
+         if( ++rehashes > ALLOWED_REHASHES )
+         {
+             expand( );      // Make the table bigger
+             rehashes = 0;
+         }
+         else
+             rehash( );
+     }
+ }
+
+ /**
+  * Grow the table by a factor of 1 / MAX_LOAD; keep the functions.
+  */
+ private void expand( )
+ {
+     rehash( (int) ( array.length / MAX_LOAD ) );
+ }
+
+ /**
+  * Keep the size, but choose new hash functions.
+  */
+ private void rehash( )
+ {
+     hashFunctions.generateNewFunctions( );
+     rehash( array.length );
+ }
+
+ private void rehash( int newLength )
+ {
+     AnyType [ ] oldArray = array;
+
+     allocateArray( nextPrime( newLength ) );
+     currentSize = 0;
+
+     // Copy table over
+     for( AnyType str : oldArray )
+         if( str != null )
+             insert( str );
+ }
+
+ private void doClear( )
+ {
+     currentSize = 0;
+     for( int i = 0; i < array.length; i++ )
+         array[ i ] = null;
+ }
+
+ @SuppressWarnings( "unchecked" )
+ private void allocateArray( int arraySize )
+ {
+     array = (AnyType[]) new Object[ arraySize ];
+ }
+
+ /**
+  * Internal method to find a prime number at least as large as n.
+  * @param n the starting number (must be positive).
+  * @return a prime number larger than or equal to n.
+  */
+ private static int nextPrime( int n )
+ {
+     if( n % 2 == 0 )
+         n++;
+
+     for( ; !isPrime( n ); n += 2 )
+         ;
+
+     return n;
+ }
+
+ /**
+  * Internal method to test if a number is prime.
+  * Not an efficient algorithm.
+  * @param n the number to test.
+  * @return the result of the test.
+  */
+ private static boolean isPrime( int n )
+ {
+     if( n == 2 || n == 3 )
+         return true;
+
+     if( n == 1 || n % 2 == 0 )
+         return false;
+
+     for( int i = 3; i * i <= n; i += 2 )
+         if( n % i == 0 )
+             return false;
+
+     return true;
+ }
+}
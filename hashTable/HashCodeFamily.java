@@ -0,0 +1,41 @@
+package hashTable;
+
+import java.util.Random;
+
+/**
+* A family of hash functions for any item, built on its hashCode.
+* Each function multiplies the hash code by its own random odd 64-bit
+* constant and keeps the high half of the product, so items whose hash
+* codes are close together, such as consecutive Integers, are spread
+* apart, and different functions disagree about them.
+*/
+public class HashCodeFamily<AnyType> implements HashFamily<AnyType>
+{
+ /**
+  * Construct a family of d functions.
+  */
+ public HashCodeFamily( int d )
+ {
+     MULTIPLIERS = new long[ d ];
+     generateNewFunctions( );
+ }
+
+ public int getNumberOfFunctions( )
+ {
+     return MULTIPLIERS.length;
+ }
+
+ public void generateNewFunctions( )
+ {
+     for( int i = 0; i < MULTIPLIERS.length; i++ )
+         MULTIPLIERS[ i ] = r.nextLong( ) | 1;
+ }
+
+ public int hash( AnyType x, int which )
+ {
+     return (int) ( ( x.hashCode( ) * MULTIPLIERS[ which ] ) >>> 32 );
+ }
+
+ private final long [ ] MULTIPLIERS;
+ private final Random r = new Random( );
+}
@@ -0,0 +1,26 @@
+package hashTable;
+
+/**
+* A family of hash functions, as used by CuckooHashTable.
+* Each member maps an item to any int; the table reduces it to a slot.
+* @author Mark Allen Weiss
+*/
+public interface HashFamily<AnyType>
+{
+ /**
+  * Return hash function number which of x.
+  * @param x the item to hash.
+  * @param which the function to use, from 0 to getNumberOfFunctions( ) - 1.
+  */
+ int hash( AnyType x, int which );
+
+ /**
+  * Return the number of functions in use.
+  */
+ int getNumberOfFunctions( );
+
+ /**
+  * Replace every function with a new, randomly chosen one.
+  */
+ void generateNewFunctions( );
+}
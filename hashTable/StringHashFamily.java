@@ -0,0 +1,45 @@
+package hashTable;
+
+import java.util.Random;
+
+/**
+* A family of polynomial hash functions for Strings, each with its own
+* random multiplier.
+* @author Mark Allen Weiss
+*/
+public class StringHashFamily implements HashFamily<String>
+{
+ /**
+  * Construct a family of d functions.
+  */
+ public StringHashFamily( int d )
+ {
+     MULTIPLIERS = new int[ d ];
+     generateNewFunctions( );
+ }
+
+ public int getNumberOfFunctions( )
+ {
+     return MULTIPLIERS.length;
+ }
+
+ public void generateNewFunctions( )
+ {
+     for( int i = 0; i < MULTIPLIERS.length; i++ )
+         MULTIPLIERS[ i ] = r.nextInt( );
+ }
+
+ public int hash( String x, int which )
+ {
+     final int multiplier = MULTIPLIERS[ which ];
+     int hashVal = 0;
+
+     for( int i = 0; i < x.length( ); i++ )
+         hashVal = multiplier * hashVal + x.charAt( i );
+
+     return hashVal;
+ }
+
+ private final int [ ] MULTIPLIERS;
+ private final Random r = new Random( );
+}
@@ -1,492 +1,1623 @@
-package searchtrees;
-
-import java.util.Random;
-
-import javax.security.auth.x500.X500Principal;
-
-//AvlTree class
-//
-//CONSTRUCTION: with no initializer
-//
-//******************PUBLIC OPERATIONS*********************
-//void insert( x )       --> Insert x
-//void remove( x )       --> Remove x (unimplemented)
-//boolean contains( x )  --> Return true if x is present
-//boolean remove( x )    --> Return true if x was present
-//Comparable findMin( )  --> Return smallest item
-//Comparable findMax( )  --> Return largest item
-//boolean isEmpty( )     --> Return true if empty; else false
-//void makeEmpty( )      --> Remove all items
-//void printTree( )      --> Print tree in sorted order
-//******************ERRORS********************************
-//Throws UnderflowException as appropriate
-
-/**
-* Implements an AVL tree.
-* Note that all "matching" is based on the compareTo method.
-* @author Mark Allen Weiss
-*/
-public class AVLTree<AnyType extends Comparable<? super AnyType>>
-{
- /**
-  * Construct the tree.
-  */
- public AVLTree( )
- {
-     root = null;
- }
-
- /**
-  * Insert into the tree; duplicates are ignored.
-  * @param x the item to insert.
-  */
- public void insert( AnyType x )
- {
-     root = insert( x, root );
- }
-
- /**
-  * Remove from the tree. Nothing is done if x is not found.
-  * @param x the item to remove.
-  */
- public void remove( AnyType x )
- {
-     root = remove( x, root );
- }
-
-    
- /**
-  * Internal method to remove from a subtree.
-  * @param x the item to remove.
-  * @param t the node that roots the subtree.
-  * @return the new root of the subtree.
-  */
- private AvlNode<AnyType> remove( AnyType x, AvlNode<AnyType> t )
- {
-     if( t == null )
-         return t;   // Item not found; do nothing
-         
-     int compareResult = x.compareTo( t.element );
-         
-     if( compareResult < 0 )
-         t.left = remove( x, t.left );
-     else if( compareResult > 0 )
-         t.right = remove( x, t.right );
-     else if( t.left != null && t.right != null ) // Two children
-     {
-         t.element = findMin( t.right ).element;
-         t.right = remove( t.element, t.right );
-     }
-     else
-         t = ( t.left != null ) ? t.left : t.right;
-     return balance( t );
- }
- 
- /**
-  * Find the smallest item in the tree.
-  * @return smallest item or null if empty.
-  */
- public AnyType findMin( )
- {
-     if( isEmpty( ) )
-         return null; //throw new UnderflowException( );
-     return findMin( root ).element;
- }
-
- /**
-  * Find the largest item in the tree.
-  * @return the largest item of null if empty.
-  */
- public AnyType findMax( )
- {
-     if( isEmpty( ) )
-         return null; //throw new UnderflowException( );
-     return findMax( root ).element;
- }
-
- /**
-  * Find an item in the tree.
-  * @param x the item to search for.
-  * @return true if x is found.
-  */
- public boolean contains( AnyType x )
- {
-     return contains( x, root );
- }
-
- /**
-  * Make the tree logically empty.
-  */
- public void makeEmpty( )
- {
-     root = null;
- }
-
- /**
-  * Test if the tree is logically empty.
-  * @return true if empty, false otherwise.
-  */
- public boolean isEmpty( )
- {
-     return root == null;
- }
-
- /**
-  * Print the tree contents in sorted order.
-  */
- public void printTree( )
- {
-     if( isEmpty( ) )
-         System.out.println( "Empty tree" );
-     else
-         printTree( root );
- }
-
- private static final int ALLOWED_IMBALANCE = 1;
- 
- // Assume t is either balanced or within one of being balanced
- private AvlNode<AnyType> balance( AvlNode<AnyType> t )
- {
-     if( t == null )
-         return t;
-     
-     if( height( t.left ) - height( t.right ) > ALLOWED_IMBALANCE )
-         if( height( t.left.left ) >= height( t.left.right ) )
-             t = rotateWithLeftChild( t );
-         else
-             t = doubleWithLeftChild( t );
-     else
-     if( height( t.right ) - height( t.left ) > ALLOWED_IMBALANCE )
-         if( height( t.right.right ) >= height( t.right.left ) )
-             t = rotateWithRightChild( t );
-         else
-             t = doubleWithRightChild( t );
-
-     t.height = Math.max( height( t.left ), height( t.right ) ) + 1;
-     return t;
- }
- 
- public void checkBalance( )
- {
-     checkBalance( root );
- }
- 
- private int checkBalance( AvlNode<AnyType> t )
- {
-     if( t == null )
-         return -1;
-     
-     if( t != null )
-     {
-         int hl = checkBalance( t.left );
-         int hr = checkBalance( t.right );
-         if( Math.abs( height( t.left ) - height( t.right ) ) > 1 ||
-                 height( t.left ) != hl || height( t.right ) != hr )
-             System.out.println( "OOPS!!" );
-     }
-     
-     return height( t );
- }
- 
- 
- /**
-  * Internal method to insert into a subtree.
-  * @param x the item to insert.
-  * @param t the node that roots the subtree.
-  * @return the new root of the subtree.
-  */
- private AvlNode<AnyType> insert( AnyType x, AvlNode<AnyType> t )
- {
-     if( t == null )
-         return new AvlNode<>( x, null, null );
-     
-     int compareResult = x.compareTo( t.element );
-     
-     if( compareResult < 0 )
-         t.left = insert( x, t.left );
-     else if( compareResult > 0 )
-         t.right = insert( x, t.right );
-     else
-         ;  // Duplicate; do nothing
-     return balance( t );
- }
-
- /**
-  * Internal method to find the smallest item in a subtree.
-  * @param t the node that roots the tree.
-  * @return node containing the smallest item.
-  */
- private AvlNode<AnyType> findMin( AvlNode<AnyType> t )
- {
-     if( t == null )
-         return t;
-
-     while( t.left != null )
-         t = t.left;
-     return t;
- }
-
- /**
-  * Internal method to find the largest item in a subtree.
-  * @param t the node that roots the tree.
-  * @return node containing the largest item.
-  */
- private AvlNode<AnyType> findMax( AvlNode<AnyType> t )
- {
-     if( t == null )
-         return t;
-
-     while( t.right != null )
-         t = t.right;
-     return t;
- }
-
- /**
-  * Internal method to find an item in a subtree.
-  * @param x is item to search for.
-  * @param t the node that roots the tree.
-  * @return true if x is found in subtree.
-  */
- private boolean contains( AnyType x, AvlNode<AnyType> t )
- {
-     while( t != null )
-     {
-         int compareResult = x.compareTo( t.element );
-         
-         if( compareResult < 0 )
-             t = t.left;
-         else if( compareResult > 0 )
-             t = t.right;
-         else
-             return true;    // Match
-     }
-
-     return false;   // No match
- }
-
- /**
-  * Internal method to print a subtree in sorted order.
-  * @param t the node that roots the tree.
-  */
- private void printTree( AvlNode<AnyType> t )
- {
-     if( t != null )
-     {
-         printTree( t.left );
-         System.out.println( t.element );
-         printTree( t.right );
-     }
- }
-
- /**
-  * Return the height of node t, or -1, if null.
-  */
- private int height( AvlNode<AnyType> t )
- {
-     return t == null ? -1 : t.height;
- }
-
- /**
-  * Rotate binary tree node with left child.
-  * For AVL trees, this is a single rotation for case 1.
-  * Update heights, then return new root.
-  */
- private AvlNode<AnyType> rotateWithLeftChild( AvlNode<AnyType> k2 )
- {
-     AvlNode<AnyType> k1 = k2.left;
-     k2.left = k1.right;
-     k1.right = k2;
-     k2.height = Math.max( height( k2.left ), height( k2.right ) ) + 1;
-     k1.height = Math.max( height( k1.left ), k2.height ) + 1;
-     return k1;
- }
-
- /**
-  * Rotate binary tree node with right child.
-  * For AVL trees, this is a single rotation for case 4.
-  * Update heights, then return new root.
-  */
- private AvlNode<AnyType> rotateWithRightChild( AvlNode<AnyType> k1 )
- {
-     AvlNode<AnyType> k2 = k1.right;
-     k1.right = k2.left;
-     k2.left = k1;
-     k1.height = Math.max( height( k1.left ), height( k1.right ) ) + 1;
-     k2.height = Math.max( height( k2.right ), k1.height ) + 1;
-     return k2;
- }
-
- /**
-  * Double rotate binary tree node: first left child
-  * with its right child; then node k3 with new left child.
-  * For AVL trees, this is a double rotation for case 2.
-  * Update heights, then return new root.
-  */
- private AvlNode<AnyType> doubleWithLeftChild( AvlNode<AnyType> k3 )
- {
-     k3.left = rotateWithRightChild( k3.left );
-     return rotateWithLeftChild( k3 );
- }
-
- /**
-  * Double rotate binary tree node: first right child
-  * with its left child; then node k1 with new right child.
-  * For AVL trees, this is a double rotation for case 3.
-  * Update heights, then return new root.
-  */
- private AvlNode<AnyType> doubleWithRightChild( AvlNode<AnyType> k1 )
- {
-     k1.right = rotateWithLeftChild( k1.right );
-     return rotateWithRightChild( k1 );
- }
-
- private static class AvlNode<AnyType>
- {
-         // Constructors
-     AvlNode( AnyType theElement )
-     {
-         this( theElement, null, null );
-     }
-
-     AvlNode( AnyType theElement, AvlNode<AnyType> lt, AvlNode<AnyType> rt )
-     {
-         element  = theElement;
-         left     = lt;
-         right    = rt;
-         height   = 0;
-     }
-
-     AnyType           element;      // The data in the node
-     AvlNode<AnyType>  left;         // Left child
-     AvlNode<AnyType>  right;        // Right child
-     int               height;       // Height
- }
-
-   /** The tree root. */
- private AvlNode<AnyType> root;
-
- //Q4a: Insert 100,000 integer keys, from 1 to 100,000 (in that order). Find the average time for each insertion. 
- private static AVLTree<Integer> a = new AVLTree<Integer>();
- public static long insert_time(int NUMS)
- {
-	 	 
-	 long start, total_time = 0;
-	 
-	 for( int i = 1; i <= NUMS; i++)
-     {
-		 start = System.nanoTime();
-		 a.insert( i );
-		 total_time += System.nanoTime() - start;
-     }
-	 
-	 return total_time / NUMS;
-	 
- }
- 
- //Q4b: Do 100,000 searches of random integer keys between 1 and 100,000. Find the average time of each search. 
- public static long search_time(int NUMS)
- {
-	 long start, total_time = 0;
-	 
-     Random r = new Random( );
-	 
-	 for( int i = 1; i <= NUMS; i++)
-     {
-		 start =  System.nanoTime();
-		 if (!a.contains( r.nextInt(NUMS-1)+1 ))
-		 {
-		//	System.out.println("key " + i + " not found" );
-		 }
-		 total_time += System.nanoTime()-start;
-     }
-	 
-	 return total_time / NUMS;
-	 
- }
- 
-//Q4c: Delete all the keys in the trees, starting from 100,000 down to 1 (in that order). Find the average time of each deletion. 
- public static long delete_time(int NUMS)
- {
-	 
-	 long start, total_time = 0;
-	 
-	 for( int i = NUMS; i >= 1; i--)
-     {
-		 start = System.nanoTime();
-         a.remove( i );
-		 total_time += System.nanoTime() - start;
-     }
-	 
-	 return total_time / NUMS;
-	 
-}
- //Q5a: Insert 100,000 of random keys between 1 and 100,000. Find the average time of each search.
- public static long insertRandom_time(int NUMS)
- {
-	 long start, total_time = 0;
-	 Random r = new Random();
-	 
-	 for ( int i = 1; i <= NUMS; i++)
-	 {
-		 start = System.nanoTime();
-		 a.insert(r.nextInt(NUMS-1)+1);
-		 total_time += System.nanoTime() - start;
-	 }
-	 return total_time / NUMS;
-	 
- }
- // Q5c: Delete all the keys in the trees, with random keys between 1 and 100,000. Find the average time of each deletion. 
- // Note that not all the keys may be found in the tree. 
- public static long deleteRandom_time(int NUMS)
- {
-	 
-	 long start, total_time = 0;
-	 
-	 Random r = new Random( );
-	 
-	 for( int i = NUMS; i >= 1; i--)
-     {
-		 start = System.nanoTime();
-         a.remove(r.nextInt(NUMS-1)+1);
-         //H_temp.checkBalance( );
-		 total_time += System.nanoTime() - start;
-     }
-	 
-	 return total_time / NUMS;
-	 
-} 
-
-     // Test program
- public static void main( String [ ] args )
- {
- //    AVLTree<Integer> t = new AVLTree<>( );
-     final int NUMS = 1000000;  // must be even
-
-     System.out.println( "Create the tree..." );
-     long x[] = new long[6];    x[3]=insertRandom_time(NUMS);
-     x[4]=search_time(NUMS);
-     x[5]=delete_time(NUMS);
-     x[0]=insert_time(NUMS);
-     x[1]=search_time(NUMS);
-     x[2]=delete_time(NUMS);
- 
-     
-     System.out.println( "The time cost for insert is " + x[0]);  
-    
-     System.out.println( "The time cost for search is " + x[1]);
-        
-     System.out.println( "The time cost for delete is " + x[2] );
-     System.out.println( "Tree after removals:" );
-    a.printTree( );
-  
-     System.out.println( "The time cost for random insert is " + x[3] );
-     
- //    System.out.println( "Tree after insertions:" );
-     
-     System.out.println( "Second searching...");
-     System.out.println( "The time cost for second search is " + x[4]);
-     
-     
-     System.out.println( "The time cost for random delete is " + x[5]);
- }
-}
+package searchtrees;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import javax.security.auth.x500.X500Principal;
+
+//AvlTree class
+//
+//CONSTRUCTION: with no initializer
+//
+//******************PUBLIC OPERATIONS*********************
+//void insert( x )       --> Insert x
+//void remove( x )       --> Remove x (unimplemented)
+//boolean contains( x )  --> Return true if x is present
+//void containsBatch( k, o ) --> Set o[ i ] to true if k[ i ] is present
+//boolean remove( x )    --> Return true if x was present
+//Comparable findMin( )  --> Return smallest item
+//Comparable findMax( )  --> Return largest item
+//Comparable deleteMin( ) --> Remove and return smallest item
+//Comparable deleteMax( ) --> Remove and return largest item
+//void removeRange( l, h ) --> Remove all items between l and h
+//boolean isEmpty( )     --> Return true if empty; else false
+//int size( )            --> Return number of items
+//void makeEmpty( )      --> Remove all items
+//void setLazyDeletion( b, r ) --> Mark removed items; compact past ratio r
+//void compact( )        --> Rebuild without lazily deleted items
+//void buildSorted( a, n, p ) --> Replace items with a[ 0..n-1 ], built on pool p
+//void setBloomFilter( b ) --> Keep a filter that rejects absent items
+//void printTree( )      --> Print tree in sorted order
+//Iterator iterator( )   --> Return an in-order iterator
+//void export( out )     --> Write items to out in sorted order
+//void serialize( out )  --> Write the tree in compact binary form
+//static deserialize( in ) --> Rebuild a tree written by serialize
+//TreeMetrics metrics( ) --> Return the operation counts and latencies
+//TreeShape shape( )     --> Profile the depths of the nodes
+//TreeShape shape( s, r ) --> Estimate the depth profile from s probes
+//Object [ ] toArray( )  --> Return items in sorted order
+//Iterator levelOrder( ) --> Return a level-order iterator
+//Object [ ] toLevelOrderArray( ) --> Return items in level order
+//******************ERRORS********************************
+//Throws UnderflowException as appropriate
+
+/**
+* Implements an AVL tree.
+* Note that all "matching" is based on the compareTo method.
+* @author Mark Allen Weiss
+*/
+public class AVLTree<AnyType extends Comparable<? super AnyType>> implements SearchTree<AnyType>
+{
+ /**
+  * Construct the tree.
+  */
+ public AVLTree( )
+ {
+     root = null;
+ }
+
+ /**
+  * Insert into the tree; duplicates are ignored.
+  * @param x the item to insert.
+  */
+ public void insert( AnyType x )
+ {
+     long start = TreeMetrics.begin( );
+     TreeEvents.AvlRebalance event = TreeEvents.beginRebalance( );
+     rebalanceHeight = rebalanceRotations = 0;
+     int before = size( );
+
+     if( root != null && x.compareTo( cachedMax( ) ) > 0 )
+         appendMax( x );
+     else
+     {
+         if( root == null )
+             maxElement = x;
+         root = insert( x, root );
+         spineSize = 0;   // Rotations may have reshaped the right spine
+     }
+
+     if( filter != null && size( ) != before )
+     {
+         filter.add( x );
+         if( filter.isFull( ) )
+             filter.rebuild( this );
+     }
+     TreeEvents.endRebalance( event, this, size( ), "insert", rebalanceHeight, rebalanceRotations );
+     metrics.end( TreeMetrics.Op.INSERT, start );
+ }
+
+ /**
+  * Remove from the tree. Nothing is done if x is not found.
+  * @param x the item to remove.
+  */
+ public void remove( AnyType x )
+ {
+     long start = TreeMetrics.begin( );
+     TreeEvents.AvlRebalance event = TreeEvents.beginRebalance( );
+     rebalanceHeight = rebalanceRotations = 0;
+     removeItem( x );
+     TreeEvents.endRebalance( event, this, size( ), "remove", rebalanceHeight, rebalanceRotations );
+     metrics.end( TreeMetrics.Op.REMOVE, start );
+ }
+
+ /**
+  * Internal method to remove x, skipping the search if the Bloom
+  * filter rules it out.
+  * @param x the item to remove.
+  */
+ private void removeItem( AnyType x )
+ {
+     if( filter != null && !filter.mightContain( x ) )
+         return;
+     int before = size( );
+
+     if( lazyDeletion )
+         lazyRemove( x );
+     else if( root != null && x.compareTo( cachedMax( ) ) == 0 )
+         removeEnd( true );
+     else
+     {
+         root = remove( x, root );
+         spineSize = 0;
+     }
+
+     if( filter != null )
+     {
+         if( size( ) != before )
+             filter.remove( x );
+         else
+             filter.recordFalsePositive( );
+     }
+ }
+
+ /**
+  * Remove every item x with low <= x <= high. The tree is split around
+  * the range and the two outer parts are joined back together, so only
+  * O(log n) nodes are rebalanced however many items are removed. The
+  * counts kept in each node give the size of the detached part, so it
+  * is only walked if the Bloom filter is on and needs its items.
+  * @param low the smallest item to remove.
+  * @param high the largest item to remove.
+  */
+ public void removeRange( AnyType low, AnyType high )
+ {
+     if( root == null || low.compareTo( high ) > 0 )
+         return;
+     TreeEvents.BulkOperation event = TreeEvents.beginBulk( );
+     int before = size( );
+
+     split( root, low, false );
+     AvlNode<AnyType> left = splitLeft;
+     split( splitRight, high, true );
+     AvlNode<AnyType> middle = splitLeft;
+     root = join( left, splitRight );
+     splitLeft = splitRight = null;
+
+     nodeCount -= nodes( middle );
+     deletedCount -= dead( middle );
+
+     // Only the Bloom filter needs to visit the detached nodes
+     AvlNode<AnyType> [ ] stack = scratch;
+     int depth = 0;
+     if( middle != null && filter != null )
+         stack[ depth++ ] = middle;
+     while( depth > 0 )
+     {
+         AvlNode<AnyType> t = stack[ --depth ];
+         if( !t.deleted )
+             filter.remove( t.element );
+         if( t.left != null )
+             stack[ depth++ ] = t.left;
+         if( t.right != null )
+             stack[ depth++ ] = t.right;
+     }
+
+     maxElement = null;
+     spineSize = 0;
+     TreeEvents.endBulk( event, this, size( ), "removeRange", before - size( ) );
+ }
+
+ /**
+  * Internal method to split a subtree around x. The items smaller than
+  * x end up in splitLeft and the larger ones in splitRight; x itself
+  * goes to splitLeft if equalLeft is true.
+  * @param t the node that roots the subtree.
+  */
+ private void split( AvlNode<AnyType> t, AnyType x, boolean equalLeft )
+ {
+     if( t == null )
+     {
+         splitLeft = splitRight = null;
+         return;
+     }
+
+     int compareResult = x.compareTo( t.element );
+
+     if( compareResult < 0 || compareResult == 0 && !equalLeft )
+     {
+         split( t.left, x, equalLeft );
+         splitRight = join( splitRight, t, t.right );
+     }
+     else
+     {
+         split( t.right, x, equalLeft );
+         splitLeft = join( t.left, t, splitLeft );
+     }
+ }
+
+ /**
+  * Internal method to join two subtrees around node k, where every item
+  * in l is smaller than k.element and every item in r is larger.
+  * k descends the taller tree until the heights match, and the path
+  * back up is rebalanced.
+  * @return the root of the joined tree.
+  */
+ private AvlNode<AnyType> join( AvlNode<AnyType> l, AvlNode<AnyType> k, AvlNode<AnyType> r )
+ {
+     if( height( l ) - height( r ) > ALLOWED_IMBALANCE )
+     {
+         l.right = join( l.right, k, r );
+         return balance( l );
+     }
+     if( height( r ) - height( l ) > ALLOWED_IMBALANCE )
+     {
+         r.left = join( l, k, r.left );
+         return balance( r );
+     }
+
+     k.left = l;
+     k.right = r;
+     update( k );
+     return k;
+ }
+
+ /**
+  * Internal method to join two subtrees, where every item in l is
+  * smaller than every item in r.
+  * @return the root of the joined tree.
+  */
+ private AvlNode<AnyType> join( AvlNode<AnyType> l, AvlNode<AnyType> r )
+ {
+     if( r == null )
+         return l;
+     AvlNode<AnyType> min = findMin( r );
+     return join( l, min, removeMin( r ) );
+ }
+
+ /**
+  * Remove the smallest item from the tree.
+  * @return the smallest item or null if empty.
+  */
+ public AnyType deleteMin( )
+ {
+     while( root != null )
+     {
+         AvlNode<AnyType> end = removeEnd( false );
+         if( !end.deleted )
+         {
+             if( filter != null )
+                 filter.remove( end.element );
+             return end.element;
+         }
+     }
+     return null;
+ }
+
+ /**
+  * Remove the largest item from the tree.
+  * @return the largest item or null if empty.
+  */
+ public AnyType deleteMax( )
+ {
+     while( root != null )
+     {
+         AvlNode<AnyType> end = removeEnd( true );
+         if( !end.deleted )
+         {
+             if( filter != null )
+                 filter.remove( end.element );
+             return end.element;
+         }
+     }
+     return null;
+ }
+
+ /**
+  * Switch lazy deletion on or off. In lazy mode remove only marks the
+  * node as deleted, without any rotations, and the tree is compacted
+  * once the marked nodes make up more than the given share of it.
+  * @param on true to delete lazily.
+  * @param ratio the share of deleted nodes, in (0,1], that triggers compaction.
+  */
+ public void setLazyDeletion( boolean on, double ratio )
+ {
+     if( !( ratio > 0 && ratio <= 1 ) )
+         throw new IllegalArgumentException( "Compaction ratio must be in (0,1]: " + ratio );
+     lazyDeletion = on;
+     compactRatio = ratio;
+ }
+
+ /**
+  * Return the number of items in the tree, not counting lazily deleted ones.
+  */
+ public int size( )
+ {
+     return nodeCount - deletedCount;
+ }
+
+ /**
+  * Rebuild the tree as a perfectly balanced tree holding only the
+  * items that have not been lazily deleted.
+  */
+ public void compact( )
+ {
+     TreeEvents.BulkOperation event = TreeEvents.beginBulk( );
+     int dropped = deletedCount;
+     Object [ ] items = new Object[ size( ) ];
+     int n = 0;
+
+     AvlNode<AnyType> [ ] stack = scratch;
+     int depth = 0;
+     AvlNode<AnyType> t = root;
+     while( t != null || depth > 0 )
+     {
+         for( ; t != null; t = t.left )
+             stack[ depth++ ] = t;
+         t = stack[ --depth ];
+         if( !t.deleted )
+             items[ n++ ] = t.element;
+         t = t.right;
+     }
+
+     root = buildBalanced( items, 0, n - 1 );
+     nodeCount = n;
+     deletedCount = 0;
+     maxElement = null;
+     spineSize = 0;
+     TreeEvents.endBulk( event, this, size( ), "compact", dropped );
+ }
+
+ /**
+  * Internal method to build a perfectly balanced subtree.
+  * @param items sorted items.
+  * @param low index of the first item of the subtree.
+  * @param high index of the last item of the subtree.
+  * @return the root of the subtree.
+  */
+ @SuppressWarnings( "unchecked" )
+ private AvlNode<AnyType> buildBalanced( Object [ ] items, int low, int high )
+ {
+     if( low > high )
+         return null;
+
+     int mid = ( low + high ) >>> 1;
+     AvlNode<AnyType> t = new AvlNode<>( (AnyType) items[ mid ],
+                                         buildBalanced( items, low, mid - 1 ),
+                                         buildBalanced( items, mid + 1, high ) );
+     update( t );
+     return t;
+ }
+
+ /**
+  * Replace the contents of the tree with a perfectly balanced tree of
+  * the given items. The two halves of every range are independent, so
+  * large ranges are built as separate tasks on the pool.
+  * @param items the items, strictly increasing.
+  * @param n the number of items to use from the front of items.
+  * @param pool the pool to build on.
+  */
+ public void buildSorted( AnyType [ ] items, int n, ForkJoinPool pool )
+ {
+     TreeEvents.BulkOperation event = TreeEvents.beginBulk( );
+     root = pool.invoke( new BuildTask( items, 0, n - 1 ) );
+     nodeCount = n;
+     deletedCount = 0;
+     maxElement = null;
+     spineSize = 0;
+     if( filter != null )
+         filter.rebuild( this );
+     TreeEvents.endBulk( event, this, size( ), "buildSorted", n );
+ }
+
+ // Builds the subtree for items[ low..high ], forking the left half
+ private class BuildTask extends RecursiveTask<AvlNode<AnyType>>
+ {
+     BuildTask( Object [ ] items, int low, int high )
+     {
+         this.items = items;
+         this.low = low;
+         this.high = high;
+     }
+
+     @SuppressWarnings( "unchecked" )
+     protected AvlNode<AnyType> compute( )
+     {
+         if( high - low < BUILD_GRAIN )
+             return buildBalanced( items, low, high );
+
+         int mid = ( low + high ) >>> 1;
+         BuildTask left = new BuildTask( items, low, mid - 1 );
+         left.fork( );
+         AvlNode<AnyType> right = new BuildTask( items, mid + 1, high ).compute( );
+         AvlNode<AnyType> t = new AvlNode<>( (AnyType) items[ mid ], left.join( ), right );
+         update( t );
+         return t;
+     }
+
+     private final Object [ ] items;
+     private final int low;
+     private final int high;
+
+     private static final long serialVersionUID = 1L;
+ }
+
+ // Ranges smaller than this are built without forking
+ private static final int BUILD_GRAIN = 1 << 13;
+
+ /**
+  * Mark x as deleted, compacting the tree if too many nodes are marked.
+  * @param x the item to remove.
+  */
+ private void lazyRemove( AnyType x )
+ {
+     AvlNode<AnyType> t = root;
+     int n = 0;
+     while( t != null )
+     {
+         TreeMetrics.visit( );
+         scratch[ n++ ] = t;
+         int compareResult = x.compareTo( t.element );
+
+         if( compareResult < 0 )
+             t = t.left;
+         else if( compareResult > 0 )
+             t = t.right;
+         else
+         {
+             if( !t.deleted )
+             {
+                 t.deleted = true;
+                 while( n > 0 )
+                     scratch[ --n ].dead++;
+                 if( ++deletedCount > compactRatio * nodeCount )
+                     compact( );
+             }
+             return;
+         }
+     }
+ }
+
+ /**
+  * Internal method to find the first node, in sorted or in reverse
+  * order, that has not been lazily deleted.
+  * @param smallest true to search from the smallest item.
+  * @return the node, or null if there is none.
+  */
+ private AvlNode<AnyType> findLive( boolean smallest )
+ {
+     AvlNode<AnyType> [ ] stack = scratch;
+     int depth = 0;
+     AvlNode<AnyType> t = root;
+
+     while( t != null || depth > 0 )
+     {
+         for( ; t != null; t = smallest ? t.left : t.right )
+             stack[ depth++ ] = t;
+         t = stack[ --depth ];
+         if( !t.deleted )
+             return t;
+         t = smallest ? t.right : t.left;
+     }
+     return null;
+ }
+
+ /**
+  * Return the largest item, caching it for the append fast path.
+  * Assumes the tree is not empty.
+  */
+ private AnyType cachedMax( )
+ {
+     if( maxElement == null )
+         maxElement = findMax( root ).element;
+     return maxElement;
+ }
+
+ /**
+  * Insert a new maximum at the bottom of the right spine.
+  * No comparisons are needed, and rebalancing walks back up the
+  * cached spine only until a node keeps its shape and height.
+  * @param x the item to insert; larger than every item in the tree.
+  */
+ private void appendMax( AnyType x )
+ {
+     int n = loadSpine( );
+     int stop = rebalancePath( spine, n - 1, new AvlNode<>( x, null, null ), true );
+     extendSpine( stop + 1 );
+     maxElement = x;
+     nodeCount++;
+ }
+
+ /**
+  * Remove the smallest or largest node by walking the left or right
+  * spine instead of searching for it.
+  * @param max true to remove the maximum, false for the minimum.
+  * @return the node that was removed.
+  */
+ private AvlNode<AnyType> removeEnd( boolean max )
+ {
+     AvlNode<AnyType> [ ] path = max ? spine : scratch;
+     int n = max ? loadSpine( ) : loadMinPath( );
+
+     AvlNode<AnyType> end = path[ n - 1 ];
+     int stop = rebalancePath( path, n - 2, max ? end.left : end.right, max );
+
+     nodeCount--;
+     if( end.deleted )
+         deletedCount--;
+
+     if( max )
+         extendSpine( stop + 1 );
+     else if( stop < 0 )
+         spineSize = 0;   // The root changed, so the right spine may have too
+
+     if( root == null )
+         maxElement = null;
+     else if( max )
+         maxElement = spine[ spineSize - 1 ].element;
+     return end;
+ }
+
+ /**
+  * Link child below path[ from ] on the given side, then rebalance
+  * back towards the root. Stops rebalancing as soon as a node keeps
+  * both its shape and its height, since nothing above it can change
+  * shape; the nodes above only have their counts brought up to date.
+  * @return the index of the first unchanged node, or -1 if the root was rebuilt.
+  */
+ private int rebalancePath( AvlNode<AnyType> [ ] path, int from, AvlNode<AnyType> child, boolean right )
+ {
+     for( int i = from; i >= 0; i-- )
+     {
+         AvlNode<AnyType> t = path[ i ];
+         int oldHeight = t.height;
+
+         if( right )
+             t.right = child;
+         else
+             t.left = child;
+
+         child = balance( t );
+         if( child == t && t.height == oldHeight )
+         {
+             for( int j = i - 1; j >= 0; j-- )
+                 update( path[ j ] );
+             return i;
+         }
+     }
+     root = child;
+     return -1;
+ }
+
+ /**
+  * Make sure the cached right spine is loaded.
+  * @return the number of nodes on the spine.
+  */
+ private int loadSpine( )
+ {
+     if( spineSize == 0 )
+         extendSpine( 0 );
+     return spineSize;
+ }
+
+ /**
+  * Keep the first keep spine entries and reload the rest by following
+  * right links, which costs no comparisons.
+  */
+ private void extendSpine( int keep )
+ {
+     AvlNode<AnyType> t = keep == 0 ? root : spine[ keep - 1 ].right;
+
+     spineSize = keep;
+     for( ; t != null; t = t.right )
+         spine[ spineSize++ ] = t;
+ }
+
+ /**
+  * Load the root-to-minimum path into scratch.
+  * @return the number of nodes on the path.
+  */
+ private int loadMinPath( )
+ {
+     int n = 0;
+     for( AvlNode<AnyType> t = root; t != null; t = t.left )
+         scratch[ n++ ] = t;
+     return n;
+ }
+
+    
+ /**
+  * Internal method to remove from a subtree.
+  * @param x the item to remove.
+  * @param t the node that roots the subtree.
+  * @return the new root of the subtree.
+  */
+ private AvlNode<AnyType> remove( AnyType x, AvlNode<AnyType> t )
+ {
+     if( t == null )
+         return t;   // Item not found; do nothing
+         
+     TreeMetrics.visit( );
+     int compareResult = x.compareTo( t.element );
+         
+     if( compareResult < 0 )
+         t.left = remove( x, t.left );
+     else if( compareResult > 0 )
+         t.right = remove( x, t.right );
+     else
+     {
+         nodeCount--;
+         if( t.deleted )
+             deletedCount--;
+
+         if( t.left != null && t.right != null ) // Two children
+         {
+             AvlNode<AnyType> min = findMin( t.right );
+             t.element = min.element;
+             t.deleted = min.deleted;
+             t.right = removeMin( t.right );
+         }
+         else
+             t = ( t.left != null ) ? t.left : t.right;
+     }
+     return balance( t );
+ }
+
+ /**
+  * Internal method to remove the smallest node from a subtree.
+  * @param t the node that roots the subtree; not null.
+  * @return the new root of the subtree.
+  */
+ private AvlNode<AnyType> removeMin( AvlNode<AnyType> t )
+ {
+     if( t.left == null )
+         return t.right;
+     t.left = removeMin( t.left );
+     return balance( t );
+ }
+ 
+ /**
+  * Find the smallest item in the tree.
+  * @return smallest item or null if empty.
+  */
+ public AnyType findMin( )
+ {
+     if( isEmpty( ) )
+         return null; //throw new UnderflowException( );
+     return findLive( true ).element;
+ }
+
+ /**
+  * Find the largest item in the tree.
+  * @return the largest item of null if empty.
+  */
+ public AnyType findMax( )
+ {
+     if( isEmpty( ) )
+         return null; //throw new UnderflowException( );
+     return findLive( false ).element;
+ }
+
+ /**
+  * Find an item in the tree.
+  * @param x the item to search for.
+  * @return true if x is found.
+  */
+ public boolean contains( AnyType x )
+ {
+     long start = TreeMetrics.begin( );
+     boolean found = containsItem( x );
+     metrics.end( TreeMetrics.Op.CONTAINS, start );
+     return found;
+ }
+
+ /**
+  * Internal method to find x, asking the Bloom filter first if it is on.
+  * @param x the item to search for.
+  * @return true if x is found.
+  */
+ private boolean containsItem( AnyType x )
+ {
+     if( filter == null )
+         return contains( x, root );
+     if( !filter.mightContain( x ) )
+         return false;
+
+     boolean found = contains( x, root );
+     if( !found )
+         filter.recordFalsePositive( );
+     return found;
+ }
+
+ /**
+  * Switch the Bloom filter on or off. While it is on, contains and
+  * remove return at once for items the filter rules out. The filter
+  * is sized from the tree and resized as the tree grows. It hashes
+  * with hashCode where the tree compares with compareTo, so items must
+  * have equals and hashCode consistent with compareTo; otherwise present
+  * items can be reported absent.
+  * @param on true to keep a filter.
+  */
+ public void setBloomFilter( boolean on )
+ {
+     filter = null;
+     if( on )
+     {
+         filter = new CountingBloomFilter<AnyType>( 2 * size( ), BLOOM_FPP );
+         for( AnyType x : this )
+             filter.add( x );
+     }
+ }
+
+ /**
+  * Return the Bloom filter, for its statistics, or null if it is off.
+  */
+ public CountingBloomFilter<AnyType> bloomFilter( )
+ {
+     return filter;
+ }
+
+ /**
+  * Return the operation counts and latencies of this tree. They are
+  * only collected when TreeMetrics.ENABLED is true.
+  */
+ public TreeMetrics metrics( )
+ {
+     return metrics;
+ }
+
+ /**
+  * Find a batch of independent items in the tree.
+  * Lookups are advanced one level at a time in groups of BATCH_GROUP,
+  * so the cache misses of the different descents overlap instead of
+  * being paid one after another.
+  * @param keys the items to search for.
+  * @param out out[ i ] is set to true if keys[ i ] is found.
+  */
+ public void containsBatch( AnyType [ ] keys, boolean [ ] out )
+ {
+     @SuppressWarnings( "unchecked" )
+     AvlNode<AnyType> [ ] cursor = (AvlNode<AnyType> [ ]) new AvlNode<?>[ BATCH_GROUP ];
+
+     for( int base = 0; base < keys.length; base += BATCH_GROUP )
+     {
+         int n = Math.min( BATCH_GROUP, keys.length - base );
+         int active = root == null ? 0 : n;
+
+         for( int j = 0; j < n; j++ )
+         {
+             cursor[ j ] = root;
+             out[ base + j ] = false;
+         }
+
+         while( active > 0 )
+         {
+             for( int j = 0; j < n; j++ )
+             {
+                 AvlNode<AnyType> t = cursor[ j ];
+                 if( t == null )
+                     continue;
+
+                 int compareResult = keys[ base + j ].compareTo( t.element );
+
+                 if( compareResult < 0 )
+                     t = t.left;
+                 else if( compareResult > 0 )
+                     t = t.right;
+                 else
+                 {
+                     out[ base + j ] = !t.deleted;    // Match
+                     t = null;
+                 }
+
+                 cursor[ j ] = t;
+                 if( t == null )
+                     active--;
+             }
+         }
+     }
+ }
+
+ /**
+  * Make the tree logically empty.
+  */
+ public void makeEmpty( )
+ {
+     root = null;
+     maxElement = null;
+     spineSize = 0;
+     nodeCount = deletedCount = 0;
+     if( filter != null )
+         filter.clear( );
+ }
+
+ /**
+  * Test if the tree is logically empty.
+  * @return true if empty, false otherwise.
+  */
+ public boolean isEmpty( )
+ {
+     return root == null || nodeCount == deletedCount;
+ }
+
+ /**
+  * Print the tree contents in sorted order.
+  */
+ public void printTree( )
+ {
+     if( isEmpty( ) )
+         System.out.println( "Empty tree" );
+     else
+     {
+         try
+         {
+             export( (OutputStream) System.out );
+         }
+         catch( IOException e )
+         {
+             throw new UncheckedIOException( e );
+         }
+     }
+ }
+
+ /**
+  * Return an iterator over the live items in sorted order.
+  * The walk keeps its own stack, so it does not recurse.
+  */
+ public Iterator<AnyType> iterator( )
+ {
+     return new AVLTreeIterator( );
+ }
+
+ /**
+  * Write the items in sorted order, one per line.
+  * @param out the destination.
+  */
+ public void export( Appendable out ) throws IOException
+ {
+     TreeWriter.forThread( ).write( iterator( ), out );
+ }
+
+ /**
+  * Write the items in sorted order as UTF-8 text, one per line.
+  * @param out the destination.
+  */
+ public void export( OutputStream out ) throws IOException
+ {
+     TreeWriter.forThread( ).write( iterator( ), out );
+ }
+
+ /**
+  * Write the items in sorted order as UTF-8 text, one per line.
+  * @param out the destination.
+  */
+ public void export( WritableByteChannel out ) throws IOException
+ {
+     TreeWriter.forThread( ).write( iterator( ), out );
+ }
+
+ /**
+  * Write the tree in the binary form of TreeCodec: its shape, with the
+  * lazily deleted nodes marked, and then its items. Heights are not
+  * written, since the shape gives them.
+  * Only trees of Integers can be serialized.
+  * @param out the destination; not closed.
+  */
+ public void serialize( OutputStream out ) throws IOException
+ {
+     TreeCodec.Encoder e = new TreeCodec.Encoder( TreeCodec.AVL, nodeCount );
+     AvlNode<AnyType> [ ] stack = scratch;
+     int depth = 0;
+     for( AvlNode<AnyType> t = root; t != null; )
+     {
+         e.node( t.left != null, t.right != null, t.deleted );
+         if( t.right != null )
+             stack[ depth++ ] = t.right;
+         t = t.left != null ? t.left : depth > 0 ? stack[ --depth ] : null;
+     }
+
+     AvlNode<AnyType> t = root;
+     while( t != null || depth > 0 )
+     {
+         for( ; t != null; t = t.left )
+             stack[ depth++ ] = t;
+         t = stack[ --depth ];
+         e.key( t.element );
+         t = t.right;
+     }
+     e.writeTo( out );
+ }
+
+ /**
+  * Rebuild, node for node, a tree written by serialize. Every node is
+  * created once and linked to its children; there are no comparisons
+  * or rotations, so it takes linear time.
+  * @param in the source, read to its end.
+  * @return the tree.
+  */
+ public static AVLTree<Integer> deserialize( InputStream in ) throws IOException
+ {
+     TreeCodec.Decoder d = new TreeCodec.Decoder( in, TreeCodec.AVL );
+     int n = d.size( );
+     AVLTree<Integer> tree = new AVLTree<Integer>( );
+     @SuppressWarnings( "unchecked" )
+     AvlNode<Integer> [ ] nodes = (AvlNode<Integer> [ ]) new AvlNode<?>[ n ];
+     for( int i = 0; i < n; i++ )
+     {
+         nodes[ i ] = new AvlNode<>( d.key( i ) );
+         if( nodes[ i ].deleted = d.flag( i ) )
+             tree.deletedCount++;
+     }
+
+         // Nodes are in preorder, so children are linked before parents
+     for( int i = n - 1; i >= 0; i-- )
+     {
+         AvlNode<Integer> t = nodes[ i ];
+         if( d.left( i ) >= 0 )
+             t.left = nodes[ d.left( i ) ];
+         if( d.right( i ) >= 0 )
+             t.right = nodes[ d.right( i ) ];
+         if( Math.abs( tree.height( t.left ) - tree.height( t.right ) ) > 1 )
+             throw new IOException( "Not an AVL tree" );
+         tree.update( t );
+     }
+     tree.root = n == 0 ? null : nodes[ 0 ];
+     tree.nodeCount = n;
+     return tree;
+ }
+
+ /**
+  * Return the live items in sorted order.
+  */
+ public Object [ ] toArray( )
+ {
+     return TreeWriter.toArray( iterator( ), size( ) );
+ }
+
+ /**
+  * Return an iterator over the live items in level order, root first.
+  * Parents come before their children, so inserting the items in
+  * this order into an empty tree rebuilds this shape with little
+  * or no rebalancing.
+  */
+ public Iterator<AnyType> levelOrder( )
+ {
+     return new LevelOrderIterator( );
+ }
+
+ /**
+  * Return the live items in level order.
+  */
+ public Object [ ] toLevelOrderArray( )
+ {
+     return TreeWriter.toArray( levelOrder( ), size( ) );
+ }
+
+ private static final int ALLOWED_IMBALANCE = 1;
+
+ // Number of lookups containsBatch keeps in flight at once
+ private static final int BATCH_GROUP = 8;
+
+ // Assume t is either balanced or within one of being balanced
+ private AvlNode<AnyType> balance( AvlNode<AnyType> t )
+ {
+     if( t == null )
+         return t;
+     
+     if( height( t.left ) - height( t.right ) > ALLOWED_IMBALANCE )
+         if( height( t.left.left ) >= height( t.left.right ) )
+             t = rotateWithLeftChild( t );
+         else
+             t = doubleWithLeftChild( t );
+     else
+     if( height( t.right ) - height( t.left ) > ALLOWED_IMBALANCE )
+         if( height( t.right.right ) >= height( t.right.left ) )
+             t = rotateWithRightChild( t );
+         else
+             t = doubleWithRightChild( t );
+
+     update( t );
+     return t;
+ }
+
+ /**
+  * Profile the depths of the nodes, visiting every node once.
+  * @return the exact shape of the tree.
+  */
+ public TreeShape shape( )
+ {
+     return TreeShape.exact( root, null, t -> t.left, t -> t.right );
+ }
+
+ /**
+  * Estimate the depths of the nodes from random root-to-leaf probes,
+  * which is cheap enough to run on very large trees.
+  * @param samples the number of probes.
+  * @param random the source of the probes.
+  * @return the estimated shape of the tree.
+  */
+ public TreeShape shape( int samples, Random random )
+ {
+     return TreeShape.sampled( root, null, t -> t.left, t -> t.right, samples, random );
+ }
+
+ public void checkBalance( )
+ {
+     checkBalance( root );
+ }
+ 
+ private int checkBalance( AvlNode<AnyType> t )
+ {
+     if( t == null )
+         return -1;
+     
+     if( t != null )
+     {
+         int hl = checkBalance( t.left );
+         int hr = checkBalance( t.right );
+         if( Math.abs( height( t.left ) - height( t.right ) ) > 1 ||
+                 height( t.left ) != hl || height( t.right ) != hr ||
+                 t.size != nodes( t.left ) + nodes( t.right ) + 1 ||
+                 t.dead != dead( t.left ) + dead( t.right ) + ( t.deleted ? 1 : 0 ) )
+             System.out.println( "OOPS!!" );
+     }
+     
+     return height( t );
+ }
+ 
+ 
+ /**
+  * Internal method to insert into a subtree.
+  * @param x the item to insert.
+  * @param t the node that roots the subtree.
+  * @return the new root of the subtree.
+  */
+ private AvlNode<AnyType> insert( AnyType x, AvlNode<AnyType> t )
+ {
+     if( t == null )
+     {
+         nodeCount++;
+         return new AvlNode<>( x, null, null );
+     }
+
+     TreeMetrics.visit( );
+     int compareResult = x.compareTo( t.element );
+
+     if( compareResult < 0 )
+         t.left = insert( x, t.left );
+     else if( compareResult > 0 )
+         t.right = insert( x, t.right );
+     else if( t.deleted )
+     {
+         t.deleted = false;   // Revive a lazily deleted item
+         deletedCount--;
+     }
+     else
+         ;  // Duplicate; do nothing
+     return balance( t );
+ }
+
+ /**
+  * Internal method to find the smallest item in a subtree.
+  * @param t the node that roots the tree.
+  * @return node containing the smallest item.
+  */
+ private AvlNode<AnyType> findMin( AvlNode<AnyType> t )
+ {
+     if( t == null )
+         return t;
+
+     while( t.left != null )
+         t = t.left;
+     return t;
+ }
+
+ /**
+  * Internal method to find the largest item in a subtree.
+  * @param t the node that roots the tree.
+  * @return node containing the largest item.
+  */
+ private AvlNode<AnyType> findMax( AvlNode<AnyType> t )
+ {
+     if( t == null )
+         return t;
+
+     while( t.right != null )
+         t = t.right;
+     return t;
+ }
+
+ /**
+  * Internal method to find an item in a subtree.
+  * @param x is item to search for.
+  * @param t the node that roots the tree.
+  * @return true if x is found in subtree.
+  */
+ private boolean contains( AnyType x, AvlNode<AnyType> t )
+ {
+     while( t != null )
+     {
+         TreeMetrics.visit( );
+         int compareResult = x.compareTo( t.element );
+         
+         if( compareResult < 0 )
+             t = t.left;
+         else if( compareResult > 0 )
+             t = t.right;
+         else
+             return !t.deleted;    // Match
+     }
+
+     return false;   // No match
+ }
+
+ // In-order iterator over the live items; skips lazily deleted nodes
+ private class AVLTreeIterator implements Iterator<AnyType>
+ {
+     AVLTreeIterator( )
+     {
+         pushLeft( root );
+         skipDeleted( );
+     }
+
+     public boolean hasNext( )
+     {
+         return depth > 0;
+     }
+
+     public AnyType next( )
+     {
+         if( !hasNext( ) )
+             throw new NoSuchElementException( );
+         AvlNode<AnyType> t = path[ --depth ];
+         pushLeft( t.right );
+         skipDeleted( );
+         return t.element;
+     }
+
+     private void pushLeft( AvlNode<AnyType> t )
+     {
+         for( ; t != null; t = t.left )
+             path[ depth++ ] = t;
+     }
+
+     private void skipDeleted( )
+     {
+         while( depth > 0 && path[ depth - 1 ].deleted )
+             pushLeft( path[ --depth ].right );
+     }
+
+     private AvlNode<AnyType> [ ] path = newPath( );
+     private int depth = 0;
+ }
+
+ // Breadth-first iterator over the live items; looks one item ahead
+ // so that lazily deleted nodes are skipped
+ private class LevelOrderIterator implements Iterator<AnyType>
+ {
+     LevelOrderIterator( )
+     {
+         if( root != null )
+             queue.enqueue( root );
+         advance( );
+     }
+
+     public boolean hasNext( )
+     {
+         return next != null;
+     }
+
+     public AnyType next( )
+     {
+         if( !hasNext( ) )
+             throw new NoSuchElementException( );
+         AnyType x = next.element;
+         advance( );
+         return x;
+     }
+
+     private void advance( )
+     {
+         do
+         {
+             if( queue.isEmpty( ) )
+             {
+                 next = null;
+                 return;
+             }
+             next = queue.dequeue( );
+             if( next.left != null )
+                 queue.enqueue( next.left );
+             if( next.right != null )
+                 queue.enqueue( next.right );
+         } while( next.deleted );
+     }
+
+     private ResizingArrayQueue<AvlNode<AnyType>> queue = new ResizingArrayQueue<AvlNode<AnyType>>( );
+     private AvlNode<AnyType> next;
+ }
+
+ /**
+  * Return the height of node t, or -1, if null.
+  */
+ private int height( AvlNode<AnyType> t )
+ {
+     return t == null ? -1 : t.height;
+ }
+
+ /**
+  * Return the number of nodes under t, or 0, if null.
+  */
+ private int nodes( AvlNode<AnyType> t )
+ {
+     return t == null ? 0 : t.size;
+ }
+
+ /**
+  * Return the number of lazily deleted nodes under t, or 0, if null.
+  */
+ private int dead( AvlNode<AnyType> t )
+ {
+     return t == null ? 0 : t.dead;
+ }
+
+ /**
+  * Recompute the height and counts of node t from its children.
+  */
+ private void update( AvlNode<AnyType> t )
+ {
+     t.height = Math.max( height( t.left ), height( t.right ) ) + 1;
+     t.size = nodes( t.left ) + nodes( t.right ) + 1;
+     t.dead = dead( t.left ) + dead( t.right ) + ( t.deleted ? 1 : 0 );
+ }
+
+ /**
+  * Rotate binary tree node with left child.
+  * For AVL trees, this is a single rotation for case 1.
+  * Update heights and counts, then return new root.
+  */
+ private AvlNode<AnyType> rotateWithLeftChild( AvlNode<AnyType> k2 )
+ {
+     TreeMetrics.rotated( );
+     rebalanceRotations++;
+     rebalanceHeight = Math.max( rebalanceHeight, k2.height );
+     AvlNode<AnyType> k1 = k2.left;
+     k2.left = k1.right;
+     k1.right = k2;
+     update( k2 );
+     update( k1 );
+     return k1;
+ }
+
+ /**
+  * Rotate binary tree node with right child.
+  * For AVL trees, this is a single rotation for case 4.
+  * Update heights and counts, then return new root.
+  */
+ private AvlNode<AnyType> rotateWithRightChild( AvlNode<AnyType> k1 )
+ {
+     TreeMetrics.rotated( );
+     rebalanceRotations++;
+     rebalanceHeight = Math.max( rebalanceHeight, k1.height );
+     AvlNode<AnyType> k2 = k1.right;
+     k1.right = k2.left;
+     k2.left = k1;
+     update( k1 );
+     update( k2 );
+     return k2;
+ }
+
+ /**
+  * Double rotate binary tree node: first left child
+  * with its right child; then node k3 with new left child.
+  * For AVL trees, this is a double rotation for case 2.
+  * Update heights and counts, then return new root.
+  */
+ private AvlNode<AnyType> doubleWithLeftChild( AvlNode<AnyType> k3 )
+ {
+     k3.left = rotateWithRightChild( k3.left );
+     return rotateWithLeftChild( k3 );
+ }
+
+ /**
+  * Double rotate binary tree node: first right child
+  * with its left child; then node k1 with new right child.
+  * For AVL trees, this is a double rotation for case 3.
+  * Update heights and counts, then return new root.
+  */
+ private AvlNode<AnyType> doubleWithRightChild( AvlNode<AnyType> k1 )
+ {
+     k1.right = rotateWithLeftChild( k1.right );
+     return rotateWithRightChild( k1 );
+ }
+
+ private static class AvlNode<AnyType>
+ {
+         // Constructors
+     AvlNode( AnyType theElement )
+     {
+         this( theElement, null, null );
+     }
+
+     AvlNode( AnyType theElement, AvlNode<AnyType> lt, AvlNode<AnyType> rt )
+     {
+         element  = theElement;
+         left     = lt;
+         right    = rt;
+         height   = 0;
+         size     = 1;
+     }
+
+     AnyType           element;      // The data in the node
+     AvlNode<AnyType>  left;         // Left child
+     AvlNode<AnyType>  right;        // Right child
+     int               height;       // Height
+     boolean           deleted;      // Lazily deleted
+     int               size;         // Nodes in the subtree
+     int               dead;         // Lazily deleted nodes in the subtree
+ }
+
+   /** The tree root. */
+ private AvlNode<AnyType> root;
+
+   /** The largest item, or null if it has to be looked up again. */
+ private AnyType maxElement;
+
+   // Longest root-to-leaf path of any AVL tree with fewer than 2^40 items
+ private static final int MAX_PATH = 64;
+
+   /** Cached root-to-maximum path; the first spineSize entries are valid. */
+ private AvlNode<AnyType> [ ] spine = newPath( );
+ private int spineSize;
+
+   /** The two halves produced by split. */
+ private AvlNode<AnyType> splitLeft;
+ private AvlNode<AnyType> splitRight;
+
+   /** Scratch path for deleteMin and for in-order walks. */
+ private AvlNode<AnyType> [ ] scratch = newPath( );
+
+   /** Number of nodes in the tree, and how many of them are lazily deleted. */
+ private int nodeCount;
+ private int deletedCount;
+
+   /** Whether remove only marks nodes, and when to compact the tree. */
+ private boolean lazyDeletion = false;
+ private double compactRatio = 0.5;
+
+   /** Filter of the live items, or null; see setBloomFilter. */
+ private CountingBloomFilter<AnyType> filter;
+ private static final double BLOOM_FPP = 0.01;
+
+   /** Rotations done by the current insert or remove, and the height of the highest. */
+ private int rebalanceRotations;
+ private int rebalanceHeight;
+
+   /** Operation counts and latencies of this tree; see TreeMetrics. */
+ private final TreeMetrics metrics = TreeMetrics.forTree( this );
+
+ @SuppressWarnings( "unchecked" )
+ private static <AnyType> AvlNode<AnyType> [ ] newPath( )
+ {
+     return (AvlNode<AnyType> [ ]) new AvlNode<?>[ MAX_PATH ];
+ }
+
+ //Q4a: Insert 100,000 integer keys, from 1 to 100,000 (in that order). Find the average time for each insertion. 
+ private static AVLTree<Integer> a = new AVLTree<Integer>();
+ public static long insert_time(int NUMS)
+ {
+	 	 
+	 long start, total_time = 0;
+	 
+	 for( int i = 1; i <= NUMS; i++)
+     {
+		 start = System.nanoTime();
+		 a.insert( i );
+		 total_time += System.nanoTime() - start;
+     }
+	 
+	 return total_time / NUMS;
+	 
+ }
+ 
+ //Q4b: Do 100,000 searches of random integer keys between 1 and 100,000. Find the average time of each search. 
+ public static long search_time(int NUMS)
+ {
+	 long start, total_time = 0;
+	 
+     Random r = new Random( );
+	 
+	 for( int i = 1; i <= NUMS; i++)
+     {
+		 start =  System.nanoTime();
+		 if (!a.contains( r.nextInt(NUMS-1)+1 ))
+		 {
+		//	System.out.println("key " + i + " not found" );
+		 }
+		 total_time += System.nanoTime()-start;
+     }
+	 
+	 return total_time / NUMS;
+	 
+ }
+ 
+//Q4b (batched): Same searches as Q4b, issued BATCH_GROUP at a time through containsBatch.
+ public static long searchBatch_time(int NUMS)
+ {
+	 long start, total_time = 0;
+
+	 Random r = new Random( );
+	 Integer [ ] keys = new Integer[ BATCH_GROUP * 8 ];
+	 boolean [ ] found = new boolean[ keys.length ];
+
+	 for( int i = 0; i < NUMS; i += keys.length )
+     {
+		 int n = Math.min( keys.length, NUMS - i );
+		 if( n < keys.length )
+		 {
+			 keys = new Integer[ n ];
+			 found = new boolean[ n ];
+		 }
+		 for( int j = 0; j < n; j++ )
+			 keys[ j ] = r.nextInt(NUMS-1)+1;
+
+		 start = System.nanoTime();
+		 a.containsBatch( keys, found );
+		 total_time += System.nanoTime()-start;
+     }
+
+	 return total_time / NUMS;
+
+ }
+
+//Q4c: Delete all the keys in the trees, starting from 100,000 down to 1 (in that order). Find the average time of each deletion. 
+ public static long delete_time(int NUMS)
+ {
+	 
+	 long start, total_time = 0;
+	 
+	 for( int i = NUMS; i >= 1; i--)
+     {
+		 start = System.nanoTime();
+         a.remove( i );
+		 total_time += System.nanoTime() - start;
+     }
+	 
+	 return total_time / NUMS;
+	 
+}
+ //Q5a: Insert 100,000 of random keys between 1 and 100,000. Find the average time of each search.
+ public static long insertRandom_time(int NUMS)
+ {
+	 long start, total_time = 0;
+	 Random r = new Random();
+	 
+	 for ( int i = 1; i <= NUMS; i++)
+	 {
+		 start = System.nanoTime();
+		 a.insert(r.nextInt(NUMS-1)+1);
+		 total_time += System.nanoTime() - start;
+	 }
+	 return total_time / NUMS;
+	 
+ }
+ // Q5c: Delete all the keys in the trees, with random keys between 1 and 100,000. Find the average time of each deletion. 
+ // Note that not all the keys may be found in the tree. 
+ public static long deleteRandom_time(int NUMS)
+ {
+	 
+	 long start, total_time = 0;
+	 
+	 Random r = new Random( );
+	 
+	 for( int i = NUMS; i >= 1; i--)
+     {
+		 start = System.nanoTime();
+         a.remove(r.nextInt(NUMS-1)+1);
+         //H_temp.checkBalance( );
+		 total_time += System.nanoTime() - start;
+     }
+	 
+	 return total_time / NUMS;
+	 
+} 
+
+ //Q4c (lazy): Delete all the keys from 100,000 down to 1 with lazy deletion on a fresh tree.
+ // Find the average and the worst time of each deletion; compactions show up in the worst.
+ public static long[] lazyDelete_time(int NUMS, boolean random)
+ {
+	 long start, time, total_time = 0, worst = 0;
+	 AVLTree<Integer> d = new AVLTree<Integer>();
+	 Random r = new Random( );
+
+	 for( int i = 1; i <= NUMS; i++)
+		 d.insert( i );
+	 d.setLazyDeletion( true, 0.5 );
+
+	 for( int i = NUMS; i >= 1; i--)
+     {
+		 start = System.nanoTime();
+         d.remove( random ? r.nextInt(NUMS-1)+1 : i );
+		 time = System.nanoTime() - start;
+		 total_time += time;
+		 worst = Math.max( worst, time );
+     }
+
+	 return new long[] { total_time / NUMS, worst };
+
+ }
+
+ // Range expiry: remove the keys of a fresh tree 1..NUMS in ranges of WIDTH keys, once
+ // with removeRange and once with a loop of remove. Find the average time per removed key.
+ public static long[] removeRange_time(int NUMS)
+ {
+	 final int WIDTH = 10000;
+	 long start, range_time = 0, loop_time = 0;
+	 AVLTree<Integer> d = new AVLTree<Integer>();
+	 AVLTree<Integer> e = new AVLTree<Integer>();
+
+	 for( int i = 1; i <= NUMS; i++)
+     {
+		 d.insert( i );
+		 e.insert( i );
+     }
+
+	 for( int lo = 1; lo <= NUMS; lo += 2 * WIDTH )
+     {
+		 start = System.nanoTime();
+		 d.removeRange( lo, lo + WIDTH - 1 );
+		 range_time += System.nanoTime() - start;
+
+		 start = System.nanoTime();
+		 for( int i = lo; i < lo + WIDTH; i++ )
+			 e.remove( i );
+		 loop_time += System.nanoTime() - start;
+     }
+
+	 return new long[] { range_time * 2 / NUMS, loop_time * 2 / NUMS };
+
+ }
+
+ // Sequential feed: time-ordered keys are appended while the oldest key is dropped
+ // once WINDOW keys are live. Find the average time of each insert/deleteMin step.
+ public static long slidingWindow_time(int NUMS)
+ {
+	 final int WINDOW = 1024;
+	 long start, total_time = 0;
+	 AVLTree<Integer> w = new AVLTree<Integer>();
+
+	 for( int i = 1; i <= NUMS; i++)
+     {
+		 start = System.nanoTime();
+		 w.insert( i );
+		 if( i > WINDOW )
+			 w.deleteMin( );
+		 total_time += System.nanoTime() - start;
+     }
+
+	 return total_time / NUMS;
+
+ }
+
+     // Test program
+ public static void main( String [ ] args )
+ {
+ //    AVLTree<Integer> t = new AVLTree<>( );
+     final int NUMS = 1000000;  // must be even
+
+     System.out.println( "Create the tree..." );
+     long x[] = new long[8];    x[3]=insertRandom_time(NUMS);
+     x[4]=search_time(NUMS);
+     x[5]=delete_time(NUMS);
+     x[0]=insert_time(NUMS);
+     x[1]=search_time(NUMS);
+     x[6]=searchBatch_time(NUMS);
+     x[2]=delete_time(NUMS);
+     x[7]=slidingWindow_time(NUMS);
+
+
+     System.out.println( "The time cost for insert is " + x[0]);  
+    
+     System.out.println( "The time cost for search is " + x[1]);
+     System.out.println( "The time cost for batched search is " + x[6]);
+        
+     System.out.println( "The time cost for delete is " + x[2] );
+     System.out.println( "The time cost for a sliding-window step is " + x[7] );
+     long lazy[] = lazyDelete_time(NUMS, false);
+     System.out.println( "The time cost for lazy delete is " + lazy[0] + " (worst " + lazy[1] + ")" );
+     lazy = lazyDelete_time(NUMS, true);
+     System.out.println( "The time cost for lazy random delete is " + lazy[0] + " (worst " + lazy[1] + ")" );
+     long range[] = removeRange_time(NUMS);
+     System.out.println( "The time cost for range delete is " + range[0] + " (loop of remove: " + range[1] + ")" );
+     System.out.println( "Tree after removals:" );
+    a.printTree( );
+  
+     System.out.println( "The time cost for random insert is " + x[3] );
+     
+ //    System.out.println( "Tree after insertions:" );
+     
+     System.out.println( "Second searching...");
+     System.out.println( "The time cost for second search is " + x[4]);
+     
+     
+     System.out.println( "The time cost for random delete is " + x[5]);
+ }
+}
@@ -0,0 +1,228 @@
+package searchtrees;
+
+import java.util.Random;
+
+// A RedBlackTree whose nodes carry a value as well as a key, and keep the
+// values of their whole subtree combined by a Monoid. The combined values
+// are kept up to date through the augmentation hooks of RedBlackTree, so
+// the value of any key range can be put together from O(log n) subtrees
+// instead of a scan. Keys inserted without a value get the identity.
+public class AugmentedRedBlackTree<T extends Comparable<T>, V> extends RedBlackTree<T> {
+
+	private final Monoid<V> monoid;
+
+	// @param: monoid, how the values of a range are combined
+	public AugmentedRedBlackTree(Monoid<V> monoid) {
+		this.monoid = monoid;
+	}
+
+
+	// A node with a value and the combined value of its subtree
+	static class AugmentedNode<T extends Comparable<T>, V> extends RedBlackNode<T> {
+
+		// the value stored with the key
+		V value;
+		// the values of the subtree rooted here, combined in key order
+		V sum;
+
+		AugmentedNode(T key, V value){
+			super(key);
+			this.value = value;
+			this.sum = value;
+		}
+	}// end class AugmentedNode
+
+
+	// @param: key, the key to insert
+	// @param: value, the value stored with it
+	// Inserts key with value. Equal keys are kept apart, as in insert(T).
+	public void insert(T key, V value){
+		insertNode(new AugmentedNode<T, V>(key, value));
+	}// end insert(T key, V value)
+
+
+	// @param: key, the key whose value changes
+	// @param: value, the new value
+	// @return: false if key is not in the tree
+	// Changes the value of one node with key and brings its ancestors up to date.
+	public boolean setValue(T key, V value){
+		AugmentedNode<T, V> x = cast(search(key));
+		if (x == null)
+			return false;
+		x.value = value;
+		pullUpPath(x);
+		return true;
+	}// end setValue(T key, V value)
+
+
+	// @param: key, the key to look up
+	// @return: the value of a node with key, or null if there is none
+	public V value(T key){
+		AugmentedNode<T, V> x = cast(search(key));
+		return x == null ? null : x.value;
+	}// end value(T key)
+
+
+	// @return: the values of the whole tree, combined in key order
+	public V aggregate(){
+		return sum(root);
+	}// end aggregate()
+
+
+	// @param: lo, the smallest key of the range
+	// @param: hi, the largest key of the range
+	// @return: the values of every key k with lo <= k <= hi, combined in
+	// key order, or the identity if there are none
+	// Descends to the first node inside the range, then follows the paths
+	// towards lo and towards hi below it, taking whole subtrees that lie
+	// between the two paths from their stored sums.
+	public V aggregate(T lo, T hi){
+
+		if (lo.compareTo(hi) > 0)
+			return monoid.identity();
+
+		// Find the highest node inside the range
+		RedBlackNode<T> x = root;
+		while (!isNil(x)){
+			if (x.key.compareTo(lo) < 0)
+				x = x.right;
+			else if (x.key.compareTo(hi) > 0)
+				x = x.left;
+			else
+				break;
+		}
+		if (isNil(x))
+			return monoid.identity();
+
+		// Everything to its left is at most hi; take the keys from lo on
+		V left = monoid.identity();
+		for (RedBlackNode<T> y = x.left; !isNil(y); ){
+			if (y.key.compareTo(lo) >= 0){
+				left = monoid.combine(monoid.combine(cast(y).value, sum(y.right)), left);
+				y = y.left;
+			}
+			else
+				y = y.right;
+		}
+
+		// Everything to its right is at least lo; take the keys up to hi
+		V right = monoid.identity();
+		for (RedBlackNode<T> y = x.right; !isNil(y); ){
+			if (y.key.compareTo(hi) <= 0){
+				right = monoid.combine(right, monoid.combine(sum(y.left), cast(y).value));
+				y = y.right;
+			}
+			else
+				y = y.left;
+		}
+
+		return monoid.combine(monoid.combine(left, cast(x).value), right);
+	}// end aggregate(T lo, T hi)
+
+
+	// @param: x, the root of a subtree
+	// @return: the combined values of the subtree, or the identity for nil
+	private V sum(RedBlackNode<T> x){
+		return isNil(x) ? monoid.identity() : cast(x).sum;
+	}// end sum(RedBlackNode x)
+
+
+	@SuppressWarnings("unchecked")
+	private AugmentedNode<T, V> cast(RedBlackNode<T> x){
+		return (AugmentedNode<T, V>) x;
+	}// end cast(RedBlackNode x)
+
+
+	// Keys inserted through insert(T) carry the identity
+	@Override
+	protected RedBlackNode<T> newNode(T key){
+		return new AugmentedNode<T, V>(key, monoid.identity());
+	}// end newNode(T key)
+
+
+	@Override
+	protected void pullUp(RedBlackNode<T> x){
+		AugmentedNode<T, V> a = cast(x);
+		a.sum = monoid.combine(monoid.combine(sum(x.left), a.value), sum(x.right));
+	}// end pullUp(RedBlackNode x)
+
+
+	@Override
+	protected void pullUpPath(RedBlackNode<T> x){
+		for (; !isNil(x); x = x.parent)
+			pullUp(x);
+	}// end pullUpPath(RedBlackNode x)
+
+
+	@Override
+	protected void movePayload(RedBlackNode<T> from, RedBlackNode<T> to){
+		to.key = from.key;
+		cast(to).value = cast(from).value;
+	}// end movePayload(RedBlackNode from, RedBlackNode to)
+
+
+	 //Sum the values of NUMS random key ranges over a tree of NUMS keys with
+	 //random values. Returns the average time of each query.
+	 public static long aggregate_time(int NUMS)
+	 {
+		 AugmentedRedBlackTree<Integer, Long> t = randomTree(NUMS);
+		 Random r = new Random(37);
+		 long start, total_time = 0, check = 0;
+
+		 for( int i = 0; i < NUMS; i++ )
+		 {
+			 int lo = r.nextInt(NUMS), hi = lo + r.nextInt(NUMS - lo);
+			 start = System.nanoTime();
+			 check += t.aggregate(lo, hi);
+			 total_time += System.nanoTime() - start;
+		 }
+		 if( check == 42 )
+			 System.out.println();
+		 return total_time / NUMS;
+	 }
+
+	 //The same queries answered by a scan of every node, as the dashboards do
+	 //today. Only QUERIES of them are run. Returns the average time of each query.
+	 public static long scan_time(int NUMS)
+	 {
+		 AugmentedRedBlackTree<Integer, Long> t = randomTree(NUMS);
+		 Random r = new Random(37);
+		 long start, total_time = 0, check = 0;
+
+		 for( int i = 0; i < QUERIES; i++ )
+		 {
+			 int lo = r.nextInt(NUMS), hi = lo + r.nextInt(NUMS - lo);
+			 start = System.nanoTime();
+			 long sum = 0;
+			 for( RedBlackNode<Integer> x = t.treeMinimum(t.root); !t.isNil(x); x = t.treeSuccessor(x) )
+				 if( lo <= x.key && x.key <= hi )
+					 sum += t.cast(x).value;
+			 check += sum;
+			 total_time += System.nanoTime() - start;
+		 }
+		 if( check == 42 )
+			 System.out.println();
+		 return total_time / QUERIES;
+	 }
+
+	 private static final int QUERIES = 1000;
+
+	 private static AugmentedRedBlackTree<Integer, Long> randomTree(int NUMS)
+	 {
+		 AugmentedRedBlackTree<Integer, Long> t = new AugmentedRedBlackTree<Integer, Long>(Monoid.longSum());
+		 Random r = new Random(37);
+		 for( int i = 0; i < NUMS; i++ )
+			 t.insert( r.nextInt(NUMS), (long) r.nextInt(1000) );
+		 return t;
+	 }
+
+	 public static void main( String [ ] args )
+	 {
+	     final int NUMS = 100000;
+
+	     aggregate_time(NUMS);   // Warm up
+	     scan_time(NUMS);
+	     System.out.println( "The time cost for a range sum is " + aggregate_time(NUMS) + " (full scan: " + scan_time(NUMS) + ")" );
+	 }
+
+}// end class AugmentedRedBlackTree
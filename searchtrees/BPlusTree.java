@@ -0,0 +1,753 @@
+package searchtrees;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+//BPlusTree class
+//
+//CONSTRUCTION: with a file and the number of pages to cache
+//
+//******************PUBLIC OPERATIONS*********************
+//void insert( x )       --> Insert x
+//void remove( x )       --> Remove x
+//boolean contains( x )  --> Return true if x is present
+//Comparable findMin( )  --> Return smallest item
+//Comparable findMax( )  --> Return largest item
+//List range( l, h )     --> Return the items between l and h, in order
+//boolean isEmpty( )     --> Return true if empty; else false
+//int size( )            --> Return number of items
+//void makeEmpty( )      --> Remove all items
+//void flush( )          --> Write every changed page and force the file
+//void close( )          --> Flush and release the file
+//BufferPool bufferPool( ) --> Return the page cache, for its hit counts
+//******************ERRORS********************************
+//UncheckedIOException if a page cannot be read or written
+//IOException if the file cannot be opened or is not a B+tree
+
+/**
+* A B+tree of Integers kept in one file of fixed-size pages, so it can
+* be much larger than memory. Pages are read and written through a
+* FileChannel and cached in a BufferPool of a given number of frames.
+* Page 0 is a header; every other page is a leaf, an inner node or free.
+* Leaves hold up to LEAF_MAX sorted keys and are linked both ways for
+* range scans and iteration; inner nodes hold up to INNER_MAX children
+* and one key fewer, child i holding the keys from key i - 1 up to but
+* not including key i.
+* Full pages split in two, except that a key added past the end of the
+* last leaf starts a new leaf and leaves the old one full, so ascending
+* inserts fill pages completely.
+* A remove never merges or borrows: a page is freed only when it has
+* no keys or children left, and the root shrinks when it has a single
+* child. Freed pages are reused before the file grows. Pages can then
+* be sparse after many removes, but there is no underflow case to
+* handle, which is the policy many disk-based B-trees use.
+* The header is written by flush and close; the file is not kept
+* consistent across a crash.
+*/
+public class BPlusTree implements SearchTree<Integer>, Closeable
+{
+ /**
+  * Open the tree kept in a file, creating the file if need be.
+  * @param file the file of pages.
+  * @param frames the number of pages held in memory.
+  */
+ public BPlusTree( Path file, int frames ) throws IOException
+ {
+     channel = FileChannel.open( file, StandardOpenOption.CREATE,
+             StandardOpenOption.READ, StandardOpenOption.WRITE );
+     pool = new BufferPool( channel, frames, PAGE_SIZE );
+     if( channel.size( ) == 0 )
+         format( );
+     else
+     {
+         ByteBuffer h = pool.pin( HEADER_PAGE );
+         boolean valid = h.getInt( 0 ) == MAGIC && h.getInt( 4 ) == VERSION && h.getInt( 8 ) == PAGE_SIZE;
+         root = h.getInt( 12 );
+         pageCount = h.getInt( 16 );
+         freeHead = h.getInt( 20 );
+         size = h.getInt( 24 );
+         pool.unpin( HEADER_PAGE, false );
+         if( !valid || (long) pageCount * PAGE_SIZE != channel.size( ) )
+         {
+             channel.close( );
+             throw new IOException( "Not a B+tree file, or not closed: " + file );
+         }
+     }
+ }
+
+ /**
+  * Insert into the tree; duplicates are ignored.
+  * @param x the item to insert.
+  */
+ public void insert( Integer x )
+ {
+     int right = insert( root, x );
+     if( right != NIL )
+     {
+         int page = allocate( );
+         ByteBuffer b = pool.pinNew( page );
+         b.putInt( TYPE, INNER ).putInt( COUNT, 2 );
+         b.putInt( CHILDREN, root ).putInt( CHILDREN + 4, right ).putInt( INNER_KEYS, splitKey );
+         pool.unpin( page, true );
+         root = page;
+     }
+ }
+
+ /**
+  * Remove from the tree. Nothing is done if x is not found.
+  * @param x the item to remove.
+  */
+ public void remove( Integer x )
+ {
+     remove( root, x );
+ }
+
+ /**
+  * Find an item in the tree.
+  * @param x the item to search for.
+  * @return true if x is found.
+  */
+ public boolean contains( Integer x )
+ {
+     ByteBuffer b = findLeaf( x );
+     int n = b.getInt( COUNT );
+     int i = lowerBound( b, LEAF_KEYS, n, x );
+     boolean found = i < n && b.getInt( LEAF_KEYS + 4 * i ) == x;
+     pool.unpin( leaf, false );
+     return found;
+ }
+
+ /**
+  * Find the smallest item in the tree.
+  * @return smallest item or null if empty.
+  */
+ public Integer findMin( )
+ {
+     return isEmpty( ) ? null : readEnd( false );
+ }
+
+ /**
+  * Find the largest item in the tree.
+  * @return the largest item or null if empty.
+  */
+ public Integer findMax( )
+ {
+     return isEmpty( ) ? null : readEnd( true );
+ }
+
+ /**
+  * Return every item x with low <= x <= high, in order, reading the
+  * leaves from the one that would hold low.
+  */
+ public List<Integer> range( int low, int high )
+ {
+     List<Integer> list = new ArrayList<Integer>( );
+     if( low > high )
+         return list;
+
+     ByteBuffer b = findLeaf( low );
+     int page = leaf;
+     int i = lowerBound( b, LEAF_KEYS, b.getInt( COUNT ), low );
+     while( true )
+     {
+         int n = b.getInt( COUNT );
+         for( ; i < n; i++ )
+         {
+             int x = b.getInt( LEAF_KEYS + 4 * i );
+             if( x > high )
+             {
+                 pool.unpin( page, false );
+                 return list;
+             }
+             list.add( x );
+         }
+
+         int next = b.getInt( NEXT );
+         pool.unpin( page, false );
+         if( next == NIL )
+             return list;
+         b = pool.pin( page = next );
+         i = 0;
+     }
+ }
+
+ /**
+  * Test if the tree is logically empty.
+  * @return true if empty, false otherwise.
+  */
+ public boolean isEmpty( )
+ {
+     return size == 0;
+ }
+
+ /**
+  * Return the number of items in the tree.
+  */
+ public int size( )
+ {
+     return size;
+ }
+
+ /**
+  * Make the tree logically empty, and cut the file back to one page
+  * besides the header.
+  */
+ public void makeEmpty( )
+ {
+     pool.discard( );
+     try
+     {
+         channel.truncate( 0 );
+     }
+     catch( IOException e )
+     {
+         throw new UncheckedIOException( e );
+     }
+     format( );
+ }
+
+ /**
+  * Return an iterator over the items in sorted order. The tree must
+  * not be changed while it is in use.
+  */
+ public Iterator<Integer> iterator( )
+ {
+     return new LeafIterator( );
+ }
+
+ /**
+  * Return the items in sorted order.
+  */
+ public Object [ ] toArray( )
+ {
+     Object [ ] items = new Object[ size ];
+     int i = 0;
+     for( Integer x : this )
+         items[ i++ ] = x;
+     return items;
+ }
+
+ /**
+  * Write the header and every changed page, and force the file.
+  */
+ public void flush( ) throws IOException
+ {
+     ByteBuffer h = pool.pin( HEADER_PAGE );
+     h.putInt( 0, MAGIC ).putInt( 4, VERSION ).putInt( 8, PAGE_SIZE ).putInt( 12, root );
+     h.putInt( 16, pageCount ).putInt( 20, freeHead ).putInt( 24, size );
+     pool.unpin( HEADER_PAGE, true );
+     pool.flush( );
+     channel.force( true );
+ }
+
+ /**
+  * Flush and release the file. The tree must not be used afterwards.
+  */
+ public void close( ) throws IOException
+ {
+     if( channel.isOpen( ) )
+     {
+         flush( );
+         channel.close( );
+     }
+ }
+
+ /**
+  * Return the page cache, whose hit and miss counts cover every page
+  * this tree has touched.
+  */
+ public BufferPool bufferPool( )
+ {
+     return pool;
+ }
+
+ /**
+  * Internal method to start an empty file: the header and an empty
+  * leaf as the root.
+  */
+ private void format( )
+ {
+     pageCount = 1;
+     freeHead = NIL;
+     size = 0;
+     root = allocate( );
+     ByteBuffer b = pool.pinNew( root );
+     b.putInt( TYPE, LEAF );
+     pool.unpin( root, true );
+     pool.pinNew( HEADER_PAGE );
+     pool.unpin( HEADER_PAGE, true );
+ }
+
+ /**
+  * Internal method to insert into a subtree.
+  * @param page the root of the subtree.
+  * @param x the item to insert.
+  * @return the new page to the right of page if page split, with its
+  * smallest key in splitKey; NIL otherwise.
+  */
+ private int insert( int page, int x )
+ {
+     ByteBuffer b = pool.pin( page );
+     int n = b.getInt( COUNT );
+     if( b.getInt( TYPE ) == LEAF )
+     {
+         int i = lowerBound( b, LEAF_KEYS, n, x );
+         if( i < n && b.getInt( LEAF_KEYS + 4 * i ) == x )
+         {
+             pool.unpin( page, false );
+             return NIL;         // Duplicate
+         }
+
+         size++;
+         int right = NIL;
+         if( n < LEAF_MAX )
+         {
+             insertAt( b, LEAF_KEYS, n, i, x );
+             b.putInt( COUNT, n + 1 );
+         }
+         else
+             right = splitLeaf( page, b, i, x );
+         pool.unpin( page, true );
+         return right;
+     }
+
+     int i = upperBound( b, INNER_KEYS, n - 1, x );
+     int child = b.getInt( CHILDREN + 4 * i );
+     pool.unpin( page, false );
+     int newChild = insert( child, x );
+     if( newChild == NIL )
+         return NIL;
+
+     b = pool.pin( page );
+     int right = NIL;
+     if( n < INNER_MAX )
+     {
+         insertAt( b, INNER_KEYS, n - 1, i, splitKey );
+         insertAt( b, CHILDREN, n, i + 1, newChild );
+         b.putInt( COUNT, n + 1 );
+     }
+     else
+         right = splitInner( b, i, newChild );
+     pool.unpin( page, true );
+     return right;
+ }
+
+ /**
+  * Internal method to split a full leaf while adding x at position i.
+  * @return the new leaf, with its smallest key in splitKey.
+  */
+ private int splitLeaf( int page, ByteBuffer b, int i, int x )
+ {
+     int n = LEAF_MAX;
+     int next = b.getInt( NEXT );
+     int at = i == n && next == NIL ? n : n / 2;
+
+     int right = allocate( );
+     ByteBuffer r = pool.pinNew( right );
+     for( int j = at; j < n; j++ )
+         r.putInt( LEAF_KEYS + 4 * ( j - at ), b.getInt( LEAF_KEYS + 4 * j ) );
+     r.putInt( TYPE, LEAF ).putInt( PREV, page ).putInt( NEXT, next );
+     b.putInt( NEXT, right );
+     if( next != NIL )
+     {
+         pool.pin( next ).putInt( PREV, right );
+         pool.unpin( next, true );
+     }
+
+     if( i < at )
+     {
+         insertAt( b, LEAF_KEYS, at, i, x );
+         b.putInt( COUNT, at + 1 );
+         r.putInt( COUNT, n - at );
+     }
+     else
+     {
+         insertAt( r, LEAF_KEYS, n - at, i - at, x );
+         b.putInt( COUNT, at );
+         r.putInt( COUNT, n - at + 1 );
+     }
+     splitKey = r.getInt( LEAF_KEYS );
+     pool.unpin( right, true );
+     return right;
+ }
+
+ /**
+  * Internal method to split a full inner node while adding splitKey at
+  * key position i and child at child position i + 1.
+  * @return the new node, with the key moved up in splitKey.
+  */
+ private int splitInner( ByteBuffer b, int i, int child )
+ {
+     int n = INNER_MAX;
+     int [ ] keys = new int[ n ];
+     int [ ] kids = new int[ n + 1 ];
+     for( int j = 0, k = 0; j < n; j++ )
+     {
+         kids[ k++ ] = b.getInt( CHILDREN + 4 * j );
+         if( j == i )
+             kids[ k++ ] = child;
+     }
+     for( int j = 0, k = 0; j < n; j++ )
+     {
+         if( j == i )
+             keys[ k++ ] = splitKey;
+         if( j < n - 1 )
+             keys[ k++ ] = b.getInt( INNER_KEYS + 4 * j );
+     }
+
+     int left = ( n + 1 ) / 2;
+     for( int j = 0; j < left; j++ )
+         b.putInt( CHILDREN + 4 * j, kids[ j ] );
+     for( int j = 0; j < left - 1; j++ )
+         b.putInt( INNER_KEYS + 4 * j, keys[ j ] );
+     b.putInt( COUNT, left );
+
+     int right = allocate( );
+     ByteBuffer r = pool.pinNew( right );
+     r.putInt( TYPE, INNER ).putInt( COUNT, n + 1 - left );
+     for( int j = left; j <= n; j++ )
+         r.putInt( CHILDREN + 4 * ( j - left ), kids[ j ] );
+     for( int j = left; j < n; j++ )
+         r.putInt( INNER_KEYS + 4 * ( j - left ), keys[ j ] );
+     pool.unpin( right, true );
+     splitKey = keys[ left - 1 ];
+     return right;
+ }
+
+ /**
+  * Internal method to remove from a subtree.
+  * @param page the root of the subtree.
+  * @param x the item to remove.
+  * @return true if page was left empty and has been freed.
+  */
+ private boolean remove( int page, int x )
+ {
+     ByteBuffer b = pool.pin( page );
+     int n = b.getInt( COUNT );
+     if( b.getInt( TYPE ) == LEAF )
+     {
+         int i = lowerBound( b, LEAF_KEYS, n, x );
+         if( i == n || b.getInt( LEAF_KEYS + 4 * i ) != x )
+         {
+             pool.unpin( page, false );
+             return false;
+         }
+
+         size--;
+         removeAt( b, LEAF_KEYS, n, i );
+         b.putInt( COUNT, n - 1 );
+         int prev = b.getInt( PREV );
+         int next = b.getInt( NEXT );
+         pool.unpin( page, true );
+         if( n > 1 || page == root )
+             return false;
+
+         if( prev != NIL )
+         {
+             pool.pin( prev ).putInt( NEXT, next );
+             pool.unpin( prev, true );
+         }
+         if( next != NIL )
+         {
+             pool.pin( next ).putInt( PREV, prev );
+             pool.unpin( next, true );
+         }
+         free( page );
+         return true;
+     }
+
+     int i = upperBound( b, INNER_KEYS, n - 1, x );
+     int child = b.getInt( CHILDREN + 4 * i );
+     pool.unpin( page, false );
+     if( !remove( child, x ) )
+         return false;
+
+     b = pool.pin( page );
+     removeAt( b, CHILDREN, n, i );
+     if( n > 1 )
+         removeAt( b, INNER_KEYS, n - 1, Math.max( i - 1, 0 ) );
+     b.putInt( COUNT, n - 1 );
+     int only = b.getInt( CHILDREN );
+     pool.unpin( page, true );
+
+     if( page == root && n - 1 == 1 )
+     {
+         free( page );
+         root = only;
+         collapseRoot( );
+     }
+     else if( n - 1 == 0 )
+     {
+         free( page );
+         return true;
+     }
+     return false;
+ }
+
+ /**
+  * Internal method to drop inner roots with a single child.
+  */
+ private void collapseRoot( )
+ {
+     while( true )
+     {
+         ByteBuffer b = pool.pin( root );
+         boolean single = b.getInt( TYPE ) == INNER && b.getInt( COUNT ) == 1;
+         int only = b.getInt( CHILDREN );
+         pool.unpin( root, false );
+         if( !single )
+             return;
+         free( root );
+         root = only;
+     }
+ }
+
+ /**
+  * Internal method to walk from the root to the leaf that would hold x.
+  * @return the leaf, pinned; its page number is left in leaf.
+  */
+ private ByteBuffer findLeaf( int x )
+ {
+     int page = root;
+     while( true )
+     {
+         ByteBuffer b = pool.pin( page );
+         if( b.getInt( TYPE ) == LEAF )
+         {
+             leaf = page;
+             return b;
+         }
+         int child = b.getInt( CHILDREN + 4 * upperBound( b, INNER_KEYS, b.getInt( COUNT ) - 1, x ) );
+         pool.unpin( page, false );
+         page = child;
+     }
+ }
+
+ /**
+  * Internal method to read the first or last key of a nonempty tree.
+  */
+ private int readEnd( boolean last )
+ {
+     int page = root;
+     while( true )
+     {
+         ByteBuffer b = pool.pin( page );
+         int n = b.getInt( COUNT );
+         int i = last ? n - 1 : 0;
+         if( b.getInt( TYPE ) == LEAF )
+         {
+             int x = b.getInt( LEAF_KEYS + 4 * i );
+             pool.unpin( page, false );
+             return x;
+         }
+         int child = b.getInt( CHILDREN + 4 * i );
+         pool.unpin( page, false );
+         page = child;
+     }
+ }
+
+ /**
+  * Internal method to get a page, from the free list if it has one.
+  * The caller must pin it with pinNew.
+  */
+ private int allocate( )
+ {
+     if( freeHead == NIL )
+         return pageCount++;
+
+     int page = freeHead;
+     freeHead = pool.pin( page ).getInt( COUNT );
+     pool.unpin( page, false );
+     return page;
+ }
+
+ private void free( int page )
+ {
+     pool.pinNew( page ).putInt( TYPE, FREE ).putInt( COUNT, freeHead );
+     pool.unpin( page, true );
+     freeHead = page;
+ }
+
+ // Returns the first of the n ints at base that is not below x
+ private static int lowerBound( ByteBuffer b, int base, int n, int x )
+ {
+     int low = 0, high = n;
+     while( low < high )
+     {
+         int mid = ( low + high ) >>> 1;
+         if( b.getInt( base + 4 * mid ) < x )
+             low = mid + 1;
+         else
+             high = mid;
+     }
+     return low;
+ }
+
+ // Returns the first of the n ints at base that is above x
+ private static int upperBound( ByteBuffer b, int base, int n, int x )
+ {
+     int low = 0, high = n;
+     while( low < high )
+     {
+         int mid = ( low + high ) >>> 1;
+         if( b.getInt( base + 4 * mid ) <= x )
+             low = mid + 1;
+         else
+             high = mid;
+     }
+     return low;
+ }
+
+ private static void insertAt( ByteBuffer b, int base, int n, int i, int x )
+ {
+     for( int j = n; j > i; j-- )
+         b.putInt( base + 4 * j, b.getInt( base + 4 * ( j - 1 ) ) );
+     b.putInt( base + 4 * i, x );
+ }
+
+ private static void removeAt( ByteBuffer b, int base, int n, int i )
+ {
+     for( int j = i; j < n - 1; j++ )
+         b.putInt( base + 4 * j, b.getInt( base + 4 * ( j + 1 ) ) );
+ }
+
+   // Copies one leaf at a time, so the iterator pins nothing between calls
+ private class LeafIterator implements Iterator<Integer>
+ {
+     LeafIterator( )
+     {
+         int page = root;
+         while( true )
+         {
+             ByteBuffer b = pool.pin( page );
+             int child = b.getInt( TYPE ) == LEAF ? NIL : b.getInt( CHILDREN );
+             pool.unpin( page, false );
+             if( child == NIL )
+                 break;
+             page = child;
+         }
+         next = page;
+         load( );
+     }
+
+     public boolean hasNext( )
+     {
+         return i < n;
+     }
+
+     public Integer next( )
+     {
+         if( !hasNext( ) )
+             throw new NoSuchElementException( );
+         int x = keys[ i++ ];
+         load( );
+         return x;
+     }
+
+     private void load( )
+     {
+         while( i == n && next != NIL )
+         {
+             ByteBuffer b = pool.pin( next );
+             n = b.getInt( COUNT );
+             for( int j = 0; j < n; j++ )
+                 keys[ j ] = b.getInt( LEAF_KEYS + 4 * j );
+             int page = next;
+             next = b.getInt( NEXT );
+             pool.unpin( page, false );
+             i = 0;
+         }
+     }
+
+     private final int [ ] keys = new int[ LEAF_MAX ];
+     private int n;
+     private int i;
+     private int next;
+ }
+
+ private static final int PAGE_SIZE = 4096;
+ private static final int MAGIC = 0x45455442;     // "BTEE"
+ private static final int VERSION = 1;
+ private static final int HEADER_PAGE = 0;
+ private static final int NIL = 0;                // The header page is never a node
+
+   // Every page starts with its type and a count: keys in a leaf,
+   // children in an inner node, and the next free page in a free one.
+ private static final int TYPE = 0;
+ private static final int COUNT = 4;
+ private static final int LEAF = 1;
+ private static final int INNER = 2;
+ private static final int FREE = 3;
+
+ private static final int PREV = 8;
+ private static final int NEXT = 12;
+ private static final int LEAF_KEYS = 16;
+ private static final int LEAF_MAX = ( PAGE_SIZE - LEAF_KEYS ) / 4;
+
+ private static final int CHILDREN = 8;
+ private static final int INNER_MAX = ( PAGE_SIZE - CHILDREN + 4 ) / 8;
+ private static final int INNER_KEYS = CHILDREN + 4 * INNER_MAX;
+
+ private final FileChannel channel;
+ private final BufferPool pool;
+ private int root;
+ private int pageCount;
+ private int freeHead;
+ private int size;
+
+ private int splitKey;         // Set by a split, for the parent
+ private int leaf;             // Set by findLeaf
+
+ //Run the README workloads Q4 and Q5 on a new tree in file with a pool of
+ //frames pages. Returns the six average times, then the pool's hits and misses.
+ public static long[] workload_time(Path file, int NUMS, int frames) throws IOException
+ {
+	 Files.deleteIfExists( file );
+	 try( BPlusTree t = new BPlusTree(file, frames) )
+	 {
+		 long[] times = TreeBenchmark.workload_time( t, NUMS );
+		 long[] x = new long[8];
+		 System.arraycopy( times, 0, x, 0, 6 );
+		 x[6] = t.bufferPool().hits();
+		 x[7] = t.bufferPool().misses();
+		 return x;
+	 }
+ }
+
+     // Test program
+ public static void main( String [ ] args ) throws IOException
+ {
+     final int NUMS = 1000000;
+     Path file = Files.createTempFile( "tree", ".bpt" );
+     String [ ] names = { "insert", "search", "delete", "random insert", "second search", "random delete" };
+
+     try
+     {
+         workload_time( file, NUMS, 1024 );   // Warm up
+         long [ ] a = TreeBenchmark.workload_time( new AVLTree<Integer>( ), NUMS );
+         for( int i = 0; i < names.length; i++ )
+             System.out.println( "The time cost for " + names[ i ] + " in AVLTree is " + a[ i ] );
+         for( int frames : new int[ ] { 8, 64, 512, 4096 } )
+         {
+             long [ ] x = workload_time( file, NUMS, frames );
+             for( int i = 0; i < names.length; i++ )
+                 System.out.println( "The time cost for " + names[ i ] + " in BPlusTree with " + frames + " frames is " + x[ i ] );
+             System.out.println( "Buffer pool hit rate with " + frames + " frames: " + (double) x[6] / ( x[6] + x[7] ) );
+         }
+     }
+     finally
+     {
+         Files.deleteIfExists( file );
+     }
+ }
+}
@@ -0,0 +1,292 @@
+package searchtrees;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+
+//BufferPool class
+//
+//CONSTRUCTION: with a file, a number of frames and a page size
+//
+//******************PUBLIC OPERATIONS*********************
+//ByteBuffer pin( p )    --> Return page p, reading it if need be
+//ByteBuffer pinNew( p ) --> Return page p zeroed, without reading it
+//void unpin( p, d )     --> Release page p; d if it was changed
+//void flush( )          --> Write every changed page back
+//void discard( )        --> Drop every page without writing it
+//long hits( ), misses( ) --> Return the lookups served from memory, and not
+//double hitRate( )      --> Return the share of lookups served from memory
+//******************ERRORS********************************
+//UncheckedIOException if the file cannot be read or written
+//IllegalStateException if every frame is pinned
+
+/**
+* A fixed set of page-sized frames caching the pages of one file.
+* A pinned page stays in its frame until it is unpinned as many times
+* as it was pinned. When a page has to be read and no frame is free,
+* the CLOCK algorithm picks the victim: a hand sweeps the frames,
+* giving each recently used one a second chance by clearing its
+* reference bit, and evicts the first unpinned frame whose bit is
+* already clear, writing it back first if it was changed. That
+* approximates LRU without reordering a list on every hit.
+* The buffers handed out are little-endian and must only be used with
+* absolute get and put.
+*/
+public final class BufferPool
+{
+ /**
+  * Construct the pool. The frames are carved out of direct buffers of
+  * at most CHUNK bytes each, so the pool may be larger than the 2 GB
+  * one buffer can hold.
+  * @param file the file the pages live in.
+  * @param frames the number of pages held in memory.
+  * @param pageSize the size of a page in bytes.
+  */
+ public BufferPool( FileChannel file, int frames, int pageSize )
+ {
+     if( frames < MIN_FRAMES )
+         throw new IllegalArgumentException( "A pool needs at least " + MIN_FRAMES + " frames" );
+     if( pageSize < 1 )
+         throw new IllegalArgumentException( "Page size must be positive" );
+     this.file = file;
+     this.pageSize = pageSize;
+     buffers = new ByteBuffer[ frames ];
+     int perChunk = Math.max( 1, CHUNK / pageSize );
+     for( int i = 0; i < frames; )
+     {
+         int n = Math.min( perChunk, frames - i );
+         ByteBuffer memory = ByteBuffer.allocateDirect( n * pageSize );
+         for( int j = 0; j < n; j++ )
+             buffers[ i++ ] = memory.slice( j * pageSize, pageSize ).order( ByteOrder.LITTLE_ENDIAN );
+     }
+     pageOf = new int[ frames ];
+     pins = new int[ frames ];
+     referenced = new boolean[ frames ];
+     dirty = new boolean[ frames ];
+     Arrays.fill( pageOf, NONE );
+ }
+
+ /**
+  * Pin a page, reading it from the file unless it is in memory.
+  * @param page the page number.
+  * @return the frame holding the page.
+  */
+ public ByteBuffer pin( int page )
+ {
+     Integer f = frameOf.get( page );
+     if( f != null )
+     {
+         hits++;
+         pins[ f ]++;
+         referenced[ f ] = true;
+         return buffers[ f ];
+     }
+
+     misses++;
+     int victim = evict( );
+     read( page, buffers[ victim ] );
+     return load( page, victim );
+ }
+
+ /**
+  * Pin a page whose old contents do not matter, such as one just added
+  * to the file; it is zeroed instead of read, and counts as changed.
+  * @param page the page number.
+  * @return the frame holding the page.
+  */
+ public ByteBuffer pinNew( int page )
+ {
+     Integer f = frameOf.get( page );
+     int frame = f != null ? f : evict( );
+     ByteBuffer buf = buffers[ frame ];
+     for( int i = 0; i < pageSize; i += 8 )
+         buf.putLong( i, 0 );
+     if( f != null )
+         pins[ frame ]++;
+     else
+         load( page, frame );
+     dirty[ frame ] = true;
+     return buf;
+ }
+
+ /**
+  * Release a pin on a page.
+  * @param page a page pinned earlier.
+  * @param changed true if the page was written to.
+  */
+ public void unpin( int page, boolean changed )
+ {
+     int f = frameOf.get( page );
+     pins[ f ]--;
+     if( changed )
+         dirty[ f ] = true;
+ }
+
+ /**
+  * Write every changed page back to the file. Pages stay in memory.
+  */
+ public void flush( )
+ {
+     for( int f = 0; f < buffers.length; f++ )
+         if( dirty[ f ] )
+         {
+             write( pageOf[ f ], buffers[ f ] );
+             dirty[ f ] = false;
+         }
+ }
+
+ /**
+  * Forget every page, changed or not. Nothing may be pinned.
+  */
+ public void discard( )
+ {
+     frameOf.clear( );
+     Arrays.fill( pageOf, NONE );
+     Arrays.fill( pins, 0 );
+     Arrays.fill( referenced, false );
+     Arrays.fill( dirty, false );
+ }
+
+ /**
+  * Return the number of pins served from memory.
+  */
+ public long hits( )
+ {
+     return hits;
+ }
+
+ /**
+  * Return the number of pins that had to read the file.
+  */
+ public long misses( )
+ {
+     return misses;
+ }
+
+ /**
+  * Return the number of changed pages written back to make room.
+  */
+ public long writeBacks( )
+ {
+     return writeBacks;
+ }
+
+ /**
+  * Return the share of pins served from memory, or 0 before any pin.
+  */
+ public double hitRate( )
+ {
+     long total = hits + misses;
+     return total == 0 ? 0 : (double) hits / total;
+ }
+
+ /**
+  * Zero the hit, miss and write-back counts.
+  */
+ public void resetStatistics( )
+ {
+     hits = misses = writeBacks = 0;
+ }
+
+ /**
+  * Internal method to pick a frame with CLOCK and empty it.
+  */
+ private int evict( )
+ {
+     for( int sweeps = 0; sweeps < 2 * buffers.length + 1; sweeps++ )
+     {
+         int f = hand;
+         hand = ( hand + 1 ) % buffers.length;
+         if( pins[ f ] > 0 )
+             continue;
+         if( referenced[ f ] )
+         {
+             referenced[ f ] = false;
+             continue;
+         }
+
+         if( pageOf[ f ] != NONE )
+         {
+             if( dirty[ f ] )
+             {
+                 write( pageOf[ f ], buffers[ f ] );
+                 writeBacks++;
+                 dirty[ f ] = false;
+             }
+             frameOf.remove( pageOf[ f ] );
+             pageOf[ f ] = NONE;
+         }
+         return f;
+     }
+     throw new IllegalStateException( "Every frame is pinned" );
+ }
+
+ private ByteBuffer load( int page, int frame )
+ {
+     pageOf[ frame ] = page;
+     frameOf.put( page, frame );
+     pins[ frame ] = 1;
+     referenced[ frame ] = true;
+     return buffers[ frame ];
+ }
+
+ // Reads past the end of the file leave zeros
+ private void read( int page, ByteBuffer buf )
+ {
+     ByteBuffer b = buf.duplicate( ).clear( );
+     long offset = (long) page * pageSize;
+     try
+     {
+         while( b.hasRemaining( ) )
+         {
+             int n = file.read( b, offset + b.position( ) );
+             if( n < 0 )
+                 break;
+         }
+     }
+     catch( IOException e )
+     {
+         throw new UncheckedIOException( e );
+     }
+     while( b.hasRemaining( ) )
+         b.put( (byte) 0 );
+ }
+
+ private void write( int page, ByteBuffer buf )
+ {
+     ByteBuffer b = buf.duplicate( ).clear( );
+     long offset = (long) page * pageSize;
+     try
+     {
+         while( b.hasRemaining( ) )
+             file.write( b, offset + b.position( ) );
+     }
+     catch( IOException e )
+     {
+         throw new UncheckedIOException( e );
+     }
+ }
+
+   // Fewer frames than this cannot hold the pages a B+tree split pins at once
+ private static final int MIN_FRAMES = 8;
+ private static final int CHUNK = 1 << 30;       // Bytes per direct buffer
+ private static final int NONE = -1;
+
+ private final FileChannel file;
+ private final int pageSize;
+ private final ByteBuffer [ ] buffers;
+ private final HashMap<Integer, Integer> frameOf = new HashMap<Integer, Integer>( );
+ private final int [ ] pageOf;        // The page in each frame, or NONE
+ private final int [ ] pins;
+ private final boolean [ ] referenced;
+ private final boolean [ ] dirty;
+ private int hand;
+
+ private long hits;
+ private long misses;
+ private long writeBacks;
+}
@@ -0,0 +1,283 @@
+package searchtrees;
+
+import java.util.Arrays;
+import java.util.Random;
+
+//CountingBloomFilter class
+//
+//CONSTRUCTION: with an expected number of items and a false-positive rate
+//
+//******************PUBLIC OPERATIONS*********************
+//void add( x )          --> Count x in
+//void remove( x )       --> Count x out; x must have been added
+//boolean mightContain( x ) --> Return false only if x is surely absent
+//boolean isFull( )      --> Return true if past the sized capacity
+//void rebuild( items )  --> Resize for items and add them all
+//void clear( )          --> Remove all items
+//int size( )            --> Return number of items counted in
+//double expectedFpp( )  --> Return false-positive rate predicted by size
+//double observedFpp( )  --> Return false-positive rate seen so far
+//void recordFalsePositive( ) --> Note that mightContain was wrong
+
+/**
+* A counting Bloom filter that trees keep in step with their contents,
+* so that lookups and removals of absent items can stop before they
+* descend. Each item bumps k one-byte counters chosen by double hashing
+* of its hashCode; a counter that reaches 255 sticks there, so removals
+* never produce a false negative.
+* Items that compare equal must have the same hashCode, that is equals
+* and hashCode must be consistent with compareTo, or an item the tree
+* holds can be reported absent.
+* The filter counts its own negative answers; the owner reports the
+* positives it found to be wrong, which gives the observed rate.
+*/
+public final class CountingBloomFilter<AnyType>
+{
+ /**
+  * Construct the filter.
+  * @param capacity the number of items to size for.
+  * @param fpp the false-positive rate wanted at capacity.
+  */
+ public CountingBloomFilter( int capacity, double fpp )
+ {
+     if( !( fpp > 0 && fpp < 1 ) )
+         throw new IllegalArgumentException( "Rate must be in (0, 1): " + fpp );
+     this.fpp = fpp;
+     allocate( capacity );
+ }
+
+ /**
+  * Count an item in.
+  * @param x the item added to the tree.
+  */
+ public void add( AnyType x )
+ {
+     long h = mix( x.hashCode( ) );
+     int h1 = (int) ( h >>> 32 ), h2 = (int) h | 1;
+     for( int i = 0; i < hashes; i++ )
+     {
+         int j = ( h1 + i * h2 ) & mask;
+         if( counters[ j ] != SATURATED )
+             counters[ j ]++;
+     }
+     size++;
+ }
+
+ /**
+  * Count an item out.
+  * @param x an item that was added and has left the tree.
+  */
+ public void remove( AnyType x )
+ {
+     long h = mix( x.hashCode( ) );
+     int h1 = (int) ( h >>> 32 ), h2 = (int) h | 1;
+     for( int i = 0; i < hashes; i++ )
+     {
+         int j = ( h1 + i * h2 ) & mask;
+         if( counters[ j ] != SATURATED )
+             counters[ j ]--;
+     }
+     size--;
+ }
+
+ /**
+  * Test an item.
+  * @param x the item to look for.
+  * @return false if x is surely not in the tree.
+  */
+ public boolean mightContain( AnyType x )
+ {
+     long h = mix( x.hashCode( ) );
+     int h1 = (int) ( h >>> 32 ), h2 = (int) h | 1;
+     for( int i = 0; i < hashes; i++ )
+         if( counters[ ( h1 + i * h2 ) & mask ] == 0 )
+         {
+             negatives++;
+             return false;
+         }
+     return true;
+ }
+
+ /**
+  * Note that mightContain said yes for an item that was not there.
+  */
+ public void recordFalsePositive( )
+ {
+     falsePositives++;
+ }
+
+ /**
+  * Return true once more items are counted in than the filter was
+  * sized for; the owner should then rebuild it.
+  */
+ public boolean isFull( )
+ {
+     return size > capacity;
+ }
+
+ /**
+  * Resize the filter for twice the number of items and count them all in.
+  * The statistics are kept.
+  * @param items everything in the tree.
+  */
+ public void rebuild( Iterable<? extends AnyType> items )
+ {
+     int n = 0;
+     for( AnyType x : items )
+         n++;
+     allocate( 2 * n );
+     for( AnyType x : items )
+         add( x );
+ }
+
+ /**
+  * Remove all items. The capacity stays as it was.
+  */
+ public void clear( )
+ {
+     Arrays.fill( counters, (byte) 0 );
+     size = 0;
+ }
+
+ /**
+  * Return the number of items counted in.
+  */
+ public int size( )
+ {
+     return size;
+ }
+
+ /**
+  * Return the number of items the filter is sized for.
+  */
+ public int capacity( )
+ {
+     return capacity;
+ }
+
+ /**
+  * Return the false-positive rate predicted for the current size,
+  * (1 - e^(-kn/m))^k.
+  */
+ public double expectedFpp( )
+ {
+     return Math.pow( 1 - Math.exp( -(double) hashes * size / counters.length ), hashes );
+ }
+
+ /**
+  * Return the share of absent items that the filter failed to reject,
+  * or 0 if it has seen none.
+  */
+ public double observedFpp( )
+ {
+     long absent = negatives + falsePositives;
+     return absent == 0 ? 0 : (double) falsePositives / absent;
+ }
+
+ /**
+  * Return the number of lookups answered "surely absent".
+  */
+ public long negatives( )
+ {
+     return negatives;
+ }
+
+ /**
+  * Return the number of false positives reported.
+  */
+ public long falsePositives( )
+ {
+     return falsePositives;
+ }
+
+ /**
+  * Internal method to size the counters for capacity items:
+  * m = -n ln p / (ln 2)^2 rounded up to a power of two, k = (m / n) ln 2.
+  */
+ private void allocate( int capacity )
+ {
+     this.capacity = Math.max( capacity, MIN_CAPACITY );
+     double bits = -this.capacity * Math.log( fpp ) / ( Math.log( 2 ) * Math.log( 2 ) );
+     int m = Integer.highestOneBit( (int) Math.min( Math.ceil( bits ), 1 << 30 ) - 1 ) << 1;
+     counters = new byte[ m ];
+     mask = m - 1;
+     hashes = Math.max( 1, (int) Math.round( (double) m / this.capacity * Math.log( 2 ) ) );
+     size = 0;
+ }
+
+ /**
+  * Internal method to spread a hash code over 64 bits (the splitmix64 finalizer).
+  */
+ private static long mix( int hashCode )
+ {
+     long z = hashCode * 0x9E3779B97F4A7C15L;
+     z = ( z ^ ( z >>> 30 ) ) * 0xBF58476D1CE4E5B9L;
+     z = ( z ^ ( z >>> 27 ) ) * 0x94D049BB133111EBL;
+     return z ^ ( z >>> 31 );
+ }
+
+ private static final int MIN_CAPACITY = 1024;
+ private static final byte SATURATED = (byte) 0xFF;
+
+ private final double fpp;
+ private byte [ ] counters;
+ private int mask;              // counters.length - 1
+ private int hashes;            // k
+ private int capacity;
+ private int size;
+
+ private long negatives;
+ private long falsePositives;
+
+ //Q5c with and without a filter: insert NUMS random keys between 1 and NUMS, then
+ //delete NUMS random keys from the same range; most of the later ones are absent.
+ //Returns the average time of each deletion, and the observed false-positive rate in ppm.
+ public static long[] deleteRandom_time(SearchTree<Integer> t, int NUMS, boolean filtered)
+ {
+	 Random r = new Random(35);
+	 for( int i = 0; i < NUMS; i++ )
+		 t.insert( r.nextInt(NUMS) + 1 );
+	 if( t instanceof AVLTree )
+		 ( (AVLTree<Integer>) t ).setBloomFilter( filtered );
+	 else if( t instanceof SplayTree )
+		 ( (SplayTree<Integer>) t ).setBloomFilter( filtered );
+	 else
+		 ( (RedBlackTree<Integer>) t ).setBloomFilter( filtered );
+
+	 long start, total_time = 0;
+	 for( int i = 0; i < NUMS; i++ )
+	 {
+		 Integer x = r.nextInt(NUMS) + 1;
+		 start = System.nanoTime();
+		 t.remove( x );
+		 total_time += System.nanoTime() - start;
+	 }
+
+	 CountingBloomFilter<Integer> f =
+		 t instanceof AVLTree ? ( (AVLTree<Integer>) t ).bloomFilter()
+		 : t instanceof SplayTree ? ( (SplayTree<Integer>) t ).bloomFilter()
+		 : ( (RedBlackTree<Integer>) t ).bloomFilter();
+	 return new long[] { total_time / NUMS, f == null ? 0 : (long) ( 1e6 * f.observedFpp() ) };
+ }
+
+     // Test program
+ public static void main( String [ ] args )
+ {
+     final int NUMS = 100000;
+
+     for( int round = 0; round < 2; round++ )   // The first round warms up
+     {
+         long [ ] a = deleteRandom_time( new AVLTree<Integer>( ), NUMS, false );
+         long [ ] b = deleteRandom_time( new AVLTree<Integer>( ), NUMS, true );
+         long [ ] c = deleteRandom_time( new SplayTree<Integer>( ), NUMS, false );
+         long [ ] d = deleteRandom_time( new SplayTree<Integer>( ), NUMS, true );
+         long [ ] e = deleteRandom_time( new RedBlackTree<Integer>( ), NUMS, false );
+         long [ ] f = deleteRandom_time( new RedBlackTree<Integer>( ), NUMS, true );
+         if( round == 0 )
+             continue;
+         System.out.println( "The time cost for random delete in AVLTree is " + a[0] + " (filtered: " + b[0] + ", false positives " + b[1] + " ppm)" );
+         System.out.println( "The time cost for random delete in SplayTree is " + c[0] + " (filtered: " + d[0] + ", false positives " + d[1] + " ppm)" );
+         System.out.println( "The time cost for random delete in RedBlackTree is " + e[0] + " (filtered: " + f[0] + ", false positives " + f[1] + " ppm)" );
+     }
+ }
+}
@@ -0,0 +1,435 @@
+package searchtrees;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32C;
+
+//DurableAVLTree class
+//
+//CONSTRUCTION: with a directory, a group size and a checkpoint interval
+//
+//******************PUBLIC OPERATIONS*********************
+//void insert( x )       --> Insert x and log it
+//void remove( x )       --> Remove x and log it
+//void sync( )           --> Make every logged operation durable
+//void checkpoint( )     --> Write a snapshot and empty the log
+//void close( )          --> Sync and release the log
+//boolean contains( x )  --> Return true if x is present
+//Comparable findMin( )  --> Return smallest item
+//Comparable findMax( )  --> Return largest item
+//boolean isEmpty( )     --> Return true if empty; else false
+//int size( )            --> Return number of items
+//void makeEmpty( )      --> Remove all items and log it
+//long commits( )        --> Return number of fsyncs of the log
+//******************ERRORS********************************
+//UncheckedIOException if the log cannot be written
+//IOException if the directory cannot be recovered
+
+/**
+* An AVLTree of Integers that survives a crash. Every insert or remove
+* that changes the tree is appended to a write-ahead log, and the log
+* is forced to disk once per group of groupSize operations (group
+* commit), so a crash loses at most the last groupSize - 1 operations
+* unless sync is called. After checkpointInterval logged operations the
+* tree is written as a TreeSnapshot and the log is emptied.
+* Opening the directory loads the checkpoint, builds the tree from it
+* in linear time, and replays the log. Each group is one frame of the
+* log, a count and a CRC-32C followed by its records, so a frame torn
+* by a crash fails its check; replay stops there and the torn tail is
+* cut off. Replaying operations that the checkpoint already holds is
+* harmless, since applying the same inserts and removes twice gives
+* the same set. A checkpoint forces the directory after renaming the
+* new snapshot into place and only then empties the log, so a crash
+* between the two leaves the new snapshot with the old log and loses
+* nothing; the log never reaches disk empty while the old snapshot is
+* still the one named.
+*/
+public class DurableAVLTree implements SearchTree<Integer>, Closeable
+{
+ /**
+  * Open the tree kept in a directory, recovering it if it exists.
+  * @param dir the directory of the checkpoint and the log; created if need be.
+  * @param groupSize the number of operations per fsync of the log.
+  * @param checkpointInterval the number of logged operations between checkpoints.
+  */
+ public DurableAVLTree( Path dir, int groupSize, long checkpointInterval ) throws IOException
+ {
+     if( groupSize < 1 || checkpointInterval < 1 )
+         throw new IllegalArgumentException( "Group size and checkpoint interval must be positive" );
+     this.groupSize = groupSize;
+     this.checkpointInterval = checkpointInterval;
+     this.checkpointFile = dir.resolve( CHECKPOINT );
+     this.buffer = ByteBuffer.allocateDirect( FRAME_HEADER + RECORD * groupSize ).order( ByteOrder.LITTLE_ENDIAN );
+
+     Files.createDirectories( dir );
+     if( Files.exists( checkpointFile ) )
+         load( TreeSnapshot.open( checkpointFile ) );
+     boolean created = !Files.exists( dir.resolve( LOG ) );
+     log = FileChannel.open( dir.resolve( LOG ), StandardOpenOption.CREATE,
+             StandardOpenOption.READ, StandardOpenOption.WRITE );
+     if( created )
+         TreeSnapshot.forceDirectory( dir );   // Else the new log's name can be lost in a crash
+     replay( );
+     startFrame( );
+ }
+
+ /**
+  * Insert into the tree; duplicates are ignored and not logged.
+  * @param x the item to insert.
+  */
+ public void insert( Integer x )
+ {
+     int before = tree.size( );
+     tree.insert( x );
+     if( tree.size( ) != before )
+         append( INSERT, x );
+ }
+
+ /**
+  * Remove from the tree. Nothing is done or logged if x is not found.
+  * @param x the item to remove.
+  */
+ public void remove( Integer x )
+ {
+     int before = tree.size( );
+     tree.remove( x );
+     if( tree.size( ) != before )
+         append( REMOVE, x );
+ }
+
+ /**
+  * Write and force the current group, even if it is not full.
+  */
+ public void sync( )
+ {
+     try
+     {
+         commit( );
+     }
+     catch( IOException e )
+     {
+         throw new UncheckedIOException( e );
+     }
+ }
+
+ /**
+  * Write the tree as a snapshot, replacing the last one, and empty the log.
+  */
+ public void checkpoint( ) throws IOException
+ {
+     commit( );
+     TreeSnapshot.write( tree, checkpointFile );   // Forces the rename before the log is emptied
+     log.truncate( 0 );
+     log.position( 0 );
+     log.force( true );
+     sinceCheckpoint = 0;
+ }
+
+ /**
+  * Make everything durable and release the log. The tree must not be
+  * changed afterwards.
+  */
+ public void close( ) throws IOException
+ {
+     if( log.isOpen( ) )
+     {
+         commit( );
+         log.close( );
+     }
+ }
+
+ /**
+  * Find an item in the tree.
+  * @param x the item to search for.
+  * @return true if x is found.
+  */
+ public boolean contains( Integer x )
+ {
+     return tree.contains( x );
+ }
+
+ /**
+  * Find the smallest item in the tree.
+  * @return smallest item or null if empty.
+  */
+ public Integer findMin( )
+ {
+     return tree.findMin( );
+ }
+
+ /**
+  * Find the largest item in the tree.
+  * @return the largest item or null if empty.
+  */
+ public Integer findMax( )
+ {
+     return tree.findMax( );
+ }
+
+ /**
+  * Test if the tree is logically empty.
+  * @return true if empty, false otherwise.
+  */
+ public boolean isEmpty( )
+ {
+     return tree.isEmpty( );
+ }
+
+ /**
+  * Return the number of items in the tree.
+  */
+ public int size( )
+ {
+     return tree.size( );
+ }
+
+ /**
+  * Make the tree logically empty, and checkpoint the empty tree.
+  */
+ public void makeEmpty( )
+ {
+     tree.makeEmpty( );
+     try
+     {
+         checkpoint( );
+     }
+     catch( IOException e )
+     {
+         throw new UncheckedIOException( e );
+     }
+ }
+
+ /**
+  * Return an iterator over the items in sorted order.
+  */
+ public Iterator<Integer> iterator( )
+ {
+     return tree.iterator( );
+ }
+
+ /**
+  * Return the items in sorted order.
+  */
+ public Object [ ] toArray( )
+ {
+     return tree.toArray( );
+ }
+
+ /**
+  * Return the number of times the log has been forced to disk.
+  */
+ public long commits( )
+ {
+     return commits;
+ }
+
+ /**
+  * Internal method to add a record to the current group, and commit
+  * the group once it is full.
+  */
+ private void append( byte op, int x )
+ {
+     buffer.put( op ).putInt( x );
+     pending++;
+     try
+     {
+         if( pending == groupSize )
+             commit( );
+         if( ++sinceCheckpoint >= checkpointInterval )
+             checkpoint( );
+     }
+     catch( IOException e )
+     {
+         throw new UncheckedIOException( e );
+     }
+ }
+
+ /**
+  * Internal method to write the current group as one frame and force it.
+  */
+ private void commit( ) throws IOException
+ {
+     if( pending == 0 )
+         return;
+
+     buffer.flip( );
+     ByteBuffer records = buffer.duplicate( ).position( FRAME_HEADER );
+     CRC32C crc = new CRC32C( );
+     crc.update( records );
+     buffer.putInt( 0, pending ).putInt( 4, (int) crc.getValue( ) );
+
+     while( buffer.hasRemaining( ) )
+         log.write( buffer );
+     log.force( false );
+     commits++;
+     startFrame( );
+ }
+
+ private void startFrame( )
+ {
+     buffer.clear( );
+     buffer.position( FRAME_HEADER );
+     pending = 0;
+ }
+
+ /**
+  * Internal method to build the tree from a checkpoint.
+  */
+ private void load( TreeSnapshot s )
+ {
+     Integer [ ] items = new Integer[ s.size( ) ];
+     for( int i = 0; i < items.length; i++ )
+         items[ i ] = s.get( i );
+     tree.buildSorted( items, items.length, ForkJoinPool.commonPool( ) );
+ }
+
+ /**
+  * Internal method to apply every whole frame of the log, then cut the
+  * log after the last one.
+  */
+ private void replay( ) throws IOException
+ {
+     ByteBuffer header = ByteBuffer.allocate( FRAME_HEADER ).order( ByteOrder.LITTLE_ENDIAN );
+     long size = log.size( );
+     long good = 0;
+
+     while( good + FRAME_HEADER <= size )
+     {
+         header.clear( );
+         log.read( header, good );
+         int count = header.getInt( 0 );
+         if( count < 1 || good + FRAME_HEADER + (long) RECORD * count > size )
+             break;
+
+         ByteBuffer records = ByteBuffer.allocate( RECORD * count ).order( ByteOrder.LITTLE_ENDIAN );
+         while( records.hasRemaining( ) )
+             if( log.read( records, good + FRAME_HEADER + records.position( ) ) < 0 )
+                 break;
+         records.flip( );
+         CRC32C crc = new CRC32C( );
+         crc.update( records.duplicate( ) );
+         if( (int) crc.getValue( ) != header.getInt( 4 ) )
+             break;
+
+         for( int i = 0; i < count; i++ )
+         {
+             byte op = records.get( );
+             int x = records.getInt( );
+             if( op == INSERT )
+                 tree.insert( x );
+             else
+                 tree.remove( x );
+         }
+         good += FRAME_HEADER + (long) RECORD * count;
+         sinceCheckpoint += count;
+     }
+
+     if( good != size )
+         log.truncate( good );
+     log.position( good );
+ }
+
+ private static final String CHECKPOINT = "checkpoint.snap";
+ private static final String LOG = "wal.log";
+ private static final byte INSERT = 1;
+ private static final byte REMOVE = 2;
+ private static final int FRAME_HEADER = 8;     // count, CRC-32C of the records
+ private static final int RECORD = 5;           // op, key
+
+ private final AVLTree<Integer> tree = new AVLTree<Integer>( );
+ private final int groupSize;
+ private final long checkpointInterval;
+ private final Path checkpointFile;
+ private final FileChannel log;
+
+   /** The frame being filled: header space, then pending records. */
+ private final ByteBuffer buffer;
+ private int pending;
+ private long sinceCheckpoint;
+ private long commits;
+
+ //Insert NUMS random keys and remove a quarter of them, forcing the log
+ //once per groupSize operations. Returns operations per second.
+ public static long append_time(Path dir, int NUMS, int groupSize) throws IOException
+ {
+	 Random r = new Random(42);
+	 long start = System.nanoTime();
+	 try( DurableAVLTree t = new DurableAVLTree(dir, groupSize, Long.MAX_VALUE) )
+	 {
+		 for( int i = 0; i < NUMS; i++ )
+		 {
+			 if( i % 4 == 3 )
+				 t.remove( r.nextInt(NUMS) );
+			 else
+				 t.insert( r.nextInt(NUMS) );
+		 }
+	 }
+	 long ops = (long) NUMS * 1000000000L / (System.nanoTime() - start);
+	 clear( dir );
+	 return ops;
+ }
+
+ //Build a tree of NUMS random keys, checkpoint it, then log NUMS / 10 more
+ //operations. Returns the time to reopen the directory in ms, and for comparison
+ //the time to insert the same keys into a new AVLTree.
+ public static long[] recover_time(Path dir, int NUMS) throws IOException
+ {
+	 Random r = new Random(42);
+	 try( DurableAVLTree t = new DurableAVLTree(dir, 4096, Long.MAX_VALUE) )
+	 {
+		 for( int i = 0; i < NUMS; i++ )
+			 t.insert( r.nextInt() );
+		 t.checkpoint();
+		 for( int i = 0; i < NUMS / 10; i++ )
+			 t.insert( r.nextInt() );
+	 }
+
+	 long start = System.nanoTime();
+	 DurableAVLTree t = new DurableAVLTree(dir, 4096, Long.MAX_VALUE);
+	 long recover_time = (System.nanoTime() - start) / 1000000;
+	 int n = t.size();
+	 t.close();
+	 clear( dir );
+
+	 r = new Random(42);
+	 start = System.nanoTime();
+	 AVLTree<Integer> a = new AVLTree<Integer>();
+	 for( int i = 0; i < NUMS + NUMS / 10; i++ )
+		 a.insert( r.nextInt() );
+	 long insert_time = (System.nanoTime() - start) / 1000000;
+	 if( a.size() != n )
+		 System.out.println( "OOPS!!" );
+	 return new long[] { recover_time, insert_time };
+ }
+
+ private static void clear(Path dir) throws IOException
+ {
+	 Files.deleteIfExists( dir.resolve( CHECKPOINT ) );
+	 Files.deleteIfExists( dir.resolve( LOG ) );
+ }
+
+     // Test program
+ public static void main( String [ ] args ) throws IOException
+ {
+     final int NUMS = 20000;
+     Path dir = Files.createTempDirectory( "durable" );
+
+     append_time( dir, NUMS, 64 );   // Warm up
+     for( int groupSize : new int[ ] { 1, 8, 64, 512, 4096 } )
+         System.out.println( "Group size " + groupSize + ": " + append_time( dir, NUMS, groupSize ) + " ops/s" );
+
+     long [ ] x = recover_time( dir, 1000000 );
+     System.out.println( "Recovering 1000000 keys and 100000 logged inserts takes " + x[0] + " ms (inserting them: " + x[1] + " ms)" );
+     Files.delete( dir );
+ }
+}
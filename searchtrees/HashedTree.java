@@ -0,0 +1,216 @@
+package searchtrees;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import hashTable.CuckooHashTable;
+import hashTable.HashCodeFamily;
+import hashTable.HashFamily;
+
+//HashedTree class
+//
+//CONSTRUCTION: with the tree to index, and optionally a hash family
+//
+//******************PUBLIC OPERATIONS*********************
+//void insert( x )       --> Insert x
+//void remove( x )       --> Remove x
+//boolean contains( x )  --> Return true if x is present, by hashing
+//Comparable findMin( )  --> Return smallest item
+//Comparable findMax( )  --> Return largest item
+//List range( l, h )     --> Return the items between l and h, in order
+//int rank( x )          --> Return number of items smaller than x
+//boolean isEmpty( )     --> Return true if empty; else false
+//int size( )            --> Return number of items
+//void makeEmpty( )      --> Remove all items
+//Iterator iterator( )   --> Return an in-order iterator
+//Object [ ] toArray( )  --> Return items in sorted order
+
+/**
+* An ordered set kept twice: in a CuckooHashTable, which answers contains
+* with a fixed number of probes, and in a search tree, which answers the
+* questions about order. Both are updated together. Items already
+* present are not inserted again, and items that are absent are not
+* searched for in the tree when removed, since the table rules them out
+* first; the tree never sees a duplicate.
+* With a RedBlackTree, range and rank use its order statistics; with
+* any other tree they walk it in order.
+* Note that all "matching" is based on equals and hashCode for contains,
+* and on the compareTo method for everything else; they must agree.
+*/
+public class HashedTree<AnyType extends Comparable<AnyType>> implements SearchTree<AnyType>
+{
+ /**
+  * Construct the index over a tree, with two hash functions built on
+  * hashCode. Items already in the tree are hashed.
+  * @param tree the tree to keep in step; used only through this object from now on.
+  */
+ public HashedTree( SearchTree<AnyType> tree )
+ {
+     this( tree, new HashCodeFamily<AnyType>( 2 ) );
+ }
+
+ /**
+  * Construct the index over a tree. Items already in the tree are hashed.
+  * @param tree the tree to keep in step; used only through this object from now on.
+  * @param family the hash functions for the table.
+  */
+ public HashedTree( SearchTree<AnyType> tree, HashFamily<? super AnyType> family )
+ {
+     this.tree = tree;
+     this.table = new CuckooHashTable<AnyType>( family );
+     for( AnyType x : tree )
+         table.insert( x );
+ }
+
+ /**
+  * Insert into the set; duplicates are ignored.
+  * @param x the item to insert.
+  */
+ public void insert( AnyType x )
+ {
+     if( table.insert( x ) )
+         tree.insert( x );
+ }
+
+ /**
+  * Remove from the set. Nothing is done if x is not found.
+  * @param x the item to remove.
+  */
+ public void remove( AnyType x )
+ {
+     if( table.remove( x ) )
+         tree.remove( x );
+ }
+
+ /**
+  * Find an item in the set, without touching the tree.
+  * @param x the item to search for.
+  * @return true if x is found.
+  */
+ public boolean contains( AnyType x )
+ {
+     return table.contains( x );
+ }
+
+ /**
+  * Find the smallest item in the set.
+  * @return smallest item or null if empty.
+  */
+ public AnyType findMin( )
+ {
+     return tree.findMin( );
+ }
+
+ /**
+  * Find the largest item in the set.
+  * @return the largest item or null if empty.
+  */
+ public AnyType findMax( )
+ {
+     return tree.findMax( );
+ }
+
+ /**
+  * Return every item x with low <= x <= high, in order.
+  */
+ public List<AnyType> range( AnyType low, AnyType high )
+ {
+     if( tree instanceof RedBlackTree )
+         return ( (RedBlackTree<AnyType>) tree ).getRange( low, high );
+
+     List<AnyType> list = new ArrayList<AnyType>( );
+     for( AnyType x : tree )
+     {
+         if( x.compareTo( high ) > 0 )
+             break;
+         if( x.compareTo( low ) >= 0 )
+             list.add( x );
+     }
+     return list;
+ }
+
+ /**
+  * Return the number of items smaller than x.
+  */
+ public int rank( AnyType x )
+ {
+     if( tree instanceof RedBlackTree )
+     {
+         RedBlackTree<AnyType> t = (RedBlackTree<AnyType>) tree;
+         return t.findNumSmaller( t.root, x );
+     }
+
+     int n = 0;
+     for( Iterator<AnyType> itr = tree.iterator( ); itr.hasNext( ) && itr.next( ).compareTo( x ) < 0; )
+         n++;
+     return n;
+ }
+
+ /**
+  * Test if the set is logically empty.
+  * @return true if empty, false otherwise.
+  */
+ public boolean isEmpty( )
+ {
+     return table.size( ) == 0;
+ }
+
+ /**
+  * Return the number of items in the set.
+  */
+ public int size( )
+ {
+     return table.size( );
+ }
+
+ /**
+  * Make the set logically empty.
+  */
+ public void makeEmpty( )
+ {
+     table.makeEmpty( );
+     tree.makeEmpty( );
+ }
+
+ /**
+  * Return an iterator over the items in sorted order.
+  */
+ public Iterator<AnyType> iterator( )
+ {
+     return tree.iterator( );
+ }
+
+ /**
+  * Return the items in sorted order.
+  */
+ public Object [ ] toArray( )
+ {
+     return tree.toArray( );
+ }
+
+ private final SearchTree<AnyType> tree;
+ private final CuckooHashTable<AnyType> table;
+
+     // Test program
+ public static void main( String [ ] args )
+ {
+     final int NUMS = 100000;
+
+     for( int round = 0; round < 2; round++ )   // The first round warms up
+     {
+         long [ ] a = TreeBenchmark.workload_time( new AVLTree<Integer>( ), NUMS );
+         long [ ] b = TreeBenchmark.workload_time( new HashedTree<Integer>( new AVLTree<Integer>( ) ), NUMS );
+         long [ ] c = TreeBenchmark.workload_time( new RedBlackTree<Integer>( ), NUMS );
+         long [ ] d = TreeBenchmark.workload_time( new HashedTree<Integer>( new RedBlackTree<Integer>( ) ), NUMS );
+         if( round == 0 )
+             continue;
+         String [ ] names = { "insert", "search", "delete", "random insert", "second search", "random delete" };
+         for( int i = 0; i < names.length; i++ )
+         {
+             System.out.println( "The time cost for " + names[ i ] + " in AVLTree is " + a[ i ] + " (hashed: " + b[ i ] + ")" );
+             System.out.println( "The time cost for " + names[ i ] + " in RedBlackTree is " + c[ i ] + " (hashed: " + d[ i ] + ")" );
+         }
+     }
+ }
+}
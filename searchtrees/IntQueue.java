@@ -0,0 +1,123 @@
+package searchtrees;
+
+/*************************************************************************
+ *  Compilation:  javac IntQueue.java
+ *
+ *  A queue of primitive ints, implemented with a resizing circular array.
+ *
+ *************************************************************************/
+
+import java.util.NoSuchElementException;
+
+/**
+ *  The <tt>IntQueue</tt> class represents a first-in-first-out (FIFO)
+ *  queue of <tt>int</tt> values.
+ *  It supports the operations of {@link ResizingArrayQueue} without boxing:
+ *  <em>enqueue</em>, <em>dequeue</em>, <em>peek</em>, <em>size</em>,
+ *  <em>is-empty</em> and <em>clear</em>.
+ *  <p>
+ *  The array length is always a power of two, so wrap-around is a mask.
+ *  It doubles when full and never shrinks; call <em>clear</em> to reuse
+ *  the array for the next walk.
+ *  The <em>enqueue</em> operation takes constant amortized time;
+ *  the other operations take constant time in the worst case.
+ */
+public class IntQueue {
+    private int[] q;             // queue elements
+    private int N;               // number of elements on queue
+    private int first;           // index of first element of queue
+
+    /**
+     * Initializes an empty queue.
+     */
+    public IntQueue() {
+        this(16);
+    }
+
+    /**
+     * Initializes an empty queue with room for at least <tt>capacity</tt> values.
+     * @param capacity the number of values to hold before resizing
+     */
+    public IntQueue(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive");
+        q = new int[Integer.highestOneBit(capacity - 1 | 1) << 1];
+    }
+
+    /**
+     * Is this queue empty?
+     * @return true if this queue is empty; false otherwise
+     */
+    public boolean isEmpty() {
+        return N == 0;
+    }
+
+    /**
+     * Returns the number of values in this queue.
+     * @return the number of values in this queue
+     */
+    public int size() {
+        return N;
+    }
+
+    /**
+     * Removes all values from this queue, keeping its array.
+     */
+    public void clear() {
+        N = 0;
+        first = 0;
+    }
+
+    // double the underlying array, unwrapping it to the front
+    private void grow() {
+        int[] temp = new int[2*q.length];
+        int head = q.length - first;
+        System.arraycopy(q, first, temp, 0, head);
+        System.arraycopy(q, 0, temp, head, first);
+        q = temp;
+        first = 0;
+    }
+
+    /**
+     * Adds the value to this queue.
+     * @param x the value to add
+     */
+    public void enqueue(int x) {
+        if (N == q.length) grow();
+        q[(first + N) & (q.length - 1)] = x;
+        N++;
+    }
+
+    /**
+     * Removes and returns the value on this queue that was least recently added.
+     * @return the value on this queue that was least recently added
+     * @throws java.util.NoSuchElementException if this queue is empty
+     */
+    public int dequeue() {
+        if (isEmpty()) throw new NoSuchElementException("Queue underflow");
+        int x = q[first];
+        first = (first + 1) & (q.length - 1);
+        N--;
+        return x;
+    }
+
+    /**
+     * Returns the value least recently added to this queue.
+     * @return the value least recently added to this queue
+     * @throws java.util.NoSuchElementException if this queue is empty
+     */
+    public int peek() {
+        if (isEmpty()) throw new NoSuchElementException("Queue underflow");
+        return q[first];
+    }
+
+    /**
+     * Returns a string representation of this queue.
+     * @return the sequence of values in FIFO order, separated by spaces
+     */
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < N; i++)
+            s.append(q[(first + i) & (q.length - 1)]).append(' ');
+        return s.toString();
+    }
+}
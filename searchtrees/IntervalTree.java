@@ -0,0 +1,231 @@
+package searchtrees;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// A RedBlackTree of half-open intervals [start, end), ordered by start and
+// then end. Every node also stores the largest end in its subtree, kept up
+// to date through the augmentation hooks of RedBlackTree, so a query can
+// skip every subtree whose intervals all end before the query begins.
+public class IntervalTree extends RedBlackTree<IntervalTree.Interval> {
+
+	// A half-open interval [start, end) with start < end
+	public static final class Interval implements Comparable<Interval> {
+
+		public final long start;
+		public final long end;
+
+		public Interval(long start, long end){
+			if (start >= end)
+				throw new IllegalArgumentException("Empty interval [" + start + ", " + end + ")");
+			this.start = start;
+			this.end = end;
+		}
+
+		// @return: true if this interval and [a, b) have a point in common
+		public boolean overlaps(long a, long b){
+			return start < b && a < end;
+		}
+
+		// @return: true if t lies in this interval
+		public boolean contains(long t){
+			return start <= t && t < end;
+		}
+
+		public int compareTo(Interval other){
+			int cmp = Long.compare(start, other.start);
+			return cmp != 0 ? cmp : Long.compare(end, other.end);
+		}
+
+		public boolean equals(Object o){
+			return o instanceof Interval && compareTo((Interval) o) == 0;
+		}
+
+		public int hashCode(){
+			return Long.hashCode(start) * 31 + Long.hashCode(end);
+		}
+
+		public String toString(){
+			return "[" + start + ", " + end + ")";
+		}
+	}// end class Interval
+
+
+	// A node with the largest end of its subtree
+	static class IntervalNode extends RedBlackNode<Interval> {
+
+		long maxEnd;
+
+		IntervalNode(Interval key){
+			super(key);
+			maxEnd = key.end;
+		}
+	}// end class IntervalNode
+
+
+	// @param: start, the first point of the interval
+	// @param: end, the point just past the interval; must be above start
+	// Inserts [start, end). An interval already present is stored again.
+	public void insert(long start, long end){
+		insert(new Interval(start, end));
+	}// end insert(long start, long end)
+
+
+	// @param: start, the first point of the interval
+	// @param: end, the point just past the interval
+	// Removes one copy of [start, end), if there is one.
+	public void remove(long start, long end){
+		if (start < end)
+			remove(new Interval(start, end));
+	}// end remove(long start, long end)
+
+
+	// @param: t, a point
+	// @return: every interval holding t, by increasing start
+	public List<Interval> stab(long t){
+		List<Interval> list = new ArrayList<Interval>();
+		stab(root, t, list);
+		return list;
+	}// end stab(long t)
+
+
+	// @param: a, the first point of the query
+	// @param: b, the point just past the query
+	// @return: every interval with a point in [a, b), by increasing start
+	public List<Interval> overlap(long a, long b){
+		List<Interval> list = new ArrayList<Interval>();
+		if (a < b)
+			overlap(root, a, b, list);
+		return list;
+	}// end overlap(long a, long b)
+
+
+	// @param: node, the root of the subtree to search
+	// Adds the intervals of the subtree that overlap [a, b) to list, in
+	// order. A subtree is skipped whole if its largest end is at most a,
+	// and the right subtree of a node starting at b or later holds only
+	// intervals that start later still, so it is skipped too.
+	private void overlap(RedBlackNode<Interval> node, long a, long b, List<Interval> list){
+		if (isNil(node) || ((IntervalNode) node).maxEnd <= a)
+			return;
+		overlap(node.left, a, b, list);
+		if (node.key.start < b){
+			if (a < node.key.end)
+				list.add(node.key);
+			overlap(node.right, a, b, list);
+		}
+	}// end overlap(RedBlackNode node, long a, long b, List list)
+
+
+	// @param: node, the root of the subtree to search
+	// Adds the intervals of the subtree that hold t to list, in order. It
+	// is overlap with [t, t + 1) written without the t + 1, which would
+	// overflow at Long.MAX_VALUE.
+	private void stab(RedBlackNode<Interval> node, long t, List<Interval> list){
+		if (isNil(node) || ((IntervalNode) node).maxEnd <= t)
+			return;
+		stab(node.left, t, list);
+		if (node.key.start <= t){
+			if (t < node.key.end)
+				list.add(node.key);
+			stab(node.right, t, list);
+		}
+	}// end stab(RedBlackNode node, long t, List list)
+
+
+	// @param: node, the root of a subtree
+	// @return: the largest end in the subtree, or Long.MIN_VALUE for nil
+	private long maxEnd(RedBlackNode<Interval> node){
+		return isNil(node) ? Long.MIN_VALUE : ((IntervalNode) node).maxEnd;
+	}// end maxEnd(RedBlackNode node)
+
+
+	@Override
+	protected RedBlackNode<Interval> newNode(Interval key){
+		return new IntervalNode(key);
+	}// end newNode(Interval key)
+
+
+	@Override
+	protected void pullUp(RedBlackNode<Interval> x){
+		((IntervalNode) x).maxEnd = Math.max(x.key.end, Math.max(maxEnd(x.left), maxEnd(x.right)));
+	}// end pullUp(RedBlackNode x)
+
+
+	@Override
+	protected void pullUpPath(RedBlackNode<Interval> x){
+		for (; !isNil(x); x = x.parent)
+			pullUp(x);
+	}// end pullUpPath(RedBlackNode x)
+
+
+	 //Store NUMS random intervals of length up to LENGTH over a timeline of
+	 //NUMS * 10 points, then ask NUMS random stabbing queries. Returns the
+	 //average time of each query and the average number of intervals found.
+	 public static long[] stab_time(int NUMS)
+	 {
+		 IntervalTree t = randomTree(NUMS);
+		 Random r = new Random(38);
+		 long start, total_time = 0, found = 0;
+
+		 for( int i = 0; i < NUMS; i++ )
+		 {
+			 long x = r.nextInt(NUMS * 10);
+			 start = System.nanoTime();
+			 found += t.stab(x).size();
+			 total_time += System.nanoTime() - start;
+		 }
+		 return new long[] { total_time / NUMS, found / NUMS };
+	 }
+
+	 //The same stabbing queries answered by a scan of every interval, as they
+	 //are today. Only QUERIES of them are run. Returns the average time of each query.
+	 public static long scan_time(int NUMS)
+	 {
+		 IntervalTree t = randomTree(NUMS);
+		 Random r = new Random(38);
+		 long start, total_time = 0, found = 0;
+
+		 for( int i = 0; i < QUERIES; i++ )
+		 {
+			 long x = r.nextInt(NUMS * 10);
+			 start = System.nanoTime();
+			 List<Interval> list = new ArrayList<Interval>();
+			 for( Interval v : t )
+				 if( v.contains(x) )
+					 list.add(v);
+			 found += list.size();
+			 total_time += System.nanoTime() - start;
+		 }
+		 if( found == 42 )
+			 System.out.println();
+		 return total_time / QUERIES;
+	 }
+
+	 private static final int QUERIES = 1000;
+	 private static final int LENGTH = 100;
+
+	 private static IntervalTree randomTree(int NUMS)
+	 {
+		 IntervalTree t = new IntervalTree();
+		 Random r = new Random(38);
+		 for( int i = 0; i < NUMS; i++ )
+		 {
+			 long s = r.nextInt(NUMS * 10);
+			 t.insert( s, s + 1 + r.nextInt(LENGTH) );
+		 }
+		 return t;
+	 }
+
+	 public static void main( String [ ] args )
+	 {
+	     final int NUMS = 100000;
+
+	     stab_time(NUMS);   // Warm up
+	     scan_time(NUMS);
+	     long x[] = stab_time(NUMS);
+	     System.out.println( "The time cost for a stabbing query is " + x[0] + " (" + x[1] + " intervals found; full scan: " + scan_time(NUMS) + ")" );
+	 }
+
+}// end class IntervalTree
@@ -0,0 +1,166 @@
+package searchtrees;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+//LatencyBenchmark class
+//
+//CONSTRUCTION: none; every operation is static
+//
+//******************PUBLIC OPERATIONS*********************
+//LatencyHistogram [ ] phase_latency( t, p, n, r ) --> Run phase p on t at r ops a second
+//void print( name, h ) --> Print the percentile distribution of h[ 0 ] and h[ 1 ]
+
+/**
+* Drives the README workloads, 4a to 5c, at a fixed rate and records
+* the latency of every operation instead of the average of all of them.
+* <p>
+* Operation i is due at start + i / rate. When one operation stalls, a
+* driver that simply waits for it and then carries on never issues the
+* operations that should have been sent meanwhile, so the stall is
+* counted once instead of by every request it delayed; this is
+* coordinated omission. Here each latency is measured from the time the
+* operation was due, not from when it was actually issued, so the
+* operations queued up behind a stall are charged for the wait. The
+* uncorrected latency, from issue to completion, is kept as well to
+* show the difference.
+*/
+public final class LatencyBenchmark
+{
+ private LatencyBenchmark( )
+ {
+ }
+
+ /** The README workloads, in order. */
+ public static final String [ ] PHASES = { "4a", "4b", "4c", "5a", "5b", "5c" };
+
+ private static final int INSERT = 0;
+ private static final int CONTAINS = 1;
+ private static final int REMOVE = 2;
+
+   // The percentiles printed for each phase
+ private static final double [ ] PERCENTILES = { 50, 75, 90, 99, 99.9, 99.99, 100 };
+
+ /**
+  * Internal method to work out the operation of a phase.
+  */
+ private static int operationOf( int phase )
+ {
+     switch( phase % 3 )
+     {
+       case 0: return INSERT;
+       case 1: return CONTAINS;
+       default: return REMOVE;
+     }
+ }
+
+ /**
+  * Internal method to draw the keys of a phase up front, so that
+  * neither the random numbers nor boxing are timed.
+  * @param phase the index of the phase in PHASES.
+  */
+ private static Integer [ ] keysOf( int phase, int NUMS, Random r )
+ {
+     Integer [ ] keys = new Integer[ NUMS ];
+     for( int i = 0; i < NUMS; i++ )
+     {
+         switch( phase )
+         {
+           case 0: keys[ i ] = i + 1; break;              // 4a: 1 to NUMS in order
+           case 2: keys[ i ] = NUMS - i; break;           // 4c: NUMS down to 1
+           default: keys[ i ] = r.nextInt( NUMS ) + 1;    // 4b and all of 5: random
+         }
+     }
+     return keys;
+ }
+
+ //Runs phase PHASES[phase] of the README on t at rate operations a second.
+ //Returns the corrected and the uncorrected latencies, in nanoseconds.
+ public static LatencyHistogram[] phase_latency(SearchTree<Integer> t, int phase, int NUMS, double rate)
+ {
+	 Integer[] keys = keysOf(phase, NUMS, new Random(phase));
+	 int op = operationOf(phase);
+	 LatencyHistogram corrected = new LatencyHistogram();
+	 LatencyHistogram raw = new LatencyHistogram();
+	 double interval = 1e9 / rate;
+
+	 long start = System.nanoTime();
+	 for (int i = 0; i < NUMS; i++)
+	 {
+		 long due = start + (long) (i * interval);
+		 long now;
+		 while ((now = System.nanoTime()) < due)
+			 Thread.onSpinWait();
+
+		 if (op == INSERT)
+			 t.insert(keys[i]);
+		 else if (op == CONTAINS)
+			 t.contains(keys[i]);
+		 else
+			 t.remove(keys[i]);
+
+		 long end = System.nanoTime();
+		 corrected.record(end - due);
+		 raw.record(end - now);
+	 }
+	 return new LatencyHistogram[] { corrected, raw };
+ }
+
+ /**
+  * Print the percentile distribution of a phase, corrected and not.
+  * @param name the label of the line.
+  * @param h the two histograms phase_latency returned.
+  */
+ public static void print( String name, LatencyHistogram [ ] h )
+ {
+     StringBuilder sb = new StringBuilder( String.format( "%-22s", name ) );
+     for( double p : PERCENTILES )
+         sb.append( String.format( " %12.2f", h[ 0 ].percentile( p ) / 1e3 ) );
+     sb.append( String.format( "  | %10.2f %10.2f", h[ 1 ].percentile( 99.9 ) / 1e3, h[ 1 ].max( ) / 1e3 ) );
+     System.out.println( sb );
+ }
+
+ /**
+  * Internal method to run every phase on a new tree, printing each.
+  */
+ private static void runAll( String name, Supplier<SearchTree<Integer>> trees, int NUMS, double rate, boolean quiet )
+ {
+     SearchTree<Integer> t = trees.get( );
+     for( int phase = 0; phase < PHASES.length; phase++ )
+     {
+         LatencyHistogram [ ] h = phase_latency( t, phase, NUMS, rate );
+         if( !quiet )
+             print( name + " " + PHASES[ phase ], h );
+     }
+ }
+
+     // Test program; the optional argument is the target rate in operations
+     // a second. The trees run on a thread with a large stack, since the
+     // sorted inserts of 4a leave the BinarySearchTree a list as deep as
+     // it is long and its methods are recursive.
+ public static void main( String [ ] args ) throws InterruptedException
+ {
+     final int NUMS = 100000;
+     final double rate = args.length > 0 ? Double.parseDouble( args[ 0 ] ) : 200000;
+
+     Thread runner = new Thread( null, ( ) -> {
+         runAll( "warm up", ( ) -> new AVLTree<Integer>( ), NUMS, rate, true );
+         runAll( "warm up", ( ) -> new RedBlackTree<Integer>( ), NUMS, rate, true );
+         runAll( "warm up", ( ) -> new SplayTree<Integer>( ), NUMS, rate, true );
+
+         System.out.printf( "Target rate %.0f ops/s; corrected latencies in microseconds, then the uncorrected p99.9 and max%n", rate );
+         StringBuilder header = new StringBuilder( String.format( "%-22s", "tree phase" ) );
+         for( double p : PERCENTILES )
+             header.append( String.format( " %12s", p == 100 ? "max" : p == (int) p ? "p" + (int) p : "p" + p ) );
+         header.append( String.format( "  | %10s %10s", "raw p99.9", "raw max" ) );
+         System.out.println( header );
+
+         runAll( "AVLTree", ( ) -> new AVLTree<Integer>( ), NUMS, rate, false );
+         runAll( "RedBlackTree", ( ) -> new RedBlackTree<Integer>( ), NUMS, rate, false );
+         runAll( "SplayTree", ( ) -> new SplayTree<Integer>( ), NUMS, rate, false );
+         runAll( "BinarySearchTree", ( ) -> new BinarySearchTree<Integer>( ), NUMS, rate, false );
+     }, "latency", 1L << 30 );
+     runner.start( );
+     runner.join( );
+ }
+}
@@ -0,0 +1,193 @@
+package searchtrees;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+//LatencyHistogram class
+//
+//CONSTRUCTION: with no initializer
+//
+//******************PUBLIC OPERATIONS*********************
+//void record( v )       --> Count one value, in nanoseconds
+//long count( )          --> Return the number of values recorded
+//long percentile( p )   --> Return the value below which p percent fall
+//long max( )            --> Return the largest value recorded
+//double mean( )         --> Return the average value
+//void reset( )          --> Forget every value
+
+/**
+* A histogram of latencies in the style of HdrHistogram. Values below
+* 2^SUB_BITS get a bucket each; above that every power of two is split
+* into 2^SUB_BITS equal buckets, so a value is known to within about
+* 3% whatever its size, from nanoseconds up to the range of a long,
+* in a fixed array of counters. Recording is a few shifts and one
+* atomic add, and any number of threads may record at once.
+* <p>
+* The counters are striped like a LongAdder: there is one array of them
+* per stripe, a power of two at least the number of processors, and a
+* thread always adds to the stripe its id hashes to, so threads on
+* different processors rarely share a cache line. A stripe is allocated
+* by the first thread that uses it; reading sums every stripe.
+*/
+public final class LatencyHistogram
+{
+ /**
+  * Count one value.
+  * @param value the value, in nanoseconds; negative values count as 0.
+  */
+ public void record( long value )
+ {
+     if( value < 0 )
+         value = 0;
+     stripe( ).incrementAndGet( indexOf( value ) );
+     total.increment( );
+     sum.add( value );
+     if( value > max.get( ) )
+         max.accumulateAndGet( value, Math::max );
+ }
+
+ /**
+  * Return the number of values recorded.
+  */
+ public long count( )
+ {
+     return total.sum( );
+ }
+
+ /**
+  * Return the smallest value v such that at least p percent of the
+  * recorded values are at most v, rounded up to the top of its bucket.
+  * @param p the percentile, from 0 to 100.
+  * @return the value, or 0 if nothing was recorded.
+  */
+ public long percentile( double p )
+ {
+     long [ ] counts = new long[ BUCKETS ];
+     long n = 0;
+     for( int s = 0; s < STRIPES; s++ )
+     {
+         AtomicLongArray stripe = stripes.get( s );
+         for( int i = 0; stripe != null && i < BUCKETS; i++ )
+         {
+             counts[ i ] += stripe.get( i );
+             n += stripe.get( i );
+         }
+     }
+     if( n == 0 )
+         return 0;
+
+     long rank = Math.max( 1, (long) Math.ceil( p / 100 * n ) );
+     long seen = 0;
+     for( int i = 0; i < BUCKETS; i++ )
+     {
+         seen += counts[ i ];
+         if( seen >= rank )
+             return Math.min( highestIn( i ), max.get( ) );
+     }
+     return max.get( );
+ }
+
+ /**
+  * Return the largest value recorded, or 0 if there is none.
+  */
+ public long max( )
+ {
+     return max.get( );
+ }
+
+ /**
+  * Return the average of the values recorded, or 0 if there is none.
+  */
+ public double mean( )
+ {
+     long n = total.sum( );
+     return n == 0 ? 0 : (double) sum.sum( ) / n;
+ }
+
+ /**
+  * Forget every value. Values recorded while this runs may or may
+  * not be kept.
+  */
+ public void reset( )
+ {
+     for( int s = 0; s < STRIPES; s++ )
+     {
+         AtomicLongArray stripe = stripes.get( s );
+         for( int i = 0; stripe != null && i < BUCKETS; i++ )
+             stripe.set( i, 0 );
+     }
+     total.reset( );
+     sum.reset( );
+     max.set( 0 );
+ }
+
+ /**
+  * Return a summary of the percentiles, in microseconds.
+  */
+ public String toString( )
+ {
+     return String.format( "n=%d mean=%.2fus p50=%.2fus p99=%.2fus p99.9=%.2fus max=%.2fus",
+             count( ), mean( ) / 1e3, percentile( 50 ) / 1e3, percentile( 99 ) / 1e3,
+             percentile( 99.9 ) / 1e3, max( ) / 1e3 );
+ }
+
+ /**
+  * Internal method to find the stripe of the calling thread, creating
+  * it on first use. Fibonacci hashing spreads consecutive thread ids
+  * over the stripes.
+  */
+ private AtomicLongArray stripe( )
+ {
+     long h = Thread.currentThread( ).getId( ) * 0x9E3779B97F4A7C15L;
+     int s = (int) ( h >>> 32 ) & ( STRIPES - 1 );
+     AtomicLongArray stripe = stripes.get( s );
+     if( stripe == null )
+     {
+         stripes.compareAndSet( s, null, new AtomicLongArray( BUCKETS ) );
+         stripe = stripes.get( s );
+     }
+     return stripe;
+ }
+
+ /**
+  * Internal method to find the bucket of a value. Values below
+  * SUB_COUNT index themselves; above that the top SUB_BITS + 1 bits
+  * of the value pick the bucket, which keeps the indexes contiguous.
+  */
+ private static int indexOf( long value )
+ {
+     if( value < SUB_COUNT )
+         return (int) value;
+     int exponent = 63 - Long.numberOfLeadingZeros( value );
+     int mantissa = (int) ( value >>> ( exponent - SUB_BITS ) );
+     return ( exponent - SUB_BITS ) * SUB_COUNT + mantissa;
+ }
+
+ /**
+  * Internal method to find the largest value that falls in a bucket.
+  */
+ private static long highestIn( int index )
+ {
+     if( index < 2 * SUB_COUNT )
+         return index;
+     int shift = index / SUB_COUNT - 1;
+     long mantissa = SUB_COUNT + index % SUB_COUNT;
+     return ( ( mantissa + 1 ) << shift ) - 1;
+ }
+
+   // Each power of two is split into 2^SUB_BITS buckets
+ private static final int SUB_BITS = 5;
+ private static final int SUB_COUNT = 1 << SUB_BITS;
+ private static final int BUCKETS = ( 64 - SUB_BITS ) * SUB_COUNT;
+
+   // The smallest power of two at least the number of processors, up to 64
+ private static final int STRIPES = Math.min( 64,
+         Integer.highestOneBit( Math.max( 1, 2 * Runtime.getRuntime( ).availableProcessors( ) - 1 ) ) );
+
+ private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<>( STRIPES );
+ private final LongAdder total = new LongAdder( );
+ private final LongAdder sum = new LongAdder( );
+ private final AtomicLong max = new AtomicLong( );
+}
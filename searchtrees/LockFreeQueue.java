@@ -0,0 +1,193 @@
+package searchtrees;
+
+/*************************************************************************
+ *  Compilation:  javac LockFreeQueue.java
+ *
+ *  A generic multi-producer, multi-consumer queue, implemented with
+ *  the non-blocking linked list of Michael and Scott.
+ *
+ *************************************************************************/
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ *  The <tt>LockFreeQueue</tt> class represents a first-in-first-out (FIFO)
+ *  queue of generic items that any number of threads may use at once.
+ *  It supports the operations of {@link Queue}, plus <em>poll</em>,
+ *  which returns null instead of throwing when the queue is empty.
+ *  <p>
+ *  This implementation is the lock-free linked list of Michael and Scott:
+ *  <em>first</em> always points at a dummy node, and both ends are
+ *  advanced with compare-and-set, so no thread ever waits on a lock.
+ *  A thread that finds <em>last</em> lagging behind helps to swing it
+ *  forward before retrying.
+ *  The <em>enqueue</em>, <em>dequeue</em>, <em>poll</em>, <em>peek</em>
+ *  and <em>is-empty</em> operations are lock-free;
+ *  <em>size</em> walks the list and is only a snapshot.
+ *  Iterators are weakly consistent.
+ */
+public class LockFreeQueue<Item> implements Iterable<Item> {
+    private volatile Node<Item> first;    // dummy node before the first item
+    private volatile Node<Item> last;     // last node, or one that lags behind it
+
+    // helper linked list class
+    private static class Node<Item> {
+        private volatile Item item;
+        private volatile Node<Item> next;
+
+        Node(Item item) {
+            this.item = item;
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Node, Node> NEXT =
+        AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<LockFreeQueue, Node> FIRST =
+        AtomicReferenceFieldUpdater.newUpdater(LockFreeQueue.class, Node.class, "first");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<LockFreeQueue, Node> LAST =
+        AtomicReferenceFieldUpdater.newUpdater(LockFreeQueue.class, Node.class, "last");
+
+    /**
+     * Initializes an empty queue.
+     */
+    public LockFreeQueue() {
+        first = last = new Node<Item>(null);
+    }
+
+    /**
+     * Is this queue empty?
+     * @return true if this queue is empty; false otherwise
+     */
+    public boolean isEmpty() {
+        return first.next == null;
+    }
+
+    /**
+     * Returns the number of items in this queue when it was walked.
+     * @return the number of items in this queue
+     */
+    public int size() {
+        int n = 0;
+        for (Node<Item> x = first.next; x != null; x = x.next)
+            n++;
+        return n;
+    }
+
+    /**
+     * Returns the item least recently added to this queue.
+     * @return the item least recently added to this queue
+     * @throws java.util.NoSuchElementException if this queue is empty
+     */
+    public Item peek() {
+        Node<Item> x = first.next;
+        if (x == null) throw new NoSuchElementException("Queue underflow");
+        return x.item;
+    }
+
+    /**
+     * Adds the item to this queue.
+     * @param item the item to add
+     */
+    public void enqueue(Item item) {
+        if (item == null) throw new IllegalArgumentException("Item is null");
+        Node<Item> node = new Node<Item>(item);
+        while (true) {
+            Node<Item> oldlast = last;
+            Node<Item> next = oldlast.next;
+            if (oldlast != last) continue;          // last moved; reread
+            if (next != null) {
+                LAST.compareAndSet(this, oldlast, next);   // help a lagging enqueue
+            }
+            else if (NEXT.compareAndSet(oldlast, null, node)) {
+                LAST.compareAndSet(this, oldlast, node);   // may fail; others will help
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes and returns the item on this queue that was least recently added.
+     * @return the item on this queue that was least recently added
+     * @throws java.util.NoSuchElementException if this queue is empty
+     */
+    public Item dequeue() {
+        Item item = poll();
+        if (item == null) throw new NoSuchElementException("Queue underflow");
+        return item;
+    }
+
+    /**
+     * Removes and returns the item on this queue that was least recently added.
+     * @return the item on this queue that was least recently added,
+     *         or null if this queue is empty
+     */
+    public Item poll() {
+        while (true) {
+            Node<Item> oldfirst = first;
+            Node<Item> oldlast = last;
+            Node<Item> next = oldfirst.next;
+            if (oldfirst != first) continue;        // first moved; reread
+            if (next == null) return null;
+            if (oldfirst == oldlast) {
+                LAST.compareAndSet(this, oldlast, next);   // help a lagging enqueue
+            }
+            else if (FIRST.compareAndSet(this, oldfirst, next)) {
+                Item item = next.item;
+                next.item = null;                   // next is the new dummy; avoid loitering
+                return item;
+            }
+        }
+    }
+
+    /**
+     * Returns a string representation of this queue.
+     * @return the sequence of items in FIFO order, separated by spaces
+     */
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        for (Item item : this)
+            s.append(item + " ");
+        return s.toString();
+    }
+
+    /**
+     * Returns an iterator that iterates over the items in this queue in FIFO order.
+     * @return an iterator that iterates over the items in this queue in FIFO order
+     */
+    public Iterator<Item> iterator()  {
+        return new ListIterator();
+    }
+
+    // an iterator, doesn't implement remove() since it's optional;
+    // skips items that other threads dequeue while it walks
+    private class ListIterator implements Iterator<Item> {
+        private Node<Item> current = first.next;
+        private Item item = advance();
+
+        private Item advance() {
+            for (; current != null; current = current.next) {
+                Item x = current.item;
+                if (x != null) {
+                    current = current.next;
+                    return x;
+                }
+            }
+            return null;
+        }
+
+        public boolean hasNext()  { return item != null;                        }
+        public void remove()      { throw new UnsupportedOperationException();  }
+
+        public Item next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Item x = item;
+            item = advance();
+            return x;
+        }
+    }
+}
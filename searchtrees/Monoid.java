@@ -0,0 +1,77 @@
+package searchtrees;
+
+//Monoid interface
+//
+//******************PUBLIC OPERATIONS*********************
+//Object identity( )     --> Return the value that combines with anything to give it back
+//Object combine( a, b ) --> Return a combined with b, a first
+//Monoid longSum( )      --> Return the monoid of sums of Longs
+//Monoid min( )          --> Return the monoid of minima
+//Monoid max( )          --> Return the monoid of maxima
+
+/**
+* An associative way to combine values, with an identity, so that the
+* value of a key range can be put together from the values of the
+* subtrees that cover it. AugmentedRedBlackTree keeps one combined value
+* per subtree. combine need not be commutative; it is always applied in
+* key order.
+*/
+public interface Monoid<V>
+{
+ /**
+  * Return the value of an empty range.
+  */
+ V identity( );
+
+ /**
+  * Combine two values.
+  * @param a the value of the lower keys.
+  * @param b the value of the higher keys.
+  * @return the value of both.
+  */
+ V combine( V a, V b );
+
+ /**
+  * Return the monoid of sums of Longs.
+  */
+ static Monoid<Long> longSum( )
+ {
+     return new Monoid<Long>( )
+     {
+         public Long identity( )
+           { return 0L; }
+         public Long combine( Long a, Long b )
+           { return a + b; }
+     };
+ }
+
+ /**
+  * Return the monoid of minima. The identity is null, which stands
+  * for a value above all others.
+  */
+ static <V extends Comparable<? super V>> Monoid<V> min( )
+ {
+     return new Monoid<V>( )
+     {
+         public V identity( )
+           { return null; }
+         public V combine( V a, V b )
+           { return a == null ? b : b == null || a.compareTo( b ) <= 0 ? a : b; }
+     };
+ }
+
+ /**
+  * Return the monoid of maxima. The identity is null, which stands
+  * for a value below all others.
+  */
+ static <V extends Comparable<? super V>> Monoid<V> max( )
+ {
+     return new Monoid<V>( )
+     {
+         public V identity( )
+           { return null; }
+         public V combine( V a, V b )
+           { return a == null ? b : b == null || a.compareTo( b ) >= 0 ? a : b; }
+     };
+ }
+}
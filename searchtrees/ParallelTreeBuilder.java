@@ -0,0 +1,190 @@
+package searchtrees;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+//ParallelTreeBuilder class
+//
+//CONSTRUCTION: none; all operations are static
+//
+//******************PUBLIC OPERATIONS*********************
+//int sortUnique( a, p )     --> Sort a and drop duplicates on pool p; return count
+//AVLTree buildAVL( a, p )   --> Return an AVLTree of the items of a
+//RedBlackTree buildRedBlack( a, p ) --> Return a RedBlackTree of the items of a
+
+/**
+* Builds a tree from unsorted input without one insert per item.
+* The input is merge sorted on the given pool, cut into pieces by the
+* parallelism of that pool rather than of the common pool, and
+* duplicates are squeezed out; the tree is then built straight from the
+* sorted array, with the two halves of every large range built as
+* separate tasks, since the nodes over different ranges never meet.
+* Both steps take the array the caller passes in, which is reordered.
+*/
+public final class ParallelTreeBuilder
+{
+ private ParallelTreeBuilder( )
+ {
+ }
+
+ /**
+  * Sort items and move one copy of each distinct item to the front.
+  * @param items the items; reordered in place.
+  * @param pool the pool to sort on.
+  * @return the number of distinct items.
+  */
+ public static <AnyType extends Comparable<? super AnyType>> int sortUnique( AnyType [ ] items, ForkJoinPool pool )
+ {
+     int grain = Math.max( SORT_GRAIN, items.length / ( 4 * pool.getParallelism( ) ) );
+     pool.invoke( new SortTask<AnyType>( items, items.clone( ), 0, items.length, grain ) );
+
+     int n = 0;
+     for( int i = 0; i < items.length; i++ )
+         if( n == 0 || items[ i ].compareTo( items[ n - 1 ] ) != 0 )
+             items[ n++ ] = items[ i ];
+     return n;
+ }
+
+ /**
+  * Build an AVLTree of the distinct items.
+  * @param items the items, in any order; reordered in place.
+  * @param pool the pool to sort and build on.
+  */
+ public static <AnyType extends Comparable<? super AnyType>> AVLTree<AnyType> buildAVL( AnyType [ ] items, ForkJoinPool pool )
+ {
+     AVLTree<AnyType> t = new AVLTree<AnyType>( );
+     t.buildSorted( items, sortUnique( items, pool ), pool );
+     return t;
+ }
+
+ /**
+  * Build a RedBlackTree of the distinct items.
+  * @param items the items, in any order; reordered in place.
+  * @param pool the pool to sort and build on.
+  */
+ public static <T extends Comparable<T>> RedBlackTree<T> buildRedBlack( T [ ] items, ForkJoinPool pool )
+ {
+     RedBlackTree<T> t = new RedBlackTree<T>( );
+     t.buildSorted( items, sortUnique( items, pool ), pool );
+     return t;
+ }
+
+ //Build trees of NUMS random keys with 1, 2, 4, ... threads, then with as many threads
+ //as cores and with twice as many, to show oversubscription. Each row holds the thread
+ //count and the AVL and red-black build times in ms; the first row, with 0 threads, is
+ //the sequential baseline of one insert per key.
+ public static long[][] build_time(int NUMS)
+ {
+	 int cores = Runtime.getRuntime().availableProcessors();
+	 int powers = 32 - Integer.numberOfLeadingZeros(cores - 1);
+	 long[][] x = new long[powers + 3][3];
+	 Random r = new Random(36);
+	 Integer[] input = new Integer[NUMS];
+	 for( int i = 0; i < NUMS; i++ )
+		 input[i] = r.nextInt();
+
+	 long[] seq = insert_time(NUMS);
+	 x[0][1] = seq[0];
+	 x[0][2] = seq[1];
+	 for( int row = 1; row < x.length; row++ )
+	 {
+		 int threads = row <= powers ? 1 << (row - 1) : cores * (row - powers);
+		 ForkJoinPool pool = new ForkJoinPool(threads);
+		 long start = System.nanoTime();
+		 buildAVL(input.clone(), pool);
+		 x[row][0] = threads;
+		 x[row][1] = (System.nanoTime() - start) / 1000000;
+
+		 start = System.nanoTime();
+		 buildRedBlack(input.clone(), pool);
+		 x[row][2] = (System.nanoTime() - start) / 1000000;
+		 pool.shutdown();
+	 }
+	 return x;
+ }
+
+ // Sorts a[ low..high-1 ], sorting the halves as separate tasks and merging
+ // them through tmp; ranges of at most grain items are sorted in place
+ private static final class SortTask<AnyType extends Comparable<? super AnyType>> extends RecursiveAction
+ {
+     SortTask( AnyType [ ] a, AnyType [ ] tmp, int low, int high, int grain )
+     {
+         this.a = a;
+         this.tmp = tmp;
+         this.low = low;
+         this.high = high;
+         this.grain = grain;
+     }
+
+     protected void compute( )
+     {
+         if( high - low <= grain )
+         {
+             Arrays.sort( a, low, high );
+             return;
+         }
+
+         int mid = ( low + high ) >>> 1;
+         invokeAll( new SortTask<AnyType>( a, tmp, low, mid, grain ),
+                    new SortTask<AnyType>( a, tmp, mid, high, grain ) );
+         if( a[ mid - 1 ].compareTo( a[ mid ] ) <= 0 )
+             return;   // Already in order
+
+         System.arraycopy( a, low, tmp, low, mid - low );
+         int i = low, j = mid, k = low;
+         while( i < mid && j < high )
+             a[ k++ ] = tmp[ i ].compareTo( a[ j ] ) <= 0 ? tmp[ i++ ] : a[ j++ ];
+         while( i < mid )
+             a[ k++ ] = tmp[ i++ ];
+     }
+
+     private final AnyType [ ] a;
+     private final AnyType [ ] tmp;
+     private final int low;
+     private final int high;
+     private final int grain;
+
+     private static final long serialVersionUID = 1L;
+ }
+
+ // Ranges smaller than this are sorted without forking
+ private static final int SORT_GRAIN = 1 << 13;
+
+ //One insert per key, as a rebuild works today. Returns the AVL and red-black times in ms.
+ public static long[] insert_time(int NUMS)
+ {
+	 Random r = new Random(36);
+	 Integer[] input = new Integer[NUMS];
+	 for( int i = 0; i < NUMS; i++ )
+		 input[i] = r.nextInt();
+
+	 long start = System.nanoTime();
+	 AVLTree<Integer> a = new AVLTree<Integer>();
+	 for( Integer x : input )
+		 a.insert( x );
+	 long avl_time = (System.nanoTime() - start) / 1000000;
+
+	 start = System.nanoTime();
+	 RedBlackTree<Integer> b = new RedBlackTree<Integer>();
+	 for( Integer x : input )
+		 b.insert( x );
+	 long rb_time = (System.nanoTime() - start) / 1000000;
+	 return new long[] { avl_time, rb_time };
+ }
+
+     // Test program
+ public static void main( String [ ] args )
+ {
+     final int NUMS = 2000000;
+
+     build_time( NUMS );   // Warm up
+     long [ ] [ ] x = build_time( NUMS );
+     System.out.println( "Inserting " + NUMS + " keys one at a time: AVLTree " + x[0][1] + " ms, RedBlackTree " + x[0][2] + " ms" );
+     for( int i = 1; i < x.length; i++ )
+         System.out.printf( "Parallel build with %d threads: AVLTree %d ms (%.1fx), RedBlackTree %d ms (%.1fx)%n",
+                            x[i][0], x[i][1], (double) x[0][1] / Math.max( 1, x[i][1] ),
+                            x[i][2], (double) x[0][2] / Math.max( 1, x[i][2] ) );
+ }
+}
@@ -0,0 +1,95 @@
+package searchtrees;
+
+import java.util.Iterator;
+
+//RecordingTree class
+//
+//CONSTRUCTION: with a tree and the WorkloadTrace.Writer to record to
+//
+//******************PUBLIC OPERATIONS*********************
+//void insert( x ), remove( x ), contains( x ) --> Record, then run on the tree
+//int countRange( l, h ) --> Record, then count the items from l to h
+//Everything else        --> Run on the tree unrecorded
+
+/**
+* A SearchTree that writes every insert, remove and contains, and every
+* range count, to a workload trace before passing it on to the tree it
+* wraps. Put one in front of a tree in production to capture its
+* workload, then replay the trace on other trees with
+* WorkloadTrace.replay. Reads that do not name a key, such as findMin or
+* iteration, and makeEmpty are not part of the trace format and pass
+* straight through. The writer is not closed by this class.
+*/
+public class RecordingTree implements SearchTree<Integer>
+{
+ /**
+  * Wrap a tree.
+  * @param tree the tree that does the work.
+  * @param trace the writer the operations are recorded to.
+  */
+ public RecordingTree( SearchTree<Integer> tree, WorkloadTrace.Writer trace )
+ {
+     this.tree = tree;
+     this.trace = trace;
+ }
+
+ public void insert( Integer x )
+ {
+     trace.insert( x );
+     tree.insert( x );
+ }
+
+ public void remove( Integer x )
+ {
+     trace.remove( x );
+     tree.remove( x );
+ }
+
+ public boolean contains( Integer x )
+ {
+     trace.contains( x );
+     return tree.contains( x );
+ }
+
+ /**
+  * Count the items x with low <= x <= high.
+  */
+ public int countRange( int low, int high )
+ {
+     trace.range( low, high );
+     return WorkloadTrace.countRange( tree, low, high );
+ }
+
+ public Integer findMin( )
+ {
+     return tree.findMin( );
+ }
+
+ public Integer findMax( )
+ {
+     return tree.findMax( );
+ }
+
+ public boolean isEmpty( )
+ {
+     return tree.isEmpty( );
+ }
+
+ public void makeEmpty( )
+ {
+     tree.makeEmpty( );
+ }
+
+ public Object [ ] toArray( )
+ {
+     return tree.toArray( );
+ }
+
+ public Iterator<Integer> iterator( )
+ {
+     return tree.iterator( );
+ }
+
+ private final SearchTree<Integer> tree;
+ private final WorkloadTrace.Writer trace;
+}
@@ -1,15 +1,25 @@
 package searchtrees;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 // Class Definitions
-public class RedBlackTree<T extends Comparable<T>> {
+public class RedBlackTree<T extends Comparable<T>> implements SearchTree<T> {
 
 	// Root initialized to nil.
-	private RedBlackNode<T> nil = new RedBlackNode<T>();
-	private RedBlackNode<T> root = nil;
+	protected RedBlackNode<T> nil = new RedBlackNode<T>();
+	protected RedBlackNode<T> root = nil;
 
     public RedBlackTree() {
         root.left = nil;
@@ -21,12 +31,9 @@ public class RedBlackTree<T extends Comparable<T>> {
 	// Performs a leftRotate around x.
 	private void leftRotate(RedBlackNode<T> x){
 
-		// Call leftRotateFixup() which updates the numLeft
-		// and numRight values.
-		leftRotateFixup(x);
-
 		// Perform the left rotate as described in the algorithm
 		// in the course text.
+		TreeMetrics.rotated();
 		RedBlackNode<T> y;
 		y = x.right;
 		x.right = y.left;
@@ -51,54 +58,23 @@ public class RedBlackTree<T extends Comparable<T>> {
 		// Finish of the leftRotate
 		y.left = x;
 		x.parent = y;
-	}// end leftRotate(RedBlackNode x)
-
-
-	// @param: x, The node which the leftRotate is to be performed on.
-	// Updates the numLeft & numRight values affected by leftRotate.
-	private void leftRotateFixup(RedBlackNode x){
-
-		// Case 1: Only x, x.right and x.right.right always are not nil.
-		if (isNil(x.left) && isNil(x.right.left)){
-			x.numLeft = 0;
-			x.numRight = 0;
-			x.right.numLeft = 1;
-		}
-
-		// Case 2: x.right.left also exists in addition to Case 1
-		else if (isNil(x.left) && !isNil(x.right.left)){
-			x.numLeft = 0;
-			x.numRight = 1 + x.right.left.numLeft +
-					x.right.left.numRight;
-			x.right.numLeft = 2 + x.right.left.numLeft +
-					  x.right.left.numRight;
-		}
 
-		// Case 3: x.left also exists in addition to Case 1
-		else if (!isNil(x.left) && isNil(x.right.left)){
-			x.numRight = 0;
-			x.right.numLeft = 2 + x.left.numLeft + x.left.numRight;
+		// y takes over the whole subtree; x keeps what is left below it
+		y.setSize(x.size());
+		x.setSize(x.left.size() + x.right.size() + 1);
 
-		}
-		// Case 4: x.left and x.right.left both exist in addtion to Case 1
-		else{
-			x.numRight = 1 + x.right.left.numLeft +
-				     x.right.left.numRight;
-			x.right.numLeft = 3 + x.left.numLeft + x.left.numRight +
-			x.right.left.numLeft + x.right.left.numRight;
-		}
-
-	}// end leftRotateFixup(RedBlackNode x)
+		// x is now below y, so it is brought up to date first
+		pullUp(x);
+		pullUp(y);
+	}// end leftRotate(RedBlackNode x)
 
 
-	// @param: x, The node which the rightRotate is to be performed on.
-	// Updates the numLeft and numRight values affected by the Rotate.
+	// @param: y, The node which the rightRotate is to be performed on.
+	// Performs a rightRotate around y.
 	private void rightRotate(RedBlackNode<T> y){
 
-		// Call rightRotateFixup to adjust numRight and numLeft values
-		rightRotateFixup(y);
-
         // Perform the rotate as described in the course text.
+        TreeMetrics.rotated();
         RedBlackNode<T> x = y.left;
         y.left = x.right;
 
@@ -122,57 +98,100 @@ public class RedBlackTree<T extends Comparable<T>> {
 
         y.parent = x;
 
-	}// end rightRotate(RedBlackNode y)
-
-
-	// @param: y, the node around which the righRotate is to be performed.
-	// Updates the numLeft and numRight values affected by the rotate
-	private void rightRotateFixup(RedBlackNode y){
-
-		// Case 1: Only y, y.left and y.left.left exists.
-		if (isNil(y.right) && isNil(y.left.right)){
-			y.numRight = 0;
-			y.numLeft = 0;
-			y.left.numRight = 1;
-		}
+        // x takes over the whole subtree; y keeps what is left below it
+        x.setSize(y.size());
+        y.setSize(y.left.size() + y.right.size() + 1);
 
-		// Case 2: y.left.right also exists in addition to Case 1
-		else if (isNil(y.right) && !isNil(y.left.right)){
-			y.numRight = 0;
-			y.numLeft = 1 + y.left.right.numRight +
-				  y.left.right.numLeft;
-			y.left.numRight = 2 + y.left.right.numRight +
-				  y.left.right.numLeft;
-		}
+        // y is now below x, so it is brought up to date first
+        pullUp(y);
+        pullUp(x);
+	}// end rightRotate(RedBlackNode y)
 
-		// Case 3: y.right also exists in addition to Case 1
-		else if (!isNil(y.right) && isNil(y.left.right)){
-			y.numLeft = 0;
-			y.left.numRight = 2 + y.right.numRight +y.right.numLeft;
 
-		}
+    public void insert(T key) {
+        long start = TreeMetrics.begin();
+        insertNode(newNode(key));
+        metrics.end(TreeMetrics.Op.INSERT, start);
+    }
 
-		// Case 4: y.right & y.left.right exist in addition to Case 1
-		else{
-			y.numLeft = 1 + y.left.right.numRight +
-				  y.left.right.numLeft;
-			y.left.numRight = 3 + y.right.numRight +
-				  y.right.numLeft +
-			y.left.right.numRight + y.left.right.numLeft;
+	// @param: z, a new node, not yet in the tree
+	// Inserts z and counts its key into the Bloom filter.
+	protected void insertNode(RedBlackNode<T> z){
+		insert(z);
+		if (filter != null){
+			filter.add(z.key);
+			if (filter.isFull())
+				filter.rebuild(this);
 		}
+	}// end insertNode(RedBlackNode z)
+
+	// Cached smallest and largest nodes, or null if they have to be
+	// looked up again. Rotations keep node identities, so only removals
+	// can invalidate them.
+	private RedBlackNode<T> minNode = null;
+	private RedBlackNode<T> maxNode = null;
+
+	// @return: the node with the largest key; assumes the tree is not empty
+	private RedBlackNode<T> maximum(){
+		if (maxNode == null)
+			maxNode = treeMaximum(root);
+		return maxNode;
+	}// end maximum()
+
+	// @return: the node with the smallest key; assumes the tree is not empty
+	private RedBlackNode<T> minimum(){
+		if (minNode == null)
+			minNode = treeMinimum(root);
+		return minNode;
+	}// end minimum()
+
+
+	// @param: y, the smallest or largest node of the tree
+	// @param: z, the node to be linked below y as the new end of the tree
+	// @param: left, true if z is the new minimum, false if the new maximum
+	// Links z at one end of the tree without searching for its place. z
+	// lies below every node on the spine, so their sizes are bumped
+	// without any comparisons before the usual fixup.
+	private void insertAtEnd(RedBlackNode<T> y, RedBlackNode<T> z, boolean left){
+
+		z.parent = y;
+		if (left)
+			y.left = z;
+		else
+			y.right = z;
 
-	}// end rightRotateFixup(RedBlackNode y)
+		z.left = nil;
+		z.right = nil;
+		z.setColor(RedBlackNode.RED);
+		z.setSize(1);
 
+		for (RedBlackNode<T> x = y; !isNil(x); x = x.parent)
+			x.setSize(x.size() + 1);
 
-    public void insert(T key) {
-        insert(new RedBlackNode<T>(key));
-    }
+		pullUpPath(z);
+		insertFixup(z, "insert");
+	}// end insertAtEnd(RedBlackNode y, RedBlackNode z, boolean left)
 
     // @param: z, the node to be inserted into the Tree rooted at root
 	// Inserts z into the appropriate position in the RedBlackTree while
-	// updating numLeft and numRight values.
+	// updating the sizes on the way down.
 	private void insert(RedBlackNode<T> z) {
 
+			// New maxima and minima are linked straight onto the end of
+			// the tree. Equal keys go right, as in the search below.
+			if (isNil(root))
+				minNode = maxNode = z;
+			else if (z.key.compareTo(maximum().key) >= 0){
+				insertAtEnd(maxNode, z, false);
+				maxNode = z;
+				return;
+			}
+			else if (z.key.compareTo(minimum().key) < 0){
+				insertAtEnd(minNode, z, true);
+				minNode = z;
+				return;
+			}
+
 			// Create a reference to root & initialize a node to nil
 			RedBlackNode<T> y = nil;
 			RedBlackNode<T> x = root;
@@ -181,20 +200,19 @@ public class RedBlackTree<T extends Comparable<T>> {
 			// tryint to figure out where z should go
 			while (!isNil(x)){
 				y = x;
+				TreeMetrics.visit();
 
 				// if z.key is < than the current key, go left
 				if (z.key.compareTo(x.key) < 0){
 
-					// Update x.numLeft as z is < than x
-					x.numLeft++;
+					x.setSize(x.size() + 1);
 					x = x.left;
 				}
 
 				// else z.key >= x.key so go right.
 				else{
 
-					// Update x.numGreater as z is => x
-					x.numRight++;
+					x.setSize(x.size() + 1);
 					x = x.right;
 				}
 			}
@@ -213,23 +231,32 @@ public class RedBlackTree<T extends Comparable<T>> {
 			// Initialize z's children to nil and z's color to red
 			z.left = nil;
 			z.right = nil;
-			z.color = RedBlackNode.RED;
+			z.setColor(RedBlackNode.RED);
+			z.setSize(1);
 
-			// Call insertFixup(z)
-			insertFixup(z);
+			// Bring the path down to z up to date, then call insertFixup(z)
+			pullUpPath(z);
+			insertFixup(z, "insert");
 
 	}// end insert(RedBlackNode z)
 
 
 	// @param: z, the node which was inserted and may have caused a violation
 	// of the RedBlackTree properties
+	// @param: operation, the operation reported in the fixup event
+	// @return: true if the root was red and had to be made black, which
+	// adds one to the black height of the tree
 	// Fixes up the violation of the RedBlackTree properties that may have
 	// been caused during insert(z)
-	private void insertFixup(RedBlackNode<T> z){
+	private boolean insertFixup(RedBlackNode<T> z, String operation){
+
+		TreeEvents.RedBlackFixup event = TreeEvents.beginFixup();
+		int steps = 0;
 
 		RedBlackNode<T> y = nil;
 		// While there is a violation of the RedBlackTree properties..
-		while (z.parent.color == RedBlackNode.RED){
+		while (z.parent.color() == RedBlackNode.RED){
+			steps++;
 
 			// If z's parent is the the left child of it's parent.
 			if (z.parent == z.parent.parent.left){
@@ -238,10 +265,10 @@ public class RedBlackTree<T extends Comparable<T>> {
 				y = z.parent.parent.right;
 
 				// Case 1: if y is red...recolor
-				if (y.color == RedBlackNode.RED){
-					z.parent.color = RedBlackNode.BLACK;
-					y.color = RedBlackNode.BLACK;
-					z.parent.parent.color = RedBlackNode.RED;
+				if (y.color() == RedBlackNode.RED){
+					z.parent.setColor(RedBlackNode.BLACK);
+					y.setColor(RedBlackNode.BLACK);
+					z.parent.parent.setColor(RedBlackNode.RED);
 					z = z.parent.parent;
 				}
 				// Case 2: if y is black & z is a right child
@@ -255,8 +282,8 @@ public class RedBlackTree<T extends Comparable<T>> {
 				// Case 3: else y is black & z is a left child
 				else{
 					// recolor and rotate round z's grandpa
-					z.parent.color = RedBlackNode.BLACK;
-					z.parent.parent.color = RedBlackNode.RED;
+					z.parent.setColor(RedBlackNode.BLACK);
+					z.parent.parent.setColor(RedBlackNode.RED);
 					rightRotate(z.parent.parent);
 				}
 			}
@@ -268,10 +295,10 @@ public class RedBlackTree<T extends Comparable<T>> {
 				y = z.parent.parent.left;
 
 				// Case 1: if y is red...recolor
-				if (y.color == RedBlackNode.RED){
-					z.parent.color = RedBlackNode.BLACK;
-					y.color = RedBlackNode.BLACK;
-					z.parent.parent.color = RedBlackNode.RED;
+				if (y.color() == RedBlackNode.RED){
+					z.parent.setColor(RedBlackNode.BLACK);
+					y.setColor(RedBlackNode.BLACK);
+					z.parent.parent.setColor(RedBlackNode.RED);
 					z = z.parent.parent;
 				}
 
@@ -284,16 +311,19 @@ public class RedBlackTree<T extends Comparable<T>> {
 				// Case 3: if y  is black and z is a right child
 				else{
 					// recolor and rotate around z's grandpa
-					z.parent.color = RedBlackNode.BLACK;
-					z.parent.parent.color = RedBlackNode.RED;
+					z.parent.setColor(RedBlackNode.BLACK);
+					z.parent.parent.setColor(RedBlackNode.RED);
 					leftRotate(z.parent.parent);
 				}
 			}
 		}
 	// Color root black at all times
-	root.color = RedBlackNode.BLACK;
+	boolean grew = root.color() == RedBlackNode.RED;
+	root.setColor(RedBlackNode.BLACK);
 
-	}// end insertFixup(RedBlackNode z)
+	TreeEvents.endFixup(event, this, size(), operation, steps);
+	return grew;
+	}// end insertFixup(RedBlackNode z, String operation)
 
 	// @param: node, a RedBlackNode
 	// @param: node, the node with the smallest key rooted at node
@@ -307,14 +337,25 @@ public class RedBlackTree<T extends Comparable<T>> {
 
 
 
+	// @param: node, a RedBlackNode
+	// @return: the node with the largest key rooted at node
+	public RedBlackNode<T> treeMaximum(RedBlackNode<T> node){
+
+		// while there is a larger key, keep going right
+		while (!isNil(node.right))
+			node = node.right;
+		return node;
+	}// end treeMaximum(RedBlackNode node)
+
+
 	// @param: x, a RedBlackNode whose successor we must find
 	// @return: return's the node the with the next largest key
 	// from x.key
 	public RedBlackNode<T> treeSuccessor(RedBlackNode<T> x){
 
-		// if x.left is not nil, call treeMinimum(x.right) and
+		// if x.right is not nil, call treeMinimum(x.right) and
 		// return it's value
-		if (!isNil(x.left) )
+		if (!isNil(x.right) )
 			return treeMinimum(x.right);
 
 		RedBlackNode<T> y = x.parent;
@@ -330,11 +371,372 @@ public class RedBlackTree<T extends Comparable<T>> {
 	}// end treeMinimum(RedBlackNode x)
 
 
+	// @param: v, a RedBlackNode whose key is to be removed from the tree
+	// Remove's a node with v's key from the RedBlackTree rooted at root
+	public void remove(RedBlackNode<T> v){
+		remove(v.key);
+	}// end remove(RedBlackNode v)
+
+
+	// @param: key, the key to be removed from the tree
+	// Remove's a node with key from the RedBlackTree rooted at root. The
+	// smallest and largest nodes are cached, so removing either end of the
+	// tree does not need a search.
+	public void remove(T key){
+		long start = TreeMetrics.begin();
+		removeKey(key);
+		metrics.end(TreeMetrics.Op.REMOVE, start);
+	}// end remove(T key)
+
+
+	// @param: key, the key to be removed from the tree
+	// Does the work of remove(T key).
+	private void removeKey(T key){
+
+		RedBlackNode<T> z;
+		if (isNil(root) || (filter != null && !filter.mightContain(key)))
+			return;
+		else if (key.compareTo(maximum().key) == 0)
+			z = maxNode;
+		else if (key.compareTo(minimum().key) == 0)
+			z = minNode;
+		else
+			z = find(key);
+
+		if (z != null)
+			removeNode(z);
+		else if (filter != null)
+			filter.recordFalsePositive();
+	}// end removeKey(T key)
+
+
+	// The two trees produced by split(), and their black heights
+	private RedBlackNode<T> splitLeft = nil;
+	private RedBlackNode<T> splitRight = nil;
+	private int splitLeftHeight;
+	private int splitRightHeight;
+
+	// @param: lo, the smallest key to remove
+	// @param: hi, the largest key to remove
+	// Remove's every key k with lo <= k <= hi. The tree is split around
+	// the range and the two outer trees are joined back together, so
+	// whole subtrees are dropped at once instead of one key at a time.
+	// Every node that split and join relink gets its size recomputed
+	// from its children. The black height of the tree is measured once
+	// here and handed down, so each join costs only the difference of
+	// the heights it joins and the whole removal is O(log n).
+	public void removeRange(T lo, T hi){
+
+		if (isNil(root) || lo.compareTo(hi) > 0)
+			return;
+		TreeEvents.BulkOperation event = TreeEvents.beginBulk();
+		int before = size();
+
+		split(root, blackHeight(root), lo, false);
+		RedBlackNode<T> left = splitLeft;
+		int leftHeight = splitLeftHeight;
+		split(splitRight, splitRightHeight, hi, true);
+		RedBlackNode<T> right = splitRight;
+		int rightHeight = splitRightHeight;
+
+		// splitLeft now holds the removed keys; join the outer trees
+		if (filter != null)
+			uncount(splitLeft);
+		if (isNil(right))
+			root = left;
+		else{
+			int restHeight = removeFirst(right, rightHeight);
+			join(left, leftHeight, splitLeft, root, restHeight);
+		}
+
+		splitLeft = splitRight = nil;
+		minNode = maxNode = null;
+
+		// Drop cached nodes whose keys were in the range
+		if (cache != null)
+			for (int i = 0; i < cache.length; i++)
+				if (cache[i] != null && lo.compareTo(cache[i].key) <= 0
+						&& cache[i].key.compareTo(hi) <= 0)
+					cache[i] = null;
+		TreeEvents.endBulk(event, this, size(), "removeRange", before - size());
+	}// end removeRange(T lo, T hi)
+
+
+	// @param: node, the root of a tree that has been cut off
+	// Counts every key of the tree out of the Bloom filter.
+	private void uncount(RedBlackNode<T> node){
+		ResizingArrayQueue<RedBlackNode<T>> queue = new ResizingArrayQueue<RedBlackNode<T>>();
+		if (!isNil(node))
+			queue.enqueue(node);
+		while (!queue.isEmpty()){
+			RedBlackNode<T> x = queue.dequeue();
+			filter.remove(x.key);
+			if (!isNil(x.left))
+				queue.enqueue(x.left);
+			if (!isNil(x.right))
+				queue.enqueue(x.right);
+		}
+	}// end uncount(RedBlackNode node)
+
+
+	// @param: t, the root of a stand-alone tree
+	// @param: th, the black height of t
+	// @param: key, the key to split around
+	// @param: equalLeft, true if keys equal to key go to the left tree
+	// Splits the tree rooted at t into splitLeft, holding the keys below
+	// key, and splitRight, holding the keys above it, and sets their
+	// black heights.
+	private void split(RedBlackNode<T> t, int th, T key, boolean equalLeft){
+
+		if (isNil(t)){
+			splitLeft = splitRight = nil;
+			splitLeftHeight = splitRightHeight = 0;
+			return;
+		}
+
+		int lh = childHeight(t.left, th);
+		int rh = childHeight(t.right, th);
+		RedBlackNode<T> l = detach(t.left);
+		RedBlackNode<T> r = detach(t.right);
+		int cmp = key.compareTo(t.key);
+
+		if (cmp < 0 || (cmp == 0 && !equalLeft)){
+			split(l, lh, key, equalLeft);
+			splitRightHeight = join(splitRight, splitRightHeight, t, r, rh);
+			splitRight = root;
+		}
+		else{
+			split(r, rh, key, equalLeft);
+			splitLeftHeight = join(l, lh, t, splitLeft, splitLeftHeight);
+			splitLeft = root;
+		}
+	}// end split(RedBlackNode t, int th, T key, boolean equalLeft)
+
+
+	// @param: t, the root of a stand-alone, non-empty tree
+	// @param: th, the black height of t
+	// @return: the black height of the tree left in root, which holds
+	// every key of t but the smallest
+	// Detaches the node with the smallest key into splitLeft.
+	private int removeFirst(RedBlackNode<T> t, int th){
+
+		int lh = childHeight(t.left, th);
+		int rh = childHeight(t.right, th);
+		RedBlackNode<T> l = detach(t.left);
+		RedBlackNode<T> r = detach(t.right);
+
+		if (isNil(l)){
+			splitLeft = t;
+			root = r;
+			return rh;
+		}
+		int restHeight = removeFirst(l, lh);
+		return join(root, restHeight, t, r, rh);
+	}// end removeFirst(RedBlackNode t, int th)
+
+
+	// @param: child, a child of a black node of black height th
+	// @param: th, the black height of its parent
+	// @return: the black height child will have once detach() makes it
+	// a black root
+	private int childHeight(RedBlackNode<T> child, int th){
+		return child.color() == RedBlackNode.BLACK ? th - 1 : th;
+	}// end childHeight(RedBlackNode child, int th)
+
+
+	// @param: l, the root of a stand-alone tree with keys below k.key
+	// @param: hl, the black height of l
+	// @param: k, a single node
+	// @param: r, the root of a stand-alone tree with keys above k.key
+	// @param: hr, the black height of r
+	// @return: the black height of the joined tree, which is left in root
+	// Walks down the side of the taller tree until it meets a black node
+	// of the same black height as the shorter tree, hangs k there as a red
+	// node holding both, and repairs a red-red violation with insertFixup.
+	// Only the |hl - hr| + 1 levels above k are visited.
+	private int join(RedBlackNode<T> l, int hl, RedBlackNode<T> k,
+					 RedBlackNode<T> r, int hr){
+
+		boolean intoLeft = hl >= hr;
+
+		// insertFixup and the rotates work on root
+		root = intoLeft ? l : r;
+		int target = intoLeft ? hr : hl;
+		int h = intoLeft ? hl : hr;
+		RedBlackNode<T> p = nil;
+		RedBlackNode<T> c = root;
+
+		while (c.color() != RedBlackNode.BLACK || h != target){
+			if (c.color() == RedBlackNode.BLACK)
+				h--;
+			p = c;
+			c = intoLeft ? c.right : c.left;
+		}
+
+		if (intoLeft){
+			k.left = c;
+			k.right = r;
+		}
+		else{
+			k.left = l;
+			k.right = c;
+		}
+		if (!isNil(k.left))
+			k.left.parent = k;
+		if (!isNil(k.right))
+			k.right.parent = k;
+		k.setSize(k.left.size() + k.right.size() + 1);
+		k.setColor(RedBlackNode.RED);
+		k.parent = p;
+
+		// k takes c's place; everything above it gains the other tree and k
+		if (isNil(p))
+			root = k;
+		else if (intoLeft)
+			p.right = k;
+		else
+			p.left = k;
+
+		int added = 1 + subtreeSize(intoLeft ? r : l);
+		for (RedBlackNode<T> x = p; !isNil(x); x = x.parent)
+			x.setSize(x.size() + added);
+
+		pullUpPath(k);
+		boolean grew = insertFixup(k, "removeRange");
+		return Math.max(hl, hr) + (grew ? 1 : 0);
+	}// end join(RedBlackNode l, int hl, RedBlackNode k, RedBlackNode r, int hr)
+
+
+	// @param: node, a node to be cut loose from its parent
+	// @return: node, now the black root of a stand-alone tree
+	private RedBlackNode<T> detach(RedBlackNode<T> node){
+		if (!isNil(node)){
+			node.parent = nil;
+			node.setColor(RedBlackNode.BLACK);
+		}
+		return node;
+	}// end detach(RedBlackNode node)
+
+
+	// @param: node, the root of a tree
+	// @return: the number of black nodes on any path from node down to nil
+	private int blackHeight(RedBlackNode<T> node){
+		int h = 0;
+		for (; !isNil(node); node = node.left)
+			if (node.color() == RedBlackNode.BLACK)
+				h++;
+		return h;
+	}// end blackHeight(RedBlackNode node)
+
+
+	// @param: node, the root of a tree
+	// @return: the number of nodes in the tree rooted at node
+	private int subtreeSize(RedBlackNode<T> node){
+		return node.size();
+	}// end subtreeSize(RedBlackNode node)
+
+
+	// @param: items, the keys, strictly increasing
+	// @param: n, the number of keys to use from the front of items
+	// @param: pool, the pool to build on
+	// Replaces the contents of the tree with a balanced tree of the keys.
+	// Every node takes the middle key of its range, so all nil links are
+	// on the last two levels. Nodes on the deepest level are red and all
+	// others black, which gives every path the same black height. The two
+	// halves of a range are independent, so large ranges are built as
+	// separate tasks on the pool.
+	public void buildSorted(T[] items, int n, ForkJoinPool pool){
+		TreeEvents.BulkOperation event = TreeEvents.beginBulk();
+		int deepest = 31 - Integer.numberOfLeadingZeros(Math.max(n, 1));
+		if (n == 0)
+			root = nil;
+		else{
+			root = pool.invoke(new BuildTask(items, 0, n - 1, 0, deepest));
+			root.parent = nil;
+		}
+
+		minNode = maxNode = null;
+		if (cache != null)
+			Arrays.fill(cache, null);
+		if (filter != null)
+			filter.rebuild(this);
+		TreeEvents.endBulk(event, this, size(), "buildSorted", n);
+	}// end buildSorted(T[] items, int n, ForkJoinPool pool)
+
+
+	// @param: items, the keys, strictly increasing
+	// @param: lo, the index of the first key of the subtree
+	// @param: hi, the index of the last key of the subtree
+	// @param: depth, the depth of the subtree's root
+	// @param: deepest, the depth of the deepest level, whose nodes are red
+	// @return: the root of the subtree, with parent left unset
+	private RedBlackNode<T> build(T[] items, int lo, int hi, int depth, int deepest){
+		if (lo > hi)
+			return nil;
+		int mid = (lo + hi) >>> 1;
+		return link(items[mid], build(items, lo, mid - 1, depth + 1, deepest),
+				build(items, mid + 1, hi, depth + 1, deepest), depth == deepest && depth > 0);
+	}// end build(T[] items, int lo, int hi, int depth, int deepest)
+
+
+	// @param: key, the key of the new node
+	// @param: l, the left subtree
+	// @param: r, the right subtree
+	// @param: red, the color of the new node
+	// @return: a new node with children l and r and their sizes
+	private RedBlackNode<T> link(T key, RedBlackNode<T> l, RedBlackNode<T> r, boolean red){
+		RedBlackNode<T> x = newNode(key);
+		x.left = l;
+		x.right = r;
+		if (!isNil(l))
+			l.parent = x;
+		if (!isNil(r))
+			r.parent = x;
+		x.setSize(l.size() + r.size() + 1);
+		x.setColor(red ? RedBlackNode.RED : RedBlackNode.BLACK);
+		pullUp(x);
+		return x;
+	}// end link(T key, RedBlackNode l, RedBlackNode r, boolean red)
+
+
+	// Builds the subtree for items[lo..hi], forking the left half
+	private class BuildTask extends RecursiveTask<RedBlackNode<T>> {
+
+		private final T[] items;
+		private final int lo, hi, depth, deepest;
+
+		BuildTask(T[] items, int lo, int hi, int depth, int deepest){
+			this.items = items;
+			this.lo = lo;
+			this.hi = hi;
+			this.depth = depth;
+			this.deepest = deepest;
+		}
+
+		protected RedBlackNode<T> compute(){
+			if (hi - lo < BUILD_GRAIN)
+				return build(items, lo, hi, depth, deepest);
+
+			int mid = (lo + hi) >>> 1;
+			BuildTask left = new BuildTask(items, lo, mid - 1, depth + 1, deepest);
+			left.fork();
+			RedBlackNode<T> right = new BuildTask(items, mid + 1, hi, depth + 1, deepest).compute();
+			return link(items[mid], left.join(), right, depth == deepest && depth > 0);
+		}
+
+		private static final long serialVersionUID = 1L;
+	}// end class BuildTask
+
+	// Ranges smaller than this are built without forking
+	private static final int BUILD_GRAIN = 1 << 13;
+
+
 	// @param: z, the RedBlackNode which is to be removed from the the tree
 	// Remove's z from the RedBlackTree rooted at root
-	public void remove(RedBlackNode<T> v){
+	private void removeNode(RedBlackNode<T> z){
 
-		RedBlackNode<T> z = search(v.key);
+		if (filter != null)
+			filter.remove(z.key);
 
 		// Declare variables
 		RedBlackNode<T> x = nil;
@@ -353,6 +755,15 @@ public class RedBlackTree<T extends Comparable<T>> {
 		else
 			x = y.right;
 
+		// Keep the cached end nodes pointing at the new ends. If y is the
+		// maximum and y != z, z is about to take over y's key.
+		if (y == maxNode)
+			maxNode = (y != z) ? z : !isNil(y.left) ? treeMaximum(y.left)
+					: isNil(y.parent) ? null : y.parent;
+		if (y == minNode)
+			minNode = !isNil(y.right) ? treeMinimum(y.right)
+					: isNil(y.parent) ? null : y.parent;
+
 		// link x's parent to y's parent
 		x.parent = y.parent;
 
@@ -368,144 +779,30 @@ public class RedBlackTree<T extends Comparable<T>> {
 		else if (!isNil(y.parent.right) && y.parent.right == y)
 			y.parent.right = x;
 
+		// z's key leaves the tree. If y != z, y leaves the tree and z
+		// takes over its key, so a slot holding y must now hold z.
+		uncache(z);
+		if (y != z && cache != null){
+			int i = slot(y.key);
+			if (cache[i] == y)
+				cache[i] = z;
+		}
+
 		// if y != z, trasfer y's satellite data into z.
 		if (y != z){
-			z.key = y.key;
+			movePayload(y, z);
 		}
 
-		// Update the numLeft and numRight numbers which might need
-		// updating due to the deletion of z.key.
-		fixNodeData(x,y);
+		// Every ancestor of y has lost one node
+		for (RedBlackNode<T> p = y.parent; !isNil(p); p = p.parent)
+			p.setSize(p.size() - 1);
+		pullUpPath(y.parent);
 
 		// If y's color is black, it is a violation of the
 		// RedBlackTree properties so call removeFixup()
-		if (y.color == RedBlackNode.BLACK)
+		if (y.color() == RedBlackNode.BLACK)
 			removeFixup(x);
-	}// end remove(RedBlackNode z)
-	// @param: z, the RedBlackNode which is to be removed from the the tree
-		// Remove's z from the RedBlackTree rooted at root
-		public void remove(T key){
-
-			RedBlackNode<T> z = search(key);
-
-			// Declare variables
-			RedBlackNode<T> x = nil;
-			RedBlackNode<T> y = nil;
-			if (z == null) 
-			{
-				return;
-			}
-			
-			// if either one of z's children is nil, then we must remove z
-			if (isNil(z.left) || isNil(z.right))
-				y = z;
-
-			// else we must remove the successor of z
-			else y = treeSuccessor(z);
-
-			// Let x be the left or right child of y (y can only have one child)
-			if (!isNil(y.left))
-				x = y.left;
-			else
-				x = y.right;
-
-			// link x's parent to y's parent
-			x.parent = y.parent;
-
-			// If y's parent is nil, then x is the root
-			if (isNil(y.parent))
-				root = x;
-
-			// else if y is a left child, set x to be y's left sibling
-			else if (!isNil(y.parent.left) && y.parent.left == y)
-				y.parent.left = x;
-
-			// else if y is a right child, set x to be y's right sibling
-			else if (!isNil(y.parent.right) && y.parent.right == y)
-				y.parent.right = x;
-
-			// if y != z, trasfer y's satellite data into z.
-			if (y != z){
-				z.key = y.key;
-			}
-
-			// Update the numLeft and numRight numbers which might need
-			// updating due to the deletion of z.key.
-			fixNodeData(x,y);
-
-			// If y's color is black, it is a violation of the
-			// RedBlackTree properties so call removeFixup()
-			if (y.color == RedBlackNode.BLACK)
-				removeFixup(x);
-		}// end remove(RedBlackNode z)
-
-
-	// @param: y, the RedBlackNode which was actually deleted from the tree
-	// @param: key, the value of the key that used to be in y
-	private void fixNodeData(RedBlackNode<T> x, RedBlackNode<T> y){
-
-		// Initialize two variables which will help us traverse the tree
-		RedBlackNode<T> current = nil;
-		RedBlackNode<T> track = nil;
-
-
-		// if x is nil, then we will start updating at y.parent
-		// Set track to y, y.parent's child
-		if (isNil(x)){
-			current = y.parent;
-			track = y;
-		}
-
-		// if x is not nil, then we start updating at x.parent
-		// Set track to x, x.parent's child
-		else{
-			current = x.parent;
-			track = x;
-		}
-
-		// while we haven't reached the root
-		while (!isNil(current)){
-			// if the node we deleted has a different key than
-			// the current node
-			if (y.key != current.key) {
-
-				// if the node we deleted is greater than
-				// current.key then decrement current.numRight
-				if (y.key.compareTo(current.key) > 0)
-					current.numRight--;
-
-				// if the node we deleted is less than
-				// current.key thendecrement current.numLeft
-				if (y.key.compareTo(current.key) < 0)
-					current.numLeft--;
-			}
-
-			// if the node we deleted has the same key as the
-			// current node we are checking
-			else{
-				// the cases where the current node has any nil
-				// children and update appropriately
-				if (isNil(current.left))
-					current.numLeft--;
-				else if (isNil(current.right))
-					current.numRight--;
-
-				// the cases where current has two children and
-				// we must determine whether track is it's left
-				// or right child and update appropriately
-				else if (track == current.right)
-					current.numRight--;
-				else if (track == current.left)
-					current.numLeft--;
-			}
-
-			// update track and current
-			track = current;
-			current = current.parent;
-
-		}
-
-	}//end fixNodeData()
+	}// end removeNode(RedBlackNode z)
 
 
 	// @param: x, the child of the deleted node from remove(RedBlackNode v)
@@ -513,10 +810,14 @@ public class RedBlackTree<T extends Comparable<T>> {
 	// the removal of a node in remove(RedBlackNode v)
 	private void removeFixup(RedBlackNode<T> x){
 
+		TreeEvents.RedBlackFixup event = TreeEvents.beginFixup();
+		int steps = 0;
+
 		RedBlackNode<T> w;
 
 		// While we haven't fixed the tree completely...
-		while (x != root && x.color == RedBlackNode.BLACK){
+		while (x != root && x.color() == RedBlackNode.BLACK){
+			steps++;
 
 			// if x is it's parent's left child
 			if (x == x.parent.left){
@@ -525,32 +826,32 @@ public class RedBlackTree<T extends Comparable<T>> {
 				w = x.parent.right;
 
 				// Case 1, w's color is red.
-				if (w.color == RedBlackNode.RED){
-					w.color = RedBlackNode.BLACK;
-					x.parent.color = RedBlackNode.RED;
+				if (w.color() == RedBlackNode.RED){
+					w.setColor(RedBlackNode.BLACK);
+					x.parent.setColor(RedBlackNode.RED);
 					leftRotate(x.parent);
 					w = x.parent.right;
 				}
 
 				// Case 2, both of w's children are black
-				if (w.left.color == RedBlackNode.BLACK &&
-							w.right.color == RedBlackNode.BLACK){
-					w.color = RedBlackNode.RED;
+				if (w.left.color() == RedBlackNode.BLACK &&
+							w.right.color() == RedBlackNode.BLACK){
+					w.setColor(RedBlackNode.RED);
 					x = x.parent;
 				}
 				// Case 3 / Case 4
 				else{
 					// Case 3, w's right child is black
-					if (w.right.color == RedBlackNode.BLACK){
-						w.left.color = RedBlackNode.BLACK;
-						w.color = RedBlackNode.RED;
+					if (w.right.color() == RedBlackNode.BLACK){
+						w.left.setColor(RedBlackNode.BLACK);
+						w.setColor(RedBlackNode.RED);
 						rightRotate(w);
 						w = x.parent.right;
 					}
 					// Case 4, w = black, w.right = red
-					w.color = x.parent.color;
-					x.parent.color = RedBlackNode.BLACK;
-					w.right.color = RedBlackNode.BLACK;
+					w.setColor(x.parent.color());
+					x.parent.setColor(RedBlackNode.BLACK);
+					w.right.setColor(RedBlackNode.BLACK);
 					leftRotate(x.parent);
 					x = root;
 				}
@@ -562,34 +863,34 @@ public class RedBlackTree<T extends Comparable<T>> {
 				w = x.parent.left;
 
 				// Case 1, w's color is red
-				if (w.color == RedBlackNode.RED){
-					w.color = RedBlackNode.BLACK;
-					x.parent.color = RedBlackNode.RED;
+				if (w.color() == RedBlackNode.RED){
+					w.setColor(RedBlackNode.BLACK);
+					x.parent.setColor(RedBlackNode.RED);
 					rightRotate(x.parent);
 					w = x.parent.left;
 				}
 
 				// Case 2, both of w's children are black
-				if (w.right.color == RedBlackNode.BLACK &&
-							w.left.color == RedBlackNode.BLACK){
-					w.color = RedBlackNode.RED;
+				if (w.right.color() == RedBlackNode.BLACK &&
+							w.left.color() == RedBlackNode.BLACK){
+					w.setColor(RedBlackNode.RED);
 					x = x.parent;
 				}
 
 				// Case 3 / Case 4
 				else{
 					// Case 3, w's left child is black
-					 if (w.left.color == RedBlackNode.BLACK){
-						w.right.color = RedBlackNode.BLACK;
-						w.color = RedBlackNode.RED;
+					 if (w.left.color() == RedBlackNode.BLACK){
+						w.right.setColor(RedBlackNode.BLACK);
+						w.setColor(RedBlackNode.RED);
 						leftRotate(w);
 						w = x.parent.left;
 					}
 
 					// Case 4, w = black, and w.left = red
-					w.color = x.parent.color;
-					x.parent.color = RedBlackNode.BLACK;
-					w.left.color = RedBlackNode.BLACK;
+					w.setColor(x.parent.color());
+					x.parent.setColor(RedBlackNode.BLACK);
+					w.left.setColor(RedBlackNode.BLACK);
 					rightRotate(x.parent);
 					x = root;
 				}
@@ -598,32 +899,200 @@ public class RedBlackTree<T extends Comparable<T>> {
 
 		// set x to black to ensure there is no violation of
 		// RedBlack tree Properties
-		x.color = RedBlackNode.BLACK;
+		x.setColor(RedBlackNode.BLACK);
+		TreeEvents.endFixup(event, this, size(), "remove", steps);
 	}// end removeFixup(RedBlackNode x)
 
 
 
 
+	// Optional direct-mapped cache from key to node, checked by search()
+	// before it descends; null when disabled. A slot is cleared whenever
+	// its node leaves the tree or takes over another key, so a hit can be
+	// trusted without walking the tree.
+	private RedBlackNode<T>[] cache = null;
+	private long cacheHits = 0;
+	private long cacheMisses = 0;
+
+	// @param: slots, the number of cache slots, rounded up to a power of
+	// two; 0 turns the cache off
+	// Sets up an empty lookup cache and resets its counters.
+	public void setCache(int slots){
+		if (slots < 0)
+			throw new IllegalArgumentException("Negative cache size: " + slots);
+		if (slots == 0)
+			cache = null;
+		else{
+			@SuppressWarnings("unchecked")
+			RedBlackNode<T>[] table = (RedBlackNode<T>[]) new RedBlackNode<?>[Integer.highestOneBit(slots - 1 | 1) << 1];
+			cache = table;
+		}
+		cacheHits = cacheMisses = 0;
+	}// end setCache(int slots)
+
+
+	// @return: the number of searches answered from the cache
+	public long cacheHits(){
+		return cacheHits;
+	}// end cacheHits()
+
+
+	// @return: the number of searches that had to descend the tree
+	public long cacheMisses(){
+		return cacheMisses;
+	}// end cacheMisses()
+
+
+	// @param: key, any key
+	// @return: the cache slot for key; the cache must be enabled
+	private int slot(T key){
+		int h = key.hashCode() * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & (cache.length - 1);
+	}// end slot(T key)
+
+
+	// @param: node, a node about to leave the tree or change its key
+	// Clears node's cache slot if the slot holds node.
+	private void uncache(RedBlackNode<T> node){
+		if (cache != null){
+			int i = slot(node.key);
+			if (cache[i] == node)
+				cache[i] = null;
+		}
+	}// end uncache(RedBlackNode node)
+
+
+	// @param: key, the key to search for
+	// @return: true if a node with key is in the tree
+	public boolean contains(T key){
+		long start = TreeMetrics.begin();
+		boolean found = search(key) != null;
+		metrics.end(TreeMetrics.Op.CONTAINS, start);
+		return found;
+	}// end contains(T key)
+
+
+	// @return: the smallest key, or null if the tree is empty
+	public T findMin(){
+		return isNil(root) ? null : minimum().key;
+	}// end findMin()
+
+
+	// @return: the largest key, or null if the tree is empty
+	public T findMax(){
+		return isNil(root) ? null : maximum().key;
+	}// end findMax()
+
+
+	// @return: true if the tree has no nodes
+	public boolean isEmpty(){
+		return isNil(root);
+	}// end isEmpty()
+
+
+	// Removes every node from the tree.
+	public void makeEmpty(){
+		root = nil;
+		minNode = maxNode = null;
+		if (cache != null)
+			Arrays.fill(cache, null);
+		if (filter != null)
+			filter.clear();
+	}// end makeEmpty()
+
+
+	// Optional counting Bloom filter of the keys, or null when disabled
+	private CountingBloomFilter<T> filter = null;
+	private static final double BLOOM_FPP = 0.01;
+
+	// @param: on, true to keep a Bloom filter
+	// While the filter is on, search, contains and remove return at once
+	// for keys it rules out. It is sized from the tree and resized as
+	// the tree grows. It hashes with hashCode where the tree compares
+	// with compareTo, so keys must have equals and hashCode consistent
+	// with compareTo; otherwise present keys can be reported absent.
+	public void setBloomFilter(boolean on){
+		filter = null;
+		if (on){
+			filter = new CountingBloomFilter<T>(2 * size(), BLOOM_FPP);
+			for (T key : this)
+				filter.add(key);
+		}
+	}// end setBloomFilter(boolean on)
+
+
+	// @return: the Bloom filter, for its statistics, or null if it is off
+	public CountingBloomFilter<T> bloomFilter(){
+		return filter;
+	}// end bloomFilter()
+
+
+	// Operation counts and latencies of this tree; see TreeMetrics
+	private final TreeMetrics metrics = TreeMetrics.forTree(this);
+
+	// @return: the operation counts and latencies of this tree, only
+	// collected when TreeMetrics.ENABLED is true
+	public TreeMetrics metrics(){
+		return metrics;
+	}// end metrics()
+
+
 	// @param: key, the key whose node we want to search for
 	// @return: returns a node with the key, key, if not found, returns null
 	// Searches for a node with key k and returns the first such node, if no
-	// such node is found returns null
+	// such node is found returns null. If the Bloom filter is on, keys it
+	// rules out are not searched for at all.
 	public RedBlackNode<T> search(T key){
 
+		if (filter == null)
+			return find(key);
+		if (!filter.mightContain(key))
+			return null;
+
+		RedBlackNode<T> node = find(key);
+		if (node == null)
+			filter.recordFalsePositive();
+		return node;
+	}// end search(T key)
+
+
+	// @param: key, the key whose node we want to search for
+	// @return: returns a node with the key, key, if not found, returns null
+	// If the cache is on, it is checked first and filled in on a miss.
+	private RedBlackNode<T> find(T key){
+
+		int i = 0;
+		if (cache != null){
+			i = slot(key);
+			RedBlackNode<T> hit = cache[i];
+			if (hit != null && key.compareTo(hit.key) == 0){
+				cacheHits++;
+				return hit;
+			}
+			cacheMisses++;
+		}
+
 		// Initialize a pointer to the root to traverse the tree
 		RedBlackNode<T> current = root;
 
 		// While we haven't reached the end of the tree
 		while (!isNil(current)){
+			TreeMetrics.visit();
+
+			// One comparison per node decides between found, left and right
+			int cmp = key.compareTo(current.key);
 
 			// If we have found a node with a key equal to key
-			if (current.key.equals(key))
+			if (cmp == 0){
+				if (cache != null)
+					cache[i] = current;
 
 				// return that node and exit search(int)
 				return current;
+			}
 
 			// go left or right based on value of current and key
-			else if (current.key.compareTo(key) < 0)
+			else if (cmp > 0)
 				current = current.right;
 
 			// go left or right based on value of current and key
@@ -636,36 +1105,318 @@ public class RedBlackTree<T extends Comparable<T>> {
 		return null;
 
 
-	}// end search(int key)
-	
+	}// end find(T key)
+
+	// Number of lookups containsBatch keeps in flight at once
+	private static final int BATCH_GROUP = 8;
+
+	// @param: keys, the keys to search for
+	// @param: out, out[i] is set to true if keys[i] is in the tree
+	// Searches for a batch of independent keys. The lookups are advanced
+	// one level at a time in groups of BATCH_GROUP, so the cache misses of
+	// the different descents overlap instead of being paid one by one.
+	public void containsBatch(T[] keys, boolean[] out){
+
+		@SuppressWarnings("unchecked")
+		RedBlackNode<T>[] cursor = (RedBlackNode<T>[]) new RedBlackNode<?>[BATCH_GROUP];
+
+		for (int base = 0; base < keys.length; base += BATCH_GROUP){
+			int n = Math.min(BATCH_GROUP, keys.length - base);
+			int active = isNil(root) ? 0 : n;
+
+			for (int j = 0; j < n; j++){
+				cursor[j] = root;
+				out[base + j] = false;
+			}
+
+			// Advance every unfinished lookup by one level per round
+			while (active > 0){
+				for (int j = 0; j < n; j++){
+					RedBlackNode<T> current = cursor[j];
+					if (isNil(current))
+						continue;
+
+					int cmp = keys[base + j].compareTo(current.key);
+					if (cmp < 0)
+						current = current.left;
+					else if (cmp > 0)
+						current = current.right;
+					else{
+						out[base + j] = true;
+						current = nil;
+					}
+
+					cursor[j] = current;
+					if (isNil(current))
+						active--;
+				}
+			}
+		}
+	}// end containsBatch(T[] keys, boolean[] out)
+
+	// @param: keys, the keys to search for, sorted in ascending order
+	// @param: out, if not null, out[i] is set to the node holding keys[i],
+	// or null if keys[i] is not in the tree
+	// @return: the number of keys that were found
+	// Searches for a sorted batch of keys. Each search resumes from the
+	// node where the previous one ended and climbs parent pointers only
+	// until it reaches a subtree whose key range can hold the next key,
+	// so nearby keys share most of their root-to-leaf path. A key that is
+	// smaller than its predecessor restarts the search from the root.
+	public int searchSorted(T[] keys, RedBlackNode<T>[] out){
+
+		int found = 0;
+		RedBlackNode<T> finger = root;
+
+		for (int i = 0; i < keys.length; i++){
+			T key = keys[i];
+
+			// Climb to the lowest ancestor whose range still holds key.
+			// A right child shares its upper bound with its parent, so only
+			// the parents reached through a left edge need a comparison.
+			if (i > 0 && key.compareTo(keys[i - 1]) < 0)
+				finger = root;
+			else if (!isNil(finger)){
+				RedBlackNode<T> up = finger;
+				while (true){
+					while (!isNil(up.parent) && up == up.parent.right)
+						up = up.parent;
+					if (isNil(up.parent) || key.compareTo(up.parent.key) < 0)
+						break;
+					up = up.parent;
+					finger = up;
+				}
+			}
+
+			// Descend from the finger as in search(T key)
+			RedBlackNode<T> current = finger;
+			RedBlackNode<T> hit = null;
+			while (!isNil(current)){
+				int cmp = key.compareTo(current.key);
+				if (cmp == 0){
+					hit = current;
+					break;
+				}
+				finger = current;
+				current = cmp < 0 ? current.left : current.right;
+			}
+
+			if (hit != null){
+				finger = hit;
+				found++;
+			}
+			if (out != null)
+				out[i] = hit;
+		}
+		return found;
+	}// end searchSorted(T[] keys, RedBlackNode<T>[] out)
+
+
+	// @param: keys, the keys to search for, sorted in ascending order
+	// @return: the number of keys that are in the tree
+	public int countSorted(T[] keys){
+		return searchSorted(keys, null);
+	}// end countSorted(T[] keys)
+
+	// Prints the keys in sorted order, one per line.
 	public void printtree()
 	{
-		RedBlackNode<T>current = root; 
-		if (isNil(current))
+		if (isNil(root))
 			System.out.println( "Empty tree" );
-		else 
-		{
-			
-			printtree(current.left);
-			System.out.println(current.key);
-			printtree(current.right);
-		}	
-	}
+		else
+			printtree(root);
+	}// end printtree()
+
+
+	// @param: nodex, the root of the subtree to print
+	// Prints the keys of the subtree in sorted order, one per line.
 	public void printtree(RedBlackNode<T> nodex)
 	{
-		RedBlackNode<T>current = nodex; 
-		if (isNil(current))
-		{
-			;
+		try {
+			TreeWriter.forThread().write(iterator(nodex), (OutputStream) System.out);
 		}
-			//System.out.println( "Empty tree" );
-		else 
-		{
-			printtree(current.left);	
-			System.out.println(current.key);	
-			printtree(current.right);
-		}	
-	}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}// end printtree(RedBlackNode nodex)
+
+
+	// @return: an iterator over the keys in sorted order
+	public Iterator<T> iterator(){
+		return iterator(root);
+	}// end iterator()
+
+
+	// @param: node, the root of the subtree to walk
+	// @return: an iterator over the keys of the subtree in sorted order
+	// Follows parent links with treeSuccessor, so it needs no stack;
+	// the subtree size says when to stop.
+	public Iterator<T> iterator(RedBlackNode<T> node){
+		final int count = subtreeSize(node);
+		final RedBlackNode<T> first = isNil(node) ? nil : treeMinimum(node);
+
+		return new Iterator<T>() {
+			private RedBlackNode<T> next = first;
+			private int left = count;
+
+			public boolean hasNext(){
+				return left > 0;
+			}
+
+			public T next(){
+				if (left == 0)
+					throw new NoSuchElementException();
+				RedBlackNode<T> x = next;
+				if (--left > 0)
+					next = treeSuccessor(x);
+				return x.key;
+			}
+		};
+	}// end iterator(RedBlackNode node)
+
+
+	// @param: out, the destination
+	// Writes the keys in sorted order, one per line.
+	public void export(Appendable out) throws IOException {
+		TreeWriter.forThread().write(iterator(), out);
+	}// end export(Appendable out)
+
+
+	// @param: out, the destination
+	// Writes the keys in sorted order as UTF-8 text, one per line.
+	public void export(OutputStream out) throws IOException {
+		TreeWriter.forThread().write(iterator(), out);
+	}// end export(OutputStream out)
+
+
+	// @param: out, the destination
+	// Writes the keys in sorted order as UTF-8 text, one per line.
+	public void export(WritableByteChannel out) throws IOException {
+		TreeWriter.forThread().write(iterator(), out);
+	}// end export(WritableByteChannel out)
+
+
+	// @param: out, the destination; not closed
+	// Writes the tree in the binary form of TreeCodec: its shape with the
+	// color of every node, and then its keys. The subtree sizes are not
+	// written, since the shape gives them. Only trees of Integers can be
+	// serialized.
+	public void serialize(OutputStream out) throws IOException {
+		TreeCodec.Encoder e = new TreeCodec.Encoder(TreeCodec.RED_BLACK, subtreeSize(root));
+		@SuppressWarnings("unchecked")
+		RedBlackNode<T>[] stack = (RedBlackNode<T>[]) new RedBlackNode<?>[64];
+		int depth = 0;
+		for (RedBlackNode<T> x = root; !isNil(x); ){
+			e.node(!isNil(x.left), !isNil(x.right), x.color() == RedBlackNode.RED);
+			if (!isNil(x.right)){
+				if (depth == stack.length)
+					stack = Arrays.copyOf(stack, 2 * depth);
+				stack[depth++] = x.right;
+			}
+			x = !isNil(x.left) ? x.left : depth > 0 ? stack[--depth] : nil;
+		}
+
+		// In order by hand rather than with iterator(), which trusts the counts
+		RedBlackNode<T> x = root;
+		while (!isNil(x) || depth > 0){
+			for (; !isNil(x); x = x.left){
+				if (depth == stack.length)
+					stack = Arrays.copyOf(stack, 2 * depth);
+				stack[depth++] = x;
+			}
+			x = stack[--depth];
+			e.key(x.key);
+			x = x.right;
+		}
+		e.writeTo(out);
+	}// end serialize(OutputStream out)
+
+
+	// @param: in, the source, read to its end
+	// @return: the tree written by serialize, rebuilt node for node
+	// Every node is created once and linked to its children and parent,
+	// with its counts taken from them, so it takes linear time and no
+	// comparisons or rotations. The colors are checked on the way: an
+	// IOException is thrown for a red root, a red node with a red child,
+	// or two children of unequal black height.
+	public static RedBlackTree<Integer> deserialize(InputStream in) throws IOException {
+		TreeCodec.Decoder d = new TreeCodec.Decoder(in, TreeCodec.RED_BLACK);
+		int n = d.size();
+		RedBlackTree<Integer> tree = new RedBlackTree<Integer>();
+		@SuppressWarnings("unchecked")
+		RedBlackNode<Integer>[] nodes = (RedBlackNode<Integer>[]) new RedBlackNode<?>[n];
+		for (int i = 0; i < n; i++)
+			nodes[i] = tree.newNode(d.key(i));
+
+		// Nodes are in preorder, so children are linked before parents
+		int[] blackHeight = new int[n];
+		for (int i = n - 1; i >= 0; i--){
+			RedBlackNode<Integer> x = nodes[i];
+			x.left = d.left(i) >= 0 ? nodes[d.left(i)] : tree.nil;
+			x.right = d.right(i) >= 0 ? nodes[d.right(i)] : tree.nil;
+			x.left.parent = x.right.parent = x;
+			x.setSize(x.left.size() + x.right.size() + 1);
+			x.setColor(d.flag(i) ? RedBlackNode.RED : RedBlackNode.BLACK);
+			tree.pullUp(x);
+
+			int hl = d.left(i) >= 0 ? blackHeight[d.left(i)] : 0;
+			int hr = d.right(i) >= 0 ? blackHeight[d.right(i)] : 0;
+			if (hl != hr)
+				throw new IOException("Not a red-black tree: unequal black heights");
+			if (x.color() == RedBlackNode.RED && (x.left.color() == RedBlackNode.RED
+					|| x.right.color() == RedBlackNode.RED))
+				throw new IOException("Not a red-black tree: red node with a red child");
+			blackHeight[i] = hl + (x.color() == RedBlackNode.BLACK ? 1 : 0);
+		}
+		if (n > 0 && nodes[0].color() == RedBlackNode.RED)
+			throw new IOException("Not a red-black tree: red root");
+		tree.nil.parent = tree.nil;
+		tree.root = n == 0 ? tree.nil : nodes[0];
+		tree.root.parent = tree.nil;
+		return tree;
+	}// end deserialize(InputStream in)
+
+
+	// @return: the keys in sorted order
+	public Object[] toArray(){
+		return TreeWriter.toArray(iterator(), subtreeSize(root));
+	}// end toArray()
+
+
+	// @return: an iterator over the keys in level order, root first
+	// Parents come before their children, so inserting the keys in
+	// this order into an empty tree rebuilds this shape with little
+	// or no rebalancing.
+	public Iterator<T> levelOrder(){
+		final ResizingArrayQueue<RedBlackNode<T>> queue = new ResizingArrayQueue<RedBlackNode<T>>();
+		if (!isNil(root))
+			queue.enqueue(root);
+
+		return new Iterator<T>() {
+			public boolean hasNext(){
+				return !queue.isEmpty();
+			}
+
+			public T next(){
+				if (queue.isEmpty())
+					throw new NoSuchElementException();
+				RedBlackNode<T> x = queue.dequeue();
+				if (!isNil(x.left))
+					queue.enqueue(x.left);
+				if (!isNil(x.right))
+					queue.enqueue(x.right);
+				return x.key;
+			}
+		};
+	}// end levelOrder()
+
+
+	// @return: the keys in level order
+	public Object[] toLevelOrderArray(){
+		return TreeWriter.toArray(levelOrder(), subtreeSize(root));
+	}// end toLevelOrderArray()
+
+
 	// @param: key, any Comparable object
 	// @return: return's the number of elements greater than key
 	public int numGreater(T key){
@@ -699,7 +1450,7 @@ public class RedBlackTree<T extends Comparable<T>> {
 		// If key is less than node.key, all elements right of node are
 		// greater than key, add this to our total and look to the left
 		else if (key.compareTo(node.key) < 0)
-            return 1+ node.numRight + findNumGreater(node.left,key);
+            return 1+ node.right.size() + findNumGreater(node.left,key);
 
 		// If key is greater than node.key, then look to the right as
 		// all elements to the left of node are smaller than key
@@ -735,6 +1486,31 @@ public class RedBlackTree<T extends Comparable<T>> {
         }
     }
 
+	// @param: lo, the smallest key to return
+	// @param: hi, the largest key to return
+	// @return: every key k with lo <= k <= hi, in order
+	// Only the subtrees that can hold such keys are visited.
+	public List<T> getRange(T lo, T hi){
+		List<T> list = new ArrayList<T>();
+		if (lo.compareTo(hi) <= 0)
+			getRange(root, lo, hi, list);
+		return list;
+	}// end getRange(T lo, T hi)
+
+
+	private void getRange(RedBlackNode<T> node, T lo, T hi, List<T> list){
+		if (isNil(node))
+			return;
+		boolean aboveLo = node.key.compareTo(lo) >= 0;
+		boolean belowHi = node.key.compareTo(hi) <= 0;
+		if (aboveLo)
+			getRange(node.left, lo, hi, list);
+		if (aboveLo && belowHi)
+			list.add(node.key);
+		if (belowHi)
+			getRange(node.right, lo, hi, list);
+	}// end getRange(RedBlackNode node, T lo, T hi, List list)
+
     // @param: node, the root of the tree, the key who we must compare other
 	// node key's to.
 	// @return: the number of nodes smaller than key.
@@ -752,14 +1528,46 @@ public class RedBlackTree<T extends Comparable<T>> {
 		// node are smaller than key, add this to our total and look
 		// to the right.
 		else
-			return 1+ node.numLeft + findNumSmaller(node.right,key);
+			return 1+ node.left.size() + findNumSmaller(node.right,key);
 
 	}// end findNumSmaller(RedBlackNode nod, int key)
 
 
+	// Augmentation hooks. A subclass that keeps data summarizing each
+	// subtree, such as AugmentedRedBlackTree, overrides these; the tree
+	// calls them wherever the nodes below a node change. They do nothing
+	// here, so a plain tree pays only for the calls.
+
+	// @param: key, the key of a node about to be inserted
+	// @return: a new node holding key
+	protected RedBlackNode<T> newNode(T key){
+		return new RedBlackNode<T>(key);
+	}// end newNode(T key)
+
+
+	// @param: x, a node whose children have changed
+	// Recomputes the data of x from its children, which are up to date.
+	protected void pullUp(RedBlackNode<T> x){
+	}// end pullUp(RedBlackNode x)
+
+
+	// @param: x, the lowest node whose subtree has changed, or nil
+	// Calls pullUp on x and each of its ancestors in turn.
+	protected void pullUpPath(RedBlackNode<T> x){
+	}// end pullUpPath(RedBlackNode x)
+
+
+	// @param: from, a node about to be unlinked
+	// @param: to, the node that takes over the key of from
+	// Copies the key of from, and anything stored with it, into to.
+	protected void movePayload(RedBlackNode<T> from, RedBlackNode<T> to){
+		to.key = from.key;
+	}// end movePayload(RedBlackNode from, RedBlackNode to)
+
+
 	// @param: node, the RedBlackNode we must check to see whether it's nil
 	// @return: return's true of node is nil and false otherwise
-	private boolean isNil(RedBlackNode node){
+	protected boolean isNil(RedBlackNode<?> node){
 
 		// return appropriate value
 		return node == nil;
@@ -769,13 +1577,28 @@ public class RedBlackTree<T extends Comparable<T>> {
 
 	// @return: return's the size of the tree
 	// Return's the # of nodes including the root which the RedBlackTree
-	// rooted at root has.
+	// rooted at root has, or 0 if it is empty.
 	public int size(){
-
-		// Return the number of nodes to the root's left + the number of
-		// nodes on the root's right + the root itself.
-		return root.numLeft + root.numRight + 1;
+		return root.size();
 	}// end size()
+
+
+	// @return: the exact shape of the tree, with its black height
+	// Profiles the depths of the nodes, visiting every node once.
+	public TreeShape shape(){
+		return TreeShape.exact(root, nil, t -> t.left, t -> t.right)
+				.withBlackHeight(blackHeight(root));
+	}// end shape()
+
+
+	// @param: samples, the number of root-to-leaf probes
+	// @param: random, the source of the probes
+	// @return: the estimated shape of the tree, with its exact black height
+	// Estimates the depths of the nodes cheaply enough for very large trees.
+	public TreeShape shape(int samples, Random random){
+		return TreeShape.sampled(root, nil, t -> t.left, t -> t.right, samples, random)
+				.withBlackHeight(blackHeight(root));
+	}// end shape(int samples, Random random)
 	
 	private static RedBlackTree<Integer> a = new RedBlackTree<>();
 	 //Q4a: Insert 100,000 integer keys, from 1 to 100,000 (in that order). Find the average time for each insertion. 
@@ -817,6 +1640,62 @@ public class RedBlackTree<T extends Comparable<T>> {
 		 
 	 }
 	 
+	 //Q4b (batched): Same searches as Q4b, issued BATCH_GROUP at a time through containsBatch.
+	 public static long searchBatch_time(int NUMS)
+	 {
+		 long start, total_time = 0;
+
+	     Random r = new Random( );
+		 Integer[] keys = new Integer[BATCH_GROUP * 8];
+		 boolean[] found = new boolean[keys.length];
+
+		 for( int i = 0; i < NUMS; i += keys.length)
+	     {
+			 int n = Math.min(keys.length, NUMS - i);
+			 if (n < keys.length)
+			 {
+				 keys = new Integer[n];
+				 found = new boolean[n];
+			 }
+			 for (int j = 0; j < n; j++)
+				 keys[j] = r.nextInt(NUMS-1)+1;
+
+			 start =  System.nanoTime();
+			 a.containsBatch(keys, found);
+			 total_time += System.nanoTime()-start;
+	     }
+
+		 return total_time / NUMS;
+
+	 }
+
+	 //Q4b (sorted): Searches of sorted batches of nearby random keys through countSorted.
+	 public static long searchSorted_time(int NUMS)
+	 {
+		 long start, total_time = 0;
+
+	     Random r = new Random( );
+		 Integer[] keys = new Integer[64];
+
+		 for( int i = 0; i < NUMS; i += keys.length)
+	     {
+			 int n = Math.min(keys.length, NUMS - i);
+			 if (n < keys.length)
+				 keys = new Integer[n];
+			 int lo = r.nextInt(NUMS-1)+1;
+			 for (int j = 0; j < n; j++)
+				 keys[j] = lo + r.nextInt(1024);
+			 Arrays.sort(keys);
+
+			 start =  System.nanoTime();
+			 a.countSorted(keys);
+			 total_time += System.nanoTime()-start;
+	     }
+
+		 return total_time / NUMS;
+
+	 }
+
 	//Q4c: Delete all the keys in the trees, starting from 100,000 down to 1 (in that order). Find the average time of each deletion. 
 	 public static long delete_time(int NUMS)
 	 {
@@ -868,26 +1747,162 @@ public class RedBlackTree<T extends Comparable<T>> {
 		 return total_time / NUMS;
 		 
 	} 
+	 //Search NUMS keys drawn from a Zipf distribution over a tree of NUMS keys,
+	 //without and then with a lookup cache. Returns both times and the hit rate in percent.
+	 public static long[] searchZipf_time(int NUMS)
+	 {
+		 final int SLOTS = 4096;
+		 final double SKEW = 1.0;
+		 long start, plain_time, cached_time;
+		 RedBlackTree<Integer> d = new RedBlackTree<>();
+		 Random r = new Random(34);
+
+		 // Rank i is the (i+1)-th most popular key; ranks map to random keys
+		 Integer[] byRank = new Integer[NUMS];
+		 for( int i = 0; i < NUMS; i++ )
+			 byRank[i] = i;
+		 for( int i = NUMS - 1; i > 0; i-- )
+		 {
+			 int j = r.nextInt(i + 1);
+			 Integer t = byRank[i]; byRank[i] = byRank[j]; byRank[j] = t;
+		 }
+		 for( int i = 0; i < NUMS; i++ )
+			 d.insert( i );
+
+		 double[] cdf = new double[NUMS];
+		 double sum = 0;
+		 for( int i = 0; i < NUMS; i++ )
+			 cdf[i] = sum += 1 / Math.pow(i + 1, SKEW);
+		 Integer[] keys = new Integer[NUMS];
+		 for( int i = 0; i < NUMS; i++ )
+		 {
+			 int rank = Arrays.binarySearch(cdf, r.nextDouble() * sum);
+			 keys[i] = byRank[rank < 0 ? -rank - 1 : rank];
+		 }
+
+		 start = System.nanoTime();
+		 for( int i = 0; i < NUMS; i++ )
+			 d.search( keys[i] );
+		 plain_time = System.nanoTime() - start;
+
+		 d.setCache( SLOTS );
+		 start = System.nanoTime();
+		 for( int i = 0; i < NUMS; i++ )
+			 d.search( keys[i] );
+		 cached_time = System.nanoTime() - start;
+
+		 return new long[] { plain_time / NUMS, cached_time / NUMS, 100 * d.cacheHits() / NUMS };
+	 }
+
+	 // Range expiry: remove the keys of a fresh tree 1..NUMS in ranges of WIDTH keys, once
+	 // with removeRange and once with a loop of remove. Find the average time per removed key.
+	 public static long[] removeRange_time(int NUMS)
+	 {
+		 final int WIDTH = 10000;
+		 long start, range_time = 0, loop_time = 0;
+		 RedBlackTree<Integer> d = new RedBlackTree<>();
+		 RedBlackTree<Integer> e = new RedBlackTree<>();
+
+		 for( int i = 1; i <= NUMS; i++)
+	     {
+			 d.insert( i );
+			 e.insert( i );
+	     }
+
+		 for( int lo = 1; lo <= NUMS; lo += 2 * WIDTH)
+	     {
+			 start = System.nanoTime();
+			 d.removeRange( lo, lo + WIDTH - 1 );
+			 range_time += System.nanoTime() - start;
+
+			 start = System.nanoTime();
+			 for (int i = lo; i < lo + WIDTH; i++)
+				 e.remove( i );
+			 loop_time += System.nanoTime() - start;
+	     }
+
+		 return new long[] { range_time * 2 / NUMS, loop_time * 2 / NUMS };
+
+	 }
+
+	 // Sequential feed: time-ordered keys are appended while the oldest key is dropped
+	 // once WINDOW keys are live. Find the average time of each insert/remove step.
+	 public static long slidingWindow_time(int NUMS)
+	 {
+		 final int WINDOW = 1024;
+		 long start, total_time = 0;
+		 RedBlackTree<Integer> w = new RedBlackTree<>();
+
+		 for( int i = 1; i <= NUMS; i++)
+	     {
+			 start = System.nanoTime();
+			 w.insert( i );
+			 if (i > WINDOW)
+				 w.remove( i - WINDOW );
+			 total_time += System.nanoTime() - start;
+	     }
+
+		 return total_time / NUMS;
+
+	 }
+
+	 //Build a tree of NUMS random keys, created beforehand so that only the nodes are
+	 //counted, and measure the heap it holds. Returns the bytes per node.
+	 public static long memory_bytes(int NUMS)
+	 {
+		 Random r = new Random(45);
+		 Integer[] keys = new Integer[NUMS];
+		 for( int i = 0; i < NUMS; i++ )
+			 keys[i] = r.nextInt();
+
+		 long before = usedMemory();
+		 RedBlackTree<Integer> t = new RedBlackTree<>();
+		 for( Integer x : keys )
+			 t.insert( x );
+		 long bytes = usedMemory() - before;
+		 if( t.size() != NUMS )
+			 System.out.println( "OOPS!!" );
+		 return bytes / NUMS;
+	 }
+
+	 private static long usedMemory()
+	 {
+		 Runtime rt = Runtime.getRuntime();
+		 for( int i = 0; i < 3; i++ )
+			 System.gc();
+		 return rt.totalMemory() - rt.freeMemory();
+	 }
+
 	 public static void main( String [ ] args )
 	 {
 	 //    AVLTree<Integer> t = new AVLTree<>( );
-	     final int NUMS = 100000;  // must be even
+	     final int NUMS = 1000000;  // must be even
 
+	     memory_bytes( 1000000 );   // warm up
+	     System.out.println( "Bytes per node: " + memory_bytes( 1000000 ) );
 	     System.out.println( "Create the tree..." );
-	     long x[] = new long[6];    
+	     long x[] = new long[9];
 	     x[3]=insertRandom_time(NUMS);
 	     x[4]=search_time(NUMS);
 	     x[5]=delete_time(NUMS);
 	     x[0]=insert_time(NUMS);
 	     x[1]=search_time(NUMS);
+	     x[6]=searchBatch_time(NUMS);
+	     x[7]=searchSorted_time(NUMS);
 	     x[2]=delete_time(NUMS);
+	     x[8]=slidingWindow_time(NUMS);
 	 
 	     
 	     System.out.println( "The time cost for insert is " + x[0]);  
 	    
 	     System.out.println( "The time cost for search is " + x[1]);
+	     System.out.println( "The time cost for batched search is " + x[6]);
+	     System.out.println( "The time cost for sorted batch search is " + x[7]);
 	        
 	     System.out.println( "The time cost for delete is " + x[2] );
+	     System.out.println( "The time cost for a sliding-window step is " + x[8] );
+	     long range[] = removeRange_time(NUMS);
+	     System.out.println( "The time cost for range delete is " + range[0] + " (loop of remove: " + range[1] + ")" );
 	     System.out.println( "Tree after removals:" );
 	  //   a.printtree( );
 	  
@@ -900,6 +1915,9 @@ public class RedBlackTree<T extends Comparable<T>> {
 	     
 	     
 	     System.out.println( "The time cost for random delete is " + x[5]);
+	     searchZipf_time(NUMS);   // warm up
+	     long zipf[] = searchZipf_time(NUMS);
+	     System.out.println( "The time cost for Zipf search is " + zipf[0] + " (with cache: " + zipf[1] + ", " + zipf[2] + "% hits)" );
 	 }
 
 }// end class RedBlackTree
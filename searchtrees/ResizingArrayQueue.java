@@ -0,0 +1,214 @@
+package searchtrees;
+
+/*************************************************************************
+ *  Compilation:  javac ResizingArrayQueue.java
+ *  Execution:    java ResizingArrayQueue
+ *
+ *  Queue implementation with a resizing circular array.
+ *
+ *  % java ResizingArrayQueue
+ *  The time cost per item for Queue is ...
+ *
+ *************************************************************************/
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ *  The <tt>ResizingArrayQueue</tt> class represents a first-in-first-out (FIFO)
+ *  queue of generic items.
+ *  It supports the same operations as {@link Queue}: <em>enqueue</em>,
+ *  <em>dequeue</em>, <em>peek</em>, <em>size</em>, <em>is-empty</em>,
+ *  and iterating through the items in FIFO order.
+ *  <p>
+ *  This implementation uses a circular array that doubles when full and
+ *  halves when one-quarter full, but never below its initial capacity,
+ *  so it allocates nothing per item.
+ *  The <em>enqueue</em> and <em>dequeue</em> operations take constant
+ *  amortized time; the other operations take constant time in the worst case.
+ *  Prefer it to {@link Queue} for breadth-first work over large trees.
+ *  <p>
+ *  Adapted from the <tt>ResizingArrayQueue</tt> of algs4, by Robert
+ *  Sedgewick and Kevin Wayne.
+ */
+public class ResizingArrayQueue<Item> implements Iterable<Item> {
+    private Item[] q;            // queue elements
+    private int N;               // number of elements on queue
+    private int first;           // index of first element of queue
+    private int last;            // index of next available slot
+    private final int min;       // never shrink below this length
+
+    /**
+     * Initializes an empty queue.
+     */
+    public ResizingArrayQueue() {
+        this(2);
+    }
+
+    /**
+     * Initializes an empty queue with room for <tt>capacity</tt> items.
+     * @param capacity the number of items to hold before resizing
+     */
+    @SuppressWarnings("unchecked")
+    public ResizingArrayQueue(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive");
+        q = (Item[]) new Object[capacity];
+        min = capacity;
+        N = 0;
+        first = 0;
+        last = 0;
+    }
+
+    /**
+     * Is this queue empty?
+     * @return true if this queue is empty; false otherwise
+     */
+    public boolean isEmpty() {
+        return N == 0;
+    }
+
+    /**
+     * Returns the number of items in this queue.
+     * @return the number of items in this queue
+     */
+    public int size() {
+        return N;
+    }
+
+    // resize the underlying array
+    @SuppressWarnings("unchecked")
+    private void resize(int max) {
+        assert max >= N;
+        Item[] temp = (Item[]) new Object[max];
+        for (int i = 0; i < N; i++) {
+            temp[i] = q[(first + i) % q.length];
+        }
+        q = temp;
+        first = 0;
+        last  = N;
+    }
+
+    /**
+     * Adds the item to this queue.
+     * @param item the item to add
+     */
+    public void enqueue(Item item) {
+        // double size of array if necessary and recopy to front of array
+        if (N == q.length) resize(2*q.length);   // double size of array if necessary
+        q[last++] = item;                        // add item
+        if (last == q.length) last = 0;          // wrap-around
+        N++;
+    }
+
+    /**
+     * Removes and returns the item on this queue that was least recently added.
+     * @return the item on this queue that was least recently added
+     * @throws java.util.NoSuchElementException if this queue is empty
+     */
+    public Item dequeue() {
+        if (isEmpty()) throw new NoSuchElementException("Queue underflow");
+        Item item = q[first];
+        q[first] = null;                            // to avoid loitering
+        N--;
+        first++;
+        if (first == q.length) first = 0;           // wrap-around
+        // shrink size of array if necessary
+        if (N > 0 && N == q.length/4 && q.length/2 >= min) resize(q.length/2);
+        return item;
+    }
+
+    /**
+     * Returns the item least recently added to this queue.
+     * @return the item least recently added to this queue
+     * @throws java.util.NoSuchElementException if this queue is empty
+     */
+    public Item peek() {
+        if (isEmpty()) throw new NoSuchElementException("Queue underflow");
+        return q[first];
+    }
+
+    /**
+     * Returns a string representation of this queue.
+     * @return the sequence of items in FIFO order, separated by spaces
+     */
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        for (Item item : this)
+            s.append(item + " ");
+        return s.toString();
+    }
+
+    /**
+     * Returns an iterator that iterates over the items in this queue in FIFO order.
+     * @return an iterator that iterates over the items in this queue in FIFO order
+     */
+    public Iterator<Item> iterator() {
+        return new ArrayIterator();
+    }
+
+    // an iterator, doesn't implement remove() since it's optional
+    private class ArrayIterator implements Iterator<Item> {
+        private int i = 0;
+        public boolean hasNext()  { return i < N;                               }
+        public void remove()      { throw new UnsupportedOperationException();  }
+
+        public Item next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Item item = q[(i + first) % q.length];
+            i++;
+            return item;
+        }
+    }
+
+    // Enqueue and dequeue NUMS items in rounds of 1,000, as a breadth-first walk does.
+    public static long[] queue_time(int NUMS) {
+        final int ROUND = 1000;
+        long start, linked_time, array_time, int_time;
+        long sum = 0;
+        Integer[] items = new Integer[ROUND];    // box once, outside the timed loops
+        for (int j = 0; j < ROUND; j++) items[j] = j;
+
+        Queue<Integer> linked = new Queue<Integer>();
+        start = System.nanoTime();
+        for (int i = 0; i < NUMS; i += ROUND) {
+            for (int j = 0; j < ROUND; j++) linked.enqueue(items[j]);
+            while (linked.size() > ROUND / 2) sum += linked.dequeue();
+        }
+        while (!linked.isEmpty()) sum += linked.dequeue();
+        linked_time = System.nanoTime() - start;
+
+        ResizingArrayQueue<Integer> array = new ResizingArrayQueue<Integer>();
+        start = System.nanoTime();
+        for (int i = 0; i < NUMS; i += ROUND) {
+            for (int j = 0; j < ROUND; j++) array.enqueue(items[j]);
+            while (array.size() > ROUND / 2) sum -= array.dequeue();
+        }
+        while (!array.isEmpty()) sum -= array.dequeue();
+        array_time = System.nanoTime() - start;
+
+        IntQueue ints = new IntQueue();
+        start = System.nanoTime();
+        for (int i = 0; i < NUMS; i += ROUND) {
+            for (int j = 0; j < ROUND; j++) ints.enqueue(j);
+            while (ints.size() > ROUND / 2) sum += ints.dequeue();
+        }
+        while (!ints.isEmpty()) sum += ints.dequeue();
+        int_time = System.nanoTime() - start;
+
+        if (sum == 42) System.out.println();    // keep the loops alive
+        return new long[] { linked_time / NUMS, array_time / NUMS, int_time / NUMS };
+    }
+
+    /**
+     * Unit tests the <tt>ResizingArrayQueue</tt> data type.
+     */
+    public static void main(String[] args) {
+        final int NUMS = 10000000;
+
+        queue_time(NUMS);   // warm up
+        long x[] = queue_time(NUMS);
+        System.out.println("The time cost per item for Queue is " + x[0]);
+        System.out.println("The time cost per item for ResizingArrayQueue is " + x[1]);
+        System.out.println("The time cost per item for IntQueue is " + x[2]);
+    }
+}
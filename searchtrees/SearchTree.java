@@ -0,0 +1,69 @@
+package searchtrees;
+
+//SearchTree interface
+//
+//******************PUBLIC OPERATIONS*********************
+//void insert( x )       --> Insert x
+//void remove( x )       --> Remove x
+//boolean contains( x )  --> Return true if x is present
+//Comparable findMin( )  --> Return smallest item
+//Comparable findMax( )  --> Return largest item
+//boolean isEmpty( )     --> Return true if empty; else false
+//void makeEmpty( )      --> Remove all items
+//Object [ ] toArray( )  --> Return items in sorted order
+//Iterator iterator( )   --> Return an in-order iterator
+
+/**
+* The operations shared by every tree in this package, so that drivers
+* such as TreeUpdatePipeline can work with any of them.
+* Note that all "matching" is based on the compareTo method.
+*/
+public interface SearchTree<AnyType extends Comparable<? super AnyType>> extends Iterable<AnyType>
+{
+ /**
+  * Insert into the tree.
+  * @param x the item to insert.
+  */
+ void insert( AnyType x );
+
+ /**
+  * Remove from the tree. Nothing is done if x is not found.
+  * @param x the item to remove.
+  */
+ void remove( AnyType x );
+
+ /**
+  * Find an item in the tree.
+  * @param x the item to search for.
+  * @return true if x is found.
+  */
+ boolean contains( AnyType x );
+
+ /**
+  * Find the smallest item in the tree.
+  * @return smallest item or null if empty.
+  */
+ AnyType findMin( );
+
+ /**
+  * Find the largest item in the tree.
+  * @return the largest item or null if empty.
+  */
+ AnyType findMax( );
+
+ /**
+  * Test if the tree is logically empty.
+  * @return true if empty, false otherwise.
+  */
+ boolean isEmpty( );
+
+ /**
+  * Make the tree logically empty.
+  */
+ void makeEmpty( );
+
+ /**
+  * Return the items in sorted order.
+  */
+ Object [ ] toArray( );
+}
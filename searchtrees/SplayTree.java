@@ -1,433 +1,786 @@
-package searchtrees;
-
-import java.util.Random;
-
-//SplayTree class
-//
-//CONSTRUCTION: with no initializer
-//
-//******************PUBLIC OPERATIONS*********************
-//void insert( x )       --> Insert x
-//void remove( x )       --> Remove x
-//boolean contains( x )  --> Return true if x is found
-//Comparable findMin( )  --> Return smallest item
-//Comparable findMax( )  --> Return largest item
-//boolean isEmpty( )     --> Return true if empty; else false
-//void makeEmpty( )      --> Remove all items
-//void printTree( )      --> Print tree in sorted order
-//******************ERRORS********************************
-//Throws UnderflowException as appropriate
-
-/**
-* Implements a top-down splay tree.
-* Note that all "matching" is based on the compareTo method.
-* @author Mark Allen Weiss
-*/
-public class SplayTree<AnyType extends Comparable<? super AnyType>>
-{
- /**
-  * Construct the tree.
-  */
- public SplayTree( )
- {
-     nullNode = new BinaryNode<AnyType>( null );
-     nullNode.left = nullNode.right = nullNode;
-     root = nullNode;
- }
-
- private BinaryNode<AnyType> newNode = null;  // Used between different inserts
- 
- /**
-  * Insert into the tree.
-  * @param x the item to insert.
-  */
- public void insert( AnyType x )
- {
-     if( newNode == null )
-         newNode = new BinaryNode<AnyType>( null );
-     newNode.element = x;
-
-     if( root == nullNode )
-     {
-         newNode.left = newNode.right = nullNode;
-         root = newNode;
-     }
-     else
-     {
-         root = splay( x, root );
-			
-			int compareResult = x.compareTo( root.element );
-			
-         if( compareResult < 0 )
-         {
-             newNode.left = root.left;
-             newNode.right = root;
-             root.left = nullNode;
-             root = newNode;
-         }
-         else
-         if( compareResult > 0 )
-         {
-             newNode.right = root.right;
-             newNode.left = root;
-             root.right = nullNode;
-             root = newNode;
-         }
-         else
-             return;   // No duplicates
-     }
-     newNode = null;   // So next insert will call new
- }
-
- /**
-  * Remove from the tree.
-  * @param x the item to remove.
-  */
- public void remove( AnyType x )
- {
-     if( !contains( x ) )
-         return;
-
-     BinaryNode<AnyType> newTree;
-
-         // If x is found, it will be splayed to the root by contains
-     if( root.left == nullNode )
-         newTree = root.right;
-     else
-     {
-         // Find the maximum in the left subtree
-         // Splay it to the root; and then attach right child
-         newTree = root.left;
-         newTree = splay( x, newTree );
-         newTree.right = root.right;
-     }
-     root = newTree;
- }
-
- /**
-  * Find the smallest item in the tree.
-  * Not the most efficient implementation (uses two passes), but has correct
-  *     amortized behavior.
-  * A good alternative is to first call find with parameter
-  *     smaller than any item in the tree, then call findMin.
-  * @return the smallest item or throw UnderflowException if empty.
-  */
- public AnyType findMin( )
- {
-     if( isEmpty( ) )
-        return null;
-
-     BinaryNode<AnyType> ptr = root;
-
-     while( ptr.left != nullNode )
-         ptr = ptr.left;
-
-     root = splay( ptr.element, root );
-     return ptr.element;
- }
-
- /**
-  * Find the largest item in the tree.
-  * Not the most efficient implementation (uses two passes), but has correct
-  *     amortized behavior.
-  * A good alternative is to first call find with parameter
-  *     larger than any item in the tree, then call findMax.
-  * @return the largest item or throw UnderflowException if empty.
-  */
- public AnyType findMax( )
- {
-     if( isEmpty( ) )
-        return null;
-
-     BinaryNode<AnyType> ptr = root;
-
-     while( ptr.right != nullNode )
-         ptr = ptr.right;
-
-     root = splay( ptr.element, root );
-     return ptr.element;
- }
-
- /**
-  * Find an item in the tree.
-  * @param x the item to search for.
-  * @return true if x is found; otherwise false.
-  */
- public boolean contains( AnyType x )
- {
-     if( isEmpty( ) )
-         return false;
-			
-     root = splay( x, root );
-
-     return root.element.compareTo( x ) == 0;
- }
-
- /**
-  * Make the tree logically empty.
-  */
- public void makeEmpty( )
- {
-     root = nullNode;
- }
-
- /**
-  * Test if the tree is logically empty.
-  * @return true if empty, false otherwise.
-  */
- public boolean isEmpty( )
- {
-     return root == nullNode;
- }
-
- private BinaryNode<AnyType> header = new BinaryNode<AnyType>( null ); // For splay
- 
- /**
-  * Internal method to perform a top-down splay.
-  * The last accessed node becomes the new root.
-  * @param x the target item to splay around.
-  * @param t the root of the subtree to splay.
-  * @return the subtree after the splay.
-  */
- private BinaryNode<AnyType> splay( AnyType x, BinaryNode<AnyType> t )
- {
-     BinaryNode<AnyType> leftTreeMax, rightTreeMin;
-
-     header.left = header.right = nullNode;
-     leftTreeMax = rightTreeMin = header;
-
-     nullNode.element = x;   // Guarantee a match
-
-     for( ; ; )
-     {
-			int compareResult = x.compareTo( t.element );
-			
-         if( compareResult < 0 )
-         {
-             if( x.compareTo( t.left.element ) < 0 )
-                 t = rotateWithLeftChild( t );
-             if( t.left == nullNode )
-                 break;
-             // Link Right
-             rightTreeMin.left = t;
-             rightTreeMin = t;
-             t = t.left;
-         }
-         else if( compareResult > 0 )
-         {
-             if( x.compareTo( t.right.element ) > 0 )
-                 t = rotateWithRightChild( t );
-             if( t.right == nullNode )
-                 break;
-             // Link Left
-             leftTreeMax.right = t;
-             leftTreeMax = t;
-             t = t.right;
-         }
-         else
-             break;
-     }	
-
-     leftTreeMax.right = t.left;
-     rightTreeMin.left = t.right;
-     t.left = header.right;
-     t.right = header.left;
-     return t;
- }
-
- /**
-  * Rotate binary tree node with left child.
-  * For AVL trees, this is a single rotation for case 1.
-  */
- private static <AnyType> BinaryNode<AnyType> rotateWithLeftChild( BinaryNode<AnyType> k2 )
- {
-     BinaryNode<AnyType> k1 = k2.left;
-     k2.left = k1.right;
-     k1.right = k2;
-     return k1;
- }
-
- /**
-  * Rotate binary tree node with right child.
-  * For AVL trees, this is a single rotation for case 4.
-  */
- private static <AnyType> BinaryNode<AnyType> rotateWithRightChild( BinaryNode<AnyType> k1 )
- {
-     BinaryNode<AnyType> k2 = k1.right;
-     k1.right = k2.left;
-     k2.left = k1;
-     return k2;
- }
-
- /**
-  * Print the tree contents in sorted order.
-  */
- public void printTree( )
- {
-     if( isEmpty( ) )
-         System.out.println( "Empty tree" );
-     else
-         printTree( root );
- }
-
- public void printTree(BinaryNode t)
- {
-     if (t != nullNode) {
-   		printTree(t.left);
-     	System.out.println(t.element);
-   		printTree(t.right);
-     }
- }
-
- 
- // Basic node stored in unbalanced binary search trees
- private static class BinaryNode<AnyType>
- {
-         // Constructors
-     BinaryNode( AnyType theElement )
-     {
-         this( theElement, null, null );
-     }
-
-     BinaryNode( AnyType theElement, BinaryNode<AnyType> lt, BinaryNode<AnyType> rt )
-     {
-         element  = theElement;
-         left     = lt;
-         right    = rt;
-     }
-
-     AnyType element;            // The data in the node
-     BinaryNode<AnyType> left;   // Left child
-     BinaryNode<AnyType> right;  // Right child
- }
-
- private BinaryNode<AnyType> root;
- private BinaryNode<AnyType> nullNode;
- 
- //Q4a: Insert 100,000 integer keys, from 1 to 100,000 (in that order). Find the average time for each insertion. 
- private static SplayTree<Integer> a = new SplayTree<Integer>();
- public static long insert_time(int NUMS)
- {
-	 	 
-	 long start, total_time = 0;
-	 
-	 for( int i = 1; i <= NUMS; i++)
-     {
-		 start = System.nanoTime();
-		 a.insert( i );
-		 total_time += System.nanoTime() - start;
-     }
-	 
-	 return total_time / NUMS;
-	 
- }
- 
- //Q4b: Do 100,000 searches of random integer keys between 1 and 100,000. Find the average time of each search. 
- public static long search_time(int NUMS)
- {
-	 long start, total_time = 0;
-	 
-     Random r = new Random( );
-	 
-	 for( int i = 1; i <= NUMS; i++)
-     {
-		 start =  System.nanoTime();
-		 if (!a.contains( r.nextInt(NUMS-1)+1 ))
-		 {
-			// System.out.println("key " + i + " not found" );
-		 }
-		 total_time += System.nanoTime()-start;
-     }
-	 
-	 return total_time / NUMS;
-	 
- }
- 
-//Q4c: Delete all the keys in the trees, starting from 100,000 down to 1 (in that order). Find the average time of each deletion. 
- public static long delete_time(int NUMS)
- {
-	 
-	 long start, total_time = 0;
-	 
-	 for( int i = NUMS; i >= 1; i--)
-     {
-		 start = System.nanoTime();
-         a.remove( i );
-		 total_time += System.nanoTime() - start;
-     }
-	 
-	 return total_time / NUMS;
-	 
-}
- //Q5a: Insert 100,000 of random keys between 1 and 100,000. Find the average time of each search.
- public static long insertRandom_time(int NUMS)
- {
-	 long start, total_time = 0;
-	 Random r = new Random();
-	 
-	 for ( int i = 1; i <= NUMS; i++)
-	 {
-		 start = System.nanoTime();
-		 a.insert(r.nextInt(NUMS-1)+1);
-		 total_time += System.nanoTime() - start;
-	 }
-	 return total_time / NUMS;
-	 
- }
- // Q5c: Delete all the keys in the trees, with random keys between 1 and 100,000. Find the average time of each deletion. 
- // Note that not all the keys may be found in the tree. 
- public static long deleteRandom_time(int NUMS)
- {
-	 
-	 long start, total_time = 0;
-	 
-	 Random r = new Random( );
-	 
-	 for( int i = NUMS; i >= 1; i--)
-     {
-		 start = System.nanoTime();
-         a.remove(r.nextInt(NUMS-1)+1);
-         //H_temp.checkBalance( );
-		 total_time += System.nanoTime() - start;
-     }
-	 
-	 return total_time / NUMS;
-	 
-}
-
-  // Test program; should print min and max and nothing else
- public static void main( String [ ] args )
- {
- //    AVLTree<Integer> t = new AVLTree<>( );
-     final int NUMS = 100000;  // must be even
-
-     System.out.println( "Create the tree..." );
-     long x[] = new long[6];    
-     x[3]=insertRandom_time(NUMS);
-     x[4]=search_time(NUMS);
-     x[5]=delete_time(NUMS);
-     x[0]=insert_time(NUMS);
-     x[1]=search_time(NUMS);
-     x[2]=delete_time(NUMS);
- 
-     
-     System.out.println( "The time cost for insert is " + x[0]);  
-    
-     System.out.println( "The time cost for search is " + x[1]);
-        
-     System.out.println( "The time cost for delete is " + x[2] );
-     System.out.println( "Tree after removals:" );
-     a.printTree( );
-  
-     System.out.println( "The time cost for random insert is " + x[3] );
-     
- //    System.out.println( "Tree after insertions:" );
-     
-     System.out.println( "Second searching...");
-     System.out.println( "The time cost for second search is " + x[4]);
-     
-     System.out.println( "The time cost for random delete is " + x[5]);
- }
-}
-
-91
\ No newline at end of file
+package searchtrees;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+//SplayTree class
+//
+//CONSTRUCTION: with no initializer
+//
+//******************PUBLIC OPERATIONS*********************
+//void insert( x )       --> Insert x
+//void remove( x )       --> Remove x
+//boolean contains( x )  --> Return true if x is found
+//Comparable findMin( )  --> Return smallest item
+//Comparable findMax( )  --> Return largest item
+//boolean isEmpty( )     --> Return true if empty; else false
+//int size( )            --> Return number of items
+//void makeEmpty( )      --> Remove all items
+//void setBloomFilter( b ) --> Keep a filter that rejects absent items
+//void printTree( )      --> Print tree in sorted order
+//Iterator iterator( )   --> Return an in-order iterator
+//void export( out )     --> Write items to out in sorted order
+//void serialize( out )  --> Write the tree in compact binary form
+//static deserialize( in ) --> Rebuild a tree written by serialize
+//TreeMetrics metrics( ) --> Return the operation counts and latencies
+//TreeShape shape( )     --> Profile the depths of the nodes
+//TreeShape shape( s, r ) --> Estimate the depth profile from s probes
+//Object [ ] toArray( )  --> Return items in sorted order
+//Iterator levelOrder( ) --> Return a level-order iterator
+//Object [ ] toLevelOrderArray( ) --> Return items in level order
+//******************ERRORS********************************
+//Throws UnderflowException as appropriate
+
+/**
+* Implements a top-down splay tree.
+* Note that all "matching" is based on the compareTo method.
+* @author Mark Allen Weiss
+*/
+public class SplayTree<AnyType extends Comparable<? super AnyType>> implements SearchTree<AnyType>
+{
+ /**
+  * Construct the tree.
+  */
+ public SplayTree( )
+ {
+     nullNode = new BinaryNode<AnyType>( null );
+     nullNode.left = nullNode.right = nullNode;
+     root = nullNode;
+ }
+
+ private BinaryNode<AnyType> newNode = null;  // Used between different inserts
+ 
+ /**
+  * Insert into the tree.
+  * @param x the item to insert.
+  */
+ public void insert( AnyType x )
+ {
+     long start = TreeMetrics.begin( );
+     insertItem( x );
+     metrics.end( TreeMetrics.Op.INSERT, start );
+ }
+
+ /**
+  * Internal method to insert x; duplicates are ignored.
+  * @param x the item to insert.
+  */
+ private void insertItem( AnyType x )
+ {
+     if( newNode == null )
+         newNode = new BinaryNode<AnyType>( null );
+     newNode.element = x;
+
+     if( root == nullNode )
+     {
+         newNode.left = newNode.right = nullNode;
+         root = newNode;
+     }
+     else
+     {
+         root = splay( x, root );
+			
+			TreeMetrics.compared( );
+			int compareResult = x.compareTo( root.element );
+			
+         if( compareResult < 0 )
+         {
+             newNode.left = root.left;
+             newNode.right = root;
+             root.left = nullNode;
+             root = newNode;
+         }
+         else
+         if( compareResult > 0 )
+         {
+             newNode.right = root.right;
+             newNode.left = root;
+             root.right = nullNode;
+             root = newNode;
+         }
+         else
+             return;   // No duplicates
+     }
+     newNode = null;   // So next insert will call new
+     size++;
+
+     if( filter != null )
+     {
+         filter.add( x );
+         if( filter.isFull( ) )
+             filter.rebuild( this );
+     }
+ }
+
+ /**
+  * Remove from the tree.
+  * @param x the item to remove.
+  */
+ public void remove( AnyType x )
+ {
+     long start = TreeMetrics.begin( );
+     removeItem( x );
+     metrics.end( TreeMetrics.Op.REMOVE, start );
+ }
+
+ /**
+  * Internal method to remove x. Nothing is done if x is not found.
+  * @param x the item to remove.
+  */
+ private void removeItem( AnyType x )
+ {
+     if( !containsItem( x ) )
+         return;
+     if( filter != null )
+         filter.remove( x );
+
+     BinaryNode<AnyType> newTree;
+
+         // If x is found, it will be splayed to the root by contains
+     if( root.left == nullNode )
+         newTree = root.right;
+     else
+     {
+         // Find the maximum in the left subtree
+         // Splay it to the root; and then attach right child
+         newTree = root.left;
+         newTree = splay( x, newTree );
+         newTree.right = root.right;
+     }
+     root = newTree;
+     size--;
+ }
+
+ /**
+  * Find the smallest item in the tree.
+  * Not the most efficient implementation (uses two passes), but has correct
+  *     amortized behavior.
+  * A good alternative is to first call find with parameter
+  *     smaller than any item in the tree, then call findMin.
+  * @return the smallest item or throw UnderflowException if empty.
+  */
+ public AnyType findMin( )
+ {
+     if( isEmpty( ) )
+        return null;
+
+     BinaryNode<AnyType> ptr = root;
+
+     while( ptr.left != nullNode )
+         ptr = ptr.left;
+
+     root = splay( ptr.element, root );
+     return ptr.element;
+ }
+
+ /**
+  * Find the largest item in the tree.
+  * Not the most efficient implementation (uses two passes), but has correct
+  *     amortized behavior.
+  * A good alternative is to first call find with parameter
+  *     larger than any item in the tree, then call findMax.
+  * @return the largest item or throw UnderflowException if empty.
+  */
+ public AnyType findMax( )
+ {
+     if( isEmpty( ) )
+        return null;
+
+     BinaryNode<AnyType> ptr = root;
+
+     while( ptr.right != nullNode )
+         ptr = ptr.right;
+
+     root = splay( ptr.element, root );
+     return ptr.element;
+ }
+
+ /**
+  * Find an item in the tree.
+  * @param x the item to search for.
+  * @return true if x is found; otherwise false.
+  */
+ public boolean contains( AnyType x )
+ {
+     long start = TreeMetrics.begin( );
+     boolean found = containsItem( x );
+     metrics.end( TreeMetrics.Op.CONTAINS, start );
+     return found;
+ }
+
+ /**
+  * Internal method to find x, splaying it, or the last node on its
+  * path, to the root.
+  * @param x the item to search for.
+  * @return true if x is found; otherwise false.
+  */
+ private boolean containsItem( AnyType x )
+ {
+     if( isEmpty( ) )
+         return false;
+     if( filter != null && !filter.mightContain( x ) )
+         return false;   // Leave the tree as it is; a miss would splay
+			
+     root = splay( x, root );
+
+     TreeMetrics.compared( );
+     boolean found = root.element.compareTo( x ) == 0;
+     if( !found && filter != null )
+         filter.recordFalsePositive( );
+     return found;
+ }
+
+ /**
+  * Switch the Bloom filter on or off. While it is on, contains and
+  * remove return at once, without splaying, for items the filter
+  * rules out. The filter is sized from the tree and resized as the
+  * tree grows. It hashes with hashCode where the tree compares with
+  * compareTo, so items must have equals and hashCode consistent with
+  * compareTo; otherwise present items can be reported absent.
+  * @param on true to keep a filter.
+  */
+ public void setBloomFilter( boolean on )
+ {
+     filter = null;
+     if( on )
+     {
+         filter = new CountingBloomFilter<AnyType>( 2 * size( ), BLOOM_FPP );
+         for( AnyType x : this )
+             filter.add( x );
+     }
+ }
+
+ /**
+  * Return the Bloom filter, for its statistics, or null if it is off.
+  */
+ public CountingBloomFilter<AnyType> bloomFilter( )
+ {
+     return filter;
+ }
+
+ /**
+  * Return the operation counts and latencies of this tree. They are
+  * only collected when TreeMetrics.ENABLED is true.
+  */
+ public TreeMetrics metrics( )
+ {
+     return metrics;
+ }
+
+ /**
+  * Make the tree logically empty.
+  */
+ public void makeEmpty( )
+ {
+     root = nullNode;
+     size = 0;
+     if( filter != null )
+         filter.clear( );
+ }
+
+ /**
+  * Test if the tree is logically empty.
+  * @return true if empty, false otherwise.
+  */
+ public boolean isEmpty( )
+ {
+     return root == nullNode;
+ }
+
+ /**
+  * Return the number of items in the tree.
+  */
+ public int size( )
+ {
+     return size;
+ }
+
+ /**
+  * Profile the depths of the nodes, visiting every node once.
+  * @return the exact shape of the tree.
+  */
+ public TreeShape shape( )
+ {
+     return TreeShape.exact( root, nullNode, t -> t.left, t -> t.right );
+ }
+
+ /**
+  * Estimate the depths of the nodes from random root-to-leaf probes,
+  * which is cheap enough to run on very large trees.
+  * @param samples the number of probes.
+  * @param random the source of the probes.
+  * @return the estimated shape of the tree.
+  */
+ public TreeShape shape( int samples, Random random )
+ {
+     return TreeShape.sampled( root, nullNode, t -> t.left, t -> t.right, samples, random );
+ }
+
+ private BinaryNode<AnyType> header = new BinaryNode<AnyType>( null ); // For splay
+ 
+ /**
+  * Internal method to perform a top-down splay.
+  * The last accessed node becomes the new root.
+  * @param x the target item to splay around.
+  * @param t the root of the subtree to splay.
+  * @return the subtree after the splay.
+  */
+ private BinaryNode<AnyType> splay( AnyType x, BinaryNode<AnyType> t )
+ {
+     BinaryNode<AnyType> leftTreeMax, rightTreeMin;
+     TreeEvents.Splay event = TreeEvents.beginSplay( );
+     int steps = 0, rotations = 0;
+
+     header.left = header.right = nullNode;
+     leftTreeMax = rightTreeMin = header;
+
+     nullNode.element = x;   // Guarantee a match
+
+     for( ; ; )
+     {
+			TreeMetrics.visit( );
+			int compareResult = x.compareTo( t.element );
+			
+         if( compareResult < 0 )
+         {
+             TreeMetrics.compared( );
+             if( x.compareTo( t.left.element ) < 0 )
+             {
+                 t = rotateWithLeftChild( t );
+                 rotations++;
+             }
+             if( t.left == nullNode )
+                 break;
+             // Link Right
+             TreeMetrics.splayed( );
+             steps++;
+             rightTreeMin.left = t;
+             rightTreeMin = t;
+             t = t.left;
+         }
+         else if( compareResult > 0 )
+         {
+             TreeMetrics.compared( );
+             if( x.compareTo( t.right.element ) > 0 )
+             {
+                 t = rotateWithRightChild( t );
+                 rotations++;
+             }
+             if( t.right == nullNode )
+                 break;
+             // Link Left
+             TreeMetrics.splayed( );
+             steps++;
+             leftTreeMax.right = t;
+             leftTreeMax = t;
+             t = t.right;
+         }
+         else
+             break;
+     }	
+
+     leftTreeMax.right = t.left;
+     rightTreeMin.left = t.right;
+     t.left = header.right;
+     t.right = header.left;
+
+     TreeEvents.endSplay( event, this, size, steps, rotations );
+     return t;
+ }
+
+ /**
+  * Rotate binary tree node with left child.
+  * For AVL trees, this is a single rotation for case 1.
+  */
+ private static <AnyType> BinaryNode<AnyType> rotateWithLeftChild( BinaryNode<AnyType> k2 )
+ {
+     TreeMetrics.rotated( );
+     BinaryNode<AnyType> k1 = k2.left;
+     k2.left = k1.right;
+     k1.right = k2;
+     return k1;
+ }
+
+ /**
+  * Rotate binary tree node with right child.
+  * For AVL trees, this is a single rotation for case 4.
+  */
+ private static <AnyType> BinaryNode<AnyType> rotateWithRightChild( BinaryNode<AnyType> k1 )
+ {
+     TreeMetrics.rotated( );
+     BinaryNode<AnyType> k2 = k1.right;
+     k1.right = k2.left;
+     k2.left = k1;
+     return k2;
+ }
+
+ /**
+  * Print the tree contents in sorted order.
+  */
+ public void printTree( )
+ {
+     if( isEmpty( ) )
+         System.out.println( "Empty tree" );
+     else
+     {
+         try
+         {
+             export( (OutputStream) System.out );
+         }
+         catch( IOException e )
+         {
+             throw new UncheckedIOException( e );
+         }
+     }
+ }
+
+ /**
+  * Return an iterator over the items in sorted order.
+  * The walk keeps its own stack, so it does not recurse
+  * however unbalanced the tree is.
+  */
+ public Iterator<AnyType> iterator( )
+ {
+     return new SplayTreeIterator( );
+ }
+
+ /**
+  * Write the items in sorted order, one per line.
+  * @param out the destination.
+  */
+ public void export( Appendable out ) throws IOException
+ {
+     TreeWriter.forThread( ).write( iterator( ), out );
+ }
+
+ /**
+  * Write the items in sorted order as UTF-8 text, one per line.
+  * @param out the destination.
+  */
+ public void export( OutputStream out ) throws IOException
+ {
+     TreeWriter.forThread( ).write( iterator( ), out );
+ }
+
+ /**
+  * Write the items in sorted order as UTF-8 text, one per line.
+  * @param out the destination.
+  */
+ public void export( WritableByteChannel out ) throws IOException
+ {
+     TreeWriter.forThread( ).write( iterator( ), out );
+ }
+
+ /**
+  * Write the tree in the binary form of TreeCodec: its shape, and then
+  * its items. Only trees of Integers can be serialized.
+  * @param out the destination; not closed.
+  */
+ public void serialize( OutputStream out ) throws IOException
+ {
+     TreeCodec.Encoder e = new TreeCodec.Encoder( TreeCodec.SPLAY, 0 );
+     @SuppressWarnings( "unchecked" )
+     BinaryNode<AnyType> [ ] stack = (BinaryNode<AnyType> [ ]) new BinaryNode<?>[ 16 ];
+     int depth = 0;
+     for( BinaryNode<AnyType> t = root; t != nullNode; )
+     {
+         e.node( t.left != nullNode, t.right != nullNode, false );
+         if( t.right != nullNode )
+         {
+             if( depth == stack.length )
+                 stack = Arrays.copyOf( stack, 2 * depth );
+             stack[ depth++ ] = t.right;
+         }
+         t = t.left != nullNode ? t.left : depth > 0 ? stack[ --depth ] : nullNode;
+     }
+
+     for( AnyType x : this )
+         e.key( x );
+     e.writeTo( out );
+ }
+
+ /**
+  * Rebuild, node for node, a tree written by serialize, in linear time
+  * and without recursion, however deep the tree.
+  * @param in the source, read to its end.
+  * @return the tree.
+  */
+ public static SplayTree<Integer> deserialize( InputStream in ) throws IOException
+ {
+     TreeCodec.Decoder d = new TreeCodec.Decoder( in, TreeCodec.SPLAY );
+     int n = d.size( );
+     SplayTree<Integer> tree = new SplayTree<Integer>( );
+     @SuppressWarnings( "unchecked" )
+     BinaryNode<Integer> [ ] nodes = (BinaryNode<Integer> [ ]) new BinaryNode<?>[ n ];
+     for( int i = 0; i < n; i++ )
+         nodes[ i ] = new BinaryNode<>( d.key( i ), tree.nullNode, tree.nullNode );
+     for( int i = 0; i < n; i++ )
+     {
+         if( d.left( i ) >= 0 )
+             nodes[ i ].left = nodes[ d.left( i ) ];
+         if( d.right( i ) >= 0 )
+             nodes[ i ].right = nodes[ d.right( i ) ];
+     }
+     tree.root = n == 0 ? tree.nullNode : nodes[ 0 ];
+     tree.size = n;
+     return tree;
+ }
+
+ /**
+  * Return the items in sorted order.
+  */
+ public Object [ ] toArray( )
+ {
+     return TreeWriter.toArray( iterator( ), 0 );
+ }
+
+ /**
+  * Return an iterator over the items in level order, root first.
+  * Parents come before their children, so inserting the items in
+  * this order into an empty tree rebuilds this shape with little
+  * or no rebalancing.
+  */
+ public Iterator<AnyType> levelOrder( )
+ {
+     return new LevelOrderIterator( );
+ }
+
+ /**
+  * Return the items in level order.
+  */
+ public Object [ ] toLevelOrderArray( )
+ {
+     return TreeWriter.toArray( levelOrder( ), 0 );
+ }
+
+ // In-order iterator; the stack grows with the height of the tree
+ private class SplayTreeIterator implements Iterator<AnyType>
+ {
+     SplayTreeIterator( )
+     {
+         pushLeft( root );
+     }
+
+     public boolean hasNext( )
+     {
+         return depth > 0;
+     }
+
+     public AnyType next( )
+     {
+         if( !hasNext( ) )
+             throw new NoSuchElementException( );
+         BinaryNode<AnyType> t = path[ --depth ];
+         pushLeft( t.right );
+         return t.element;
+     }
+
+     private void pushLeft( BinaryNode<AnyType> t )
+     {
+         for( ; t != nullNode; t = t.left )
+         {
+             if( depth == path.length )
+                 path = Arrays.copyOf( path, 2 * depth );
+             path[ depth++ ] = t;
+         }
+     }
+
+     @SuppressWarnings( "unchecked" )
+     private BinaryNode<AnyType> [ ] path = (BinaryNode<AnyType> [ ]) new BinaryNode<?>[ 16 ];
+     private int depth = 0;
+ }
+
+ // Breadth-first iterator; the queue never holds more than two levels
+ private class LevelOrderIterator implements Iterator<AnyType>
+ {
+     LevelOrderIterator( )
+     {
+         if( root != nullNode )
+             queue.enqueue( root );
+     }
+
+     public boolean hasNext( )
+     {
+         return !queue.isEmpty( );
+     }
+
+     public AnyType next( )
+     {
+         if( !hasNext( ) )
+             throw new NoSuchElementException( );
+         BinaryNode<AnyType> t = queue.dequeue( );
+         if( t.left != nullNode )
+             queue.enqueue( t.left );
+         if( t.right != nullNode )
+             queue.enqueue( t.right );
+         return t.element;
+     }
+
+     private ResizingArrayQueue<BinaryNode<AnyType>> queue = new ResizingArrayQueue<BinaryNode<AnyType>>( );
+ }
+
+ 
+ // Basic node stored in unbalanced binary search trees
+ private static class BinaryNode<AnyType>
+ {
+         // Constructors
+     BinaryNode( AnyType theElement )
+     {
+         this( theElement, null, null );
+     }
+
+     BinaryNode( AnyType theElement, BinaryNode<AnyType> lt, BinaryNode<AnyType> rt )
+     {
+         element  = theElement;
+         left     = lt;
+         right    = rt;
+     }
+
+     AnyType element;            // The data in the node
+     BinaryNode<AnyType> left;   // Left child
+     BinaryNode<AnyType> right;  // Right child
+ }
+
+ private BinaryNode<AnyType> root;
+ private int size;
+ private BinaryNode<AnyType> nullNode;
+
+   /** Filter of the items, or null; see setBloomFilter. */
+ private CountingBloomFilter<AnyType> filter;
+ private static final double BLOOM_FPP = 0.01;
+
+   /** Operation counts and latencies of this tree; see TreeMetrics. */
+ private final TreeMetrics metrics = TreeMetrics.forTree( this );
+ 
+ //Q4a: Insert 100,000 integer keys, from 1 to 100,000 (in that order). Find the average time for each insertion. 
+ private static SplayTree<Integer> a = new SplayTree<Integer>();
+ public static long insert_time(int NUMS)
+ {
+	 	 
+	 long start, total_time = 0;
+	 
+	 for( int i = 1; i <= NUMS; i++)
+     {
+		 start = System.nanoTime();
+		 a.insert( i );
+		 total_time += System.nanoTime() - start;
+     }
+	 
+	 return total_time / NUMS;
+	 
+ }
+ 
+ //Q4b: Do 100,000 searches of random integer keys between 1 and 100,000. Find the average time of each search. 
+ public static long search_time(int NUMS)
+ {
+	 long start, total_time = 0;
+	 
+     Random r = new Random( );
+	 
+	 for( int i = 1; i <= NUMS; i++)
+     {
+		 start =  System.nanoTime();
+		 if (!a.contains( r.nextInt(NUMS-1)+1 ))
+		 {
+			// System.out.println("key " + i + " not found" );
+		 }
+		 total_time += System.nanoTime()-start;
+     }
+	 
+	 return total_time / NUMS;
+	 
+ }
+ 
+//Q4c: Delete all the keys in the trees, starting from 100,000 down to 1 (in that order). Find the average time of each deletion. 
+ public static long delete_time(int NUMS)
+ {
+	 
+	 long start, total_time = 0;
+	 
+	 for( int i = NUMS; i >= 1; i--)
+     {
+		 start = System.nanoTime();
+         a.remove( i );
+		 total_time += System.nanoTime() - start;
+     }
+	 
+	 return total_time / NUMS;
+	 
+}
+ //Q5a: Insert 100,000 of random keys between 1 and 100,000. Find the average time of each search.
+ public static long insertRandom_time(int NUMS)
+ {
+	 long start, total_time = 0;
+	 Random r = new Random();
+	 
+	 for ( int i = 1; i <= NUMS; i++)
+	 {
+		 start = System.nanoTime();
+		 a.insert(r.nextInt(NUMS-1)+1);
+		 total_time += System.nanoTime() - start;
+	 }
+	 return total_time / NUMS;
+	 
+ }
+ // Q5c: Delete all the keys in the trees, with random keys between 1 and 100,000. Find the average time of each deletion. 
+ // Note that not all the keys may be found in the tree. 
+ public static long deleteRandom_time(int NUMS)
+ {
+	 
+	 long start, total_time = 0;
+	 
+	 Random r = new Random( );
+	 
+	 for( int i = NUMS; i >= 1; i--)
+     {
+		 start = System.nanoTime();
+         a.remove(r.nextInt(NUMS-1)+1);
+         //H_temp.checkBalance( );
+		 total_time += System.nanoTime() - start;
+     }
+	 
+	 return total_time / NUMS;
+	 
+}
+
+  // Test program; should print min and max and nothing else
+ public static void main( String [ ] args )
+ {
+ //    AVLTree<Integer> t = new AVLTree<>( );
+     final int NUMS = 100000;  // must be even
+
+     System.out.println( "Create the tree..." );
+     long x[] = new long[6];    
+     x[3]=insertRandom_time(NUMS);
+     x[4]=search_time(NUMS);
+     x[5]=delete_time(NUMS);
+     x[0]=insert_time(NUMS);
+     x[1]=search_time(NUMS);
+     x[2]=delete_time(NUMS);
+ 
+     
+     System.out.println( "The time cost for insert is " + x[0]);  
+    
+     System.out.println( "The time cost for search is " + x[1]);
+        
+     System.out.println( "The time cost for delete is " + x[2] );
+     System.out.println( "Tree after removals:" );
+     a.printTree( );
+  
+     System.out.println( "The time cost for random insert is " + x[3] );
+     
+ //    System.out.println( "Tree after insertions:" );
+     
+     System.out.println( "Second searching...");
+     System.out.println( "The time cost for second search is " + x[4]);
+     
+     System.out.println( "The time cost for random delete is " + x[5]);
+ }
+}
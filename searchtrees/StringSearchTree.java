@@ -0,0 +1,548 @@
+package searchtrees;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+//StringSearchTree class
+//
+//CONSTRUCTION: with no initializer
+//
+//******************PUBLIC OPERATIONS*********************
+//void insert( x )       --> Insert x
+//void remove( x )       --> Remove x
+//boolean contains( x )  --> Return true if x is present
+//boolean contains( k )  --> Return true if UTF-8 bytes k are present
+//String findMin( )      --> Return smallest item
+//String findMax( )      --> Return largest item
+//boolean isEmpty( )     --> Return true if empty; else false
+//int size( )            --> Return number of items
+//void makeEmpty( )      --> Remove all items
+//Iterator iterator( )   --> Return an in-order iterator
+//Object [ ] toArray( )  --> Return items in sorted order
+//******************ERRORS********************************
+//IllegalArgumentException if a String has an unpaired surrogate
+
+/**
+* An AVL tree of Strings, specialized for long keys with shared prefixes.
+* Keys are kept as UTF-8 byte arrays, which need no String object per
+* key, and are ordered byte by byte as unsigned values. That is the
+* order of code points; it differs from String.compareTo only where
+* characters outside the Basic Multilingual Plane meet characters from
+* U+E000 to U+FFFF.
+* A String holding an unpaired surrogate has no UTF-8 form; rather than
+* encode it as '?', which would make distinct keys equal, insert, remove
+* and contains reject it.
+* A descent remembers how long a prefix the key shares with the nearest
+* smaller and larger keys passed so far. Every key between those two
+* shares the shorter of the two prefixes with the search key as well,
+* so each comparison starts after it instead of at the first byte.
+*/
+public class StringSearchTree implements SearchTree<String>
+{
+ /**
+  * Construct the tree.
+  */
+ public StringSearchTree( )
+ {
+     root = null;
+ }
+
+ /**
+  * Insert into the tree; duplicates are ignored.
+  * @param x the item to insert.
+  * @throws IllegalArgumentException if x has an unpaired surrogate.
+  */
+ public void insert( String x )
+ {
+     root = insert( encode( x ), root, 0, 0 );
+ }
+
+ /**
+  * Remove from the tree. Nothing is done if x is not found.
+  * @param x the item to remove.
+  * @throws IllegalArgumentException if x has an unpaired surrogate.
+  */
+ public void remove( String x )
+ {
+     root = remove( encode( x ), root, 0, 0 );
+ }
+
+ /**
+  * Find an item in the tree.
+  * @param x the item to search for.
+  * @return true if x is found.
+  * @throws IllegalArgumentException if x has an unpaired surrogate.
+  */
+ public boolean contains( String x )
+ {
+     return contains( encode( x ) );
+ }
+
+ /**
+  * Find an item, given in UTF-8, in the tree. Callers that already
+  * hold keys as bytes save encoding them again.
+  * @param key the bytes of the item to search for; not changed.
+  * @return true if the item is found.
+  */
+ public boolean contains( byte [ ] key )
+ {
+     int llcp = 0, rlcp = 0;
+     StringNode t = root;
+
+     while( t != null )
+     {
+         int lcp = lcp( key, t.key, Math.min( llcp, rlcp ) );
+         int compareResult = compare( key, t.key, lcp );
+
+         if( compareResult < 0 )
+         {
+             rlcp = lcp;
+             t = t.left;
+         }
+         else if( compareResult > 0 )
+         {
+             llcp = lcp;
+             t = t.right;
+         }
+         else
+             return true;    // Match
+     }
+
+     return false;   // No match
+ }
+
+ /**
+  * Find the smallest item in the tree.
+  * @return smallest item or null if empty.
+  */
+ public String findMin( )
+ {
+     if( root == null )
+         return null;
+     StringNode t = root;
+     while( t.left != null )
+         t = t.left;
+     return decode( t.key );
+ }
+
+ /**
+  * Find the largest item in the tree.
+  * @return the largest item or null if empty.
+  */
+ public String findMax( )
+ {
+     if( root == null )
+         return null;
+     StringNode t = root;
+     while( t.right != null )
+         t = t.right;
+     return decode( t.key );
+ }
+
+ /**
+  * Test if the tree is logically empty.
+  * @return true if empty, false otherwise.
+  */
+ public boolean isEmpty( )
+ {
+     return root == null;
+ }
+
+ /**
+  * Return the number of items in the tree.
+  */
+ public int size( )
+ {
+     return nodeCount;
+ }
+
+ /**
+  * Make the tree logically empty.
+  */
+ public void makeEmpty( )
+ {
+     root = null;
+     nodeCount = 0;
+ }
+
+ /**
+  * Return an iterator over the items in sorted order.
+  * Each item is decoded as it is returned.
+  */
+ public Iterator<String> iterator( )
+ {
+     return new StringTreeIterator( );
+ }
+
+ /**
+  * Return the items in sorted order.
+  */
+ public Object [ ] toArray( )
+ {
+     return TreeWriter.toArray( iterator( ), nodeCount );
+ }
+
+ /**
+  * Internal method to insert into a subtree.
+  * @param x the key to insert.
+  * @param t the node that roots the subtree.
+  * @param llcp the prefix x shares with the nearest smaller key above t.
+  * @param rlcp the prefix x shares with the nearest larger key above t.
+  * @return the new root of the subtree.
+  */
+ private StringNode insert( byte [ ] x, StringNode t, int llcp, int rlcp )
+ {
+     if( t == null )
+     {
+         nodeCount++;
+         return new StringNode( x );
+     }
+
+     int lcp = lcp( x, t.key, Math.min( llcp, rlcp ) );
+     int compareResult = compare( x, t.key, lcp );
+
+     if( compareResult < 0 )
+         t.left = insert( x, t.left, llcp, lcp );
+     else if( compareResult > 0 )
+         t.right = insert( x, t.right, lcp, rlcp );
+     else
+         ;  // Duplicate; do nothing
+     return balance( t );
+ }
+
+ /**
+  * Internal method to remove from a subtree.
+  * @param x the key to remove.
+  * @param t the node that roots the subtree.
+  * @param llcp the prefix x shares with the nearest smaller key above t.
+  * @param rlcp the prefix x shares with the nearest larger key above t.
+  * @return the new root of the subtree.
+  */
+ private StringNode remove( byte [ ] x, StringNode t, int llcp, int rlcp )
+ {
+     if( t == null )
+         return t;   // Item not found; do nothing
+
+     int lcp = lcp( x, t.key, Math.min( llcp, rlcp ) );
+     int compareResult = compare( x, t.key, lcp );
+
+     if( compareResult < 0 )
+         t.left = remove( x, t.left, llcp, lcp );
+     else if( compareResult > 0 )
+         t.right = remove( x, t.right, lcp, rlcp );
+     else
+     {
+         nodeCount--;
+         if( t.left != null && t.right != null ) // Two children
+         {
+             StringNode min = t.right;
+             while( min.left != null )
+                 min = min.left;
+             t.key = min.key;
+             t.right = removeMin( t.right );
+         }
+         else
+             t = ( t.left != null ) ? t.left : t.right;
+     }
+     return balance( t );
+ }
+
+ /**
+  * Internal method to remove the smallest node from a subtree.
+  * @param t the node that roots the subtree; not null.
+  * @return the new root of the subtree.
+  */
+ private StringNode removeMin( StringNode t )
+ {
+     if( t.left == null )
+         return t.right;
+     t.left = removeMin( t.left );
+     return balance( t );
+ }
+
+ /**
+  * Return the length of the common prefix of a and b, given that they
+  * agree on the first from bytes.
+  */
+ private static int lcp( byte [ ] a, byte [ ] b, int from )
+ {
+     int i = Arrays.mismatch( a, from, a.length, b, from, b.length );
+     return i < 0 ? a.length : from + i;
+ }
+
+ /**
+  * Compare a and b, whose common prefix is lcp bytes long.
+  */
+ private static int compare( byte [ ] a, byte [ ] b, int lcp )
+ {
+     if( lcp == a.length )
+         return lcp == b.length ? 0 : -1;
+     if( lcp == b.length )
+         return 1;
+     return ( a[ lcp ] & 0xFF ) - ( b[ lcp ] & 0xFF );
+ }
+
+ private static byte [ ] encode( String x )
+ {
+     for( int i = 0; i < x.length( ); i++ )
+     {
+         char c = x.charAt( i );
+         if( Character.isHighSurrogate( c ) && i + 1 < x.length( )
+             && Character.isLowSurrogate( x.charAt( i + 1 ) ) )
+             i++;
+         else if( Character.isSurrogate( c ) )
+             throw new IllegalArgumentException( "Unpaired surrogate at index " + i );
+     }
+     return x.getBytes( StandardCharsets.UTF_8 );
+ }
+
+ private static String decode( byte [ ] key )
+ {
+     return new String( key, StandardCharsets.UTF_8 );
+ }
+
+ private static final int ALLOWED_IMBALANCE = 1;
+
+ // Assume t is either balanced or within one of being balanced
+ private StringNode balance( StringNode t )
+ {
+     if( t == null )
+         return t;
+
+     if( height( t.left ) - height( t.right ) > ALLOWED_IMBALANCE )
+         if( height( t.left.left ) >= height( t.left.right ) )
+             t = rotateWithLeftChild( t );
+         else
+             t = doubleWithLeftChild( t );
+     else
+     if( height( t.right ) - height( t.left ) > ALLOWED_IMBALANCE )
+         if( height( t.right.right ) >= height( t.right.left ) )
+             t = rotateWithRightChild( t );
+         else
+             t = doubleWithRightChild( t );
+
+     t.height = Math.max( height( t.left ), height( t.right ) ) + 1;
+     return t;
+ }
+
+ /**
+  * Return the height of node t, or -1, if null.
+  */
+ private int height( StringNode t )
+ {
+     return t == null ? -1 : t.height;
+ }
+
+ /**
+  * Rotate binary tree node with left child.
+  * Update heights, then return new root.
+  */
+ private StringNode rotateWithLeftChild( StringNode k2 )
+ {
+     StringNode k1 = k2.left;
+     k2.left = k1.right;
+     k1.right = k2;
+     k2.height = Math.max( height( k2.left ), height( k2.right ) ) + 1;
+     k1.height = Math.max( height( k1.left ), k2.height ) + 1;
+     return k1;
+ }
+
+ /**
+  * Rotate binary tree node with right child.
+  * Update heights, then return new root.
+  */
+ private StringNode rotateWithRightChild( StringNode k1 )
+ {
+     StringNode k2 = k1.right;
+     k1.right = k2.left;
+     k2.left = k1;
+     k1.height = Math.max( height( k1.left ), height( k1.right ) ) + 1;
+     k2.height = Math.max( height( k2.right ), k1.height ) + 1;
+     return k2;
+ }
+
+ /**
+  * Double rotate binary tree node: first left child
+  * with its right child; then node k3 with new left child.
+  */
+ private StringNode doubleWithLeftChild( StringNode k3 )
+ {
+     k3.left = rotateWithRightChild( k3.left );
+     return rotateWithLeftChild( k3 );
+ }
+
+ /**
+  * Double rotate binary tree node: first right child
+  * with its left child; then node k1 with new right child.
+  */
+ private StringNode doubleWithRightChild( StringNode k1 )
+ {
+     k1.right = rotateWithLeftChild( k1.right );
+     return rotateWithRightChild( k1 );
+ }
+
+ // In-order iterator; decodes each key as it is returned
+ private class StringTreeIterator implements Iterator<String>
+ {
+     StringTreeIterator( )
+     {
+         pushLeft( root );
+     }
+
+     public boolean hasNext( )
+     {
+         return depth > 0;
+     }
+
+     public String next( )
+     {
+         if( !hasNext( ) )
+             throw new NoSuchElementException( );
+         StringNode t = path[ --depth ];
+         pushLeft( t.right );
+         return decode( t.key );
+     }
+
+     private void pushLeft( StringNode t )
+     {
+         for( ; t != null; t = t.left )
+             path[ depth++ ] = t;
+     }
+
+     private StringNode [ ] path = new StringNode[ MAX_PATH ];
+     private int depth = 0;
+ }
+
+ private static class StringNode
+ {
+         // Constructors
+     StringNode( byte [ ] theKey )
+     {
+         key      = theKey;
+         height   = 0;
+     }
+
+     byte [ ]    key;          // The key, in UTF-8
+     StringNode  left;         // Left child
+     StringNode  right;        // Right child
+     int         height;       // Height
+ }
+
+   /** The tree root. */
+ private StringNode root;
+
+   /** Number of nodes in the tree. */
+ private int nodeCount;
+
+   // Longest root-to-leaf path of any AVL tree with fewer than 2^40 items
+ private static final int MAX_PATH = 64;
+
+ //URL-like keys: a long common prefix, then a few levels of path
+ private static String[] urls(int NUMS)
+ {
+	 Random r = new Random(39);
+	 String[] keys = new String[NUMS];
+	 for( int i = 0; i < NUMS; i++ )
+		 keys[i] = "https://www.example.com/api/v2/customers/" + r.nextInt(NUMS / 10 + 1)
+				 + "/orders/" + r.nextInt(1000) + "/items/" + i;
+	 return keys;
+ }
+
+ private static long usedMemory()
+ {
+	 Runtime rt = Runtime.getRuntime();
+	 for( int i = 0; i < 3; i++ )
+		 System.gc();
+	 return rt.totalMemory() - rt.freeMemory();
+ }
+
+ //Build a tree of NUMS URL-like keys and measure the heap it holds, keys
+ //included; the keys passed in are dropped once inserted.
+ //Returns the bytes per key for this tree and for AVLTree<String>.
+ public static long[] memory_bytes(int NUMS)
+ {
+	 long before = usedMemory();
+	 StringSearchTree s = new StringSearchTree();
+	 for( String x : urls(NUMS) )
+		 s.insert( x );
+	 long s_bytes = usedMemory() - before;
+	 if( s.size() != NUMS )
+		 System.out.println( "OOPS!!" );
+	 s = null;
+
+	 before = usedMemory();
+	 AVLTree<String> t = new AVLTree<String>();
+	 for( String x : urls(NUMS) )
+		 t.insert( x );
+	 long t_bytes = usedMemory() - before;
+	 if( t.size() != NUMS )
+		 System.out.println( "OOPS!!" );
+	 return new long[] { s_bytes / NUMS, t_bytes / NUMS };
+ }
+
+ //Search for NUMS keys, each present, in random order.
+ //Returns the average time of each search in this tree, given Strings and
+ //given UTF-8 bytes, and in AVLTree<String>.
+ public static long[] search_time(int NUMS)
+ {
+	 String[] keys = urls(NUMS);
+	 StringSearchTree s = new StringSearchTree();
+	 AVLTree<String> t = new AVLTree<String>();
+	 for( String x : keys )
+	 {
+		 s.insert( x );
+		 t.insert( x );
+	 }
+
+	 // Fresh copies, so that AVLTree cannot match by reference
+	 String[] probe = new String[NUMS];
+	 byte[][] bytes = new byte[NUMS][];
+	 Random r = new Random(39);
+	 for( int i = 0; i < NUMS; i++ )
+	 {
+		 probe[i] = new String( keys[r.nextInt(NUMS)] );
+		 bytes[i] = encode( probe[i] );
+	 }
+
+	 // One pass per variant, so that none finds the path warmed by another
+	 long start, s_time = 0, b_time = 0, t_time = 0;
+	 for( int i = 0; i < NUMS; i++ )
+	 {
+		 start = System.nanoTime();
+		 if( !s.contains( probe[i] ) )
+			 System.out.println( "OOPS!!" );
+		 s_time += System.nanoTime() - start;
+	 }
+	 for( int i = 0; i < NUMS; i++ )
+	 {
+		 start = System.nanoTime();
+		 if( !s.contains( bytes[i] ) )
+			 System.out.println( "OOPS!!" );
+		 b_time += System.nanoTime() - start;
+	 }
+	 for( int i = 0; i < NUMS; i++ )
+	 {
+		 start = System.nanoTime();
+		 if( !t.contains( probe[i] ) )
+			 System.out.println( "OOPS!!" );
+		 t_time += System.nanoTime() - start;
+	 }
+	 return new long[] { s_time / NUMS, b_time / NUMS, t_time / NUMS };
+ }
+
+     // Test program
+ public static void main( String [ ] args )
+ {
+     final int NUMS = 200000;
+
+     search_time( NUMS );   // Warm up
+     memory_bytes( NUMS );
+     long [ ] m = memory_bytes( NUMS );
+     System.out.println( "Bytes per key: StringSearchTree " + m[0] + ", AVLTree<String> " + m[1] );
+     long [ ] x = search_time( NUMS );
+     System.out.println( "The time cost for search is " + x[0] + " (given UTF-8: " + x[1] + "; AVLTree<String>: " + x[2] + ")" );
+ }
+}
@@ -0,0 +1,106 @@
+package searchtrees;
+
+import java.util.Random;
+
+//TreeBenchmark class
+//
+//CONSTRUCTION: none; every operation is static
+//
+//******************PUBLIC OPERATIONS*********************
+//long insert_time( t, n ), search_time( t, n ), delete_time( t, n ) --> README Q4a-c
+//long insertRandom_time( t, n ), deleteRandom_time( t, n )  --> README Q5a and Q5c
+//long [ ] workload_time( t, n ) --> Q4a-c then Q5a-c, the six averages in order
+
+/**
+* The README workloads, written against SearchTree so that any tree in
+* the package, or a wrapper around one, can be timed the same way.
+* Every time returned is the average of one operation in nanoseconds.
+*/
+public final class TreeBenchmark
+{
+ private TreeBenchmark( )
+ {
+ }
+
+ //Q4a: Insert NUMS integer keys, from 1 to NUMS (in that order). Returns the average time for each insertion.
+ public static long insert_time(SearchTree<Integer> t, int NUMS)
+ {
+	 long start, total_time = 0;
+	 for( int i = 1; i <= NUMS; i++ )
+	 {
+		 start = System.nanoTime();
+		 t.insert( i );
+		 total_time += System.nanoTime() - start;
+	 }
+	 return total_time / NUMS;
+ }
+
+ //Q4b: Do NUMS searches of random integer keys between 1 and NUMS. Returns the average time of each search.
+ public static long search_time(SearchTree<Integer> t, int NUMS)
+ {
+	 Random r = new Random(40);
+	 long start, total_time = 0, found = 0;
+	 for( int i = 0; i < NUMS; i++ )
+	 {
+		 Integer x = r.nextInt(NUMS) + 1;
+		 start = System.nanoTime();
+		 if( t.contains( x ) )
+			 found++;
+		 total_time += System.nanoTime() - start;
+	 }
+	 if( found == 42 )
+		 System.out.println();
+	 return total_time / NUMS;
+ }
+
+ //Q4c: Delete all the keys, from NUMS down to 1 (in that order). Returns the average time of each deletion.
+ public static long delete_time(SearchTree<Integer> t, int NUMS)
+ {
+	 long start, total_time = 0;
+	 for( int i = NUMS; i >= 1; i-- )
+	 {
+		 start = System.nanoTime();
+		 t.remove( i );
+		 total_time += System.nanoTime() - start;
+	 }
+	 return total_time / NUMS;
+ }
+
+ //Q5a: Insert NUMS random keys between 1 and NUMS. Returns the average time of each insertion.
+ public static long insertRandom_time(SearchTree<Integer> t, int NUMS)
+ {
+	 Random r = new Random(41);
+	 long start, total_time = 0;
+	 for( int i = 0; i < NUMS; i++ )
+	 {
+		 Integer x = r.nextInt(NUMS) + 1;
+		 start = System.nanoTime();
+		 t.insert( x );
+		 total_time += System.nanoTime() - start;
+	 }
+	 return total_time / NUMS;
+ }
+
+ //Q5c: Delete NUMS random keys between 1 and NUMS; not all of them are present.
+ //Returns the average time of each deletion.
+ public static long deleteRandom_time(SearchTree<Integer> t, int NUMS)
+ {
+	 Random r = new Random(42);
+	 long start, total_time = 0;
+	 for( int i = 0; i < NUMS; i++ )
+	 {
+		 Integer x = r.nextInt(NUMS) + 1;
+		 start = System.nanoTime();
+		 t.remove( x );
+		 total_time += System.nanoTime() - start;
+	 }
+	 return total_time / NUMS;
+ }
+
+ //Runs Q4a-c and then Q5a-c on t. Returns the six average times in order.
+ public static long[] workload_time(SearchTree<Integer> t, int NUMS)
+ {
+	 return new long[] { insert_time(t, NUMS), search_time(t, NUMS), delete_time(t, NUMS),
+			 insertRandom_time(t, NUMS), search_time(t, NUMS), deleteRandom_time(t, NUMS) };
+ }
+}
@@ -0,0 +1,416 @@
+package searchtrees;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+
+//TreeCodec class
+//
+//CONSTRUCTION: through the serialize and deserialize methods of the trees
+//
+//******************PUBLIC OPERATIONS*********************
+//Encoder: void node( l, r, f ) --> Add the next node in preorder
+//         void key( x )       --> Add the next item in order
+//         void writeTo( out ) --> Write the whole tree
+//Decoder: int size( )         --> Return number of nodes
+//         int left( i ), right( i ) --> Return the children of node i, or -1
+//         int key( i )        --> Return the item of node i
+//         boolean flag( i )   --> Return the flag bit of node i
+//******************ERRORS********************************
+//IOException if the input is not a serialized tree of the expected kind
+
+/**
+* The binary form shared by the serialize and deserialize methods of the
+* trees. After a 4-byte magic number, a kind byte and the node count as
+* a varint come the shape bits and then the items.
+* The shape is a preorder walk with two bits per node, whether it has a
+* left and a right child, plus for some trees one flag bit: the color
+* in a RedBlackTree and the lazy deletion mark in an AVLTree. Anything
+* else a node holds, such as an AVL height or the subtree counts of a
+* RedBlackTree, follows from the shape and is not written.
+* The items are Integers in order: the first as a zigzag varint, then
+* each as the varint of its distance from the one before, which for a
+* dense set of keys is one byte each.
+* Decoding recovers the children and item of every node, numbered in
+* preorder, in a single pass over the bits without recursion, so the
+* trees can rebuild themselves in linear time, however deep.
+*/
+final class TreeCodec
+{
+ static final int BST = 1;
+ static final int AVL = 2;
+ static final int SPLAY = 3;
+ static final int RED_BLACK = 4;
+
+ private static final int MAGIC = 0x5A535453;     // "STSZ"
+ private static final int LEFT = 1;
+ private static final int RIGHT = 2;
+ private static final int FLAG = 4;
+
+ private TreeCodec( )
+ {
+ }
+
+ // Return 3 for the trees that keep a flag bit per node, else 2
+ private static int bitsPerNode( int kind )
+ {
+     return kind == AVL || kind == RED_BLACK ? 3 : 2;
+ }
+
+ /**
+  * Gathers a tree, node by node, and writes it.
+  */
+ static final class Encoder
+ {
+     /**
+      * @param kind the kind of tree.
+      * @param sizeHint the expected number of nodes.
+      */
+     Encoder( int kind, int sizeHint )
+     {
+         this.kind = kind;
+         this.bitsPerNode = bitsPerNode( kind );
+         bits = new byte[ Math.max( 16, ( sizeHint * bitsPerNode + 7 ) / 8 ) ];
+         keys = new byte[ Math.max( 16, sizeHint + 8 ) ];
+     }
+
+     /**
+      * Add the next node in preorder.
+      */
+     void node( boolean left, boolean right, boolean flag )
+     {
+         int b = ( left ? LEFT : 0 ) | ( right ? RIGHT : 0 ) | ( flag ? FLAG : 0 );
+         for( int i = 0; i < bitsPerNode; i++, nbits++ )
+         {
+             int at = (int) ( nbits >>> 3 );
+             if( at == bits.length )
+                 bits = Arrays.copyOf( bits, 2 * bits.length );
+             if( ( b >>> i & 1 ) != 0 )
+                 bits[ at ] |= 1 << ( nbits & 7 );
+         }
+         nodes++;
+     }
+
+     /**
+      * Add the next item in order.
+      * @param x the item, which must be an Integer.
+      */
+     void key( Object x )
+     {
+         if( !( x instanceof Integer ) )
+             throw new IllegalArgumentException( "Only trees of Integers can be serialized" );
+         int v = (Integer) x;
+         if( nkeys++ == 0 )
+             putVarint( ( ( v << 1 ) ^ ( v >> 31 ) ) & 0xFFFFFFFFL );
+         else
+             putVarint( (long) v - previous );
+         previous = v;
+     }
+
+     /**
+      * Write the header, the shape and the items.
+      * @param out the destination; not closed or flushed.
+      */
+     void writeTo( OutputStream out ) throws IOException
+     {
+         if( nkeys != nodes )
+             throw new IllegalStateException( nodes + " nodes but " + nkeys + " items" );
+         byte [ ] header = new byte[ 15 ];
+         int h = 0;
+         for( int i = 0; i < 4; i++ )
+             header[ h++ ] = (byte) ( MAGIC >>> 8 * i );
+         header[ h++ ] = (byte) kind;
+         for( long v = nodes; ; v >>>= 7 )
+         {
+             if( v < 0x80 )
+             {
+                 header[ h++ ] = (byte) v;
+                 break;
+             }
+             header[ h++ ] = (byte) ( v | 0x80 );
+         }
+         out.write( header, 0, h );
+         out.write( bits, 0, (int) ( ( nbits + 7 ) >>> 3 ) );
+         out.write( keys, 0, nkeyBytes );
+     }
+
+     // Appends v, which must not be negative, 7 bits at a time
+     private void putVarint( long v )
+     {
+         if( keys.length - nkeyBytes < 10 )
+             keys = Arrays.copyOf( keys, 2 * keys.length );
+         for( ; v >= 0x80; v >>>= 7 )
+             keys[ nkeyBytes++ ] = (byte) ( v | 0x80 );
+         keys[ nkeyBytes++ ] = (byte) v;
+     }
+
+     private final int kind;
+     private final int bitsPerNode;
+     private byte [ ] bits;
+     private long nbits;
+     private byte [ ] keys;
+     private int nkeyBytes;
+     private int nodes;
+     private int nkeys;
+     private int previous;
+ }
+
+ /**
+  * Reads a whole tree and lays out its nodes in preorder.
+  */
+ static final class Decoder
+ {
+     /**
+      * Read a serialized tree to the end of the stream.
+      * @param in the source.
+      * @param kind the kind of tree expected.
+      */
+     Decoder( InputStream in, int kind ) throws IOException
+     {
+         data = in.readAllBytes( );
+         int magic = 0;
+         for( int i = 0; i < 4 && i < data.length; i++ )
+             magic |= ( data[ i ] & 0xFF ) << 8 * i;
+         if( data.length < 6 || magic != MAGIC || data[ 4 ] != kind )
+             throw new IOException( "Not a serialized tree of this kind" );
+         pos = 5;
+         long count = getVarint( );
+         int bitsPerNode = bitsPerNode( kind );
+         long bitBytes = ( count * bitsPerNode + 7 ) / 8;
+         if( count > Integer.MAX_VALUE || pos + bitBytes > data.length )
+             throw new IOException( "Truncated tree" );
+         n = (int) count;
+         int bitStart = pos;
+         pos += (int) bitBytes;
+
+         shape = new byte[ n ];
+         for( int i = 0; i < n; i++ )
+             for( int j = 0; j < bitsPerNode; j++ )
+             {
+                 long b = (long) i * bitsPerNode + j;
+                 if( ( data[ bitStart + (int) ( b >>> 3 ) ] >>> ( b & 7 ) & 1 ) != 0 )
+                     shape[ i ] |= 1 << j;
+             }
+         link( );
+         if( pos != data.length )
+             throw new IOException( "Trailing bytes after tree" );
+     }
+
+     int size( )
+     {
+         return n;
+     }
+
+     int left( int i )
+     {
+         return left[ i ];
+     }
+
+     int right( int i )
+     {
+         return right[ i ];
+     }
+
+     int key( int i )
+     {
+         return keys[ i ];
+     }
+
+     boolean flag( int i )
+     {
+         return ( shape[ i ] & FLAG ) != 0;
+     }
+
+     /**
+      * Internal method to find the children and item of every node.
+      * Node v, in preorder, goes where the walk last left a gap: the
+      * left child of the node before it if that one has a left child,
+      * else the right child of the nearest node whose left subtree is
+      * done and whose right child is still to come. A node's item is
+      * read once its left subtree is done, which is in-order.
+      */
+     private void link( ) throws IOException
+     {
+         left = new int[ n ];
+         right = new int[ n ];
+         keys = new int[ n ];
+         Arrays.fill( left, -1 );
+         Arrays.fill( right, -1 );
+
+         int [ ] stack = new int[ 16 ];
+         int depth = 0;
+         int parent = -1;
+         boolean asRight = false;
+         for( int v = 0; v < n; v++ )
+         {
+             if( v > 0 )
+             {
+                 if( parent < 0 )
+                     throw new IOException( "Malformed tree shape" );
+                 if( asRight )
+                     right[ parent ] = v;
+                 else
+                     left[ parent ] = v;
+             }
+
+             if( ( shape[ v ] & LEFT ) != 0 )
+             {
+                 if( depth == stack.length )
+                     stack = Arrays.copyOf( stack, 2 * depth );
+                 stack[ depth++ ] = parent = v;
+                 asRight = false;
+                 continue;
+             }
+
+             int u = v;
+             keys[ u ] = nextKey( );
+             while( ( shape[ u ] & RIGHT ) == 0 && depth > 0 )
+                 keys[ u = stack[ --depth ] ] = nextKey( );
+             parent = ( shape[ u ] & RIGHT ) != 0 ? u : -1;
+             asRight = true;
+         }
+         if( n > 0 && parent >= 0 )
+             throw new IOException( "Malformed tree shape" );
+     }
+
+     private int nextKey( ) throws IOException
+     {
+         long v = getVarint( );
+         if( read++ == 0 )
+             previous = (int) ( v >>> 1 ) ^ -(int) ( v & 1 );
+         else
+         {
+             if( v > 0xFFFFFFFFL || previous + v > Integer.MAX_VALUE )
+                 throw new IOException( "Item out of range" );
+             previous += v;
+         }
+         return previous;
+     }
+
+     private long getVarint( ) throws IOException
+     {
+         long v = 0;
+         for( int shift = 0; shift < 64; shift += 7 )
+         {
+             if( pos == data.length )
+                 throw new IOException( "Truncated tree" );
+             byte b = data[ pos++ ];
+             v |= (long) ( b & 0x7F ) << shift;
+             if( b >= 0 )
+                 return v;
+         }
+         throw new IOException( "Malformed varint" );
+     }
+
+     private final byte [ ] data;
+     private int pos;
+     private final int n;
+     private final byte [ ] shape;     // LEFT, RIGHT and FLAG bits of each node
+     private int [ ] left;
+     private int [ ] right;
+     private int [ ] keys;
+     private int read;
+     private int previous;
+ }
+
+ //Ship a tree of NUMS random keys: export it as text in level order, which keeps
+ //the shape of a BinarySearchTree, and insert every key into a new tree; or
+ //serialize it and deserialize it. Returns the text size and time in ms,
+ //then the binary size and time in ms.
+ public static long[] ship_time(String kind, int NUMS) throws IOException
+ {
+	 Random r = new Random(44);
+	 SearchTree<Integer> t = newTree( kind );
+	 for( int i = 0; i < NUMS; i++ )
+		 t.insert( r.nextInt(4 * NUMS) );
+
+	 long start = System.nanoTime();
+	 ByteArrayOutputStream text = new ByteArrayOutputStream();
+	 TreeWriter.forThread().write( levelOrder( t ), text );
+	 SearchTree<Integer> u = newTree( kind );
+	 BufferedReader in = new BufferedReader( new InputStreamReader(
+			 new ByteArrayInputStream( text.toByteArray() ), StandardCharsets.UTF_8 ) );
+	 for( String line; ( line = in.readLine() ) != null; )
+		 u.insert( Integer.parseInt( line ) );
+	 long text_time = (System.nanoTime() - start) / 1000000;
+
+	 start = System.nanoTime();
+	 ByteArrayOutputStream bin = new ByteArrayOutputStream();
+	 serialize( t, bin );
+	 u = deserialize( kind, new ByteArrayInputStream( bin.toByteArray() ) );
+	 long bin_time = (System.nanoTime() - start) / 1000000;
+	 if( !Arrays.equals( t.toArray(), u.toArray() ) )
+		 System.out.println( "OOPS!!" );
+	 return new long[] { text.size(), text_time, bin.size(), bin_time };
+ }
+
+ private static SearchTree<Integer> newTree(String kind)
+ {
+	 switch( kind )
+	 {
+		 case "BinarySearchTree": return new BinarySearchTree<Integer>();
+		 case "AVLTree": return new AVLTree<Integer>();
+		 case "SplayTree": return new SplayTree<Integer>();
+		 default: return new RedBlackTree<Integer>();
+	 }
+ }
+
+ private static Iterator<Integer> levelOrder(SearchTree<Integer> t)
+ {
+	 if( t instanceof BinarySearchTree )
+		 return ( (BinarySearchTree<Integer>) t ).levelOrder();
+	 else if( t instanceof AVLTree )
+		 return ( (AVLTree<Integer>) t ).levelOrder();
+	 else if( t instanceof SplayTree )
+		 return ( (SplayTree<Integer>) t ).levelOrder();
+	 else
+		 return ( (RedBlackTree<Integer>) t ).levelOrder();
+ }
+
+ private static void serialize(SearchTree<Integer> t, OutputStream out) throws IOException
+ {
+	 if( t instanceof BinarySearchTree )
+		 ( (BinarySearchTree<Integer>) t ).serialize( out );
+	 else if( t instanceof AVLTree )
+		 ( (AVLTree<Integer>) t ).serialize( out );
+	 else if( t instanceof SplayTree )
+		 ( (SplayTree<Integer>) t ).serialize( out );
+	 else
+		 ( (RedBlackTree<Integer>) t ).serialize( out );
+ }
+
+ private static SearchTree<Integer> deserialize(String kind, InputStream in) throws IOException
+ {
+	 switch( kind )
+	 {
+		 case "BinarySearchTree": return BinarySearchTree.deserialize( in );
+		 case "AVLTree": return AVLTree.deserialize( in );
+		 case "SplayTree": return SplayTree.deserialize( in );
+		 default: return RedBlackTree.deserialize( in );
+	 }
+ }
+
+     // Test program
+ public static void main( String [ ] args ) throws IOException
+ {
+     final int NUMS = 1000000;
+     String [ ] kinds = { "BinarySearchTree", "AVLTree", "SplayTree", "RedBlackTree" };
+
+     for( String kind : kinds )
+         ship_time( kind, NUMS );   // Warm up
+     for( String kind : kinds )
+     {
+         long [ ] x = ship_time( kind, NUMS );
+         System.out.println( kind + ": text " + x[0] + " bytes, " + x[1] + " ms to export and reinsert; binary "
+                 + x[2] + " bytes, " + x[3] + " ms to serialize and deserialize" );
+     }
+ }
+}
@@ -0,0 +1,361 @@
+package searchtrees;
+
+import java.util.Set;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.SettingControl;
+import jdk.jfr.SettingDefinition;
+import jdk.jfr.Threshold;
+
+//TreeEvents class
+//
+//CONSTRUCTION: none; holds the event types
+//
+//******************EVENTS********************************
+//searchtrees.AvlRebalance   --> An insert or remove rotated a node at least minHeight high
+//searchtrees.Splay          --> A splay took at least minSteps steps
+//searchtrees.RedBlackFixup  --> An insert or remove fixup looped at least minSteps times
+//searchtrees.BulkOperation  --> A removeRange, buildSorted or compact took over 1 ms
+
+/**
+* Java Flight Recorder events for the expensive structural work in the
+* trees. Each carries the class and identity hash of the tree, its size
+* and the duration of the work.
+* <p>
+* The trees start an event with one of the begin methods and hand it,
+* with what they counted, to the matching end method, which commits it
+* only if shouldCommit says so. Unless a running recording has enabled
+* the event type, the begin methods return null without allocating and
+* the end methods return at once, so the trees pay only for the step
+* counts they keep anyway. Until Flight Recorder has been started in
+* the JVM that costs one static read; afterwards one more read of the
+* enabled flag of the event type, which JFR keeps up to date as
+* recordings start, stop and change settings. The events are disabled
+* by default, so a recording made with the JDK's default or profile
+* settings leaves them off; enable them by name. The step thresholds
+* are JFR settings, changed like any other, e.g.
+* recording.enable( "searchtrees.Splay" ).with( "minSteps", "64" );
+* the duration thresholds are the standard "threshold" setting.
+*/
+public final class TreeEvents
+{
+ private TreeEvents( )
+ {
+ }
+
+ /**
+  * Start the event of an AVL insert or remove.
+  * @return the event, or null if Flight Recorder is not running.
+  */
+ static AvlRebalance beginRebalance( )
+ {
+     return enabled( Types.REBALANCE ) ? begin( new AvlRebalance( ) ) : null;
+ }
+
+ /**
+  * End the event of an AVL insert or remove.
+  * @param height the height of the highest node rotated.
+  */
+ static void endRebalance( AvlRebalance e, Object tree, int size, String operation, int height, int rotations )
+ {
+     if( e == null )
+         return;
+     e.operation = operation;
+     e.height = height;
+     e.rotations = rotations;
+     e.finish( tree, size );
+ }
+
+ /**
+  * Start the event of a splay.
+  * @return the event, or null if Flight Recorder is not running.
+  */
+ static Splay beginSplay( )
+ {
+     return enabled( Types.SPLAY ) ? begin( new Splay( ) ) : null;
+ }
+
+ /**
+  * End the event of a splay.
+  * @param steps the number of nodes linked into the side trees.
+  */
+ static void endSplay( Splay e, Object tree, int size, int steps, int rotations )
+ {
+     if( e == null )
+         return;
+     e.steps = steps;
+     e.rotations = rotations;
+     e.finish( tree, size );
+ }
+
+ /**
+  * Start the event of a red-black fixup.
+  * @return the event, or null if Flight Recorder is not running.
+  */
+ static RedBlackFixup beginFixup( )
+ {
+     return enabled( Types.FIXUP ) ? begin( new RedBlackFixup( ) ) : null;
+ }
+
+ /**
+  * End the event of a red-black fixup.
+  * @param steps the number of times the fixup loop ran.
+  */
+ static void endFixup( RedBlackFixup e, Object tree, int size, String operation, int steps )
+ {
+     if( e == null )
+         return;
+     e.operation = operation;
+     e.steps = steps;
+     e.finish( tree, size );
+ }
+
+ /**
+  * Start the event of a bulk operation.
+  * @return the event, or null if Flight Recorder is not running.
+  */
+ static BulkOperation beginBulk( )
+ {
+     return enabled( Types.BULK ) ? begin( new BulkOperation( ) ) : null;
+ }
+
+ /**
+  * End the event of a bulk operation.
+  * @param items the number of items added or removed.
+  */
+ static void endBulk( BulkOperation e, Object tree, int size, String operation, int items )
+ {
+     if( e == null )
+         return;
+     e.operation = operation;
+     e.items = items;
+     e.finish( tree, size );
+ }
+
+ private static <E extends Event> E begin( E e )
+ {
+     e.begin( );
+     return e;
+ }
+
+ /**
+  * Internal method to test if a recording wants events of a type.
+  * Types is loaded only once Flight Recorder is running, so looking up
+  * the event types costs nothing in a JVM that never records.
+  */
+ private static boolean enabled( int type )
+ {
+     return FlightRecorder.isInitialized( ) && Types.ALL[ type ].isEnabled( );
+ }
+
+   // The event types, looked up on first use
+ private static final class Types
+ {
+     static final int REBALANCE = 0;
+     static final int SPLAY = 1;
+     static final int FIXUP = 2;
+     static final int BULK = 3;
+
+     static final EventType [ ] ALL = {
+         EventType.getEventType( AvlRebalance.class ),
+         EventType.getEventType( Splay.class ),
+         EventType.getEventType( RedBlackFixup.class ),
+         EventType.getEventType( BulkOperation.class ) };
+ }
+
+ /**
+  * The fields and commit logic shared by every tree event. Off unless
+  * a recording enables it, since the trees fire these on hot paths.
+  */
+ @Category( "Search Trees" )
+ @Enabled( false )
+ public abstract static class TreeEvent extends Event
+ {
+     @Label( "Tree Class" )
+     String tree;
+
+     @Label( "Tree Identity" )
+     @Description( "The identity hash code of the tree" )
+     int treeId;
+
+     @Label( "Size" )
+     @Description( "The number of items in the tree" )
+     int size;
+
+     /**
+      * End the event and commit it if the recording wants it.
+      * @param source the tree the work was done on.
+      * @param items the number of items in it.
+      */
+     final void finish( Object source, int items )
+     {
+         end( );
+         if( shouldCommit( ) )
+         {
+             tree = source.getClass( ).getSimpleName( );
+             treeId = System.identityHashCode( source );
+             size = items;
+             commit( );
+         }
+     }
+ }
+
+ @Name( "searchtrees.AvlRebalance" )
+ @Label( "AVL Rebalance" )
+ @Description( "An AVL insert or remove that rotated a node high in the tree" )
+ public static final class AvlRebalance extends TreeEvent
+ {
+     @Label( "Operation" )
+     String operation;
+
+     @Label( "Height" )
+     @Description( "The height of the highest node rotated" )
+     int height;
+
+     @Label( "Rotations" )
+     int rotations;
+
+     @Label( "Minimum Height" )
+     @Name( "minHeight" )
+     @SettingDefinition
+     protected boolean minHeight( MinHeight setting )
+     {
+         return height >= setting.value;
+     }
+ }
+
+ @Name( "searchtrees.Splay" )
+ @Label( "Splay" )
+ @Description( "A long top-down splay" )
+ public static final class Splay extends TreeEvent
+ {
+     @Label( "Steps" )
+     @Description( "The number of nodes linked into the side trees" )
+     int steps;
+
+     @Label( "Rotations" )
+     int rotations;
+
+     @Label( "Minimum Steps" )
+     @Name( "minSteps" )
+     @SettingDefinition
+     protected boolean minSteps( MinSplaySteps setting )
+     {
+         return steps >= setting.value;
+     }
+ }
+
+ @Name( "searchtrees.RedBlackFixup" )
+ @Label( "Red-Black Fixup" )
+ @Description( "An insertFixup or removeFixup that climbed far up the tree" )
+ public static final class RedBlackFixup extends TreeEvent
+ {
+     @Label( "Operation" )
+     String operation;
+
+     @Label( "Steps" )
+     @Description( "The number of times the fixup loop ran" )
+     int steps;
+
+     @Label( "Minimum Steps" )
+     @Name( "minSteps" )
+     @SettingDefinition
+     protected boolean minSteps( MinFixupSteps setting )
+     {
+         return steps >= setting.value;
+     }
+ }
+
+ @Name( "searchtrees.BulkOperation" )
+ @Label( "Bulk Operation" )
+ @Description( "A removeRange, buildSorted or compact" )
+ @Threshold( "1 ms" )
+ public static final class BulkOperation extends TreeEvent
+ {
+     @Label( "Operation" )
+     String operation;
+
+     @Label( "Items" )
+     @Description( "The number of items added or removed" )
+     int items;
+ }
+
+ /**
+  * A setting holding the smallest value for which an event is
+  * recorded. When several recordings set it, the smallest wins.
+  */
+ public abstract static class Minimum extends SettingControl
+ {
+     protected Minimum( int defaultValue )
+     {
+         this.defaultValue = defaultValue;
+         this.value = defaultValue;
+     }
+
+     public String combine( Set<String> values )
+     {
+         int min = Integer.MAX_VALUE;
+         for( String v : values )
+             min = Math.min( min, parse( v ) );
+         return Integer.toString( values.isEmpty( ) ? defaultValue : min );
+     }
+
+     public void setValue( String v )
+     {
+         value = parse( v );
+     }
+
+     public String getValue( )
+     {
+         return Integer.toString( value );
+     }
+
+     private int parse( String v )
+     {
+         try
+         {
+             return Integer.parseInt( v.trim( ) );
+         }
+         catch( NumberFormatException e )
+         {
+             return defaultValue;
+         }
+     }
+
+     private final int defaultValue;
+     volatile int value;
+ }
+
+   // An AVL subtree of height 8 holds at least 88 items
+ public static final class MinHeight extends Minimum
+ {
+     public MinHeight( )
+     {
+         super( 8 );
+     }
+ }
+
+ public static final class MinSplaySteps extends Minimum
+ {
+     public MinSplaySteps( )
+     {
+         super( 32 );
+     }
+ }
+
+   // A fixup loops more than twice only while case 1 recolors upwards
+ public static final class MinFixupSteps extends Minimum
+ {
+     public MinFixupSteps( )
+     {
+         super( 4 );
+     }
+ }
+}
@@ -0,0 +1,415 @@
+package searchtrees;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Cleaner;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+//TreeMetrics class
+//
+//CONSTRUCTION: through forTree( t ), once per tree
+//
+//******************PUBLIC OPERATIONS*********************
+//static boolean ENABLED  --> True if -Dsearchtrees.metrics=true was given
+//long operations( op )   --> Return the number of op operations
+//long comparisons( op ), nodeVisits( op ), rotations( op ), splaySteps( op )
+//LatencyHistogram latency( op ) --> Return the latencies of op
+//void reset( )           --> Set everything back to zero
+//void unregister( )      --> Remove the MBean before the tree is collected
+//******************ERRORS********************************
+//IllegalStateException if the MBean cannot be registered
+
+/**
+* Operation counts and latencies for one tree, kept only when the
+* JVM is started with -Dsearchtrees.metrics=true. ENABLED is a static
+* final read once at class loading, so when it is false every hook in
+* the trees is a test of a constant that the JIT folds away, and the
+* instrumented trees run the same code as before.
+* <p>
+* While an operation runs its comparisons, node visits, rotations and
+* splay steps are counted in plain fields of a per-thread probe. When
+* it ends they are added to LongAdders, which stripe themselves across
+* cells under contention, and its latency goes to a LatencyHistogram.
+* Each tree registers its own instance with the platform MBean server
+* as searchtrees:type=TreeMetrics,tree=&lt;class&gt;,id=&lt;n&gt;, n counting the
+* trees made since the JVM started, so two trees of one class never mix
+* their counts. The MBean is removed when the tree is garbage collected,
+* or sooner by unregister. When metrics are disabled every tree shares
+* one idle instance and nothing is registered.
+*/
+public final class TreeMetrics implements TreeMetricsMXBean
+{
+ /**
+  * True if metrics are collected; read from the searchtrees.metrics
+  * system property.
+  */
+ public static final boolean ENABLED = Boolean.getBoolean( "searchtrees.metrics" );
+
+ /**
+  * The operations measured.
+  */
+ public enum Op
+ {
+     INSERT, REMOVE, CONTAINS;
+
+     String label( )
+     {
+         return name( ).toLowerCase( );
+     }
+ }
+
+ /**
+  * Create the metrics of a tree, registering them with JMX if they are
+  * enabled.
+  * @param tree the tree, which must not be reachable from the metrics.
+  * @return the metrics, or the shared idle instance if they are disabled.
+  */
+ public static TreeMetrics forTree( Object tree )
+ {
+     if( !ENABLED )
+         return DISABLED;
+     String type = tree.getClass( ).getSimpleName( );
+     TreeMetrics metrics = new TreeMetrics( type, SEQUENCE.incrementAndGet( ) );
+     try
+     {
+         metrics.name = new ObjectName( "searchtrees:type=TreeMetrics,tree=" + type + ",id=" + metrics.id );
+         ManagementFactory.getPlatformMBeanServer( ).registerMBean( metrics, metrics.name );
+     }
+     catch( JMException e )
+     {
+         throw new IllegalStateException( "Cannot register the metrics of " + type, e );
+     }
+     ObjectName name = metrics.name;
+     CLEANER.register( tree, ( ) -> unregister( name ) );
+     return metrics;
+ }
+
+ private TreeMetrics( String tree, long id )
+ {
+     this.tree = tree;
+     this.id = id;
+     for( int i = 0; i < counters.length; i++ )
+         counters[ i ] = new Counters( );
+ }
+
+ /**
+  * Remove the MBean now instead of when the tree is collected. The
+  * counts are still kept.
+  */
+ public void unregister( )
+ {
+     if( name != null )
+         unregister( name );
+ }
+
+ private static void unregister( ObjectName name )
+ {
+     try
+     {
+         if( ManagementFactory.getPlatformMBeanServer( ).isRegistered( name ) )
+             ManagementFactory.getPlatformMBeanServer( ).unregisterMBean( name );
+     }
+     catch( JMException e )
+     {
+         // Unregistered by another thread meanwhile
+     }
+ }
+
+ /**
+  * Start an operation on the calling thread, dropping whatever was
+  * counted since the last one ended.
+  * @return the start time, to be passed to end.
+  */
+ static long begin( )
+ {
+     if( !ENABLED )
+         return 0;
+     PROBE.get( ).clear( );
+     return System.nanoTime( );
+ }
+
+ /**
+  * End an operation on the calling thread, adding what it counted
+  * and how long it took to the totals of op.
+  * @param op the operation that ran.
+  * @param start the value begin returned.
+  */
+ void end( Op op, long start )
+ {
+     if( !ENABLED )
+         return;
+     long elapsed = System.nanoTime( ) - start;
+     Probe p = PROBE.get( );
+     Counters c = counters[ op.ordinal( ) ];
+     c.operations.increment( );
+     c.comparisons.add( p.comparisons );
+     c.nodeVisits.add( p.nodeVisits );
+     c.rotations.add( p.rotations );
+     c.splaySteps.add( p.splaySteps );
+     c.latency.record( elapsed );
+     p.clear( );
+ }
+
+ /**
+  * Count a node visited and the comparison made against its key.
+  */
+ static void visit( )
+ {
+     if( ENABLED )
+     {
+         Probe p = PROBE.get( );
+         p.nodeVisits++;
+         p.comparisons++;
+     }
+ }
+
+ /**
+  * Count a comparison made without moving to a new node.
+  */
+ static void compared( )
+ {
+     if( ENABLED )
+         PROBE.get( ).comparisons++;
+ }
+
+ /**
+  * Count a single rotation; a double rotation counts twice.
+  */
+ static void rotated( )
+ {
+     if( ENABLED )
+         PROBE.get( ).rotations++;
+ }
+
+ /**
+  * Count one step of a splay, that is one link made while descending.
+  */
+ static void splayed( )
+ {
+     if( ENABLED )
+         PROBE.get( ).splaySteps++;
+ }
+
+ /**
+  * Return the number of op operations completed.
+  */
+ public long operations( Op op )
+ {
+     return counters[ op.ordinal( ) ].operations.sum( );
+ }
+
+ /**
+  * Return the number of comparisons the op operations made.
+  */
+ public long comparisons( Op op )
+ {
+     return counters[ op.ordinal( ) ].comparisons.sum( );
+ }
+
+ /**
+  * Return the number of nodes the op operations visited.
+  */
+ public long nodeVisits( Op op )
+ {
+     return counters[ op.ordinal( ) ].nodeVisits.sum( );
+ }
+
+ /**
+  * Return the number of single rotations the op operations did.
+  */
+ public long rotations( Op op )
+ {
+     return counters[ op.ordinal( ) ].rotations.sum( );
+ }
+
+ /**
+  * Return the number of splay steps the op operations took.
+  */
+ public long splaySteps( Op op )
+ {
+     return counters[ op.ordinal( ) ].splaySteps.sum( );
+ }
+
+ /**
+  * Return the latencies of the op operations.
+  */
+ public LatencyHistogram latency( Op op )
+ {
+     return counters[ op.ordinal( ) ].latency;
+ }
+
+ public String getTree( )
+ {
+     return tree;
+ }
+
+ public long getId( )
+ {
+     return id;
+ }
+
+ public boolean isEnabled( )
+ {
+     return ENABLED;
+ }
+
+ public Map<String, Long> getOperations( )
+ {
+     return perOp( c -> c.operations.sum( ) );
+ }
+
+ public Map<String, Long> getComparisons( )
+ {
+     return perOp( c -> c.comparisons.sum( ) );
+ }
+
+ public Map<String, Long> getNodeVisits( )
+ {
+     return perOp( c -> c.nodeVisits.sum( ) );
+ }
+
+ public Map<String, Long> getRotations( )
+ {
+     return perOp( c -> c.rotations.sum( ) );
+ }
+
+ public Map<String, Long> getSplaySteps( )
+ {
+     return perOp( c -> c.splaySteps.sum( ) );
+ }
+
+ public Map<String, Long> getLatencyP50( )
+ {
+     return perOp( c -> c.latency.percentile( 50 ) );
+ }
+
+ public Map<String, Long> getLatencyP99( )
+ {
+     return perOp( c -> c.latency.percentile( 99 ) );
+ }
+
+ public Map<String, Long> getLatencyP999( )
+ {
+     return perOp( c -> c.latency.percentile( 99.9 ) );
+ }
+
+ public Map<String, Long> getLatencyMax( )
+ {
+     return perOp( c -> c.latency.max( ) );
+ }
+
+ public void reset( )
+ {
+     for( Counters c : counters )
+     {
+         c.operations.reset( );
+         c.comparisons.reset( );
+         c.nodeVisits.reset( );
+         c.rotations.reset( );
+         c.splaySteps.reset( );
+         c.latency.reset( );
+     }
+ }
+
+ /**
+  * Return the cost of an average operation of each kind, and its
+  * latencies.
+  */
+ public String toString( )
+ {
+     StringBuilder sb = new StringBuilder( tree + " #" + id );
+     for( Op op : Op.values( ) )
+     {
+         long n = operations( op );
+         if( n == 0 )
+             continue;
+         sb.append( String.format( "%n  %-8s %d ops, per op: %.2f comparisons, %.2f visits, %.3f rotations, %.2f splay steps%n           %s",
+                 op.label( ), n, (double) comparisons( op ) / n, (double) nodeVisits( op ) / n,
+                 (double) rotations( op ) / n, (double) splaySteps( op ) / n, latency( op ) ) );
+     }
+     return sb.toString( );
+ }
+
+ private Map<String, Long> perOp( ToLongFunction<Counters> f )
+ {
+     Map<String, Long> map = new LinkedHashMap<>( );
+     for( Op op : Op.values( ) )
+         map.put( op.label( ), f.applyAsLong( counters[ op.ordinal( ) ] ) );
+     return map;
+ }
+
+   // The totals of one kind of operation
+ private static final class Counters
+ {
+     final LongAdder operations = new LongAdder( );
+     final LongAdder comparisons = new LongAdder( );
+     final LongAdder nodeVisits = new LongAdder( );
+     final LongAdder rotations = new LongAdder( );
+     final LongAdder splaySteps = new LongAdder( );
+     final LatencyHistogram latency = new LatencyHistogram( );
+ }
+
+   // What the operation running on a thread has counted so far
+ private static final class Probe
+ {
+     long comparisons;
+     long nodeVisits;
+     long rotations;
+     long splaySteps;
+
+     void clear( )
+     {
+         comparisons = nodeVisits = rotations = splaySteps = 0;
+     }
+ }
+
+ private static final ThreadLocal<Probe> PROBE = ThreadLocal.withInitial( Probe::new );
+ private static final AtomicLong SEQUENCE = new AtomicLong( );
+ private static final Cleaner CLEANER = ENABLED ? Cleaner.create( ) : null;
+ private static final TreeMetrics DISABLED = new TreeMetrics( "disabled", 0 );
+
+ private final String tree;
+ private final long id;
+ private final Counters [ ] counters = new Counters[ Op.values( ).length ];
+ private ObjectName name;
+
+
+    // Test program; run it with and without -Dsearchtrees.metrics=true
+    // to see what the instrumentation costs
+ public static void main( String [ ] args )
+ {
+     final int NUMS = 100000;
+     String [ ] names = { "AVLTree", "RedBlackTree", "SplayTree", "BinarySearchTree" };
+
+     System.out.println( "Metrics enabled: " + ENABLED );
+     for( int round = 0; round < 2; round++ )   // The first round warms up
+     {
+         AVLTree<Integer> a = new AVLTree<Integer>( );
+         RedBlackTree<Integer> b = new RedBlackTree<Integer>( );
+         SplayTree<Integer> c = new SplayTree<Integer>( );
+         BinarySearchTree<Integer> d = new BinarySearchTree<Integer>( );
+         long [ ][ ] times = {
+             TreeBenchmark.workload_time( a, NUMS ),
+             TreeBenchmark.workload_time( b, NUMS ),
+             TreeBenchmark.workload_time( c, NUMS ),
+             TreeBenchmark.workload_time( d, NUMS / 50 ) };   // Sorted inserts make it a list
+         if( round == 0 )
+             continue;
+         for( int i = 0; i < names.length; i++ )
+             System.out.printf( "%-18s%s%n", names[ i ] + ":", Arrays.toString( times[ i ] ) );
+         if( ENABLED )
+         {
+             System.out.println( a.metrics( ) );
+             System.out.println( b.metrics( ) );
+             System.out.println( c.metrics( ) );
+             System.out.println( d.metrics( ) );
+         }
+     }
+ }
+}
@@ -0,0 +1,77 @@
+package searchtrees;
+
+import java.util.Map;
+
+/**
+* The JMX view of the TreeMetrics of one tree. Every attribute maps an
+* operation, "insert", "remove" or "contains", to a total since the
+* last reset; dividing by Operations gives the cost of one operation.
+* Latencies are in nanoseconds.
+*/
+public interface TreeMetricsMXBean
+{
+ /**
+  * Return the name of the class of the tree being measured.
+  */
+ String getTree( );
+
+ /**
+  * Return the number that tells this tree from others of its class.
+  */
+ long getId( );
+
+ /**
+  * Return whether the metrics are being collected at all.
+  */
+ boolean isEnabled( );
+
+ /**
+  * Return the number of operations completed.
+  */
+ Map<String, Long> getOperations( );
+
+ /**
+  * Return the number of key comparisons made.
+  */
+ Map<String, Long> getComparisons( );
+
+ /**
+  * Return the number of nodes visited.
+  */
+ Map<String, Long> getNodeVisits( );
+
+ /**
+  * Return the number of single rotations done.
+  */
+ Map<String, Long> getRotations( );
+
+ /**
+  * Return the number of splay steps taken; always 0 except for splay trees.
+  */
+ Map<String, Long> getSplaySteps( );
+
+ /**
+  * Return the median latency.
+  */
+ Map<String, Long> getLatencyP50( );
+
+ /**
+  * Return the 99th percentile latency.
+  */
+ Map<String, Long> getLatencyP99( );
+
+ /**
+  * Return the 99.9th percentile latency.
+  */
+ Map<String, Long> getLatencyP999( );
+
+ /**
+  * Return the largest latency.
+  */
+ Map<String, Long> getLatencyMax( );
+
+ /**
+  * Set every count and histogram back to zero.
+  */
+ void reset( );
+}
@@ -0,0 +1,302 @@
+package searchtrees;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.UnaryOperator;
+
+//TreeShape class
+//
+//CONSTRUCTION: through the shape methods of the trees
+//
+//******************PUBLIC OPERATIONS*********************
+//double nodes( )        --> Return the number of nodes
+//int height( )          --> Return the depth of the deepest node
+//double level( d )      --> Return the number of nodes at depth d
+//double averagePath( )  --> Return the mean comparisons of a successful search
+//int maxPath( )         --> Return the most comparisons of a successful search
+//double heightRatio( )  --> Return the height over the least possible height
+//int blackHeight( )     --> Return the black height of a red-black tree
+//boolean isSampled( )   --> Return true if the figures are estimates
+
+/**
+* The depth profile of a binary search tree: how many nodes lie at each
+* depth, and what follows from that, namely the height and the average
+* and longest successful search. The trees build one with shape( ),
+* which walks every node breadth first without recursion, or with
+* shape( samples, random ), which estimates the profile from random
+* root-to-leaf probes in O( samples * height ) time.
+* <p>
+* The estimate is Knuth's: a probe that reaches depth d through nodes
+* with c1, c2, ... non-empty children stands for c1 * c2 * ... nodes at
+* that depth, and the mean over many probes is an unbiased estimate of
+* the real count. The height of a sampled profile is the deepest level a
+* probe reached, so it is a lower bound. heightRatio is meant for
+* alerts: it is 1 for a perfectly balanced tree and grows without bound
+* as a BinarySearchTree degenerates. The AVL bound on the height,
+* 1.44 lg( n + 2 ) - 0.328, and the red-black one, 2 lg( n + 1 ), are
+* asymptotic, so for large trees the ratio stays below about 1.44 and 2;
+* small trees can go over, as a 7-node AVL tree of height 3 gives 1.5.
+*/
+public final class TreeShape
+{
+ private TreeShape( double [ ] levels, int samples )
+ {
+     this.levels = levels;
+     this.samples = samples;
+     for( double count : levels )
+         nodes += count;
+ }
+
+ /**
+  * Profile every node of a tree, one level at a time.
+  * @param root the root, or nil if the tree is empty.
+  * @param nil the node that stands for an empty subtree.
+  * @return the exact profile.
+  */
+ static <N> TreeShape exact( N root, N nil, UnaryOperator<N> left, UnaryOperator<N> right )
+ {
+     double [ ] levels = new double[ 16 ];
+     int depth = 0;
+     ResizingArrayQueue<N> queue = new ResizingArrayQueue<N>( );
+     if( root != nil )
+         queue.enqueue( root );
+
+     for( ; !queue.isEmpty( ); depth++ )
+     {
+         int width = queue.size( );
+         if( depth == levels.length )
+             levels = Arrays.copyOf( levels, 2 * depth );
+         levels[ depth ] = width;
+         for( int i = 0; i < width; i++ )
+         {
+             N t = queue.dequeue( );
+             N l = left.apply( t ), r = right.apply( t );
+             if( l != nil )
+                 queue.enqueue( l );
+             if( r != nil )
+                 queue.enqueue( r );
+         }
+     }
+     return new TreeShape( Arrays.copyOf( levels, depth ), 0 );
+ }
+
+ /**
+  * Estimate the profile of a tree from random probes.
+  * @param root the root, or nil if the tree is empty.
+  * @param nil the node that stands for an empty subtree.
+  * @param samples the number of probes; more give a closer estimate.
+  * @param random the source of the probes.
+  * @return the estimated profile.
+  */
+ static <N> TreeShape sampled( N root, N nil, UnaryOperator<N> left, UnaryOperator<N> right,
+                               int samples, Random random )
+ {
+     if( samples < 1 )
+         throw new IllegalArgumentException( "At least one sample is needed" );
+     double [ ] levels = new double[ 16 ];
+     int deepest = root == nil ? 0 : 1;
+
+     for( int s = 0; s < samples && root != nil; s++ )
+     {
+         double weight = 1;
+         int depth = 0;
+         for( N t = root; ; depth++ )
+         {
+             if( depth == levels.length )
+                 levels = Arrays.copyOf( levels, 2 * depth );
+             levels[ depth ] += weight;
+
+             N l = left.apply( t ), r = right.apply( t );
+             if( l == nil && r == nil )
+                 break;
+             if( l != nil && r != nil )
+             {
+                 weight *= 2;
+                 t = random.nextBoolean( ) ? l : r;
+             }
+             else
+                 t = l != nil ? l : r;
+         }
+         deepest = Math.max( deepest, depth + 1 );
+     }
+
+     levels = Arrays.copyOf( levels, deepest );
+     for( int d = 0; d < deepest; d++ )
+         levels[ d ] /= samples;
+     return new TreeShape( levels, samples );
+ }
+
+ /**
+  * Record the black height, for red-black trees.
+  */
+ TreeShape withBlackHeight( int height )
+ {
+     blackHeight = height;
+     return this;
+ }
+
+ /**
+  * Return the number of nodes, estimated if the profile is sampled.
+  */
+ public double nodes( )
+ {
+     return nodes;
+ }
+
+ /**
+  * Return the depth of the deepest node, or -1 for an empty tree.
+  */
+ public int height( )
+ {
+     return levels.length - 1;
+ }
+
+ /**
+  * Return the number of nodes at a depth, the root being at depth 0.
+  */
+ public double level( int depth )
+ {
+     return depth < levels.length ? levels[ depth ] : 0;
+ }
+
+ /**
+  * Return the average number of comparisons a search for an item in
+  * the tree makes, that is the average depth plus one.
+  */
+ public double averagePath( )
+ {
+     if( nodes == 0 )
+         return 0;
+     double sum = 0;
+     for( int d = 0; d < levels.length; d++ )
+         sum += ( d + 1 ) * levels[ d ];
+     return sum / nodes;
+ }
+
+ /**
+  * Return the number of comparisons a search for the deepest item makes.
+  */
+ public int maxPath( )
+ {
+     return levels.length;
+ }
+
+ /**
+  * Return the height over the smallest height any binary tree with
+  * this many nodes can have; 1 for an empty or one-node tree.
+  */
+ public double heightRatio( )
+ {
+     int best = 63 - Long.numberOfLeadingZeros( Math.max( 1, Math.round( nodes ) ) );
+     return best == 0 ? 1 : (double) height( ) / best;
+ }
+
+ /**
+  * Return the number of black nodes on a path from the root to an empty
+  * subtree, or -1 if the tree is not a red-black tree.
+  */
+ public int blackHeight( )
+ {
+     return blackHeight;
+ }
+
+ /**
+  * Return true if the figures were estimated from samples.
+  */
+ public boolean isSampled( )
+ {
+     return samples > 0;
+ }
+
+ /**
+  * Return a report of the shape, with a histogram of the depths.
+  */
+ public String toString( )
+ {
+     StringBuilder sb = new StringBuilder( );
+     sb.append( String.format( "%s: %.0f nodes, height %d (%.2f x minimum), average path %.2f, max path %d",
+             isSampled( ) ? "Estimated from " + samples + " probes" : "Exact",
+             nodes, height( ), heightRatio( ), averagePath( ), maxPath( ) ) );
+     if( blackHeight >= 0 )
+         sb.append( ", black height " ).append( blackHeight );
+
+     double widest = 0;
+     for( double count : levels )
+         widest = Math.max( widest, count );
+     for( int d = 0; d < levels.length; d++ )
+     {
+         int bar = (int) Math.round( 50 * levels[ d ] / widest );
+         sb.append( String.format( "%n%5d %12.0f ", d, levels[ d ] ) );
+         for( int i = 0; i < bar; i++ )
+             sb.append( '#' );
+     }
+     return sb.toString( );
+ }
+
+ private final double [ ] levels;
+ private final int samples;
+ private double nodes;
+ private int blackHeight = -1;
+
+
+ //Profiles t exactly, then with the given number of probes. Returns the two
+ //times in microseconds and prints both profiles.
+ public static long[] shape_time(SearchTree<?> t, int samples)
+ {
+	 long start = System.nanoTime();
+	 TreeShape exact = shapeOf(t, 0);
+	 long exactTime = (System.nanoTime() - start) / 1000;
+
+	 start = System.nanoTime();
+	 TreeShape sampled = shapeOf(t, samples);
+	 long sampledTime = (System.nanoTime() - start) / 1000;
+
+	 System.out.println(exact);
+	 System.out.println(sampled);
+	 return new long[] { exactTime, sampledTime };
+ }
+
+ // Internal method to call the right shape method of t; 0 samples is exact
+ private static TreeShape shapeOf(SearchTree<?> t, int samples)
+ {
+	 Random random = new Random(7);
+	 if (t instanceof AVLTree)
+		 return samples == 0 ? ((AVLTree<?>) t).shape() : ((AVLTree<?>) t).shape(samples, random);
+	 if (t instanceof RedBlackTree)
+		 return samples == 0 ? ((RedBlackTree<?>) t).shape() : ((RedBlackTree<?>) t).shape(samples, random);
+	 if (t instanceof SplayTree)
+		 return samples == 0 ? ((SplayTree<?>) t).shape() : ((SplayTree<?>) t).shape(samples, random);
+	 return samples == 0 ? ((BinarySearchTree<?>) t).shape() : ((BinarySearchTree<?>) t).shape(samples, random);
+ }
+
+     // Test program
+ public static void main( String [ ] args )
+ {
+     final int NUMS = 1000000;
+     final int SAMPLES = 2000;
+     Random random = new Random( 1 );
+
+     AVLTree<Integer> a = new AVLTree<Integer>( );
+     RedBlackTree<Integer> b = new RedBlackTree<Integer>( );
+     SplayTree<Integer> c = new SplayTree<Integer>( );
+     BinarySearchTree<Integer> d = new BinarySearchTree<Integer>( );
+     for( int i = 0; i < NUMS; i++ )
+     {
+         int x = random.nextInt( );
+         a.insert( x );
+         b.insert( x );
+         c.insert( x );
+         d.insert( x );
+     }
+
+     String [ ] names = { "AVLTree", "RedBlackTree", "SplayTree", "BinarySearchTree" };
+     SearchTree<?> [ ] trees = { a, b, c, d };
+     for( int i = 0; i < trees.length; i++ )
+     {
+         System.out.println( names[ i ] + ":" );
+         long [ ] x = shape_time( trees[ i ], SAMPLES );
+         System.out.println( "Exact " + x[ 0 ] + " us, sampled " + x[ 1 ] + " us" );
+         System.out.println( );
+     }
+ }
+}
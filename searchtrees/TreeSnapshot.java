@@ -0,0 +1,335 @@
+package searchtrees;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+//TreeSnapshot class
+//
+//CONSTRUCTION: through open( p ), on a file made by write( t, p )
+//
+//******************PUBLIC OPERATIONS*********************
+//static void write( t, p ) --> Write the items of tree t to file p
+//static TreeSnapshot open( p ) --> Map file p for searching
+//boolean contains( x )  --> Return true if x is present
+//int rank( x )          --> Return number of items smaller than x
+//int get( i )           --> Return the i-th smallest item
+//int [ ] range( l, h )  --> Return the items between l and h, in order
+//int size( )            --> Return number of items
+//******************ERRORS********************************
+//IOException if the file cannot be read or is not a snapshot
+
+/**
+* A read-only copy of a tree of Integers in a file that is searched
+* where it lies, through a read-only mapping, so opening it costs the
+* same whatever its size and every process that maps it shares the
+* same pages of the page cache.
+* The file holds a 32-byte header and two blocks of little-endian ints:
+* the keys in sorted order, for rank, get and range, and the same keys
+* in Eytzinger order (the breadth-first order of a complete binary
+* search tree, children of slot k at 2k and 2k + 1), for contains,
+* whose first few levels stay in cache and whose probes move only
+* forward in memory.
+* Keys are ints; every tree in this package that holds Integers can be
+* written. The whole file is mapped as one region, which Java limits to
+* 2 GB, so a snapshot holds at most MAX_SIZE (about 268 million) keys.
+*/
+public final class TreeSnapshot
+{
+ private TreeSnapshot( MappedByteBuffer map, int n )
+ {
+     this.n = n;
+     this.sorted = slice( map, HEADER, n );
+     this.eytzinger = slice( map, HEADER + 4L * n, n );
+ }
+
+ /**
+  * Write the items of a tree to a file, replacing it. The snapshot is
+  * written beside the file and renamed over it, so a reader never sees
+  * a partial one, and the directory is forced after the rename, so once
+  * write returns the new snapshot survives a crash.
+  * @param tree the tree; any Iterable that returns its items in order.
+  * @param file the file to write.
+  * @throws IllegalArgumentException if the tree has more than MAX_SIZE items.
+  */
+ public static void write( Iterable<? extends Number> tree, Path file ) throws IOException
+ {
+     int [ ] keys = TreeWriter.toIntArray( tree );
+     int n = keys.length;
+     if( n > MAX_SIZE )
+         throw new IllegalArgumentException( n + " items is more than a snapshot can hold" );
+     for( int i = 1; i < n; i++ )
+         if( keys[ i - 1 ] > keys[ i ] )
+             throw new IllegalArgumentException( "Items are not in order at " + i );
+
+     int [ ] eyt = new int[ n ];
+     fill( keys, eyt, 0, 1 );
+
+     ByteBuffer header = ByteBuffer.allocate( HEADER ).order( ByteOrder.LITTLE_ENDIAN );
+     header.putInt( MAGIC ).putInt( VERSION ).putInt( n ).putInt( 0 );
+     header.putLong( HEADER ).putLong( HEADER + 4L * n );
+     header.flip( );
+
+     Path tmp = file.resolveSibling( file.getFileName( ) + ".tmp" );
+     try( FileChannel out = FileChannel.open( tmp, StandardOpenOption.CREATE,
+             StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE ) )
+     {
+         while( header.hasRemaining( ) )
+             out.write( header );
+         writeInts( out, keys );
+         writeInts( out, eyt );
+         out.force( true );
+     }
+     Files.move( tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+     forceDirectory( file.toAbsolutePath( ).getParent( ) );
+ }
+
+ /**
+  * Force a directory to disk, so that the files created, renamed or
+  * removed in it survive a crash; forcing a file does not do that.
+  * @param dir the directory.
+  */
+ static void forceDirectory( Path dir ) throws IOException
+ {
+     try( FileChannel d = FileChannel.open( dir, StandardOpenOption.READ ) )
+     {
+         d.force( true );
+     }
+ }
+
+ /**
+  * Map a snapshot file. Nothing is read but the header.
+  * @param file a file made by write.
+  * @return the snapshot, which stays usable after the file is replaced.
+  */
+ public static TreeSnapshot open( Path file ) throws IOException
+ {
+     try( FileChannel in = FileChannel.open( file, StandardOpenOption.READ ) )
+     {
+         long length = in.size( );
+         if( length < HEADER || length > Integer.MAX_VALUE )
+             throw new IOException( "Not a tree snapshot: " + file );
+
+         MappedByteBuffer map = in.map( FileChannel.MapMode.READ_ONLY, 0, length );
+         map.order( ByteOrder.LITTLE_ENDIAN );
+         int n = map.getInt( 8 );
+         if( map.getInt( 0 ) != MAGIC || map.getInt( 4 ) != VERSION || n < 0
+                 || map.getLong( 16 ) != HEADER || map.getLong( 24 ) != HEADER + 4L * n
+                 || length != HEADER + 8L * n )
+             throw new IOException( "Not a tree snapshot: " + file );
+         return new TreeSnapshot( map, n );
+     }
+ }
+
+ /**
+  * Find an item by walking the Eytzinger block.
+  * @param x the item to search for.
+  * @return true if x is found.
+  */
+ public boolean contains( int x )
+ {
+     int k = 1;
+     while( k <= n )
+         k = 2 * k + ( eytzinger.get( k - 1 ) < x ? 1 : 0 );
+
+     // The last step left was at the first item not below x
+     k >>>= Integer.numberOfTrailingZeros( ~k ) + 1;
+     return k != 0 && eytzinger.get( k - 1 ) == x;
+ }
+
+ /**
+  * Return the number of items smaller than x.
+  */
+ public int rank( int x )
+ {
+     int low = 0, high = n;
+     while( low < high )
+     {
+         int mid = ( low + high ) >>> 1;
+         if( sorted.get( mid ) < x )
+             low = mid + 1;
+         else
+             high = mid;
+     }
+     return low;
+ }
+
+ /**
+  * Return the i-th smallest item, counting from 0.
+  */
+ public int get( int i )
+ {
+     return sorted.get( i );
+ }
+
+ /**
+  * Return every item x with low <= x <= high, in order.
+  */
+ public int [ ] range( int low, int high )
+ {
+     if( low > high )
+         return new int[ 0 ];
+     int from = rank( low );
+     int to = high == Integer.MAX_VALUE ? n : rank( high + 1 );
+     int [ ] items = new int[ to - from ];
+     sorted.get( from, items );
+     return items;
+ }
+
+ /**
+  * Return the number of items.
+  */
+ public int size( )
+ {
+     return n;
+ }
+
+ /**
+  * Internal method to lay keys out in Eytzinger order.
+  * @param i the next key to place.
+  * @param k the slot, counting from 1, of the subtree to fill.
+  * @return the next key to place after the subtree.
+  */
+ private static int fill( int [ ] keys, int [ ] eyt, int i, int k )
+ {
+     if( k <= keys.length )
+     {
+         i = fill( keys, eyt, i, 2 * k );
+         eyt[ k - 1 ] = keys[ i++ ];
+         i = fill( keys, eyt, i, 2 * k + 1 );
+     }
+     return i;
+ }
+
+ private static void writeInts( FileChannel out, int [ ] a ) throws IOException
+ {
+     ByteBuffer buf = ByteBuffer.allocateDirect( 1 << 16 ).order( ByteOrder.LITTLE_ENDIAN );
+     for( int i = 0; i < a.length; )
+     {
+         buf.clear( );
+         int m = Math.min( a.length - i, buf.capacity( ) / 4 );
+         buf.asIntBuffer( ).put( a, i, m );
+         buf.limit( 4 * m );
+         while( buf.hasRemaining( ) )
+             out.write( buf );
+         i += m;
+     }
+ }
+
+ private static IntBuffer slice( MappedByteBuffer map, long offset, int n )
+ {
+     return map.slice( (int) offset, 4 * n ).order( ByteOrder.LITTLE_ENDIAN ).asIntBuffer( );
+ }
+
+ private static final int MAGIC = 0x4E535453;     // "STSN"
+ private static final int VERSION = 1;
+ private static final int HEADER = 32;
+
+ /**
+  * The most keys a snapshot can hold: the header and both blocks must
+  * fit in one mapping of at most Integer.MAX_VALUE bytes.
+  */
+ public static final int MAX_SIZE = ( Integer.MAX_VALUE - HEADER ) / 8;
+
+ private final int n;
+ private final IntBuffer sorted;       // Views into the mapping, which they keep alive
+ private final IntBuffer eytzinger;
+
+ //Restart with NUMS random keys: rebuild a RedBlackTree by inserting every key,
+ //or open a snapshot of it. Returns both times in ms.
+ public static long[] open_time(int NUMS, Path file) throws IOException
+ {
+	 Random r = new Random(41);
+	 int[] keys = new int[NUMS];
+	 for( int i = 0; i < NUMS; i++ )
+		 keys[i] = r.nextInt();
+
+	 long start = System.nanoTime();
+	 RedBlackTree<Integer> t = new RedBlackTree<Integer>();
+	 for( int x : keys )
+		 t.insert( x );
+	 long rebuild_time = (System.nanoTime() - start) / 1000000;
+
+	 write( t, file );
+	 start = System.nanoTime();
+	 TreeSnapshot s = open( file );
+	 long open_time = (System.nanoTime() - start) / 1000000;
+	 if( s.size() != NUMS )
+		 System.out.println( "OOPS!!" );
+	 return new long[] { rebuild_time, open_time };
+ }
+
+ //Search for NUMS random keys, half of them present, in the tree and in its
+ //snapshot. Returns the average time of each search in the tree, in the
+ //snapshot, and of a rank query in the snapshot.
+ public static long[] search_time(int NUMS, Path file) throws IOException
+ {
+	 Random r = new Random(41);
+	 int[] keys = new int[NUMS];
+	 RedBlackTree<Integer> t = new RedBlackTree<Integer>();
+	 for( int i = 0; i < NUMS; i++ )
+	 {
+		 keys[i] = r.nextInt();
+		 t.insert( keys[i] );
+	 }
+	 write( t, file );
+	 TreeSnapshot s = open( file );
+
+	 Integer[] probe = new Integer[NUMS];
+	 for( int i = 0; i < NUMS; i++ )
+		 probe[i] = r.nextBoolean() ? keys[r.nextInt(NUMS)] : r.nextInt();
+
+	 long start, t_time = 0, s_time = 0, rank_time = 0, check = 0;
+	 for( int i = 0; i < NUMS; i++ )
+	 {
+		 start = System.nanoTime();
+		 if( t.contains( probe[i] ) )
+			 check++;
+		 t_time += System.nanoTime() - start;
+	 }
+	 for( int i = 0; i < NUMS; i++ )
+	 {
+		 start = System.nanoTime();
+		 if( s.contains( probe[i] ) )
+			 check--;
+		 s_time += System.nanoTime() - start;
+	 }
+	 for( int i = 0; i < NUMS; i++ )
+	 {
+		 start = System.nanoTime();
+		 check += s.rank( probe[i] );
+		 rank_time += System.nanoTime() - start;
+	 }
+	 if( check == 42 )
+		 System.out.println();
+	 return new long[] { t_time / NUMS, s_time / NUMS, rank_time / NUMS };
+ }
+
+     // Test program
+ public static void main( String [ ] args ) throws IOException
+ {
+     final int NUMS = 1000000;
+     Path file = Files.createTempFile( "tree", ".snap" );
+
+     try
+     {
+         search_time( NUMS, file );   // Warm up
+         long [ ] x = open_time( NUMS, file );
+         System.out.println( "Restart with " + NUMS + " keys: rebuilding takes " + x[0] + " ms, opening a snapshot " + x[1] + " ms" );
+         long [ ] y = search_time( NUMS, file );
+         System.out.println( "The time cost for search is " + y[0] + " (snapshot: " + y[1] + ", rank in snapshot: " + y[2] + ")" );
+     }
+     finally
+     {
+         Files.deleteIfExists( file );
+     }
+ }
+}
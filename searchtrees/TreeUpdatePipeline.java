@@ -0,0 +1,411 @@
+package searchtrees;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+//TreeUpdatePipeline class
+//
+//CONSTRUCTION: with a tree, a batch size and a publish interval in ns
+//
+//******************PUBLIC OPERATIONS*********************
+//void start( )          --> Start the writer thread
+//void insert( x )       --> Queue an insert of x
+//void remove( x )       --> Queue a remove of x
+//void stop( )           --> Apply all queued operations and stop
+//Snapshot snapshot( )   --> Return the latest published snapshot
+//long applied( )        --> Return number of operations applied
+//double throughput( )   --> Return operations applied per second
+//long latency( p )      --> Return the p-th percentile latency, in ns
+//******************ERRORS********************************
+//IllegalStateException if operations are queued when not running
+
+/**
+* Funnels inserts and removes from any number of producer threads into
+* one tree through a LockFreeQueue. A single writer thread owns the tree:
+* it drains up to batchSize operations at a time, sorts them by item
+* (stably, so operations on one item keep their order), applies them,
+* and copies the tree into a sorted Snapshot that readers can search
+* without locking. It publishes whenever the queue runs dry, and
+* otherwise once per publish interval, stretched if need be so that
+* copying the tree takes at most a fifth of the writer's time.
+* Latency is measured from enqueue until the operation is visible in a
+* published snapshot; it and the throughput are exact once stop returns.
+* The tree must not be touched by other threads while the pipeline runs.
+*/
+public class TreeUpdatePipeline<AnyType extends Comparable<? super AnyType>>
+{
+ /**
+  * Construct the pipeline.
+  * @param tree the tree to update.
+  * @param batchSize the most operations to apply per batch.
+  * @param publishInterval the longest time between snapshots, in ns.
+  */
+ public TreeUpdatePipeline( SearchTree<AnyType> tree, int batchSize, long publishInterval )
+ {
+     if( batchSize < 1 )
+         throw new IllegalArgumentException( "Batch size must be positive" );
+     this.tree = tree;
+     this.batchSize = batchSize;
+     this.publishInterval = publishInterval;
+     this.snapshot = new Snapshot<AnyType>( tree.toArray( ), 0 );
+ }
+
+ /**
+  * Start the writer thread.
+  */
+ public synchronized void start( )
+ {
+     if( writer != null )
+         throw new IllegalStateException( "Already started" );
+     running = true;
+     startTime = System.nanoTime( );
+     writer = new Thread( this::run, "TreeUpdatePipeline-writer" );
+     writer.setDaemon( true );
+     writer.start( );
+ }
+
+ /**
+  * Queue an insert. Items already present are left alone.
+  * @param x the item to insert.
+  */
+ public void insert( AnyType x )
+ {
+     submit( new Op<AnyType>( x, true ) );
+ }
+
+ /**
+  * Queue a remove. Nothing is done if x is not present.
+  * @param x the item to remove.
+  */
+ public void remove( AnyType x )
+ {
+     submit( new Op<AnyType>( x, false ) );
+ }
+
+ /**
+  * Stop the writer after it has applied and published everything
+  * queued so far. Producers must have stopped queueing first.
+  */
+ public synchronized void stop( ) throws InterruptedException
+ {
+     if( writer == null || !running )
+         return;
+     running = false;
+     LockSupport.unpark( writer );
+     writer.join( );
+     stopTime = System.nanoTime( );
+ }
+
+ /**
+  * Return the latest published snapshot.
+  */
+ public Snapshot<AnyType> snapshot( )
+ {
+     return snapshot;
+ }
+
+ /**
+  * Return the number of operations applied to the tree.
+  */
+ public long applied( )
+ {
+     return applied;
+ }
+
+ /**
+  * Return the operations applied per second since start.
+  */
+ public double throughput( )
+ {
+     long end = stopTime != 0 ? stopTime : System.nanoTime( );
+     return end == startTime ? 0 : applied * 1e9 / ( end - startTime );
+ }
+
+ /**
+  * Return an upper bound on the p-th percentile of the time from
+  * enqueue until a published snapshot includes the operation.
+  * The bound is the next power of two above the true value.
+  * @param p the percentile, between 0 and 100.
+  * @return the latency in ns, or 0 if nothing was published.
+  */
+ public long latency( double p )
+ {
+     long total = 0;
+     for( long c : latencies )
+         total += c;
+     if( total == 0 )
+         return 0;
+
+     long rank = (long) Math.ceil( p / 100 * total );
+     long seen = 0;
+     for( int i = 0; i < latencies.length; i++ )
+     {
+         seen += latencies[ i ];
+         if( seen >= Math.max( rank, 1 ) )
+             return i == 0 ? 0 : 1L << Math.min( i, 62 );
+     }
+     return Long.MAX_VALUE;
+ }
+
+ /**
+  * An immutable, sorted copy of the tree as of one publish.
+  */
+ public static final class Snapshot<AnyType extends Comparable<? super AnyType>>
+ {
+     Snapshot( Object [ ] items, long version )
+     {
+         this.items = items;
+         this.version = version;
+     }
+
+     /**
+      * Find an item by binary search.
+      * @param x the item to search for.
+      * @return true if x was in the tree when this was published.
+      */
+     public boolean contains( AnyType x )
+     {
+         return Arrays.binarySearch( items, x ) >= 0;
+     }
+
+     /**
+      * Return the i-th smallest item.
+      */
+     @SuppressWarnings( "unchecked" )
+     public AnyType get( int i )
+     {
+         return (AnyType) items[ i ];
+     }
+
+     /**
+      * Return the number of items.
+      */
+     public int size( )
+     {
+         return items.length;
+     }
+
+     /**
+      * Return how many snapshots were published before this one.
+      */
+     public long version( )
+     {
+         return version;
+     }
+
+     private final Object [ ] items;
+     private final long version;
+ }
+
+ /**
+  * Internal method to queue an operation.
+  */
+ private void submit( Op<AnyType> op )
+ {
+     if( !running )
+         throw new IllegalStateException( "Pipeline is not running" );
+     queue.enqueue( op );
+ }
+
+ /**
+  * The writer loop. It reads running before draining, so that once
+  * it sees stop it still empties the queue before it exits.
+  */
+ private void run( )
+ {
+     Op<AnyType> [ ] batch = newBatch( batchSize );
+     long lastPublish = System.nanoTime( );
+     long nextInterval = publishInterval;
+
+     while( true )
+     {
+         boolean stopping = !running;
+         int n = 0;
+         Op<AnyType> op;
+         while( n < batchSize && ( op = queue.poll( ) ) != null )
+             batch[ n++ ] = op;
+
+         if( n > 0 )
+             apply( batch, n );
+
+         long now = System.nanoTime( );
+         if( pendingSize > 0 && ( n == 0 || now - lastPublish >= nextInterval ) )
+         {
+             publish( );
+             lastPublish = System.nanoTime( );
+             nextInterval = Math.max( publishInterval, PUBLISH_RATIO * ( lastPublish - now ) );
+         }
+
+         if( n == 0 )
+         {
+             if( stopping )
+                 return;
+             LockSupport.parkNanos( IDLE_PARK );
+         }
+     }
+ }
+
+ /**
+  * Internal method to sort a batch and apply it to the tree.
+  */
+ private void apply( Op<AnyType> [ ] batch, int n )
+ {
+     Arrays.sort( batch, 0, n, byItem );
+     for( int i = 0; i < n; i++ )
+     {
+         Op<AnyType> op = batch[ i ];
+         if( op.insert )
+         {
+             if( !tree.contains( op.item ) )
+                 tree.insert( op.item );
+         }
+         else
+             tree.remove( op.item );
+
+         if( pendingSize == pending.length )
+             pending = Arrays.copyOf( pending, 2 * pendingSize );
+         pending[ pendingSize++ ] = op.enqueued;
+         batch[ i ] = null;
+     }
+     applied += n;
+ }
+
+ /**
+  * Internal method to publish a snapshot and record the latency of
+  * every operation it makes visible.
+  */
+ private void publish( )
+ {
+     snapshot = new Snapshot<AnyType>( tree.toArray( ), snapshot.version + 1 );
+
+     long now = System.nanoTime( );
+     for( int i = 0; i < pendingSize; i++ )
+         latencies[ 64 - Long.numberOfLeadingZeros( now - pending[ i ] ) ]++;
+     pendingSize = 0;
+ }
+
+ @SuppressWarnings( "unchecked" )
+ private static <AnyType> Op<AnyType> [ ] newBatch( int n )
+ {
+     return (Op<AnyType> [ ]) new Op<?>[ n ];
+ }
+
+ // One queued insert or remove
+ private static final class Op<AnyType>
+ {
+     Op( AnyType item, boolean insert )
+     {
+         this.item = item;
+         this.insert = insert;
+         this.enqueued = System.nanoTime( );
+     }
+
+     final AnyType item;
+     final boolean insert;
+     final long enqueued;       // System.nanoTime( ) when queued
+ }
+
+ // How long the writer sleeps when the queue is empty
+ private static final long IDLE_PARK = 50_000;
+
+ // Under load, wait at least this many times the cost of the last copy between snapshots
+ private static final long PUBLISH_RATIO = 4;
+
+ private final SearchTree<AnyType> tree;
+ private final int batchSize;
+ private final long publishInterval;
+ private final LockFreeQueue<Op<AnyType>> queue = new LockFreeQueue<Op<AnyType>>( );
+ private final Comparator<Op<AnyType>> byItem = ( a, b ) -> a.item.compareTo( b.item );
+
+ private volatile boolean running;
+ private volatile Snapshot<AnyType> snapshot;
+ private volatile long applied;
+ private Thread writer;
+ private long startTime;
+ private volatile long stopTime;
+
+   /** Enqueue times of applied operations not yet in a snapshot. */
+ private long [ ] pending = new long[ 1024 ];
+ private int pendingSize;
+
+   /** latencies[ i ] counts latencies below 2^i ns. */
+ private final long [ ] latencies = new long[ 65 ];
+
+ //Run NUMS random inserts and removes from each of the producer threads, every
+ //operation under one lock on the tree. Returns operations per second.
+ public static double locked_time(SearchTree<Integer> tree, int NUMS, int producers) throws InterruptedException
+ {
+	 Thread[] threads = new Thread[producers];
+	 long start = System.nanoTime();
+	 for( int p = 0; p < producers; p++ )
+	 {
+		 final Random r = new Random(p);
+		 threads[p] = new Thread(() -> {
+			 for( int i = 0; i < NUMS; i++ )
+			 {
+				 Integer x = r.nextInt(KEYS);
+				 synchronized( tree )
+				 {
+					 if( i % 4 == 3 )
+						 tree.remove( x );
+					 else if( !tree.contains( x ) )
+						 tree.insert( x );
+				 }
+			 }
+		 });
+		 threads[p].start();
+	 }
+	 for( Thread t : threads )
+		 t.join();
+	 return (double) NUMS * producers * 1e9 / (System.nanoTime() - start);
+ }
+
+ //The same operations sent through a pipeline. Returns operations per second,
+ //and the median and 99th percentile latency in ns.
+ public static double[] pipeline_time(SearchTree<Integer> tree, int NUMS, int producers) throws InterruptedException
+ {
+	 TreeUpdatePipeline<Integer> pipeline = new TreeUpdatePipeline<Integer>(tree, 4096, 10_000_000);
+	 Thread[] threads = new Thread[producers];
+	 pipeline.start();
+	 for( int p = 0; p < producers; p++ )
+	 {
+		 final Random r = new Random(p);
+		 threads[p] = new Thread(() -> {
+			 for( int i = 0; i < NUMS; i++ )
+			 {
+				 Integer x = r.nextInt(KEYS);
+				 if( i % 4 == 3 )
+					 pipeline.remove( x );
+				 else
+					 pipeline.insert( x );
+			 }
+		 });
+		 threads[p].start();
+	 }
+	 for( Thread t : threads )
+		 t.join();
+	 pipeline.stop();
+	 return new double[] { pipeline.throughput(), pipeline.latency(50), pipeline.latency(99) };
+ }
+
+ private static final int KEYS = 1000000;
+
+     // Test program
+ public static void main( String [ ] args ) throws InterruptedException
+ {
+     final int NUMS = 250000;
+     final int PRODUCERS = 4;
+
+     locked_time( new AVLTree<Integer>( ), NUMS, PRODUCERS );   // Warm up
+     pipeline_time( new AVLTree<Integer>( ), NUMS, PRODUCERS );
+
+     System.out.printf( "Locked AVLTree: %.0f ops/s%n", locked_time( new AVLTree<Integer>( ), NUMS, PRODUCERS ) );
+     System.out.printf( "Locked RedBlackTree: %.0f ops/s%n", locked_time( new RedBlackTree<Integer>( ), NUMS, PRODUCERS ) );
+     double [ ] x = pipeline_time( new AVLTree<Integer>( ), NUMS, PRODUCERS );
+     System.out.printf( "Pipelined AVLTree: %.0f ops/s, p50 %.0f ns, p99 %.0f ns%n", x[0], x[1], x[2] );
+     x = pipeline_time( new RedBlackTree<Integer>( ), NUMS, PRODUCERS );
+     System.out.printf( "Pipelined RedBlackTree: %.0f ops/s, p50 %.0f ns, p99 %.0f ns%n", x[0], x[1], x[2] );
+ }
+}
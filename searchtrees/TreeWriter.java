@@ -0,0 +1,341 @@
+package searchtrees;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+
+//TreeWriter class
+//
+//CONSTRUCTION: with an optional buffer size
+//
+//******************PUBLIC OPERATIONS*********************
+//void write( it, out )      --> Write items of it to out, one per line
+//TreeWriter forThread( )    --> Return this thread's shared writer
+//Object [ ] toArray( it )   --> Return items of it in an array
+//int [ ] toIntArray( it )   --> Return numeric items of it as ints
+//******************ERRORS********************************
+//IOException from the underlying stream or channel
+
+/**
+* Streams the items of a tree, one per line, through a reusable buffer.
+* The trees hand it their iterative in-order iterator, so exporting
+* never recurses and never goes through System.out.println per item.
+* Integer items are formatted straight into the buffer without creating
+* a String. A writer is not thread-safe; use forThread to share one.
+*/
+public final class TreeWriter
+{
+ /**
+  * Construct a writer with the default buffer size.
+  */
+ public TreeWriter( )
+ {
+     this( DEFAULT_BUFFER_SIZE );
+ }
+
+ /**
+  * Construct a writer.
+  * @param bufferSize the number of bytes to gather before each write.
+  */
+ public TreeWriter( int bufferSize )
+ {
+     if( bufferSize < MIN_BUFFER_SIZE )
+         throw new IllegalArgumentException( "Buffer too small: " + bufferSize );
+     buffer = ByteBuffer.allocate( bufferSize );
+     chars = new StringBuilder( bufferSize );
+ }
+
+ /**
+  * Return the writer shared by all exports on the calling thread.
+  */
+ public static TreeWriter forThread( )
+ {
+     return LOCAL.get( );
+ }
+
+ /**
+  * Write items to an Appendable, one per line.
+  * @param items the items, in the order to write them.
+  * @param out the destination.
+  */
+ public void write( Iterator<?> items, Appendable out ) throws IOException
+ {
+     int limit = buffer.capacity( );
+     chars.setLength( 0 );
+
+     while( items.hasNext( ) )
+     {
+         Object x = items.next( );
+         if( x instanceof Integer )
+             chars.append( ( (Integer) x ).intValue( ) );
+         else
+             chars.append( x );
+         chars.append( '\n' );
+
+         if( chars.length( ) >= limit )
+         {
+             out.append( chars );
+             chars.setLength( 0 );
+         }
+     }
+     if( chars.length( ) > 0 )
+         out.append( chars );
+     chars.setLength( 0 );
+ }
+
+ /**
+  * Write items to an OutputStream as UTF-8 text, one per line.
+  * The stream is flushed at the end.
+  * @param items the items, in the order to write them.
+  * @param out the destination.
+  */
+ public void write( Iterator<?> items, OutputStream out ) throws IOException
+ {
+     buffer.clear( );
+     while( items.hasNext( ) )
+         if( !encode( items.next( ) ) )
+         {
+             out.write( buffer.array( ), 0, buffer.position( ) );
+             buffer.clear( );
+             encodeLarge( items, out, null );
+         }
+     out.write( buffer.array( ), 0, buffer.position( ) );
+     out.flush( );
+     buffer.clear( );
+ }
+
+ /**
+  * Write items to a channel as UTF-8 text, one per line.
+  * @param items the items, in the order to write them.
+  * @param out the destination.
+  */
+ public void write( Iterator<?> items, WritableByteChannel out ) throws IOException
+ {
+     buffer.clear( );
+     while( items.hasNext( ) )
+         if( !encode( items.next( ) ) )
+         {
+             drain( out );
+             encodeLarge( items, null, out );
+         }
+     drain( out );
+ }
+
+ /**
+  * Copy items into a new array.
+  * @param items the items to copy.
+  * @param sizeHint the expected number of items.
+  */
+ public static Object [ ] toArray( Iterator<?> items, int sizeHint )
+ {
+     Object [ ] a = new Object[ Math.max( sizeHint, 0 ) ];
+     int n = 0;
+
+     while( items.hasNext( ) )
+     {
+         if( n == a.length )
+             a = Arrays.copyOf( a, Math.max( 16, 2 * n ) );
+         a[ n++ ] = items.next( );
+     }
+     return n == a.length ? a : Arrays.copyOf( a, n );
+ }
+
+ /**
+  * Copy numeric items into a new int array.
+  * @param items the items to copy, such as a tree of Integers.
+  */
+ public static int [ ] toIntArray( Iterable<? extends Number> items )
+ {
+     int [ ] a = new int[ 16 ];
+     int n = 0;
+
+     for( Number x : items )
+     {
+         if( n == a.length )
+             a = Arrays.copyOf( a, 2 * n );
+         a[ n++ ] = x.intValue( );
+     }
+     return Arrays.copyOf( a, n );
+ }
+
+ /**
+  * Internal method to encode one item and its newline into the buffer.
+  * @return false, with the item kept in pending, if it does not fit.
+  */
+ private boolean encode( Object x )
+ {
+     if( x instanceof Integer )
+     {
+         if( buffer.remaining( ) < MAX_INT_CHARS + 1 )
+         {
+             pending = x;
+             return false;
+         }
+         putInt( ( (Integer) x ).intValue( ) );
+         buffer.put( (byte) '\n' );
+         return true;
+     }
+
+     String s = String.valueOf( x );
+     int start = buffer.position( );
+     if( buffer.remaining( ) > s.length( ) )
+     {
+         for( int i = 0; i < s.length( ); i++ )
+         {
+             char c = s.charAt( i );
+             if( c >= 0x80 )
+                 break;
+             buffer.put( (byte) c );
+         }
+         if( buffer.position( ) - start == s.length( ) )
+         {
+             buffer.put( (byte) '\n' );
+             return true;
+         }
+         buffer.position( start );   // Not plain ASCII; encode below
+     }
+
+     byte [ ] bytes = s.getBytes( StandardCharsets.UTF_8 );
+     if( buffer.remaining( ) > bytes.length )
+     {
+         buffer.put( bytes ).put( (byte) '\n' );
+         return true;
+     }
+     pending = x;
+     return false;
+ }
+
+ /**
+  * Internal method to write the pending item into a freshly drained
+  * buffer, or straight to the destination if it is larger than the
+  * whole buffer.
+  */
+ private void encodeLarge( Iterator<?> items, OutputStream os, WritableByteChannel ch )
+     throws IOException
+ {
+     Object x = pending;
+     pending = null;
+     if( encode( x ) )
+         return;
+
+     pending = null;
+     byte [ ] bytes = ( String.valueOf( x ) + '\n' ).getBytes( StandardCharsets.UTF_8 );
+     if( os != null )
+         os.write( bytes );
+     else
+     {
+         ByteBuffer b = ByteBuffer.wrap( bytes );
+         while( b.hasRemaining( ) )
+             ch.write( b );
+     }
+ }
+
+ /**
+  * Internal method to write out and clear the buffer.
+  */
+ private void drain( WritableByteChannel out ) throws IOException
+ {
+     buffer.flip( );
+     while( buffer.hasRemaining( ) )
+         out.write( buffer );
+     buffer.clear( );
+ }
+
+ /**
+  * Internal method to format an int in decimal straight into the buffer.
+  */
+ private void putInt( int v )
+ {
+     long x = v;
+     if( x < 0 )
+     {
+         buffer.put( (byte) '-' );
+         x = -x;
+     }
+
+     int end = buffer.position( ) + digits( x );
+     for( int p = end - 1; p >= buffer.position( ); p-- )
+     {
+         buffer.put( p, (byte) ( '0' + x % 10 ) );
+         x /= 10;
+     }
+     buffer.position( end );
+ }
+
+ /**
+  * Return the number of decimal digits in non-negative x.
+  */
+ private static int digits( long x )
+ {
+     int n = 1;
+     for( ; x >= 10; x /= 10 )
+         n++;
+     return n;
+ }
+
+ private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+ private static final int MAX_INT_CHARS = 11;       // "-2147483648"
+ private static final int MIN_BUFFER_SIZE = MAX_INT_CHARS + 1;
+
+ private static final ThreadLocal<TreeWriter> LOCAL = ThreadLocal.withInitial( TreeWriter::new );
+
+ private final ByteBuffer buffer;
+ private final StringBuilder chars;
+ private Object pending;     // Item that did not fit in the buffer
+
+ // Discards everything written to it
+ private static final OutputStream NULL_STREAM = new OutputStream( )
+ {
+     public void write( int b ) { }
+     public void write( byte [ ] b, int off, int len ) { }
+ };
+
+ //Print each key with System.out.println, as printTree used to, versus a buffered export.
+ public static long[] export_time(int NUMS)
+ {
+	 long start, println_time, export_time;
+	 AVLTree<Integer> t = new AVLTree<Integer>();
+	 for( int i = 1; i <= NUMS; i++ )
+		 t.insert( i );
+
+	 PrintStream out = System.out;
+	 System.setOut( new PrintStream( NULL_STREAM ) );
+	 try
+	 {
+		 start = System.nanoTime();
+		 for( Integer x : t )
+			 System.out.println( x );
+		 println_time = System.nanoTime() - start;
+
+		 start = System.nanoTime();
+		 t.export( NULL_STREAM );
+		 export_time = System.nanoTime() - start;
+	 }
+	 catch( IOException e )
+	 {
+		 throw new AssertionError( e );
+	 }
+	 finally
+	 {
+		 System.setOut( out );
+	 }
+
+	 return new long[] { println_time / NUMS, export_time / NUMS };
+ }
+
+     // Test program
+ public static void main( String [ ] args )
+ {
+     final int NUMS = 1000000;
+
+     export_time( NUMS );   // Warm up
+     long x[] = export_time( NUMS );
+     System.out.println( "The time cost per key for println is " + x[0] );
+     System.out.println( "The time cost per key for export is " + x[1] );
+ }
+}
@@ -0,0 +1,218 @@
+package searchtrees;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+//WorkloadGenerator class
+//
+//CONSTRUCTION: none; every operation is static
+//
+//******************PUBLIC OPERATIONS*********************
+//void sequential( w, n, s )   --> README workload 4: sorted inserts, searches, reverse removes
+//void uniform( w, n, s )      --> README workload 5: random inserts, searches, removes
+//void zipf( w, n, o, k, s )   --> n inserts, then o searches with Zipf skew k
+//void hotspot( w, n, o, p, s ) --> Mixed operations on a hot range that moves p times
+//void slidingWindow( w, n, k, s ) --> Insert 1 to n keeping only the last k, with lookups
+//******************ERRORS********************************
+//UncheckedIOException if the trace cannot be written
+
+/**
+* Synthetic workloads, written as WorkloadTrace files. Every generator
+* draws from a Random seeded by its caller, so the same arguments always
+* give the same trace, byte for byte, and a replay of it does the same
+* work on every tree; only the times differ.
+*/
+public final class WorkloadGenerator
+{
+ private WorkloadGenerator( )
+ {
+ }
+
+ /**
+  * Workload 4 of the README: insert 1 to n in order, search n random
+  * keys from 1 to n, then remove n down to 1.
+  */
+ public static void sequential( WorkloadTrace.Writer w, int n, long seed )
+ {
+     Random r = new Random( seed );
+     for( int i = 1; i <= n; i++ )
+         w.insert( i );
+     for( int i = 0; i < n; i++ )
+         w.contains( r.nextInt( n ) + 1 );
+     for( int i = n; i >= 1; i-- )
+         w.remove( i );
+ }
+
+ /**
+  * Workload 5 of the README: n inserts, n searches and n removes, each
+  * of a random key from 1 to n.
+  */
+ public static void uniform( WorkloadTrace.Writer w, int n, long seed )
+ {
+     Random r = new Random( seed );
+     for( int i = 0; i < n; i++ )
+         w.insert( r.nextInt( n ) + 1 );
+     for( int i = 0; i < n; i++ )
+         w.contains( r.nextInt( n ) + 1 );
+     for( int i = 0; i < n; i++ )
+         w.remove( r.nextInt( n ) + 1 );
+ }
+
+ /**
+  * Insert 1 to n in random order, then search ops keys drawn from a
+  * Zipf distribution: the key of rank i is searched in proportion to
+  * 1 / i^skew, and the ranks are dealt to the keys at random, so the
+  * popular keys are scattered through the tree.
+  */
+ public static void zipf( WorkloadTrace.Writer w, int n, int ops, double skew, long seed )
+ {
+     Random r = new Random( seed );
+     int [ ] byRank = shuffled( n, r );
+     for( int x : shuffled( n, r ) )
+         w.insert( x );
+
+     double [ ] cdf = new double[ n ];
+     double sum = 0;
+     for( int i = 0; i < n; i++ )
+         cdf[ i ] = sum += 1 / Math.pow( i + 1, skew );
+     for( int i = 0; i < ops; i++ )
+     {
+         int rank = Arrays.binarySearch( cdf, r.nextDouble( ) * sum );
+         w.contains( byRank[ rank < 0 ? -rank - 1 : rank ] );
+     }
+ }
+
+ /**
+  * Insert 1 to n in random order, then run ops operations, 80% searches
+  * and 10% each removes and inserts. Nine in ten pick their key from a
+  * hot range of n / 100 keys, the rest from all n, and the hot range
+  * moves to a random place phases times, so caches and splayed paths
+  * that suited one phase go stale in the next.
+  */
+ public static void hotspot( WorkloadTrace.Writer w, int n, int ops, int phases, long seed )
+ {
+     Random r = new Random( seed );
+     for( int x : shuffled( n, r ) )
+         w.insert( x );
+
+     int width = Math.max( 1, n / 100 );
+     int perPhase = Math.max( 1, ops / Math.max( 1, phases ) );
+     int hot = 1;
+     for( int i = 0; i < ops; i++ )
+     {
+         if( i % perPhase == 0 )
+             hot = r.nextInt( n - width + 1 ) + 1;
+         int x = r.nextInt( 10 ) < 9 ? hot + r.nextInt( width ) : r.nextInt( n ) + 1;
+         int kind = r.nextInt( 10 );
+         if( kind == 0 )
+             w.remove( x );
+         else if( kind == 1 )
+             w.insert( x );
+         else
+             w.contains( x );
+     }
+ }
+
+ /**
+  * Insert 1 to n, removing each key again window inserts later, as a
+  * time-ordered index does. After each insert one key of the window is
+  * searched, and every 64 inserts the newest 64 keys are counted.
+  */
+ public static void slidingWindow( WorkloadTrace.Writer w, int n, int window, long seed )
+ {
+     if( window < 1 )
+         throw new IllegalArgumentException( "The window must hold at least one key" );
+     Random r = new Random( seed );
+     for( int i = 1; i <= n; i++ )
+     {
+         w.insert( i );
+         if( i > window )
+             w.remove( i - window );
+         int oldest = Math.max( 1, i - window + 1 );
+         w.contains( oldest + r.nextInt( i - oldest + 1 ) );
+         if( i % 64 == 0 )
+             w.range( i - 63, i );
+     }
+ }
+
+ /**
+  * Internal method to return 1 to n in random order.
+  */
+ private static int [ ] shuffled( int n, Random r )
+ {
+     int [ ] a = new int[ n ];
+     for( int i = 0; i < n; i++ )
+         a[ i ] = i + 1;
+     for( int i = n - 1; i > 0; i-- )
+     {
+         int j = r.nextInt( i + 1 );
+         int t = a[ i ]; a[ i ] = a[ j ]; a[ j ] = t;
+     }
+     return a;
+ }
+
+
+ //Replays the trace f on t. Returns the operations, the items found and the
+ //time in milliseconds.
+ public static long[] replay_time(Path f, SearchTree<Integer> t) throws IOException
+ {
+	 long[] x = WorkloadTrace.replay(f, t);
+	 x[2] /= 1000000;
+	 return x;
+ }
+
+     // Test program; writes each workload to a temporary file, records a
+     // replay of one through a RecordingTree, and replays the traces on
+     // each tree. The recorded trace must find what hotspot found. The
+     // red-black tree keeps duplicate inserts where the others ignore
+     // them, so it finds more in hotspot, which inserts keys already there.
+ public static void main( String [ ] args ) throws Exception
+ {
+     final int NUMS = 200000;
+     final long SEED = 42;
+     String [ ] names = { "sequential", "uniform", "zipf", "hotspot", "slidingWindow", "recorded" };
+     Path [ ] files = new Path[ names.length ];
+     for( int i = 0; i < names.length; i++ )
+         files[ i ] = Files.createTempFile( "workload-" + names[ i ], ".trace" );
+
+     try
+     {
+         for( int i = 0; i < 5; i++ )
+         {
+             WorkloadTrace.Writer w = new WorkloadTrace.Writer( files[ i ] );
+             switch( i )
+             {
+               case 0: sequential( w, NUMS, SEED ); break;
+               case 1: uniform( w, NUMS, SEED ); break;
+               case 2: zipf( w, NUMS, 2 * NUMS, 1.0, SEED ); break;
+               case 3: hotspot( w, NUMS, 2 * NUMS, 8, SEED ); break;
+               default: slidingWindow( w, NUMS, 1000, SEED );
+             }
+             w.close( );
+             System.out.printf( "%-14s %8d ops, %6.2f bytes an op%n", names[ i ], w.count( ),
+                                (double) Files.size( files[ i ] ) / w.count( ) );
+         }
+         try( WorkloadTrace.Writer w = new WorkloadTrace.Writer( files[ 5 ] ) )
+         {
+             WorkloadTrace.replay( files[ 3 ], new RecordingTree( new AVLTree<Integer>( ), w ) );
+         }
+
+         for( int i = 0; i < names.length; i++ )
+         {
+             long [ ] a = replay_time( files[ i ], new AVLTree<Integer>( ) );
+             long [ ] b = replay_time( files[ i ], new RedBlackTree<Integer>( ) );
+             long [ ] c = replay_time( files[ i ], new SplayTree<Integer>( ) );
+             System.out.printf( "%-14s found %8d %8d %8d; AVL %5d ms, red-black %5d ms, splay %5d ms%n",
+                                names[ i ], a[ 1 ], b[ 1 ], c[ 1 ], a[ 2 ], b[ 2 ], c[ 2 ] );
+         }
+     }
+     finally
+     {
+         for( Path f : files )
+             Files.deleteIfExists( f );
+     }
+ }
+}
@@ -0,0 +1,352 @@
+package searchtrees;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+
+//WorkloadTrace class
+//
+//CONSTRUCTION: none; holds the trace format, its Writer and its Reader
+//
+//******************PUBLIC OPERATIONS*********************
+//Writer: void insert( x ), remove( x ), contains( x ) --> Record the operation on x
+//        void range( l, h ) --> Record a count of the items from l to h
+//        long count( )      --> Return the number of operations recorded
+//Reader: boolean next( )    --> Move to the next operation, if there is one
+//        int op( ), key( ), high( ) --> Return the parts of the operation
+//static long [ ] replay( f, t ) --> Run every operation of file f on t
+//******************ERRORS********************************
+//IOException if a file cannot be read or is not a trace
+//UncheckedIOException if a Writer cannot write its file
+
+/**
+* A compact binary record of the operations done on a tree, so that a
+* workload seen in production, or generated by WorkloadGenerator, can be
+* run again, exactly, against any tree.
+* After a 4-byte magic number and a version byte, each operation is a
+* varint holding the zigzag-encoded distance of its key from the key of
+* the operation before, shifted left two bits, with the operation in
+* the low bits. A range count adds the zigzag varint of its width. A
+* run of nearby keys thus takes one byte an operation, and no operation
+* takes more than ten.
+* Both ends stream through a 64 KB direct buffer, so a trace of any
+* length is written and replayed in constant memory.
+*/
+public final class WorkloadTrace
+{
+ public static final int INSERT = 0;
+ public static final int REMOVE = 1;
+ public static final int CONTAINS = 2;
+ public static final int RANGE = 3;
+
+ private static final int MAGIC = 0x54575453;     // "STWT"
+ private static final int VERSION = 1;
+ private static final int BUFFER = 1 << 16;
+ private static final int MAX_RECORD = 10;
+
+ private WorkloadTrace( )
+ {
+ }
+
+ /**
+  * Run every operation of a trace on a tree.
+  * @param file the trace.
+  * @param t the tree.
+  * @return the number of operations, the number of contains that
+  * found their item plus the items counted by ranges, and the time
+  * taken in nanoseconds.
+  */
+ public static long [ ] replay( Path file, SearchTree<Integer> t ) throws IOException
+ {
+     long found = 0;
+     long start = System.nanoTime( );
+     try( Reader r = new Reader( file ) )
+     {
+         while( r.next( ) )
+         {
+             switch( r.op( ) )
+             {
+               case INSERT: t.insert( r.key( ) ); break;
+               case REMOVE: t.remove( r.key( ) ); break;
+               case CONTAINS: if( t.contains( r.key( ) ) ) found++; break;
+               default: found += countRange( t, r.key( ), r.high( ) );
+             }
+         }
+         return new long[ ] { r.count( ), found, System.nanoTime( ) - start };
+     }
+ }
+
+ /**
+  * Count the items x of a tree with low <= x <= high. Red-black trees
+  * and B+ trees answer directly, a RecordingTree records the count, and
+  * other trees are scanned in order.
+  */
+ static int countRange( SearchTree<Integer> t, int low, int high )
+ {
+     if( t instanceof RecordingTree )
+         return ( (RecordingTree) t ).countRange( low, high );
+     if( low > high )
+         return 0;
+     if( t instanceof RedBlackTree )
+     {
+         RedBlackTree<Integer> rb = (RedBlackTree<Integer>) t;
+         return rb.size( ) - rb.numSmaller( low ) - rb.numGreater( high );
+     }
+     if( t instanceof BPlusTree )
+         return ( (BPlusTree) t ).range( low, high ).size( );
+
+     int n = 0;
+     for( Iterator<Integer> itr = t.iterator( ); itr.hasNext( ); )
+     {
+         int x = itr.next( );
+         if( x > high )
+             break;
+         if( x >= low )
+             n++;
+     }
+     return n;
+ }
+
+ private static long zigzag( long v )
+ {
+     return ( v << 1 ) ^ ( v >> 63 );
+ }
+
+ private static long unzigzag( long v )
+ {
+     return ( v >>> 1 ) ^ -( v & 1 );
+ }
+
+ /**
+  * Writes operations to a new trace file.
+  */
+ public static final class Writer implements Closeable
+ {
+     /**
+      * Create the trace, replacing any file already there.
+      * @param file the path of the trace.
+      */
+     public Writer( Path file ) throws IOException
+     {
+         channel = FileChannel.open( file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                     StandardOpenOption.TRUNCATE_EXISTING );
+         buffer.putInt( MAGIC ).put( (byte) VERSION );
+     }
+
+     public void insert( int x )
+     {
+         put( INSERT, x );
+     }
+
+     public void remove( int x )
+     {
+         put( REMOVE, x );
+     }
+
+     public void contains( int x )
+     {
+         put( CONTAINS, x );
+     }
+
+     /**
+      * Record a count of the items x with low <= x <= high.
+      */
+     public void range( int low, int high )
+     {
+         put( RANGE, low );
+         putVarint( zigzag( (long) high - low ) );
+     }
+
+     /**
+      * Return the number of operations recorded.
+      */
+     public long count( )
+     {
+         return count;
+     }
+
+     /**
+      * Write out the operations buffered so far.
+      */
+     public void flush( )
+     {
+         buffer.flip( );
+         try
+         {
+             while( buffer.hasRemaining( ) )
+                 channel.write( buffer );
+         }
+         catch( IOException e )
+         {
+             throw new UncheckedIOException( e );
+         }
+         buffer.clear( );
+     }
+
+     /**
+      * Write out what is buffered and close the file.
+      */
+     public void close( ) throws IOException
+     {
+         try
+         {
+             flush( );
+         }
+         catch( UncheckedIOException e )
+         {
+             throw e.getCause( );
+         }
+         finally
+         {
+             channel.close( );
+         }
+     }
+
+     private void put( int op, int key )
+     {
+         if( buffer.remaining( ) < MAX_RECORD )
+             flush( );
+         putVarint( zigzag( (long) key - previous ) << 2 | op );
+         previous = key;
+         count++;
+     }
+
+     private void putVarint( long v )
+     {
+         while( ( v & ~0x7FL ) != 0 )
+         {
+             buffer.put( (byte) ( v | 0x80 ) );
+             v >>>= 7;
+         }
+         buffer.put( (byte) v );
+     }
+
+     private final FileChannel channel;
+     private final ByteBuffer buffer = ByteBuffer.allocateDirect( BUFFER ).order( ByteOrder.LITTLE_ENDIAN );
+     private int previous;
+     private long count;
+ }
+
+ /**
+  * Reads the operations of a trace file, one at a time.
+  */
+ public static final class Reader implements Closeable
+ {
+     /**
+      * Open a trace and check its header.
+      * @param file the path of the trace.
+      */
+     public Reader( Path file ) throws IOException
+     {
+         channel = FileChannel.open( file, StandardOpenOption.READ );
+         buffer.limit( 0 );
+         fill( );
+         if( buffer.remaining( ) < 5 || buffer.getInt( ) != MAGIC || buffer.get( ) != VERSION )
+         {
+             channel.close( );
+             throw new IOException( "Not a workload trace" );
+         }
+     }
+
+     /**
+      * Move to the next operation.
+      * @return false if there are no more.
+      */
+     public boolean next( ) throws IOException
+     {
+         if( buffer.remaining( ) < MAX_RECORD && !atEnd )
+             fill( );
+         if( !buffer.hasRemaining( ) )
+             return false;
+
+         long v = getVarint( );
+         op = (int) ( v & 3 );
+         key = (int) ( previous + unzigzag( v >>> 2 ) );
+         previous = key;
+         high = op == RANGE ? (int) ( key + unzigzag( getVarint( ) ) ) : key;
+         count++;
+         return true;
+     }
+
+     /**
+      * Return INSERT, REMOVE, CONTAINS or RANGE.
+      */
+     public int op( )
+     {
+         return op;
+     }
+
+     /**
+      * Return the item of the operation, or the low end of a range.
+      */
+     public int key( )
+     {
+         return key;
+     }
+
+     /**
+      * Return the high end of a range; for other operations the key.
+      */
+     public int high( )
+     {
+         return high;
+     }
+
+     /**
+      * Return the number of operations read so far.
+      */
+     public long count( )
+     {
+         return count;
+     }
+
+     public void close( ) throws IOException
+     {
+         channel.close( );
+     }
+
+     private void fill( ) throws IOException
+     {
+         buffer.compact( );
+         while( buffer.hasRemaining( ) )
+         {
+             if( channel.read( buffer ) < 0 )
+             {
+                 atEnd = true;
+                 break;
+             }
+         }
+         buffer.flip( );
+     }
+
+     private long getVarint( ) throws IOException
+     {
+         long v = 0;
+         for( int shift = 0; shift < 64; shift += 7 )
+         {
+             if( !buffer.hasRemaining( ) )
+                 throw new IOException( "Truncated trace" );
+             byte b = buffer.get( );
+             v |= (long) ( b & 0x7F ) << shift;
+             if( b >= 0 )
+                 return v;
+         }
+         throw new IOException( "Malformed varint" );
+     }
+
+     private final FileChannel channel;
+     private final ByteBuffer buffer = ByteBuffer.allocateDirect( BUFFER ).order( ByteOrder.LITTLE_ENDIAN );
+     private boolean atEnd;
+     private int previous;
+     private int op;
+     private int key;
+     private int high;
+     private long count;
+ }
+}